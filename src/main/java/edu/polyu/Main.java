@@ -1,44 +1,77 @@
 package edu.polyu;
 
+import edu.polyu.cluster.ShardRunner;
+import edu.polyu.reduction.Reducer;
+import edu.polyu.util.Incremental;
+import edu.polyu.util.Replay;
+import edu.polyu.util.ResultStore;
 import edu.polyu.util.Schedule;
+import edu.polyu.util.Staging;
 import edu.polyu.util.Utility;
 
+import java.io.File;
+import java.io.IOException;
+
 /**
  * Main entry point for Statfier application
  * Initializes the environment and executes the appropriate static analyzer
  */
 public class Main {
     
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Utility.checkConfig();
+        // Regression replay: "--replay <previous EVALUATION_PATH>" analyzes the stored findings again instead of mutating
+        File replayFolder = null;
+        if (args.length > 1 && args[0].equals("--replay")) {
+            replayFolder = new File(args[1]).getAbsoluteFile();
+            if (replayFolder.equals(new File(Utility.EVALUATION_PATH).getAbsoluteFile())) {
+                System.err.println("The replayed run has to be moved out of EVALUATION_PATH, which is cleared for the replay.");
+                System.exit(-1);
+            }
+        }
         // Initialize the environment (Requirement 3.1)
         Utility.initEnv();
         
         // Get the Schedule instance
         Schedule schedule = Schedule.getInstance();
         
+        // Sharded campaign: "--coordinator" hands rule buckets to workers started with "--worker host:port"
+        if (args.length > 0 && args[0].equals("--coordinator")) {
+            ShardRunner.runCoordinator();
+            Staging.close();
+            System.out.println("Analysis completed successfully.");
+            return;
+        }
+        if (args.length > 1 && args[0].equals("--worker")) {
+            ShardRunner.runWorker(args[1]);
+            ResultStore.shutdown();
+            Staging.close();
+            return;
+        }
+        if (replayFolder != null) {
+            Replay.replay(replayFolder);
+            ResultStore.shutdown();
+            Staging.close();
+            return;
+        }
+
+        // Incremental campaign: only the buckets of new or changed seeds are analyzed, the other results come from the previous run
+        if (Utility.INCREMENTAL) {
+            Incremental.init(Utility.getPreviousFolder(), Utility.SEED_PATH);
+        }
+
         // Check which analyzer is enabled and execute accordingly (Requirement 4.1)
-        if (Utility.PMD_MUTATION) {
-            System.out.println("Starting PMD analysis...");
-            schedule.executePMDTransform(Utility.SEED_PATH);
-        } else if (Utility.SPOTBUGS_MUTATION) {
-            System.out.println("Starting SpotBugs analysis...");
-            schedule.executeSpotBugsTransform(Utility.SEED_PATH);
-        } else if (Utility.CHECKSTYLE_MUTATION) {
-            System.out.println("Starting CheckStyle analysis...");
-            schedule.executeCheckStyleTransform(Utility.SEED_PATH);
-        } else if (Utility.INFER_MUTATION) {
-            System.out.println("Starting Infer analysis...");
-            schedule.executeInferTransform(Utility.SEED_PATH);
-        } else if (Utility.SONARQUBE_MUTATION) {
-            System.out.println("Starting SonarQube analysis...");
-            schedule.executeSonarQubeTransform(Utility.SEED_PATH);
-        } else if (Utility.CODENAVI_MUTATION) {
-            System.out.println("Starting CodeNavi analysis...");
-            schedule.executeCodeNaviTransform(Utility.SEED_PATH);
-        } else {
+        if (!schedule.executeTransform(Utility.SEED_PATH)) {
             System.err.println("No static analyzer is enabled. Please set one of the *_MUTATION flags to true in config.properties");
             System.exit(-1);
         }
+        // Results are written even if the time budget stopped the campaign early
+        Schedule.writeEvaluationResult();
+        if (Utility.REDUCE_FINDINGS) {
+            Reducer.reduceFindings();
+        }
+        // Findings still queued for the background writer are copied before the staging folder is removed
+        Staging.close();
         
         System.out.println("Analysis completed successfully.");
     }
@@ -0,0 +1,184 @@
+package edu.polyu.analysis;
+
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CatchClause;
+import org.eclipse.jdt.core.dom.ConditionalExpression;
+import org.eclipse.jdt.core.dom.DoStatement;
+import org.eclipse.jdt.core.dom.EnhancedForStatement;
+import org.eclipse.jdt.core.dom.ForStatement;
+import org.eclipse.jdt.core.dom.IfStatement;
+import org.eclipse.jdt.core.dom.LambdaExpression;
+import org.eclipse.jdt.core.dom.Modifier;
+import org.eclipse.jdt.core.dom.SwitchStatement;
+import org.eclipse.jdt.core.dom.SynchronizedStatement;
+import org.eclipse.jdt.core.dom.TryStatement;
+import org.eclipse.jdt.core.dom.WhileStatement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Description: Diversity-driven selection of mutants with MinHash and locality-sensitive hashing.
+ * Every mutant is described by a set of features: its transform sequence, the kinds of nodes under the last
+ * transformed node and the control flow around it. Mutants are visited in random order and a mutant is kept unless
+ * an already kept mutant in one of its LSH buckets has an estimated Jaccard similarity of at least threshold.
+ * A mutant is only compared with the kept mutants of its own buckets, so selection stays near-linear.
+ */
+public class MinHashSelector {
+
+    private static final int HASHES = 64;
+    private static final int BANDS = 16; // rows per band = HASHES / BANDS
+    private static final int MAX_KINDS = 32; // node kinds collected under the transformed node
+
+    // Settings are overwritten in Utility.initEnv from config.properties
+    public static int budget = 20; // mutants kept per parent, 0 means no limit
+    public static double threshold = 0.8;
+
+    private MinHashSelector() {
+    }
+
+    public static <T> List<T> select(List<T> items, Function<T, Set<String>> getFeatures, int budget, double threshold, Random random) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, random);
+        int rows = HASHES / BANDS;
+        Map<Long, List<long[]>> bucket2kept = new HashMap<>();
+        List<Integer> kept = new ArrayList<>();
+        for (int index : order) {
+            if (budget > 0 && kept.size() >= budget) {
+                break;
+            }
+            long[] signature = signature(getFeatures.apply(items.get(index)));
+            long[] keys = new long[BANDS];
+            boolean covered = false;
+            for (int band = 0; band < BANDS; band++) {
+                long key = band;
+                for (int row = band * rows; row < (band + 1) * rows; row++) {
+                    key = mix(key * 31 + signature[row]);
+                }
+                keys[band] = key;
+                List<long[]> candidates = bucket2kept.get(key);
+                if (candidates == null || covered) {
+                    continue;
+                }
+                for (long[] candidate : candidates) {
+                    if (similarity(signature, candidate) >= threshold) {
+                        covered = true;
+                        break;
+                    }
+                }
+            }
+            if (covered) {
+                continue;
+            }
+            kept.add(index);
+            for (long key : keys) {
+                bucket2kept.computeIfAbsent(key, k -> new ArrayList<>()).add(signature);
+            }
+        }
+        Collections.sort(kept);
+        List<T> selected = new ArrayList<>();
+        for (int index : kept) {
+            selected.add(items.get(index));
+        }
+        return selected;
+    }
+
+    public static long[] signature(Set<String> features) {
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String feature : features) {
+            long hash = feature.hashCode();
+            for (int i = 0; i < HASHES; i++) {
+                signature[i] = Math.min(signature[i], mix(hash + 0x9E3779B97F4A7C15L * (i + 1)));
+            }
+        }
+        return signature;
+    }
+
+    public static double similarity(long[] signature1, long[] signature2) {
+        int same = 0;
+        for (int i = 0; i < HASHES; i++) {
+            if (signature1[i] == signature2[i]) {
+                same++;
+            }
+        }
+        return same / (double) HASHES;
+    }
+
+    // Finalizer of SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public static Set<String> getFeatures(TypeWrapper mutant) {
+        return getFeatures(mutant.getTransSeq(), mutant.getTransNode());
+    }
+
+    // Edit operations, node kinds and control-flow context of the last transformed node
+    public static Set<String> getFeatures(List<String> transSeq, ASTNode node) {
+        Set<String> features = new HashSet<>();
+        for (int i = 0; i < transSeq.size(); i++) {
+            features.add("t:" + transSeq.get(i));
+            if (i > 0) {
+                features.add("tt:" + transSeq.get(i - 1) + ">" + transSeq.get(i));
+            }
+        }
+        if (node == null) {
+            return features;
+        }
+        String lastTransform = transSeq.isEmpty() ? "" : transSeq.get(transSeq.size() - 1);
+        features.add("n:" + node.getClass().getSimpleName());
+        features.add("tn:" + lastTransform + "@" + node.getClass().getSimpleName());
+        if (node.getParent() != null) {
+            features.add("p:" + node.getParent().getClass().getSimpleName());
+        }
+        Set<String> kinds = new HashSet<>();
+        node.accept(new ASTVisitor() {
+            @Override
+            public boolean preVisit2(ASTNode child) {
+                if (kinds.size() >= MAX_KINDS) {
+                    return false;
+                }
+                kinds.add(child.getClass().getSimpleName());
+                return true;
+            }
+        });
+        for (String kind : kinds) {
+            features.add("k:" + kind);
+        }
+        int loops = 0;
+        for (ASTNode parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof ForStatement || parent instanceof EnhancedForStatement || parent instanceof WhileStatement || parent instanceof DoStatement) {
+                loops++;
+                features.add("cf:loop");
+            } else if (parent instanceof IfStatement || parent instanceof ConditionalExpression) {
+                features.add("cf:branch");
+            } else if (parent instanceof SwitchStatement) {
+                features.add("cf:switch");
+            } else if (parent instanceof TryStatement || parent instanceof CatchClause || parent instanceof SynchronizedStatement || parent instanceof LambdaExpression) {
+                features.add("cf:" + parent.getClass().getSimpleName());
+            } else if (parent instanceof BodyDeclaration) {
+                features.add("m:" + parent.getClass().getSimpleName() + (Modifier.isStatic(((BodyDeclaration) parent).getModifiers()) ? "_static" : ""));
+                break;
+            }
+        }
+        features.add("loops:" + Math.min(loops, 3));
+        return features;
+    }
+
+}
@@ -0,0 +1,156 @@
+package edu.polyu.analysis;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description: Compact reference to a mutant of the exploration frontier. It keeps what a TypeWrapper cannot recompute
+ * from the source file, so the frontier holds no documents and ASTs, see TypeWrapper.toHandle() and fromHandle().
+ * The last transformed node is kept as its node types and source range, so it can be found again in the rebuilt AST.
+ * While the beam is enabled, the features of that node are kept as well, so the beam scores handles without an AST.
+ */
+public class MutantHandle {
+
+    private final String filePath;
+    private final String folderName;
+    private final String initSeedPath;
+    private final String parentPath;
+    private final int depth;
+    private final int violations;
+    private final int parViolations;
+    private final List<String> transSeq;
+    private final List<Integer> transNodeTypes;
+    private final int transStart; // -1 if no node has been transformed
+    private final int transLength;
+    private final List<String> features; // see MinHashSelector.getFeatures, empty unless the beam is enabled
+
+    public MutantHandle(String filePath, String folderName, String initSeedPath, String parentPath, int depth,
+                        int violations, int parViolations, List<String> transSeq) {
+        this(filePath, folderName, initSeedPath, parentPath, depth, violations, parViolations, transSeq, new ArrayList<>(), -1, 0, new ArrayList<>());
+    }
+
+    public MutantHandle(String filePath, String folderName, String initSeedPath, String parentPath, int depth,
+                        int violations, int parViolations, List<String> transSeq, List<Integer> transNodeTypes,
+                        int transStart, int transLength, List<String> features) {
+        this.filePath = filePath;
+        this.folderName = folderName;
+        this.initSeedPath = initSeedPath;
+        this.parentPath = parentPath;
+        this.depth = depth;
+        this.violations = violations;
+        this.parViolations = parViolations;
+        this.transSeq = transSeq;
+        this.transNodeTypes = transNodeTypes;
+        this.transStart = transStart;
+        this.transLength = transLength;
+        this.features = features;
+    }
+
+    public static MutantHandle ofSeed(String seedPath, String folderName) {
+        return new MutantHandle(seedPath, folderName, seedPath, "initSeed", 0, 0, 0, new ArrayList<>());
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getFolderName() {
+        return folderName;
+    }
+
+    public String getInitSeedPath() {
+        return initSeedPath;
+    }
+
+    public String getParentPath() {
+        return parentPath;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getViolations() {
+        return violations;
+    }
+
+    public int getParViolations() {
+        return parViolations;
+    }
+
+    public List<String> getTransSeq() {
+        return transSeq;
+    }
+
+    public List<Integer> getTransNodeTypes() {
+        return transNodeTypes;
+    }
+
+    public int getTransStart() {
+        return transStart;
+    }
+
+    public int getTransLength() {
+        return transLength;
+    }
+
+    public List<String> getFeatures() {
+        return features;
+    }
+
+    public ObjectNode toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("file", filePath);
+        node.put("folder", folderName);
+        node.put("seed", initSeedPath);
+        node.put("parent", parentPath);
+        node.put("depth", depth);
+        node.put("violations", violations);
+        node.put("parViolations", parViolations);
+        ArrayNode seqNodes = node.putArray("seq");
+        for (String transform : transSeq) {
+            seqNodes.add(transform);
+        }
+        ArrayNode typeNodes = node.putArray("nodeTypes");
+        for (int nodeType : transNodeTypes) {
+            typeNodes.add(nodeType);
+        }
+        node.put("transStart", transStart);
+        node.put("transLength", transLength);
+        ArrayNode featureNodes = node.putArray("features");
+        for (String feature : features) {
+            featureNodes.add(feature);
+        }
+        return node;
+    }
+
+    public static MutantHandle fromJson(JsonNode node) {
+        List<String> transSeq = new ArrayList<>();
+        for (JsonNode transform : node.get("seq")) {
+            transSeq.add(transform.asText());
+        }
+        List<Integer> transNodeTypes = new ArrayList<>();
+        for (JsonNode nodeType : node.path("nodeTypes")) {
+            transNodeTypes.add(nodeType.asInt());
+        }
+        List<String> features = new ArrayList<>();
+        for (JsonNode feature : node.path("features")) {
+            features.add(feature.asText());
+        }
+        return new MutantHandle(node.get("file").asText(), node.get("folder").asText(), node.get("seed").asText(),
+                node.get("parent").asText(), node.get("depth").asInt(), node.get("violations").asInt(),
+                node.get("parViolations").asInt(), transSeq, transNodeTypes, node.path("transStart").asInt(-1),
+                node.path("transLength").asInt(0), features);
+    }
+
+    @Override
+    public String toString() {
+        return filePath;
+    }
+
+}
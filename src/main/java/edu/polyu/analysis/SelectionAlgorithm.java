@@ -1,7 +1,5 @@
 package edu.polyu.analysis;
 
-import org.eclipse.jdt.core.dom.ASTNode;
-
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -16,8 +14,7 @@ public class SelectionAlgorithm {
         Map<String, Boolean> code2exist = new HashMap<>();
         for(TypeWrapper mutant : mutants) {
             String transType = mutant.getTransSeq().toString();
-            ASTNode node = mutant.getTransNodes().get(mutant.getTransNodes().size() - 1);
-            int nodeType = node.getNodeType();
+            int nodeType = mutant.getTransNodeTypes().get(mutant.getTransNodeTypes().size() - 1);
             if(!code2exist.containsKey(transType + nodeType)) {
 
                 code2exist.put(transType + nodeType, true);
@@ -27,6 +24,10 @@ public class SelectionAlgorithm {
         return res;
     }
 
+    public static List<TypeWrapper> LSH_Selection(List<TypeWrapper> mutants) {
+        return MinHashSelector.select(mutants, MinHashSelector::getFeatures, MinHashSelector.budget, MinHashSelector.threshold, random);
+    }
+
     public static List<TypeWrapper> Random_Selection(List<TypeWrapper> mutants) {
         List<TypeWrapper> res = new ArrayList<>();
         for(TypeWrapper mutant : mutants) {
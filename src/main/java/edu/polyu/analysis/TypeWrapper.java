@@ -1,8 +1,19 @@
 package edu.polyu.analysis;
 
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.MutantGeneratedEvent;
+import edu.polyu.monitor.Tracer;
+import edu.polyu.monitor.TriageDecisionEvent;
+import edu.polyu.transform.BeamSearch;
 import edu.polyu.transform.Transform;
+import edu.polyu.transform.TransformBandit;
+import edu.polyu.util.AnalyzerSpace;
 import edu.polyu.util.Invoker;
+import edu.polyu.util.MutantStore;
+import edu.polyu.util.ResultStore;
+import edu.polyu.util.Staging;
 import edu.polyu.util.TriTuple;
+import edu.polyu.util.Utility;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jdt.core.JavaCore;
 import org.eclipse.jdt.core.dom.AST;
@@ -25,6 +36,7 @@ import org.eclipse.jdt.core.dom.Initializer;
 import org.eclipse.jdt.core.dom.MarkerAnnotation;
 import org.eclipse.jdt.core.dom.MethodDeclaration;
 import org.eclipse.jdt.core.dom.MethodInvocation;
+import org.eclipse.jdt.core.dom.NodeFinder;
 import org.eclipse.jdt.core.dom.NumberLiteral;
 import org.eclipse.jdt.core.dom.PackageDeclaration;
 import org.eclipse.jdt.core.dom.PrimitiveType;
@@ -40,6 +52,7 @@ import org.eclipse.jdt.core.dom.VariableDeclarationFragment;
 import org.eclipse.jdt.core.dom.VariableDeclarationStatement;
 import org.eclipse.jdt.core.dom.WhileStatement;
 import org.eclipse.jdt.core.dom.rewrite.ASTRewrite;
+import org.eclipse.jdt.core.dom.rewrite.ITrackedNodePosition;
 import org.eclipse.jface.text.Document;
 import org.eclipse.text.edits.TextEdit;
 
@@ -57,12 +70,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntFunction;
 
 import static edu.polyu.util.Utility.CHECKSTYLE_MUTATION;
 import static edu.polyu.util.Utility.FINDSECBUGS_MUTATION;
 import static edu.polyu.util.Utility.GOOGLE_FORMAT_PATH;
 import static edu.polyu.util.Utility.PMD_MUTATION;
-import static edu.polyu.util.Utility.SONARQUBE_MUTATION;
 import static edu.polyu.util.Utility.SPOTBUGS_MUTATION;
 import static edu.polyu.util.Utility.random;
 import static edu.polyu.util.Utility.failedT;
@@ -72,7 +85,6 @@ import static edu.polyu.util.Utility.Path2Last;
 import static edu.polyu.util.Utility.compareNode;
 import static edu.polyu.util.Utility.compactIssues;
 import static edu.polyu.util.Utility.mutantCounter;
-import static edu.polyu.util.Utility.EVALUATION_PATH;
 import static edu.polyu.util.Utility.startTimeStamp;
 import static edu.polyu.util.Utility.successfulT;
 import static edu.polyu.util.Utility.isInvalidModifier;
@@ -96,18 +108,23 @@ public class TypeWrapper {
     private String folderName;
     private String parentPath;
     private String MUTANT_FOLDER;
-    private List<ASTNode> nodeIndex;
     private List<String> transSeq;
-    private List<ASTNode> transNodes;
+    // Node types of the transformed nodes and the range of the last one in the current document.
+    // Nodes are resolved on demand, a kept node would pin the whole AST it was taken from.
+    private List<Integer> transNodeTypes;
+    private int transStart = -1;
+    private int transLength;
     private List<TypeDeclaration> types;
     private List<ASTNode> priorNodes;
     private List<ASTNode> allNodes;
     private HashMap<String, List<ASTNode>> method2statements;
     private HashMap<String, HashSet<String>> method2identifiers;
     private List<ASTNode> candidateNodes;
+    private Boolean banditVerdict; // verdict that has been rewarded to the arm of the last transform
 
     public static HashMap<String, String> mutant2seed = new HashMap<>();
     public static HashMap<String, String> mutant2seq = new HashMap<>();
+    public static HashMap<String, String> mutant2parent = new HashMap<>();
 
     public static Map compilerOptions = JavaCore.getOptions();
     static {
@@ -119,25 +136,26 @@ public class TypeWrapper {
     public static List<String> failedParse = new ArrayList<>();
 
     public TypeWrapper(String filePath, String folderName) {
+        this(filePath, folderName, readSource(filePath));
+    }
+
+    // Seed whose source is given instead of read from filePath, e.g. a file sent to TransformService
+    public TypeWrapper(String filePath, String folderName, String content) {
         this.depth = 0;
         this.expectedNumbers = 0;
         this.filePath = filePath;
         this.initSeedPath = filePath;
         File targetFile = new File(filePath);
-        try {
-            String content = FileUtils.readFileToString(targetFile, "UTF-8");
+        if (content != null) {
             this.document = new Document(content);
-        } catch (IOException e) {
-            e.printStackTrace();
         }
         this.folderPath = targetFile.getParentFile().getAbsolutePath();
         this.folderName = folderName;
         this.filename = targetFile.getName().substring(0, targetFile.getName().length() - 5); // remove .java suffix
         this.parentPath = "initSeed";
-        this.MUTANT_FOLDER = EVALUATION_PATH + File.separator + "mutants" + File.separator + "iter" + (this.depth + 1) + File.separator + folderName;
-        this.nodeIndex = new ArrayList<>();
+        this.MUTANT_FOLDER = Utility.MUTANT_FOLDER.getPath() + File.separator + "iter" + (this.depth + 1) + File.separator + folderName;
         this.transSeq = new ArrayList<>();
-        this.transNodes = new ArrayList<>();
+        this.transNodeTypes = new ArrayList<>();
         this.parse2nodes();
     }
 
@@ -149,23 +167,60 @@ public class TypeWrapper {
         this.folderName = parentWrapper.folderName;
         this.filename = filename;
         this.document = new Document(content);
-        this.MUTANT_FOLDER = EVALUATION_PATH + File.separator + "mutants" + File.separator + "iter" + (this.depth + 1) + File.separator + folderName;
+        this.MUTANT_FOLDER = Utility.MUTANT_FOLDER.getPath() + File.separator + "iter" + (this.depth + 1) + File.separator + folderName;
         this.parViolations = parentWrapper.violations;
         this.parentPath = parentWrapper.filePath;
-        this.nodeIndex = new ArrayList<>();
         this.transSeq = new ArrayList<>();
-        this.transNodes = new ArrayList<>();
+        this.transNodeTypes = new ArrayList<>();
         File targetFile = new File(filePath);
         this.folderPath = targetFile.getParentFile().getAbsolutePath();
         this.parse2nodes();
     }
 
+    private static String readSource(String filePath) {
+        try {
+            return MutantStore.read(filePath);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // Rebuild a frontier entry from its source file, the last transformed node is found again by its type and range.
+    // Frontier entries have passed the triage, so their transform has been rewarded already
+    public static TypeWrapper fromHandle(MutantHandle handle) {
+        TypeWrapper wrapper = new TypeWrapper(handle.getFilePath(), handle.getFolderName());
+        wrapper.depth = handle.getDepth();
+        wrapper.initSeedPath = handle.getInitSeedPath();
+        wrapper.parentPath = handle.getParentPath();
+        wrapper.violations = handle.getViolations();
+        wrapper.parViolations = handle.getParViolations();
+        wrapper.transSeq.addAll(handle.getTransSeq());
+        wrapper.transNodeTypes.addAll(handle.getTransNodeTypes());
+        wrapper.transStart = handle.getTransStart();
+        wrapper.transLength = handle.getTransLength();
+        if (wrapper.depth > 0) {
+            wrapper.banditVerdict = false;
+        }
+        wrapper.MUTANT_FOLDER = Utility.MUTANT_FOLDER.getPath() + File.separator + "iter" + (wrapper.depth + 1) + File.separator + wrapper.folderName;
+        return wrapper;
+    }
+
+    public MutantHandle toHandle() {
+        return new MutantHandle(this.filePath, this.folderName, this.initSeedPath, this.parentPath, this.depth,
+                this.violations, this.parViolations, new ArrayList<>(this.transSeq), new ArrayList<>(this.transNodeTypes),
+                this.transStart, this.transLength, BeamSearch.isEnabled() ? new ArrayList<>(MinHashSelector.getFeatures(this)) : new ArrayList<>());
+    }
+
     public void updateAST(String source) {
         this.document = new Document(source);
         this.parse2nodes();
     }
 
     public void rewriteJavaCode() {
+        long startTime = Metrics.start();
+        ASTNode transNode = getTransNode();
+        ITrackedNodePosition trackedPosition = transNode == null ? null : this.astRewrite.track(transNode);
         TextEdit edits = this.astRewrite.rewriteAST(this.document, null);
         try {
             edits.apply(this.document);
@@ -173,11 +228,18 @@ public class TypeWrapper {
             System.out.println("Fail to Rewrite Java Document!");
             e.printStackTrace();
         }
+        if (trackedPosition != null) {
+            this.transStart = trackedPosition.getStartPosition();
+            this.transLength = trackedPosition.getLength();
+        }
         String newCode = this.document.get();
+        Metrics.record(Metrics.REWRITE, startTime);
+        Tracer.span(Metrics.REWRITE, this.filePath, startTime);
         updateAST(newCode);
     }
 
     private void parse2nodes() {
+        long startTime = Metrics.start();
         this.parser = ASTParser.newParser(AST.getJLSLatest());
         this.parser.setCompilerOptions(compilerOptions);
         this.parser.setSource(document.get().toCharArray());
@@ -246,20 +308,29 @@ public class TypeWrapper {
         }
         this.priorNodes = new ArrayList<>(validNodes);
         this.candidateNodes = null;
+        Metrics.record(Metrics.PARSE, startTime);
     }
 
     // This method can be invoked only if the source code file has generated.
     public boolean writeToJavaFile() {
         String code = this.getCode();
+        if (MutantStore.enabled) {
+            return this.writeToStore(code);
+        }
         try {
+            long startTime = Metrics.start();
             File file = new File(this.filePath);
             if (!file.exists()) {
+                Utility.ensureFolder(file.getParentFile());
                 file.createNewFile();
             }
             FileWriter fileWriter = new FileWriter(this.filePath);
             fileWriter.write(code);
             fileWriter.close();
+            Metrics.record(Metrics.WRITE, startTime);
+            Tracer.span(Metrics.WRITE, this.filePath, startTime);
             if(PMD_MUTATION || SPOTBUGS_MUTATION || CHECKSTYLE_MUTATION || FINDSECBUGS_MUTATION) {
+                startTime = Metrics.start();
                 String[] invokeCommands = new String[5];
                 invokeCommands[0] = "java";
                 invokeCommands[1] = "-jar";
@@ -267,6 +338,8 @@ public class TypeWrapper {
                 invokeCommands[3] = "--replace";
                 invokeCommands[4] = this.filePath;
                 boolean isFormatted = Invoker.invokeCommandsByZT(invokeCommands);
+                Metrics.record(Metrics.FORMAT, startTime);
+                Tracer.span(Metrics.FORMAT, this.filePath, startTime, "result", isFormatted ? "success" : "failed");
                 if (!isFormatted) {
                     FileUtils.delete(file);
                     return false;
@@ -280,6 +353,30 @@ public class TypeWrapper {
         return true;
     }
 
+    // Format through stdin of google-java-format and append the mutant to its pack instead of writing a file
+    private boolean writeToStore(String code) {
+        if(PMD_MUTATION || SPOTBUGS_MUTATION || CHECKSTYLE_MUTATION || FINDSECBUGS_MUTATION) {
+            long startTime = Metrics.start();
+            String[] invokeCommands = new String[4];
+            invokeCommands[0] = "java";
+            invokeCommands[1] = "-jar";
+            invokeCommands[2] = GOOGLE_FORMAT_PATH;
+            invokeCommands[3] = "-";
+            String formatted = Invoker.invokeCommandsByZTWithInput(invokeCommands, code);
+            Metrics.record(Metrics.FORMAT, startTime);
+            Tracer.span(Metrics.FORMAT, this.filePath, startTime, "result", formatted != null ? "success" : "failed");
+            if (formatted == null) {
+                return false;
+            }
+            code = formatted;
+        }
+        long startTime = Metrics.start();
+        MutantStore.getInstance().putSource(this.filePath, code);
+        Metrics.record(Metrics.WRITE, startTime);
+        Tracer.span(Metrics.WRITE, this.filePath, startTime);
+        return true;
+    }
+
     public void printBasicInfo() {
         PackageDeclaration packageDeclaration = this.cu.getPackage();
         if (packageDeclaration != null) {
@@ -474,26 +571,70 @@ public class TypeWrapper {
     }
 
     public boolean isBuggy() {
+        long startTime = Metrics.start();
+        TriageDecisionEvent event = new TriageDecisionEvent();
+        event.begin();
+        boolean buggy = triage();
+        if (!buggy) {
+            this.recordResult("", ResultStore.CLEAN);
+        }
+        if (buggy) {
+            MutantStore.keep(this.filePath);
+            MutantStore.keep(this.parentPath);
+            Staging.persist(this.filePath);
+            Staging.persist(this.parentPath);
+        }
+        rewardBandit(buggy);
+        Metrics.record(Metrics.TRIAGE, startTime, "verdict", buggy ? "buggy" : "clean");
+        Tracer.span(Metrics.TRIAGE, this.filePath, startTime, "verdict", buggy ? "buggy" : "clean");
+        if (event.shouldCommit()) {
+            event.mutant = this.filePath;
+            event.seed = this.initSeedPath;
+            event.transSeq = this.transSeq.toString();
+            event.depth = this.depth;
+            event.buggy = buggy;
+            event.commit();
+        }
+        return buggy;
+    }
+
+    // Seeds have no transform, parents are triaged again before they are transformed in SonarQube campaigns
+    private void rewardBandit(boolean buggy) {
+        if (this.depth == 0 || this.transSeq.isEmpty() || this.transNodeTypes.isEmpty() || Boolean.TRUE.equals(this.banditVerdict)) {
+            return;
+        }
+        String transform = this.transSeq.get(this.transSeq.size() - 1);
+        String nodeType = TransformBandit.getNodeType(this.transNodeTypes.get(this.transNodeTypes.size() - 1));
+        if (this.banditVerdict == null) {
+            TransformBandit.reward(transform, nodeType, this.folderName, buggy);
+            this.banditVerdict = buggy;
+        } else if (buggy) {
+            TransformBandit.upgrade(transform, nodeType, this.folderName);
+            this.banditVerdict = true;
+        }
+    }
+
+    private boolean triage() {
         boolean buggy = false;
         if(this.parentPath.equals("initSeed")) {
             return false;
         }
         if (this.depth != 0 && this.violations != this.parViolations) { 
             Map<String, List<Integer>> mutant_bug2lines = file2bugs.get(this.filePath);
-            Map<String, List<Integer>> source_bug2lines = file2bugs.get(this.parentPath);
+            Map<String, List<Integer>> source_bug2lines = MutantStore.getBug2lines(this.parentPath); // parents of earlier chunks are stored
             if (mutant_bug2lines == null && source_bug2lines == null) {
                 System.out.println("Both reports don't have bugs!");
                 System.exit(-1);
             }
             if (mutant_bug2lines == null) {
-                if(PMD_MUTATION || SONARQUBE_MUTATION) {
+                if(AnalyzerSpace.isMissingReportClean()) {
                     mutant_bug2lines = new HashMap<>();
                 } else {
                     return false;
                 }
             }
             if (source_bug2lines == null) {
-                if(PMD_MUTATION || SONARQUBE_MUTATION) {
+                if(AnalyzerSpace.isMissingReportClean()) {
                     source_bug2lines = new HashMap<>();
                 } else {
                     return false;
@@ -548,6 +689,8 @@ public class TypeWrapper {
                 }
                 List<TriTuple> paths = seq2paths.get(seqKey);
                 paths.add(new TriTuple(this.initSeedPath, this.filePath, "FP"));
+                this.recordResult(bugType, ResultStore.FP);
+                Metrics.increment("statfier_findings_total", "kind", "FP", "transform", this.transSeq.get(this.transSeq.size() - 1));
             }
             for (int i = 0; i < potentialFNs.size(); i++) {
                 buggy = true;
@@ -564,11 +707,21 @@ public class TypeWrapper {
                 }
                 List<TriTuple> paths = seq2paths.get(seqKey);
                 paths.add(new TriTuple(this.initSeedPath, this.filePath, "FN"));
+                this.recordResult(bugType, ResultStore.FN);
+                Metrics.increment("statfier_findings_total", "kind", "FN", "transform", this.transSeq.get(this.transSeq.size() - 1));
             }
         }
         return buggy;
     }
 
+    // Stream the outcome of the triage to the result store, seeds have no outcome
+    private void recordResult(String rule, byte kind) {
+        if (ResultStore.isEnabled() && !this.parentPath.equals("initSeed")) {
+            ResultStore.getInstance().append(Staging.toPersistent(this.filePath), Staging.toPersistent(this.parentPath), this.initSeedPath, this.transSeq.toString(),
+                    Utility.getAnalyzerName(), rule, kind, this.violations - this.parViolations);
+        }
+    }
+
     public static int transformedSeed = 0;
     public List<TypeWrapper> TransformByRandomLocation() {
         List<TypeWrapper> newWrappers = new ArrayList<>();
@@ -606,9 +759,21 @@ public class TypeWrapper {
             if(isInvalidModifier(type)) {
                 continue;
             }
-            for(Transform transform : Transform.getTransforms()) {
+            int pulledArms = 0;
+            for(Transform transform : TransformBandit.order(Transform.getTransforms(), candidateNode, this.folderName)) {
+                if (TransformBandit.enabled && pulledArms >= TransformBandit.armsPerNode) {
+                    break;
+                }
+                long checkTime = Metrics.start();
                 List<ASTNode> targetNodes = transform.check(this, candidateNode);
+                Metrics.record(Metrics.CHECK, checkTime, "transform", transform.getIndex());
+                if (!targetNodes.isEmpty()) {
+                    pulledArms++;
+                }
                 for (ASTNode targetNode : targetNodes) {
+                    long generateTime = Metrics.start();
+                    MutantGeneratedEvent event = new MutantGeneratedEvent();
+                    event.begin();
                     String mutantFilename = "mutant_" + mutantCounter++;
                     String mutantPath = MUTANT_FOLDER + File.separator + mutantFilename + ".java";
                     String content = this.document.get();
@@ -625,13 +790,16 @@ public class TypeWrapper {
                     if (newSrcNode == null) {
                         continue;
                     }
+                    long runTime = Metrics.start();
                     boolean hasMutated = transform.run(newTargetNode, newMutant, getFirstBrotherOfStatement(newSrcNode), newSrcNode);
+                    Metrics.record(Metrics.RUN, runTime, "transform", transform.getIndex());
+                    Metrics.increment("statfier_mutants_total", "transform", transform.getIndex(), "result", hasMutated ? "success" : "failed");
+                    commitMutantEvent(event, transform, mutantPath, candidateNode, hasMutated);
                     if (hasMutated) {
                         successfulT++;
-                        newMutant.nodeIndex.add(targetNode);
-                        newMutant.transSeq.add(transform.getIndex());
-                        newMutant.transNodes.add(newSrcNode);
+                        newMutant.recordTransform(transform.getIndex(), newSrcNode);
                         newWrappers.add(newMutant);
+                        traceGeneration(newMutant, transform, generateTime);
                     } else {
                         failedT++;
                         try {
@@ -660,9 +828,21 @@ public class TypeWrapper {
                 if(isInvalidModifier(candidateNode)) {
                    continue;
                 }
-                for (Transform transform : Transform.getTransforms()) {
+                int pulledArms = 0;
+                for (Transform transform : TransformBandit.order(Transform.getTransforms(), candidateNode, this.folderName)) {
+                    if (TransformBandit.enabled && pulledArms >= TransformBandit.armsPerNode) {
+                        break;
+                    }
+                    long checkTime = Metrics.start();
                     List<ASTNode> targetNodes = transform.check(this, candidateNode);
+                    Metrics.record(Metrics.CHECK, checkTime, "transform", transform.getIndex());
+                    if (!targetNodes.isEmpty()) {
+                        pulledArms++;
+                    }
                     for (ASTNode targetNode : targetNodes) {
+                        long generateTime = Metrics.start();
+                        MutantGeneratedEvent event = new MutantGeneratedEvent();
+                        event.begin();
                         String mutantFilename = "mutant_" + mutantCounter++;
                         String mutantPath = MUTANT_FOLDER + File.separator + mutantFilename + ".java";
                         String content = this.document.get();
@@ -687,13 +867,16 @@ public class TypeWrapper {
                             System.out.println("Old and new ASTWrapper are not matched!");
                             System.exit(-1);
                         }
+                        long runTime = Metrics.start();
                         boolean hasMutated = transform.run(newTargetNode, newMutant, getFirstBrotherOfStatement(newSrcNode), newSrcNode);
+                        Metrics.record(Metrics.RUN, runTime, "transform", transform.getIndex());
+                        Metrics.increment("statfier_mutants_total", "transform", transform.getIndex(), "result", hasMutated ? "success" : "failed");
+                        commitMutantEvent(event, transform, mutantPath, candidateNode, hasMutated);
                         if (hasMutated) {
                             successfulT++;
-                            newMutant.nodeIndex.add(targetNode); // Add transformation type, it will be used in mutant selection
-                            newMutant.transSeq.add(transform.getIndex());
-                            newMutant.transNodes.add(newSrcNode);
+                            newMutant.recordTransform(transform.getIndex(), newSrcNode); // it will be used in mutant selection
                             newWrappers.add(newMutant);
+                            traceGeneration(newMutant, transform, generateTime);
                         } else {
                             failedT++;
                             Files.deleteIfExists(Paths.get(mutantPath));
@@ -707,6 +890,84 @@ public class TypeWrapper {
         return newWrappers;
     }
 
+    // Mutants of every node that the transform applies to, for callers outside campaigns such as TransformInterface.
+    // mutantPaths names the n-th mutant (from 1), mutants are rewritten but neither written nor recorded in the lineage maps.
+    public List<TypeWrapper> applyTransform(Transform transform, IntFunction<String> mutantPaths) {
+        List<TypeWrapper> newWrappers = new ArrayList<>();
+        for (ASTNode candidateNode : getTransformableNodes()) {
+            newWrappers.addAll(applyTransform(transform, candidateNode, index -> mutantPaths.apply(newWrappers.size() + index)));
+        }
+        return newWrappers;
+    }
+
+    // Nodes of the current AST that transforms may be applied to
+    public List<ASTNode> getTransformableNodes() {
+        List<ASTNode> nodes = new ArrayList<>();
+        for (ASTNode node : this.allNodes) {
+            if (!isInvalidModifier(node)) {
+                nodes.add(node);
+            }
+        }
+        return nodes;
+    }
+
+    // Mutants of one candidate node of this wrapper, see getTransformableNodes.
+    // Transforms keep static counters, so check and run of one transform are serialized between threads.
+    public List<TypeWrapper> applyTransform(Transform transform, ASTNode candidateNode, IntFunction<String> mutantPaths) {
+        List<TypeWrapper> newWrappers = new ArrayList<>();
+        List<ASTNode> targetNodes;
+        synchronized (transform) {
+            targetNodes = transform.check(this, candidateNode);
+        }
+        for (ASTNode targetNode : targetNodes) {
+            String mutantPath = mutantPaths.apply(newWrappers.size() + 1);
+            String mutantFilename = new File(mutantPath).getName().replaceFirst("\\.java$", "");
+            TypeWrapper newMutant = new TypeWrapper(mutantFilename, mutantPath, this.document.get(), this);
+            ASTNode newTargetNode = newMutant.searchNodeByPosition(targetNode, this.cu.getLineNumber(targetNode.getStartPosition()),
+                    this.cu.getColumnNumber(targetNode.getStartPosition()));
+            ASTNode newSrcNode = newMutant.searchNodeByPosition(candidateNode, this.cu.getLineNumber(candidateNode.getStartPosition()),
+                    this.cu.getColumnNumber(candidateNode.getStartPosition()));
+            if (newTargetNode == null || newSrcNode == null) {
+                continue;
+            }
+            boolean hasMutated;
+            synchronized (transform) {
+                hasMutated = transform.run(newTargetNode, newMutant, getFirstBrotherOfStatement(newSrcNode), newSrcNode);
+            }
+            if (hasMutated) {
+                newMutant.recordTransform(transform.getIndex(), newSrcNode);
+                newMutant.rewriteJavaCode();
+                newWrappers.add(newMutant);
+            }
+        }
+        return newWrappers;
+    }
+
+    private void recordTransform(String transform, ASTNode node) {
+        this.transSeq.add(transform);
+        this.transNodeTypes.add(node.getNodeType());
+        this.transStart = node.getStartPosition();
+        this.transLength = node.getLength();
+    }
+
+    private void commitMutantEvent(MutantGeneratedEvent event, Transform transform, String mutantPath, ASTNode node, boolean success) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.transform = transform.getIndex();
+            event.seed = this.initSeedPath;
+            event.mutant = mutantPath;
+            event.nodeType = ASTNode.nodeClassForType(node.getNodeType()).getSimpleName();
+            event.depth = this.depth + 1;
+            event.success = success;
+            event.commit();
+        }
+    }
+
+    private void traceGeneration(TypeWrapper newMutant, Transform transform, long startTime) {
+        Tracer.lineage(newMutant.filePath, this.initSeedPath, this.filePath, newMutant.transSeq.toString());
+        Tracer.span(Tracer.GENERATE, newMutant.filePath, startTime, "transform", transform.getIndex());
+    }
+
     public void removePackageDefinition() {
         PackageDeclaration pd = this.cu.getPackage();
         if (pd != null) {
@@ -817,8 +1078,22 @@ public class TypeWrapper {
         return this.transSeq;
     }
 
-    public List<ASTNode> getTransNodes() {
-        return this.transNodes;
+    public List<Integer> getTransNodeTypes() {
+        return this.transNodeTypes;
+    }
+
+    // The last transformed node in the current AST, the innermost node of its type around its range, or null
+    public ASTNode getTransNode() {
+        if (this.transNodeTypes.isEmpty() || this.transStart < 0) {
+            return null;
+        }
+        int nodeType = this.transNodeTypes.get(this.transNodeTypes.size() - 1);
+        for (ASTNode node = new NodeFinder(this.cu, this.transStart, this.transLength).getCoveringNode(); node != null; node = node.getParent()) {
+            if (node.getNodeType() == nodeType) {
+                return node;
+            }
+        }
+        return null;
     }
 
     public int getDepth() {
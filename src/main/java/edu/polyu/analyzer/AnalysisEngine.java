@@ -0,0 +1,362 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.monitor.Metrics;
+import edu.polyu.util.ConcurrencyLimiter;
+import edu.polyu.util.Invoker;
+import edu.polyu.util.MutantStore;
+import edu.polyu.util.Utility;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static edu.polyu.util.Utility.ANALYZER_BATCH;
+import static edu.polyu.util.Utility.ANALYZER_CACHE_SIZE;
+import static edu.polyu.util.Utility.ANALYZER_TIMEOUT;
+
+/**
+ * Description: Hands mutants to an Analyzer, the scheduling is the same for every tool.
+ * Batching: mutants of a bucket are analyzed ANALYZER_BATCH at a time (0 for all of them) if the analyzer supports it,
+ * one at a time otherwise. Parallelism: up to the given number of batches are in flight, one if the analyzer does not
+ * support concurrency. The admission of a mutant is checked right before its batch is dispatched, so a campaign that is
+ * drained stops between batches. Batches are collected in the order they complete. Timeouts: a batch without result after
+ * ANALYZER_TIMEOUT seconds is given up and its mutants count as not analyzed. Its thread is interrupted, which kills the
+ * processes of the batch, see ProcessSupervisor, and the batch keeps its slot until it has stopped or another
+ * ANALYZER_TIMEOUT seconds have passed. Whatever its report readers still parse is removed from the report maps.
+ * Caching: the violations of up to ANALYZER_CACHE_SIZE sources are kept per analyzer and settings, a mutant whose
+ * source was analyzed before is not handed to the analyzer.
+ */
+public class AnalysisEngine {
+
+    // Report readers update the global report maps, files analyzed in parallel parse their reports one at a time
+    public static final Object REPORT_LOCK = new Object();
+
+    private static final Map<String, Analyzer> name2analyzer = new LinkedHashMap<>();
+    private static AnalysisEngine instance;
+
+    static {
+        register(new PMDAnalyzer());
+        register(new SpotBugsAnalyzer());
+        register(new CheckStyleAnalyzer());
+        register(new InferAnalyzer());
+        register(new SonarQubeAnalyzer());
+        register(new CodeNaviAnalyzer());
+    }
+
+    private final int batchSize;
+    private final long timeout; // milliseconds, 0 means no timeout
+    private final Map<String, Violations> cache; // null if disabled
+    private ExecutorService pool;
+
+    private static class Pending {
+        final List<MutantRef> batch;
+        final long deadline;
+        CompletableFuture<Map<MutantRef, Violations>> future;
+        Thread worker; // thread that runs the analyzer, guarded by this
+        boolean cancelled; // guarded by this
+
+        Pending(List<MutantRef> batch, long deadline) {
+            this.batch = batch;
+            this.deadline = deadline;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        // A slot is held until the batch completes, a cancelled batch is released after a further timeout
+        long getReleaseTime(long timeout) {
+            return isCancelled() ? deadline + timeout : deadline;
+        }
+    }
+
+    AnalysisEngine(int batchSize, long timeout, int cacheSize) {
+        this.batchSize = batchSize;
+        this.timeout = timeout;
+        this.cache = cacheSize <= 0 ? null : new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Violations> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public static synchronized AnalysisEngine getInstance() {
+        if (instance == null) {
+            instance = new AnalysisEngine(ANALYZER_BATCH, ANALYZER_TIMEOUT * 1000, ANALYZER_CACHE_SIZE);
+        }
+        return instance;
+    }
+
+    // A registered analyzer replaces the one of the same name
+    public static synchronized void register(Analyzer analyzer) {
+        name2analyzer.put(analyzer.getName(), analyzer);
+    }
+
+    public static synchronized Analyzer getAnalyzer(String name) {
+        Analyzer analyzer = name2analyzer.get(name);
+        if (analyzer == null) {
+            throw new IllegalArgumentException("Analyzer not found: " + name);
+        }
+        return analyzer;
+    }
+
+    // Violations of the mutants that were analyzed, mutants that were not admitted, failed or timed out are missing
+    public Map<MutantRef, Violations> analyze(Analyzer analyzer, List<MutantRef> mutants, Predicate<MutantRef> admit, int parallelism) {
+        Map<MutantRef, Violations> results = new HashMap<>();
+        Map<MutantRef, String> mutant2key = new HashMap<>();
+        List<MutantRef> queue = new ArrayList<>();
+        for (MutantRef mutant : mutants) {
+            String key = cache == null ? null : getCacheKey(analyzer, mutant);
+            Violations cached = key == null ? null : getCached(key);
+            if (cached != null) {
+                if (admit.test(mutant)) {
+                    synchronized (REPORT_LOCK) {
+                        cached.restore(mutant.getFilePath());
+                    }
+                    results.put(mutant, cached);
+                    Metrics.increment("statfier_analyzer_cache_total", "analyzer", analyzer.getName(), "result", "hit");
+                }
+                continue;
+            }
+            if (key != null) {
+                mutant2key.put(mutant, key);
+                Metrics.increment("statfier_analyzer_cache_total", "analyzer", analyzer.getName(), "result", "miss");
+            }
+            queue.add(mutant);
+        }
+        int window = getWindow(analyzer, parallelism);
+        ArrayDeque<List<MutantRef>> batches = new ArrayDeque<>(toBatches(queue, analyzer.supportsBatching() ? batchSize : 1));
+        Set<Pending> running = new LinkedHashSet<>(); // batches that hold a slot, including cancelled ones
+        BlockingQueue<Pending> completed = new LinkedBlockingQueue<>();
+        while (!batches.isEmpty() || !running.isEmpty()) {
+            while (running.size() < window && !batches.isEmpty()) {
+                List<MutantRef> admitted = new ArrayList<>();
+                for (MutantRef mutant : batches.poll()) {
+                    if (admit.test(mutant)) {
+                        admitted.add(mutant);
+                    }
+                }
+                if (!admitted.isEmpty()) {
+                    Pending pending = dispatch(analyzer, admitted);
+                    running.add(pending);
+                    pending.future.whenComplete((batchResults, e) -> completed.add(pending));
+                }
+            }
+            if (running.isEmpty()) {
+                continue;
+            }
+            Pending pending;
+            try {
+                pending = completed.poll(getWaitTime(running), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                for (Pending unfinished : running) {
+                    unfinished.cancel();
+                    unfinished.future.whenComplete((batchResults, error) -> forget(unfinished.batch));
+                }
+                break;
+            }
+            if (pending != null) {
+                running.remove(pending);
+                collect(analyzer, pending, results, mutant2key);
+            }
+            expire(analyzer, running);
+        }
+        return results;
+    }
+
+    // Milliseconds until the next deadline of a running batch
+    private long getWaitTime(Set<Pending> running) {
+        if (timeout <= 0) {
+            return Long.MAX_VALUE;
+        }
+        long next = Long.MAX_VALUE;
+        for (Pending pending : running) {
+            next = Math.min(next, pending.getReleaseTime(timeout));
+        }
+        return Math.max(0, next - System.currentTimeMillis());
+    }
+
+    // Cancel the batches that passed their deadline and release the slots of cancelled batches that did not stop in time
+    private void expire(Analyzer analyzer, Set<Pending> running) {
+        if (timeout <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Iterator<Pending> iterator = running.iterator();
+        while (iterator.hasNext()) {
+            Pending pending = iterator.next();
+            if (pending.future.isDone() || now < pending.getReleaseTime(timeout)) {
+                continue;
+            }
+            if (!pending.isCancelled()) {
+                System.err.println(analyzer.getName() + " timed out on " + pending.batch.size() + " file(s), e.g. " + pending.batch.get(0));
+                Metrics.increment("statfier_analyzer_timeouts_total", "analyzer", analyzer.getName());
+                pending.cancel();
+            } else {
+                System.err.println(analyzer.getName() + " did not stop after the timeout on " + pending.batch.get(0) + ", its slot is released");
+                pending.future.whenComplete((batchResults, e) -> forget(pending.batch));
+                iterator.remove();
+            }
+        }
+    }
+
+    // Remove what the report readers of a cancelled batch have parsed
+    private static void forget(List<MutantRef> batch) {
+        synchronized (REPORT_LOCK) {
+            for (MutantRef mutant : batch) {
+                Utility.file2bugs.remove(mutant.getFilePath());
+                Utility.file2row.remove(mutant.getFilePath());
+                Utility.file2report.remove(mutant.getFilePath());
+            }
+        }
+    }
+
+    // Batches that run at the same time. With the adaptive limiter the window only bounds the ceiling of the tool and its
+    // processes are admitted by ConcurrencyLimiter.acquire, as in Utility.initThreadPool. In-process analyzers bypass the limiter.
+    static int getWindow(Analyzer analyzer, int parallelism) {
+        if (!analyzer.supportsConcurrency()) {
+            return 1;
+        }
+        if (ConcurrencyLimiter.enabled && !analyzer.isInProcess()) {
+            return Math.max(Math.max(1, parallelism), ConcurrencyLimiter.of(analyzer.getName()).getMax());
+        }
+        return Math.max(1, parallelism);
+    }
+
+    // Batches of at most batchSize mutants (0 for no limit) of one bucket each, in the order of the mutants
+    static List<List<MutantRef>> toBatches(List<MutantRef> mutants, int batchSize) {
+        Map<String, List<MutantRef>> bucket2mutants = new LinkedHashMap<>();
+        for (MutantRef mutant : mutants) {
+            bucket2mutants.computeIfAbsent(mutant.getBucket(), k -> new ArrayList<>()).add(mutant);
+        }
+        List<List<MutantRef>> batches = new ArrayList<>();
+        for (List<MutantRef> bucketMutants : bucket2mutants.values()) {
+            int size = batchSize <= 0 ? bucketMutants.size() : batchSize;
+            for (int start = 0; start < bucketMutants.size(); start += size) {
+                batches.add(new ArrayList<>(bucketMutants.subList(start, Math.min(bucketMutants.size(), start + size))));
+            }
+        }
+        return batches;
+    }
+
+    private Pending dispatch(Analyzer analyzer, List<MutantRef> batch) {
+        Pending pending = new Pending(batch, System.currentTimeMillis() + timeout);
+        pending.future = CompletableFuture.supplyAsync(() -> {
+            synchronized (pending) {
+                if (pending.cancelled) {
+                    return CompletableFuture.<Map<MutantRef, Violations>>completedFuture(new HashMap<>());
+                }
+                pending.worker = Thread.currentThread();
+            }
+            try {
+                if (!analyzer.isInProcess()) {
+                    for (MutantRef mutant : batch) {
+                        MutantStore.export(mutant.getFilePath()); // external analyzers read files
+                    }
+                }
+                Invoker.setAnalyzedMutants(batch); // tools that time out blame the mutants of the batch
+                return analyzer.analyzeBatch(batch);
+            } finally {
+                Invoker.setAnalyzedMutants(null);
+                synchronized (pending) {
+                    pending.worker = null;
+                    Thread.interrupted(); // the pool thread is reused, a late cancellation must not reach the next batch
+                }
+            }
+        }, getPool()).thenCompose(future -> future);
+        return pending;
+    }
+
+    // The future of the batch is complete, the results of a cancelled batch are dropped
+    private void collect(Analyzer analyzer, Pending pending, Map<MutantRef, Violations> results, Map<MutantRef, String> mutant2key) {
+        if (pending.isCancelled()) {
+            forget(pending.batch);
+            return;
+        }
+        Map<MutantRef, Violations> batchResults;
+        try {
+            batchResults = pending.future.get();
+        } catch (ExecutionException e) {
+            System.err.println(analyzer.getName() + " failed on " + pending.batch.size() + " file(s), e.g. " + pending.batch.get(0));
+            e.getCause().printStackTrace();
+            Metrics.increment("statfier_analyzer_errors_total", "analyzer", analyzer.getName());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (MutantRef mutant : pending.batch) {
+            Violations violations = batchResults.get(mutant);
+            if (violations == null) {
+                continue;
+            }
+            results.put(mutant, violations);
+            String key = mutant2key.get(mutant);
+            if (key != null) {
+                synchronized (cache) {
+                    cache.put(key, violations);
+                }
+            }
+        }
+    }
+
+    private Violations getCached(String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    // Analyzer, settings and digest of the source, null if the source cannot be read
+    private static String getCacheKey(Analyzer analyzer, MutantRef mutant) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(MutantStore.read(mutant.getFilePath()).getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(analyzer.getName()).append('|').append(analyzer.getSettings(mutant)).append('|');
+            for (byte b : hash) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            return null;
+        }
+    }
+
+    private synchronized ExecutorService getPool() {
+        if (pool == null) {
+            pool = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "analyzer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+}
@@ -0,0 +1,50 @@
+package edu.polyu.analyzer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Description: A static analyzer under test. Implementations invoke one tool and parse its reports, batching, caching,
+ * timeouts and parallelism are implemented once for every tool by AnalysisEngine, which decides from the capability
+ * flags how mutants are handed over. Report readers fill the report maps of Utility that the triage of TypeWrapper reads,
+ * so the violations of an analyzed file are returned and also left in these maps.
+ * Analyzers are registered by name with AnalysisEngine.register.
+ */
+public interface Analyzer {
+
+    String getName();
+
+    // Analyze the seeds below seedFolderPath, seeds with violations get an entry in Utility.file2row
+    void analyzeSeeds(String seedFolderPath);
+
+    // Files that could not be analyzed, e.g. a mutant that does not compile, are missing from the result.
+    // The mutants of a batch share their bucket, batches have one mutant unless supportsBatching is set.
+    CompletableFuture<Map<MutantRef, Violations>> analyzeBatch(List<MutantRef> mutants);
+
+    // Mutants are compiled before they are analyzed, so generated mutants have to be compilable, see Utility.COMPILE
+    default boolean needsCompilation() {
+        return false;
+    }
+
+    // One invocation analyzes many mutants of a bucket
+    default boolean supportsBatching() {
+        return false;
+    }
+
+    // Runs in this JVM, it reads stored mutants from memory and cannot be killed by the cancellation of a campaign
+    default boolean isInProcess() {
+        return false;
+    }
+
+    // Several batches may be analyzed at the same time
+    default boolean supportsConcurrency() {
+        return true;
+    }
+
+    // Settings besides the source that the violations of the mutant depend on, the cache key of a result contains them
+    default String getSettings(MutantRef mutant) {
+        return mutant.getBucket();
+    }
+
+}
@@ -0,0 +1,70 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
+import edu.polyu.report.CheckStyleReport;
+import edu.polyu.util.Invoker;
+import edu.polyu.util.ProcessSupervisor;
+import edu.polyu.util.Schedule;
+
+import java.io.File;
+
+import static edu.polyu.util.Invoker.invokeCommandsByZT;
+import static edu.polyu.util.Utility.CHECKSTYLE_PATH;
+import static edu.polyu.util.Utility.DEBUG;
+import static edu.polyu.util.Utility.REPORT_FOLDER;
+import static edu.polyu.util.Utility.failedToolExecution;
+import static edu.polyu.util.Utility.sep;
+
+/**
+ * Description: CheckStyle on one mutant with the config of its seed, see Schedule.file2config
+ */
+public class CheckStyleAnalyzer extends FileAnalyzer {
+
+    @Override
+    public String getName() {
+        return "CheckStyle";
+    }
+
+    @Override
+    public void analyzeSeeds(String seedFolderPath) {
+        Invoker.invokeCheckStyle(seedFolderPath);
+    }
+
+    @Override
+    public String getSettings(MutantRef mutant) {
+        return String.valueOf(Schedule.file2config.get(mutant.getSeedPath()));
+    }
+
+    // Check the mutant with the CheckStyle config of its seed, return false if it is quarantined
+    @Override
+    protected boolean analyze(MutantRef mutant) {
+        String mutantFilePath = mutant.getFilePath();
+        File reportFile = new File(REPORT_FOLDER + sep + "iter" + mutant.getDepth() + "_" + mutant.getFileName() + ".txt");
+        String[] invokeCommands = new String[3];
+        invokeCommands[0] = "/bin/bash";
+        invokeCommands[1] = "-c";
+        String configPath = Schedule.file2config.get(mutant.getSeedPath());
+        invokeCommands[2] = "java -jar " + CHECKSTYLE_PATH + " -f" + " plain" + " -o " + reportFile.getAbsolutePath() + " -c " + configPath + " " + mutantFilePath;
+        long startTime = Metrics.start();
+        invokeCommandsByZT(invokeCommands);
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "CheckStyle", "rule", mutant.getBucket());
+        Tracer.span(Metrics.ANALYZE, mutantFilePath, startTime, "analyzer", "CheckStyle", "rule", mutant.getBucket());
+        if (ProcessSupervisor.isQuarantined(mutantFilePath)) {
+            return false;
+        }
+        if (DEBUG) {
+            System.out.println(invokeCommands[2]);
+        }
+        if (!reportFile.exists() || reportFile.length() == 0) {
+            failedToolExecution.add(invokeCommands[2]);
+        }
+        startTime = Metrics.start();
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            CheckStyleReport.readCheckStyleResultFile(reportFile.getAbsolutePath());
+        }
+        Tracer.span(Metrics.REPORT_PARSE, mutantFilePath, startTime, "analyzer", "CheckStyle");
+        return true;
+    }
+
+}
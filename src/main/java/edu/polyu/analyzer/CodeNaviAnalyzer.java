@@ -0,0 +1,100 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
+import edu.polyu.report.CodeNaviReport;
+import edu.polyu.thread.CodeNaviInvokeThread;
+import edu.polyu.util.Incremental;
+
+import java.io.File;
+
+import static edu.polyu.util.Utility.REPORT_FOLDER;
+import static edu.polyu.util.Utility.failedToolExecution;
+import static edu.polyu.util.Utility.getFilenamesFromFolder;
+import static edu.polyu.util.Utility.sep;
+
+/**
+ * Description: CodeNavi on one file, seeds are analyzed one by one as well
+ */
+public class CodeNaviAnalyzer extends FileAnalyzer {
+
+    @Override
+    public String getName() {
+        return "CodeNavi";
+    }
+
+    // Seeds that an incremental campaign reuses are not analyzed again
+    @Override
+    public void analyzeSeeds(String seedFolderPath) {
+        for (String seedFilePath : getFilenamesFromFolder(seedFolderPath, true)) {
+            if (!Incremental.isReused(seedFilePath)) {
+                analyzeSeed(seedFilePath);
+            }
+        }
+    }
+
+    private void analyzeSeed(String seedFilePath) {
+        String seedFolderName = new File(seedFilePath).getParentFile().getName();
+        String reportOutputDir = REPORT_FOLDER.getAbsolutePath() + sep + "initial_" + seedFolderName;
+        File reportDir = new File(reportOutputDir);
+        if (!reportDir.exists()) {
+            reportDir.mkdirs();
+        }
+
+        // Invoke CodeNavi on initial seed
+        CodeNaviInvokeThread codeNaviThread = new CodeNaviInvokeThread(
+            new File(seedFilePath).getParent(),
+            new File(seedFilePath).getName(),
+            reportOutputDir
+        );
+        long startTime = Metrics.start();
+        codeNaviThread.run();
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "CodeNavi", "phase", "seed");
+
+        // Parse the initial report
+        String reportPath = reportOutputDir + sep + "error_report_1.xml";
+        CodeNaviReport.readSingleCodeNaviResultFile(new File(seedFilePath), reportPath);
+    }
+
+    // Return false if CodeNavi did not produce a report for the mutant
+    @Override
+    protected boolean analyze(MutantRef mutant) {
+        String seedFileNameWithSuffix = new File(mutant.getFilePath()).getName();
+        String subSeedFolderName = new File(mutant.getFolderPath()).getName();
+        String seedFileName = mutant.getFileName();
+
+        // Create report output directory for this mutant
+        String reportOutputDir = REPORT_FOLDER.getAbsolutePath() + sep + subSeedFolderName + sep + seedFileName;
+        File reportDir = new File(reportOutputDir);
+        if (!reportDir.exists()) {
+            reportDir.mkdirs();
+        }
+
+        // Invoke CodeNavi analysis on mutant (Requirement 4.4)
+        CodeNaviInvokeThread codeNaviThread = new CodeNaviInvokeThread(
+            mutant.getFolderPath(),
+            seedFileNameWithSuffix,
+            reportOutputDir
+        );
+        long startTime = Metrics.start();
+        codeNaviThread.run();
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "CodeNavi", "rule", mutant.getBucket());
+        Tracer.span(Metrics.ANALYZE, mutant.getFilePath(), startTime, "analyzer", "CodeNavi", "rule", mutant.getBucket());
+
+        // Parse XML report and integrate results (Requirement 4.5)
+        String reportPath = reportOutputDir + sep + "error_report_1.xml";
+        File reportFile = new File(reportPath);
+        if (!reportFile.exists() || reportFile.length() == 0) {
+            // If report generation failed, log it
+            failedToolExecution.add("CodeNavi analysis failed for: " + mutant.getFilePath());
+            return false;
+        }
+        startTime = Metrics.start();
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            CodeNaviReport.readSingleCodeNaviResultFile(new File(mutant.getFilePath()), reportPath);
+        }
+        Tracer.span(Metrics.REPORT_PARSE, mutant.getFilePath(), startTime, "analyzer", "CodeNavi");
+        return true;
+    }
+
+}
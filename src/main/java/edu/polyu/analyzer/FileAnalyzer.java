@@ -0,0 +1,43 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.util.Invoker;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Description: Analyzer that invokes its tool once per file and blocks until the report is parsed.
+ * The engine runs it on its own threads, so the future is already complete when analyzeBatch returns.
+ */
+public abstract class FileAnalyzer implements Analyzer {
+
+    // Invoke the tool on the mutant and parse its report while holding AnalysisEngine.REPORT_LOCK,
+    // return false if there is no report to triage
+    protected abstract boolean analyze(MutantRef mutant);
+
+    @Override
+    public CompletableFuture<Map<MutantRef, Violations>> analyzeBatch(List<MutantRef> mutants) {
+        Map<MutantRef, Violations> results = new HashMap<>();
+        List<MutantRef> batch = Invoker.getAnalyzedMutants();
+        try {
+            for (MutantRef mutant : mutants) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break; // the batch timed out, see AnalysisEngine
+                }
+                Invoker.setAnalyzedMutants(Collections.singletonList(mutant)); // a timeout blames this mutant only
+                if (analyze(mutant)) {
+                    synchronized (AnalysisEngine.REPORT_LOCK) {
+                        results.put(mutant, Violations.of(mutant.getFilePath()));
+                    }
+                }
+            }
+        } finally {
+            Invoker.setAnalyzedMutants(batch);
+        }
+        return CompletableFuture.completedFuture(results);
+    }
+
+}
@@ -0,0 +1,65 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
+import edu.polyu.report.InferReport;
+import edu.polyu.util.Invoker;
+import edu.polyu.util.ProcessSupervisor;
+
+import static edu.polyu.util.Utility.CLASS_FOLDER;
+import static edu.polyu.util.Utility.INFER_PATH;
+import static edu.polyu.util.Utility.JAVAC_PATH;
+import static edu.polyu.util.Utility.REPORT_FOLDER;
+import static edu.polyu.util.Utility.inferJarStr;
+import static edu.polyu.util.Utility.sep;
+
+/**
+ * Description: Infer on the capture of the compilation of one mutant
+ */
+public class InferAnalyzer extends FileAnalyzer {
+
+    @Override
+    public String getName() {
+        return "Infer";
+    }
+
+    @Override
+    public boolean needsCompilation() {
+        return true;
+    }
+
+    @Override
+    public void analyzeSeeds(String seedFolderPath) {
+        Invoker.invokeInfer(seedFolderPath);
+    }
+
+    // Capture the compilation of the mutant with Infer, return false if it is quarantined
+    @Override
+    protected boolean analyze(MutantRef mutant) {
+        String mutantPath = mutant.getFilePath();
+        String mutantFileName = mutant.getFileName();
+        String REPORT_FOLDERPath = REPORT_FOLDER + sep + "iter" + mutant.getDepth() + "_" + mutantFileName;
+        String cmd = INFER_PATH + " run -o " + "" + REPORT_FOLDERPath + " -- " + JAVAC_PATH +
+                " -d " + CLASS_FOLDER.getAbsolutePath() + sep + "iter" + mutant.getDepth() + "_" + mutantFileName +
+                " -cp " + inferJarStr + " " + mutantPath;
+        String[] invokeCommands = new String[3];
+        invokeCommands[0] = "/bin/bash";
+        invokeCommands[1] = "-c";
+        invokeCommands[2] = "python3 cmd.py " + cmd;
+        long startTime = Metrics.start();
+        Invoker.invokeCommandsByZT(invokeCommands);
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "Infer", "rule", mutant.getBucket());
+        Tracer.span(Metrics.ANALYZE, mutantPath, startTime, "analyzer", "Infer", "rule", mutant.getBucket());
+        if (ProcessSupervisor.isQuarantined(mutantPath)) {
+            return false;
+        }
+        String resultFilePath = REPORT_FOLDERPath + sep + "report.json";
+        startTime = Metrics.start();
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            InferReport.readSingleInferResultFile(mutantPath, resultFilePath);
+        }
+        Tracer.span(Metrics.REPORT_PARSE, mutantPath, startTime, "analyzer", "Infer");
+        return true;
+    }
+
+}
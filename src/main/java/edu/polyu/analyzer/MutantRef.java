@@ -0,0 +1,89 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.analysis.TypeWrapper;
+
+import java.io.File;
+
+/**
+ * Description: A file handed to an Analyzer, with the seed and bucket whose settings it is analyzed with.
+ * The depth names the reports of the file, files that are analyzed again outside the campaign loops get a fresh one.
+ * Mutants of a campaign carry their transform sequence, which names the Timeout finding of a mutant that the analyzer
+ * cannot finish, see Invoker.recordTimeout.
+ */
+public final class MutantRef {
+
+    private final String filePath;
+    private final String seedPath;
+    private final String bucket;
+    private final int depth;
+    private final String transSeq; // null for files outside the campaign loops
+
+    public MutantRef(String filePath, String seedPath, String bucket, int depth) {
+        this(filePath, seedPath, bucket, depth, null);
+    }
+
+    public MutantRef(String filePath, String seedPath, String bucket, int depth, String transSeq) {
+        this.filePath = filePath;
+        this.seedPath = seedPath;
+        this.bucket = bucket;
+        this.depth = depth;
+        this.transSeq = transSeq;
+    }
+
+    public static MutantRef of(TypeWrapper wrapper, String bucket, int depth) {
+        return new MutantRef(wrapper.getFilePath(), wrapper.getInitSeedPath(), bucket, depth, wrapper.getTransSeq().toString());
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public String getSeedPath() {
+        return seedPath;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public String getTransSeq() {
+        return transSeq;
+    }
+
+    public String getFolderPath() {
+        return new File(filePath).getAbsoluteFile().getParent();
+    }
+
+    // File name without the .java suffix
+    public String getFileName() {
+        String name = new File(filePath).getName();
+        return name.endsWith(".java") ? name.substring(0, name.length() - 5) : name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MutantRef)) {
+            return false;
+        }
+        MutantRef that = (MutantRef) o;
+        return filePath.equals(that.filePath) && bucket.equals(that.bucket);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * filePath.hashCode() + bucket.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return filePath;
+    }
+
+}
@@ -0,0 +1,112 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.monitor.AnalyzerInvocationEvent;
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
+import edu.polyu.report.PMDReport;
+import edu.polyu.util.Invoker;
+import edu.polyu.util.MutantStore;
+import net.sourceforge.pmd.PMDConfiguration;
+import net.sourceforge.pmd.PmdAnalysis;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.polyu.util.Utility.REPORT_FOLDER;
+import static edu.polyu.util.Utility.sep;
+
+/**
+ * Description: PMD in this JVM, one run checks the rule of a bucket, given by its name "category_rule", on a batch of mutants
+ */
+public class PMDAnalyzer implements Analyzer {
+
+    private final AtomicInteger batchCounter = new AtomicInteger(0); // batches of a bucket and depth get their own report
+
+    @Override
+    public String getName() {
+        return "PMD";
+    }
+
+    @Override
+    public boolean supportsBatching() {
+        return true;
+    }
+
+    @Override
+    public boolean isInProcess() {
+        return true;
+    }
+
+    @Override
+    public void analyzeSeeds(String seedFolderPath) {
+        Invoker.invokePMD(seedFolderPath);
+    }
+
+    @Override
+    public CompletableFuture<Map<MutantRef, Violations>> analyzeBatch(List<MutantRef> mutants) {
+        String seedFolderName = mutants.get(0).getBucket();
+        String ruleCategory = seedFolderName.split("_")[0];
+        String bugType = seedFolderName.split("_")[1];
+        String resultFilePath = REPORT_FOLDER.getAbsolutePath() + sep + "iter" + mutants.get(0).getDepth() + "_" + seedFolderName
+                + "_" + batchCounter.incrementAndGet() + "_Result.json";
+        // Stored mutants are handed to PMD from memory, the others are read from their files
+        List<Path> inputPaths = new ArrayList<>();
+        List<String> storedPaths = new ArrayList<>();
+        for (MutantRef mutant : mutants) {
+            if (MutantStore.enabled && MutantStore.getInstance().contains(mutant.getFilePath())) {
+                storedPaths.add(mutant.getFilePath());
+            } else {
+                inputPaths.add(Paths.get(mutant.getFilePath()));
+            }
+        }
+        PMDConfiguration pmdConfig = new PMDConfiguration();
+        pmdConfig.setInputPathList(inputPaths);
+        pmdConfig.setRuleSets(new ArrayList<>() {
+            {
+                add("category/java/" + ruleCategory + ".xml/" + bugType);
+            }
+        });
+        pmdConfig.setReportFormat("json");
+        pmdConfig.setReportFile(Paths.get(resultFilePath));
+        pmdConfig.setIgnoreIncrementalAnalysis(true);
+        long startTime = Metrics.start();
+        AnalyzerInvocationEvent event = new AnalyzerInvocationEvent();
+        event.begin();
+        try (PmdAnalysis pmd = PmdAnalysis.create(pmdConfig)) {
+            for (String storedPath : storedPaths) {
+                pmd.files().addSourceFile(MutantStore.getInstance().getSource(storedPath), storedPath);
+            }
+            pmd.performAnalysis();
+        }
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "PMD", "rule", seedFolderName);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tool = "PMD";
+            event.batchSize = mutants.size();
+            event.command = "category/java/" + ruleCategory + ".xml/" + bugType;
+            event.commit();
+        }
+        List<String> mutantPaths = new ArrayList<>();
+        for (MutantRef mutant : mutants) {
+            mutantPaths.add(Paths.get(mutant.getFilePath()).toAbsolutePath().toString());
+        }
+        Tracer.batchSpan(Metrics.ANALYZE, mutantPaths, startTime, "analyzer", "PMD", "rule", seedFolderName);
+        startTime = Metrics.start();
+        Map<MutantRef, Violations> results = new HashMap<>();
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            PMDReport.readPMDResultFile(resultFilePath);
+            for (MutantRef mutant : mutants) {
+                results.put(mutant, Violations.of(mutant.getFilePath())); // PMD leaves files without violations out of its report
+            }
+        }
+        Tracer.batchSpan(Metrics.REPORT_PARSE, mutantPaths, startTime, "analyzer", "PMD");
+        return CompletableFuture.completedFuture(results);
+    }
+
+}
@@ -0,0 +1,121 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
+import edu.polyu.report.SonarQubeReport;
+import edu.polyu.util.Invoker;
+import edu.polyu.util.ProcessSupervisor;
+import edu.polyu.util.TimeBudget;
+import org.json.JSONObject;
+
+import java.io.File;
+
+import static edu.polyu.util.Invoker.createSonarQubeProject;
+import static edu.polyu.util.Invoker.deleteSonarQubeProject;
+import static edu.polyu.util.Invoker.invokeCommandsByZT;
+import static edu.polyu.util.Invoker.invokeCommandsByZTWithOutput;
+import static edu.polyu.util.Utility.DEBUG;
+import static edu.polyu.util.Utility.MUTANT_FOLDER;
+import static edu.polyu.util.Utility.Path2Last;
+import static edu.polyu.util.Utility.REPORT_FOLDER;
+import static edu.polyu.util.Utility.SONARQUBE_PROJECT_NAME;
+import static edu.polyu.util.Utility.SONARSCANNER_PATH;
+import static edu.polyu.util.Utility.ensureFolder;
+import static edu.polyu.util.Utility.sep;
+import static edu.polyu.util.Utility.waitTaskEnd;
+import static edu.polyu.util.Utility.writeLinesToFile;
+
+/**
+ * Description: SonarQube server, every mutant is scanned into the one project of the campaign, so mutants are analyzed
+ * one at a time. If the scanner fails for another reason than a quarantine, the server is considered gone and no
+ * further mutant is analyzed, see hasFailed.
+ */
+public class SonarQubeAnalyzer extends FileAnalyzer {
+
+    private volatile boolean failed = false;
+
+    @Override
+    public String getName() {
+        return "SonarQube";
+    }
+
+    @Override
+    public boolean supportsConcurrency() {
+        return false;
+    }
+
+    @Override
+    public void analyzeSeeds(String seedFolderPath) {
+        failed = false;
+        Invoker.invokeSonarQube(seedFolderPath);
+    }
+
+    public boolean hasFailed() {
+        return failed;
+    }
+
+    @Override
+    protected boolean analyze(MutantRef mutant) {
+        if (failed) {
+            return false;
+        }
+        String mutantPath = mutant.getFilePath();
+        if (DEBUG) {
+            System.out.println("Analyzed Mutant Path: " + mutantPath);
+        }
+        File resultFolder = ensureFolder(new File(REPORT_FOLDER.getAbsolutePath() + sep + mutant.getBucket()));
+        deleteSonarQubeProject(SONARQUBE_PROJECT_NAME);
+        boolean isCreated = createSonarQubeProject(SONARQUBE_PROJECT_NAME);
+        if (!isCreated) {
+            System.out.println("ProjectName is not created!");
+            System.out.println("Mutant is not Detected: " + mutantPath);
+            System.exit(-1);
+        }
+        String[] invokeCommands = new String[3];
+        invokeCommands[0] = "/bin/bash";
+        invokeCommands[1] = "-c";
+        invokeCommands[2] = SONARSCANNER_PATH + " -Dsonar.projectKey=" + SONARQUBE_PROJECT_NAME
+                + " -Dsonar.projectBaseDir=" + MUTANT_FOLDER.getAbsolutePath()
+                + " -Dsonar.sources=" + mutantPath
+                + " -Dsonar.host.url=http://localhost:9000"
+                + " -Dsonar.login=admin -Dsonar.password=123456";
+        long startTime = Metrics.start();
+        boolean hasExec = invokeCommandsByZT(invokeCommands);
+        if (TimeBudget.getInstance().isCancelled()) {
+            TimeBudget.getInstance().skip(mutantPath);
+            return false;
+        }
+        if (hasExec) {
+            waitTaskEnd(SONARQUBE_PROJECT_NAME);
+        } else {
+            failed = !ProcessSupervisor.isQuarantined(mutantPath);
+            return false;
+        }
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "SonarQube", "rule", mutant.getBucket());
+        Tracer.span(Metrics.ANALYZE, mutantPath, startTime, "analyzer", "SonarQube", "rule", mutant.getBucket());
+        startTime = Metrics.start();
+        String[] curlCommands = new String[4];
+        curlCommands[0] = "curl";
+        curlCommands[1] = "-u";
+        curlCommands[2] = "admin:123456";
+        curlCommands[3] = "http://localhost:9000/api/issues/search?p=1&ps=500&componentKeys=" + SONARQUBE_PROJECT_NAME;
+        String jsonContent = invokeCommandsByZTWithOutput(curlCommands);
+        writeLinesToFile(resultFolder.getAbsolutePath() + sep + Path2Last(mutantPath) + ".json", jsonContent);
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            SonarQubeReport.readSonarQubeResultFile(mutantPath, jsonContent);
+        }
+        JSONObject root = new JSONObject(jsonContent);
+        int total = root.getInt("total");
+        int count = total % 500 == 0 ? total / 500 : total / 500 + 1;
+        for (int p = 2; p <= count; p++) {
+            curlCommands[3] = "http://localhost:9000/api/issues/search?p=" + p + "&ps=500&componentKeys=" + SONARQUBE_PROJECT_NAME;
+            jsonContent = invokeCommandsByZTWithOutput(curlCommands);
+            synchronized (AnalysisEngine.REPORT_LOCK) {
+                SonarQubeReport.readSonarQubeResultFile(mutantPath, jsonContent);
+            }
+        }
+        Tracer.span(Metrics.REPORT_PARSE, mutantPath, startTime, "analyzer", "SonarQube");
+        return true;
+    }
+
+}
@@ -0,0 +1,76 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
+import edu.polyu.report.SpotBugsReport;
+import edu.polyu.util.Invoker;
+
+import java.io.File;
+
+import static edu.polyu.util.Invoker.compileJavaSourceFile;
+import static edu.polyu.util.Utility.CLASS_FOLDER;
+import static edu.polyu.util.Utility.REPORT_FOLDER;
+import static edu.polyu.util.Utility.SPOTBUGS_PATH;
+import static edu.polyu.util.Utility.failedToolExecution;
+import static edu.polyu.util.Utility.sep;
+
+/**
+ * Description: SpotBugs on the classes of one compiled mutant
+ */
+public class SpotBugsAnalyzer extends FileAnalyzer {
+
+    @Override
+    public String getName() {
+        return "SpotBugs";
+    }
+
+    @Override
+    public boolean needsCompilation() {
+        return true;
+    }
+
+    @Override
+    public void analyzeSeeds(String seedFolderPath) {
+        Invoker.invokeSpotBugs(seedFolderPath);
+    }
+
+    // Compile the mutant, run SpotBugs on its classes and parse the report, return false if there is no report to triage
+    @Override
+    protected boolean analyze(MutantRef mutant) {
+        String seedFileNameWithSuffix = new File(mutant.getFilePath()).getName();
+        String subSeedFolderName = new File(mutant.getFolderPath()).getName();
+        String seedFileName = mutant.getFileName();
+        File mutantClassFolder = new File(CLASS_FOLDER.getAbsolutePath() + sep + subSeedFolderName + sep + seedFileName);
+        if (!mutantClassFolder.exists()) {
+            mutantClassFolder.mkdirs();
+        }
+        boolean isCompiled = compileJavaSourceFile(mutant.getFolderPath(), seedFileNameWithSuffix, mutantClassFolder.getAbsolutePath());
+        if (!isCompiled) {
+            return false;
+        }
+        String reportPath = REPORT_FOLDER.getAbsolutePath() + sep + subSeedFolderName + sep + seedFileName + "_Result.xml";
+        new File(reportPath).getParentFile().mkdirs();
+        String[] invokeCommands = new String[3];
+        invokeCommands[0] = "/bin/bash";
+        invokeCommands[1] = "-c";
+        invokeCommands[2] = SPOTBUGS_PATH + " -textui"
+//                + " -include " + configPath
+                + " -xml:withMessages" + " -output " + reportPath + " "
+                + mutantClassFolder.getAbsolutePath();
+        long startTime = Metrics.start();
+        boolean hasExec = Invoker.invokeCommandsByZT(invokeCommands);
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "SpotBugs", "rule", mutant.getBucket());
+        Tracer.span(Metrics.ANALYZE, mutant.getFilePath(), startTime, "analyzer", "SpotBugs", "rule", mutant.getBucket());
+        if (!hasExec) {
+            failedToolExecution.add(invokeCommands[2]);
+            return false;
+        }
+        startTime = Metrics.start();
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            SpotBugsReport.readSpotBugsResultFile(mutant.getFolderPath(), reportPath);
+        }
+        Tracer.span(Metrics.REPORT_PARSE, mutant.getFilePath(), startTime, "analyzer", "SpotBugs");
+        return true;
+    }
+
+}
@@ -0,0 +1,61 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.util.Utility;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description: Violations that an analyzer reported for one file, a copy of its entries in Utility.file2row and
+ * Utility.file2bugs. A file that the report does not mention has no entries, which the triage tells apart from an empty one.
+ */
+public final class Violations {
+
+    private final List<Integer> rows; // null if the report does not mention the file
+    private final Map<String, List<Integer>> bug2lines;
+
+    public Violations(List<Integer> rows, Map<String, List<Integer>> bug2lines) {
+        this.rows = rows == null ? null : Collections.unmodifiableList(new ArrayList<>(rows));
+        Map<String, List<Integer>> copy = new HashMap<>();
+        if (bug2lines != null) {
+            for (Map.Entry<String, List<Integer>> entry : bug2lines.entrySet()) {
+                copy.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+            }
+        }
+        this.bug2lines = Collections.unmodifiableMap(copy);
+    }
+
+    // The entries of the file in the report maps of the active analyzer, call it while holding AnalysisEngine.REPORT_LOCK
+    public static Violations of(String filePath) {
+        return new Violations(Utility.file2row.get(filePath), Utility.file2bugs.get(filePath));
+    }
+
+    // Put the entries back for another file with the same source, e.g. a cached result, so the triage finds them
+    void restore(String filePath) {
+        if (rows == null) {
+            return;
+        }
+        Utility.file2row.put(filePath, new ArrayList<>(rows));
+        HashMap<String, List<Integer>> copy = new HashMap<>();
+        for (Map.Entry<String, List<Integer>> entry : bug2lines.entrySet()) {
+            copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        Utility.file2bugs.put(filePath, copy);
+    }
+
+    public boolean isReported() {
+        return rows != null;
+    }
+
+    public Map<String, List<Integer>> getBug2lines() {
+        return bug2lines;
+    }
+
+    public int size() {
+        return rows == null ? 0 : rows.size();
+    }
+
+}
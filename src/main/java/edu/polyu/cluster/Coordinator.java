@@ -0,0 +1,397 @@
+package edu.polyu.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.monitor.Metrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Description: Hands shard tasks to workers over a line-based JSON protocol and collects their results.
+ * Worker -> coordinator: {"type":"hello"}, {"type":"request"}, {"type":"heartbeat"}, {"type":"result","task":id,"payload":{...}}.
+ * Coordinator -> worker: {"type":"task",...}, {"type":"wait","millis":n}, {"type":"done"}.
+ * Tasks of a worker that disconnects or misses heartbeats are queued again. When the queue is empty,
+ * an idle worker steals a copy of the longest running task, the first result of a task wins.
+ * A task is completed once its result has been handed to the result handler. A result with an "error" does not
+ * complete its task, the task is queued again unless a stolen copy is still running, and after MAX_ATTEMPTS failures
+ * it is completed as failed, see getFailed. A worker that is lost while it runs a task counts as a failure of the task,
+ * so a task that kills its workers cannot be handed out forever.
+ */
+public class Coordinator {
+
+    public static final int MAX_ATTEMPTS = 3;
+
+    private final int port;
+    private final long heartbeatTimeout; // milliseconds
+    private final long stealAfter; // milliseconds
+    private final Consumer<ObjectNode> resultHandler;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ArrayDeque<ShardTask> pending = new ArrayDeque<>();
+    private final Map<Integer, ShardTask> tasks = new LinkedHashMap<>();
+    private final Map<Integer, Set<Connection>> task2connections = new HashMap<>();
+    private final Map<Integer, Long> task2startTime = new HashMap<>();
+    private final Set<Integer> completed = new HashSet<>();
+    private final Set<Integer> merging = new HashSet<>(); // results that are handed to the result handler
+    private final Map<Integer, Integer> task2failures = new HashMap<>();
+    private final List<ShardTask> failed = new ArrayList<>();
+    private final List<Connection> connections = new ArrayList<>();
+
+    private ServerSocket serverSocket;
+    private volatile boolean running = false;
+
+    private class Connection {
+        final Socket socket;
+        final BufferedWriter writer;
+        final Set<Integer> runningTasks = new HashSet<>();
+        volatile long lastSeen = System.currentTimeMillis();
+        String name;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            this.name = socket.getRemoteSocketAddress().toString();
+        }
+
+        synchronized void send(ObjectNode message) throws IOException {
+            writer.write(message.toString());
+            writer.write("\n");
+            writer.flush();
+        }
+    }
+
+    public Coordinator(int port, List<ShardTask> shardTasks, long heartbeatTimeout, long stealAfter, Consumer<ObjectNode> resultHandler) {
+        this.port = port;
+        this.heartbeatTimeout = heartbeatTimeout;
+        this.stealAfter = stealAfter;
+        this.resultHandler = resultHandler;
+        for (ShardTask task : shardTasks) {
+            tasks.put(task.getId(), task);
+            pending.add(task);
+        }
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        running = true;
+        Thread acceptor = new Thread(this::acceptLoop, "coordinator-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        Thread reaper = new Thread(this::reapLoop, "coordinator-reaper");
+        reaper.setDaemon(true);
+        reaper.start();
+        System.out.println("Coordinator is listening on port " + getPort() + " with " + tasks.size() + " tasks.");
+    }
+
+    public int getPort() {
+        return serverSocket == null ? port : serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                Connection connection = new Connection(socket);
+                synchronized (this) {
+                    connections.add(connection);
+                }
+                Thread reader = new Thread(() -> readLoop(connection), "coordinator-" + connection.name);
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (running) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void readLoop(Connection connection) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                connection.lastSeen = System.currentTimeMillis();
+                JsonNode message = mapper.readTree(line);
+                String type = message.get("type").asText();
+                if (type.equals("hello")) {
+                    connection.name = message.path("worker").asText(connection.name);
+                    System.out.println("Worker joined: " + connection.name);
+                } else if (type.equals("request")) {
+                    connection.send(assign(connection));
+                } else if (type.equals("result")) {
+                    complete(connection, message.get("task").asInt(), (ObjectNode) message.get("payload"));
+                }
+            }
+        } catch (IOException e) {
+            if (running) {
+                System.err.println("Lost worker " + connection.name + ": " + e.getMessage());
+            }
+        }
+        drop(connection);
+    }
+
+    private synchronized ObjectNode assign(Connection connection) {
+        ShardTask task = pending.pollFirst();
+        while (task != null && isFinishing(task.getId())) {
+            task = pending.pollFirst();
+        }
+        if (task == null) {
+            task = steal(connection);
+        }
+        if (task == null) {
+            ObjectNode message = mapper.createObjectNode();
+            if (completed.size() == tasks.size()) {
+                message.put("type", "done");
+            } else {
+                message.put("type", "wait");
+                message.put("millis", 1000);
+            }
+            return message;
+        }
+        connection.runningTasks.add(task.getId());
+        task2connections.computeIfAbsent(task.getId(), k -> new HashSet<>()).add(connection);
+        task2startTime.putIfAbsent(task.getId(), System.currentTimeMillis());
+        ObjectNode message = task.toJson(mapper);
+        message.put("type", "task");
+        return message;
+    }
+
+    // Copy the longest running task that is only executed by another worker
+    private ShardTask steal(Connection connection) {
+        long now = System.currentTimeMillis();
+        ShardTask victim = null;
+        long victimStart = Long.MAX_VALUE;
+        for (Map.Entry<Integer, Set<Connection>> entry : task2connections.entrySet()) {
+            int id = entry.getKey();
+            Set<Connection> owners = entry.getValue();
+            long startTime = task2startTime.getOrDefault(id, now);
+            if (isFinishing(id) || owners.size() != 1 || owners.contains(connection) || now - startTime < stealAfter) {
+                continue;
+            }
+            if (startTime < victimStart) {
+                victim = tasks.get(id);
+                victimStart = startTime;
+            }
+        }
+        if (victim != null) {
+            System.out.println(connection.name + " steals " + victim);
+            Metrics.increment("statfier_cluster_steals_total");
+        }
+        return victim;
+    }
+
+    private void complete(Connection connection, int id, ObjectNode payload) {
+        boolean isFailed = false;
+        synchronized (this) {
+            connection.runningTasks.remove(id);
+            if (isFinishing(id)) {
+                return; // a stolen copy has finished first
+            }
+            if (payload.has("error") && !fail(connection, id, payload)) {
+                return;
+            }
+            isFailed = payload.has("error");
+            merging.add(id);
+            Set<Connection> owners = task2connections.remove(id);
+            if (owners != null) {
+                for (Connection owner : owners) {
+                    owner.runningTasks.remove(id);
+                }
+            }
+        }
+        // The task only counts as completed once its result is merged, so awaitCompletion never returns during a merge
+        try {
+            resultHandler.accept(payload);
+        } finally {
+            synchronized (this) {
+                merging.remove(id);
+                completed.add(id);
+                if (isFailed) {
+                    failed.add(tasks.get(id));
+                }
+                notifyAll();
+            }
+        }
+        System.out.println((isFailed ? "Failed " : "Finished ") + tasks.get(id) + " by " + connection.name + ", progress: " + getCompleted() + "/" + tasks.size());
+        Metrics.increment("statfier_cluster_tasks_total", "result", isFailed ? "failed" : "completed");
+    }
+
+    // Return true if the failed task has used up its attempts and is completed as failed, otherwise it is queued again
+    // unless a stolen copy is still running
+    private boolean fail(Connection connection, int id, ObjectNode payload) {
+        int failures = task2failures.merge(id, 1, Integer::sum);
+        System.err.println(tasks.get(id) + " failed on " + connection.name + " (" + failures + "/" + MAX_ATTEMPTS + "): " + payload.get("error").asText());
+        if (failures >= MAX_ATTEMPTS) {
+            return true;
+        }
+        Set<Connection> owners = task2connections.get(id);
+        if (owners != null) {
+            owners.remove(connection);
+            if (!owners.isEmpty()) {
+                return false;
+            }
+            task2connections.remove(id);
+        }
+        task2startTime.remove(id);
+        Metrics.increment("statfier_cluster_tasks_total", "result", "requeued");
+        pending.addLast(tasks.get(id));
+        return false;
+    }
+
+    private boolean isFinishing(int id) {
+        return completed.contains(id) || merging.contains(id);
+    }
+
+    // Re-queue tasks that are not executed by any other worker
+    private synchronized void drop(Connection connection) {
+        if (!connections.remove(connection)) {
+            return;
+        }
+        for (int id : connection.runningTasks) {
+            Set<Connection> owners = task2connections.get(id);
+            if (owners != null) {
+                owners.remove(connection);
+                if (owners.isEmpty()) {
+                    task2connections.remove(id);
+                    task2startTime.remove(id);
+                    if (isFinishing(id)) {
+                        continue;
+                    }
+                    int failures = task2failures.merge(id, 1, Integer::sum);
+                    if (failures >= MAX_ATTEMPTS) {
+                        System.err.println(tasks.get(id) + " lost its worker " + connection.name + " " + failures + " times, give it up.");
+                        giveUp(id);
+                    } else {
+                        System.out.println("Re-queue " + tasks.get(id) + " of " + connection.name + " (" + failures + "/" + MAX_ATTEMPTS + ")");
+                        Metrics.increment("statfier_cluster_tasks_total", "result", "requeued");
+                        pending.addFirst(tasks.get(id));
+                    }
+                }
+            }
+        }
+        connection.runningTasks.clear();
+        try {
+            connection.socket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Complete a task as failed without a result, the caller holds the lock
+    private void giveUp(int id) {
+        pending.remove(tasks.get(id));
+        Set<Connection> owners = task2connections.remove(id);
+        if (owners != null) {
+            for (Connection owner : owners) {
+                owner.runningTasks.remove(id);
+            }
+        }
+        task2startTime.remove(id);
+        completed.add(id);
+        failed.add(tasks.get(id));
+        Metrics.increment("statfier_cluster_tasks_total", "result", "failed");
+        notifyAll();
+    }
+
+    // Complete every unfinished task as failed, e.g. when no worker is left to execute them. Results that are being
+    // merged are kept, results that arrive later are ignored.
+    public synchronized void failRemaining(String reason) {
+        for (int id : tasks.keySet()) {
+            if (!isFinishing(id)) {
+                System.err.println("Give up " + tasks.get(id) + ": " + reason);
+                giveUp(id);
+            }
+        }
+    }
+
+    public synchronized int getWorkerCount() {
+        return connections.size();
+    }
+
+    private void reapLoop() {
+        while (running) {
+            try {
+                Thread.sleep(Math.max(100, heartbeatTimeout / 4));
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            List<Connection> dead = new ArrayList<>();
+            synchronized (this) {
+                for (Connection connection : connections) {
+                    if (now - connection.lastSeen > heartbeatTimeout) {
+                        dead.add(connection);
+                    }
+                }
+            }
+            for (Connection connection : dead) {
+                System.err.println("Worker " + connection.name + " missed heartbeats.");
+                drop(connection);
+            }
+        }
+    }
+
+    public synchronized int getCompleted() {
+        return completed.size();
+    }
+
+    // Tasks that failed MAX_ATTEMPTS times, they count as completed
+    public synchronized List<ShardTask> getFailed() {
+        return new ArrayList<>(failed);
+    }
+
+    // Return true if all tasks have finished before the timeout
+    public synchronized boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (completed.size() < tasks.size()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    public void stop() {
+        running = false;
+        List<Connection> remaining;
+        synchronized (this) {
+            remaining = new ArrayList<>(connections);
+        }
+        ObjectNode done = mapper.createObjectNode();
+        done.put("type", "done");
+        for (Connection connection : remaining) {
+            try {
+                connection.send(done);
+                connection.socket.close();
+            } catch (IOException e) {
+                // The worker has gone already
+            }
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+}
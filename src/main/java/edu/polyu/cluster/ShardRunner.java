@@ -0,0 +1,448 @@
+package edu.polyu.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.Main;
+import edu.polyu.analysis.TypeWrapper;
+import edu.polyu.transform.Transform;
+import edu.polyu.transform.TransformBandit;
+import edu.polyu.util.MutantStore;
+import edu.polyu.util.ProcessSupervisor;
+import edu.polyu.util.ResultStore;
+import edu.polyu.util.Schedule;
+import edu.polyu.util.Staging;
+import edu.polyu.util.TriTuple;
+import edu.polyu.util.Utility;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static edu.polyu.util.Utility.CLUSTER_HEARTBEAT_TIMEOUT;
+import static edu.polyu.util.Utility.CLUSTER_LOCAL_WORKERS;
+import static edu.polyu.util.Utility.CLUSTER_PORT;
+import static edu.polyu.util.Utility.CLUSTER_SHARD_BY;
+import static edu.polyu.util.Utility.CLUSTER_STEAL_AFTER;
+import static edu.polyu.util.Utility.CONFIG_OVERRIDE_PREFIX;
+import static edu.polyu.util.Utility.EVALUATION_PATH;
+import static edu.polyu.util.Utility.compactIssues;
+import static edu.polyu.util.Utility.file2bugs;
+import static edu.polyu.util.Utility.getFilenamesFromFolder;
+import static edu.polyu.util.Utility.sep;
+import static edu.polyu.util.Utility.subSeedFolderNameList;
+import static edu.polyu.util.Utility.writeLinesToFile;
+
+/**
+ * Description: Glue between Schedule and the coordinator/worker protocol.
+ * A worker stages the seeds of a task under its own EVALUATION_PATH, runs the usual transform loop on them
+ * and ships compactIssues, mutant2seed, mutant2seq, mutant2parent, violations and counters back. Seed paths travel relative to the
+ * seed folder, so the coordinator can merge them into its own global state and write one evaluation result.
+ * Other files of the worker move below EVALUATION_PATH/shards/task_<id> of the coordinator, the sources of findings
+ * and their ancestors travel with the payload and are written there.
+ */
+public class ShardRunner {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final int MAX_WORKER_RESTARTS = 3;
+
+    // Rule buckets with most seeds first, so that the long tasks do not start last
+    public static List<ShardTask> createTasks(String seedFolderPath, boolean bySeed) {
+        List<String> buckets = new ArrayList<>(subSeedFolderNameList);
+        Map<String, List<String>> bucket2seeds = new HashMap<>();
+        for (String bucket : buckets) {
+            File bucketFolder = new File(seedFolderPath, bucket);
+            List<String> seeds = new ArrayList<>();
+            for (String seedPath : getFilenamesFromFolder(bucketFolder.getAbsolutePath(), true)) {
+                seeds.add(bucketFolder.toPath().toAbsolutePath().relativize(new File(seedPath).toPath()).toString());
+            }
+            bucket2seeds.put(bucket, seeds);
+        }
+        buckets.sort((b1, b2) -> bucket2seeds.get(b2).size() - bucket2seeds.get(b1).size());
+        List<ShardTask> tasks = new ArrayList<>();
+        for (String bucket : buckets) {
+            if (bySeed) {
+                for (String seed : bucket2seeds.get(bucket)) {
+                    List<String> seeds = new ArrayList<>();
+                    seeds.add(seed);
+                    tasks.add(new ShardTask(tasks.size(), bucket, seeds));
+                }
+            } else {
+                tasks.add(new ShardTask(tasks.size(), bucket, new ArrayList<>()));
+            }
+        }
+        return tasks;
+    }
+
+    public static void runCoordinator() throws IOException, InterruptedException {
+        List<ShardTask> tasks = createTasks(Utility.SEED_PATH, CLUSTER_SHARD_BY.equals("seed"));
+        Coordinator coordinator = new Coordinator(CLUSTER_PORT, tasks, CLUSTER_HEARTBEAT_TIMEOUT * 1000,
+                CLUSTER_STEAL_AFTER * 1000, ShardRunner::mergeResult);
+        coordinator.start();
+        Process[] workers = new Process[CLUSTER_LOCAL_WORKERS];
+        int[] restarts = new int[CLUSTER_LOCAL_WORKERS];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = startLocalWorker(i, coordinator.getPort());
+        }
+        while (!coordinator.awaitCompletion(1, TimeUnit.MINUTES)) {
+            System.out.println("Cluster progress: " + coordinator.getCompleted() + "/" + tasks.size());
+            boolean alive = false;
+            for (int i = 0; i < workers.length; i++) {
+                if (!workers[i].isAlive() && restarts[i] < MAX_WORKER_RESTARTS) {
+                    System.err.println("Local worker " + i + " exited with " + workers[i].exitValue() + ", restart it.");
+                    restarts[i]++;
+                    workers[i] = startLocalWorker(i, coordinator.getPort());
+                }
+                alive |= workers[i].isAlive();
+            }
+            // Without local workers the campaign waits for remote ones, otherwise it ends once every local worker is gone
+            if (workers.length > 0 && !alive && coordinator.getWorkerCount() == 0) {
+                coordinator.failRemaining("no local worker is alive or can be restarted");
+            }
+        }
+        coordinator.stop();
+        for (Process worker : workers) {
+            if (!worker.waitFor(1, TimeUnit.MINUTES)) {
+                ProcessSupervisor.killProcessTree(worker);
+            }
+        }
+        // Buckets of failed tasks have no results, they are listed instead of silently missing
+        List<String> failedTasks = new ArrayList<>();
+        for (ShardTask task : coordinator.getFailed()) {
+            failedTasks.add(task.toString());
+        }
+        if (!failedTasks.isEmpty()) {
+            System.err.println(failedTasks.size() + " task(s) failed " + Coordinator.MAX_ATTEMPTS + " times, see FailedTasks.log");
+            writeLinesToFile(EVALUATION_PATH + sep + "FailedTasks.log", failedTasks);
+        }
+        Schedule.writeEvaluationResult();
+    }
+
+    public static void runWorker(String address) throws IOException, InterruptedException {
+        String[] tokens = address.split(":");
+        String name = InetAddress.getLocalHost().getHostName() + ":" + ProcessHandle.current().pid();
+        long heartbeatInterval = Math.max(1000, CLUSTER_HEARTBEAT_TIMEOUT * 1000 / 4);
+        Worker worker = new Worker(tokens[0], Integer.parseInt(tokens[1]), name, ShardRunner::runTask, heartbeatInterval);
+        int executed = worker.run();
+        System.out.println("Worker " + name + " executed " + executed + " tasks.");
+    }
+
+    // Every local worker gets its own EVALUATION_PATH, the other JVM flags and config overrides are inherited
+    private static Process startLocalWorker(int index, int port) throws IOException {
+        File workerFolder = new File(EVALUATION_PATH + sep + "workers");
+        workerFolder.mkdirs();
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + sep + "bin" + sep + "java");
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("-D" + CONFIG_OVERRIDE_PREFIX + "EVALUATION_PATH=") || argument.startsWith("-Dstatfier.jfr")
+                    || argument.startsWith("-agentlib") || argument.startsWith("-javaagent")) {
+                continue;
+            }
+            command.add(argument);
+        }
+        command.add("-D" + CONFIG_OVERRIDE_PREFIX + "EVALUATION_PATH=" + workerFolder.getAbsolutePath() + sep + "worker_" + index);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add("--worker");
+        command.add("127.0.0.1:" + port);
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(new File(workerFolder, "worker_" + index + ".log"));
+        System.out.println("Start local worker " + index + ", log: " + workerFolder.getAbsolutePath() + sep + "worker_" + index + ".log");
+        return builder.start();
+    }
+
+    public static ObjectNode runTask(ShardTask task) {
+        File stagedRoot = new File(EVALUATION_PATH + sep + "shards" + sep + "task_" + task.getId()).getAbsoluteFile();
+        String originalSeedPath = Utility.SEED_PATH;
+        try {
+            stage(task, new File(originalSeedPath, task.getBucket()), new File(stagedRoot, task.getBucket()));
+            Utility.SEED_PATH = stagedRoot.getAbsolutePath();
+            Schedule.getInstance().reset();
+            Schedule.getInstance().executeTransform(stagedRoot.getAbsolutePath());
+            return exportState(task, stagedRoot.getAbsolutePath());
+        } catch (IOException | RuntimeException e) { // a failing task must not kill the worker, see Coordinator
+            e.printStackTrace();
+            ObjectNode payload = mapper.createObjectNode();
+            payload.put("bucket", task.getBucket());
+            payload.put("error", e.getClass().getSimpleName() + ": " + e.getMessage());
+            return payload;
+        } finally {
+            Utility.SEED_PATH = originalSeedPath;
+            clearState();
+        }
+    }
+
+    // Seeds are linked instead of copied, copying is the fallback for file systems without symbolic links
+    private static void stage(ShardTask task, File bucketFolder, File stagedBucket) throws IOException {
+        if (stagedBucket.getParentFile().exists()) {
+            FileUtils.deleteDirectory(stagedBucket.getParentFile());
+        }
+        stagedBucket.getParentFile().mkdirs();
+        if (task.getSeeds().isEmpty()) {
+            link(bucketFolder.toPath(), stagedBucket.toPath());
+            return;
+        }
+        for (String seed : task.getSeeds()) {
+            Path target = stagedBucket.toPath().resolve(seed);
+            target.getParent().toFile().mkdirs();
+            link(bucketFolder.toPath().resolve(seed), target);
+        }
+    }
+
+    private static void link(Path source, Path target) throws IOException {
+        try {
+            Files.createSymbolicLink(target, source.toAbsolutePath());
+        } catch (IOException | UnsupportedOperationException e) {
+            if (source.toFile().isDirectory()) {
+                FileUtils.copyDirectory(source.toFile(), target.toFile());
+            } else {
+                Files.copy(source, target);
+            }
+        }
+    }
+
+    private static ObjectNode exportState(ShardTask task, String stagedRoot) {
+        ObjectNode payload = mapper.createObjectNode();
+        payload.put("bucket", task.getBucket());
+        payload.put("task", task.getId());
+        payload.put("evaluationPath", new File(EVALUATION_PATH).getAbsolutePath());
+        ObjectNode issues = payload.putObject("compactIssues");
+        for (Map.Entry<String, HashMap<String, List<TriTuple>>> entry : compactIssues.entrySet()) {
+            ObjectNode seq2mutants = issues.putObject(entry.getKey());
+            for (Map.Entry<String, List<TriTuple>> subEntry : entry.getValue().entrySet()) {
+                ArrayNode tuples = seq2mutants.putArray(subEntry.getKey());
+                for (TriTuple triTuple : subEntry.getValue()) {
+                    ArrayNode tuple = tuples.addArray();
+                    tuple.add(exportPath(triTuple.first, stagedRoot));
+                    tuple.add(exportPath(triTuple.second, stagedRoot));
+                    tuple.add(triTuple.third);
+                }
+            }
+        }
+        ObjectNode mutant2seed = payload.putObject("mutant2seed");
+        for (Map.Entry<String, String> entry : TypeWrapper.mutant2seed.entrySet()) {
+            mutant2seed.put(exportPath(entry.getKey(), stagedRoot), exportPath(entry.getValue(), stagedRoot));
+        }
+        ObjectNode mutant2seq = payload.putObject("mutant2seq");
+        for (Map.Entry<String, String> entry : TypeWrapper.mutant2seq.entrySet()) {
+            mutant2seq.put(exportPath(entry.getKey(), stagedRoot), entry.getValue());
+        }
+        ObjectNode mutant2parent = payload.putObject("mutant2parent");
+        for (Map.Entry<String, String> entry : TypeWrapper.mutant2parent.entrySet()) {
+            mutant2parent.put(exportPath(entry.getKey(), stagedRoot), exportPath(entry.getValue(), stagedRoot));
+        }
+        ObjectNode violations = payload.putObject("violations");
+        for (Map.Entry<String, HashMap<String, List<Integer>>> entry : file2bugs.entrySet()) {
+            exportViolations(violations.putObject(exportPath(entry.getKey(), stagedRoot)), entry.getValue());
+        }
+        for (String path : MutantStore.getStoredPaths()) {
+            exportViolations(violations.putObject(exportPath(path, stagedRoot)), MutantStore.getBug2lines(path));
+        }
+        ObjectNode quarantine = payload.putObject("quarantine"); // keys are mutant paths or whole commands
+        for (Map.Entry<String, String> entry : ProcessSupervisor.quarantine.entrySet()) {
+            quarantine.put(entry.getKey(), entry.getValue());
+        }
+        ObjectNode counters = payload.putObject("counters");
+        counters.put("allVariants", Transform.cnt1.get());
+        counters.put("reducedVariants", Transform.cnt2.get());
+        counters.put("transformedSeed", TypeWrapper.transformedSeed);
+        counters.put("successfulT", Utility.successfulT);
+        counters.put("failedT", Utility.failedT);
+        payload.set("bandit", TransformBandit.getInstance().drainObservations(mapper));
+        exportSources(payload.putObject("sources"), stagedRoot);
+        return payload;
+    }
+
+    // A remote coordinator cannot read the files of the worker, so the mutants of findings and their ancestors are sent
+    // along for the reports, the clusters and the reducer. Seeds are left out, the coordinator has them.
+    private static void exportSources(ObjectNode sources, String stagedRoot) {
+        for (HashMap<String, List<TriTuple>> seq2mutants : compactIssues.values()) {
+            for (List<TriTuple> tuples : seq2mutants.values()) {
+                for (TriTuple triTuple : tuples) {
+                    for (String path = triTuple.second; path != null; path = TypeWrapper.mutant2parent.get(path)) {
+                        String exportedPath = exportPath(path, stagedRoot);
+                        if (!new File(exportedPath).isAbsolute() || sources.has(exportedPath)) {
+                            break;
+                        }
+                        String source = readSource(path);
+                        if (source != null) {
+                            sources.put(exportedPath, source);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // The staged file is read if the background writer has not copied it out yet
+    private static String readSource(String path) {
+        for (String candidate : new String[]{path, Staging.toPersistent(path)}) {
+            File file = new File(candidate);
+            if (file.isFile()) {
+                try {
+                    return FileUtils.readFileToString(file, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void exportViolations(ObjectNode bug2lines, Map<String, List<Integer>> violations) {
+        for (Map.Entry<String, List<Integer>> entry : violations.entrySet()) {
+            ArrayNode lines = bug2lines.putArray(entry.getKey());
+            for (int line : entry.getValue()) {
+                lines.add(line);
+            }
+        }
+    }
+
+    // Seeds become relative to the seed folder, every other path becomes absolute
+    private static String exportPath(String path, String stagedRoot) {
+        String absolutePath = new File(Staging.toPersistent(path)).getAbsolutePath(); // mutants of findings are copied out of the staging folder
+        if (absolutePath.startsWith(stagedRoot + sep)) {
+            return absolutePath.substring(stagedRoot.length() + 1);
+        }
+        return absolutePath;
+    }
+
+    // Seeds resolve against the seed folder, files of the worker move below EVALUATION_PATH/shards/task_<id> of the
+    // coordinator, where mergeResult writes the sources of the payload
+    private static String importPath(String path, ObjectNode payload) {
+        if (!new File(path).isAbsolute()) {
+            return new File(Utility.SEED_PATH, path).getAbsolutePath();
+        }
+        String workerRoot = payload.path("evaluationPath").asText("");
+        if (workerRoot.isEmpty() || !path.startsWith(workerRoot + sep)) {
+            return path;
+        }
+        return new File(EVALUATION_PATH + sep + "shards" + sep + "task_" + payload.path("task").asInt(), path.substring(workerRoot.length() + 1))
+                .getAbsolutePath();
+    }
+
+    // A worker executes many tasks in one JVM, so the global state of a finished task is dropped
+    private static void clearState() {
+        compactIssues.clear();
+        file2bugs.clear();
+        MutantStore.clearResults();
+        Utility.file2row.clear();
+        Utility.file2report.clear();
+        TypeWrapper.mutant2seed.clear();
+        TypeWrapper.mutant2seq.clear();
+        TypeWrapper.mutant2parent.clear();
+        ProcessSupervisor.quarantine.clear();
+        Transform.cnt1.set(0);
+        Transform.cnt2.set(0);
+        TypeWrapper.transformedSeed = 0;
+        Utility.successfulT = 0;
+        Utility.failedT = 0;
+        Schedule.getInstance().reset();
+    }
+
+    // Kind of a finding in the result store, CLEAN for tuples that are not stored
+    static byte getKind(String kind) {
+        switch (kind) {
+            case "FP":
+                return ResultStore.FP;
+            case "FN":
+                return ResultStore.FN;
+            default:
+                return ResultStore.CLEAN;
+        }
+    }
+
+    public static synchronized void mergeResult(ObjectNode payload) {
+        if (payload.has("error")) {
+            System.err.println("Task of " + payload.path("bucket").asText() + " failed: " + payload.get("error").asText());
+            return;
+        }
+        Iterator<Map.Entry<String, JsonNode>> rules = payload.path("compactIssues").fields();
+        while (rules.hasNext()) {
+            Map.Entry<String, JsonNode> rule = rules.next();
+            HashMap<String, List<TriTuple>> seq2mutants = compactIssues.computeIfAbsent(rule.getKey(), k -> new HashMap<>());
+            Iterator<Map.Entry<String, JsonNode>> seqs = rule.getValue().fields();
+            while (seqs.hasNext()) {
+                Map.Entry<String, JsonNode> seq = seqs.next();
+                List<TriTuple> tuples = seq2mutants.computeIfAbsent(seq.getKey(), k -> new ArrayList<>());
+                for (JsonNode tuple : seq.getValue()) {
+                    TriTuple triTuple = new TriTuple(importPath(tuple.get(0).asText(), payload), importPath(tuple.get(1).asText(), payload),
+                            tuple.get(2).asText());
+                    tuples.add(triTuple);
+                    // every worker keeps all its outcomes in its own store, the coordinator collects the findings.
+                    // Timeouts (kind "Timeout") are not findings, a single-process run does not store them either
+                    byte kind = getKind(triTuple.third);
+                    if (ResultStore.isEnabled() && kind != ResultStore.CLEAN) {
+                        String parent = payload.path("mutant2parent").path(tuple.get(1).asText()).asText("");
+                        ResultStore.getInstance().append(triTuple.second, parent.isEmpty() ? "" : importPath(parent, payload), triTuple.first, seq.getKey(), Utility.getAnalyzerName(),
+                                rule.getKey(), kind, 0);
+                    }
+                }
+            }
+        }
+        Iterator<Map.Entry<String, JsonNode>> mutants = payload.path("mutant2seed").fields();
+        while (mutants.hasNext()) {
+            Map.Entry<String, JsonNode> entry = mutants.next();
+            TypeWrapper.mutant2seed.put(importPath(entry.getKey(), payload), importPath(entry.getValue().asText(), payload));
+        }
+        mutants = payload.path("mutant2seq").fields();
+        while (mutants.hasNext()) {
+            Map.Entry<String, JsonNode> entry = mutants.next();
+            TypeWrapper.mutant2seq.put(importPath(entry.getKey(), payload), entry.getValue().asText());
+        }
+        mutants = payload.path("mutant2parent").fields();
+        while (mutants.hasNext()) {
+            Map.Entry<String, JsonNode> entry = mutants.next();
+            TypeWrapper.mutant2parent.put(importPath(entry.getKey(), payload), importPath(entry.getValue().asText(), payload));
+        }
+        Iterator<Map.Entry<String, JsonNode>> files = payload.path("violations").fields();
+        while (files.hasNext()) {
+            Map.Entry<String, JsonNode> file = files.next();
+            HashMap<String, List<Integer>> bug2lines = file2bugs.computeIfAbsent(importPath(file.getKey(), payload), k -> new HashMap<>());
+            Iterator<Map.Entry<String, JsonNode>> bugs = file.getValue().fields();
+            while (bugs.hasNext()) {
+                Map.Entry<String, JsonNode> bug = bugs.next();
+                List<Integer> lines = bug2lines.computeIfAbsent(bug.getKey(), k -> new ArrayList<>());
+                for (JsonNode line : bug.getValue()) {
+                    lines.add(line.asInt());
+                }
+            }
+        }
+        Iterator<Map.Entry<String, JsonNode>> quarantined = payload.path("quarantine").fields();
+        while (quarantined.hasNext()) {
+            Map.Entry<String, JsonNode> entry = quarantined.next();
+            ProcessSupervisor.addToQuarantine(entry.getKey(), entry.getValue().asText());
+        }
+        JsonNode counters = payload.path("counters");
+        Transform.cnt1.addAndGet(counters.path("allVariants").asInt());
+        Transform.cnt2.addAndGet(counters.path("reducedVariants").asInt());
+        TypeWrapper.transformedSeed += counters.path("transformedSeed").asInt();
+        Utility.successfulT += counters.path("successfulT").asInt();
+        Utility.failedT += counters.path("failedT").asInt();
+        TransformBandit.getInstance().merge(payload.path("bandit"));
+        Iterator<Map.Entry<String, JsonNode>> sources = payload.path("sources").fields();
+        while (sources.hasNext()) {
+            Map.Entry<String, JsonNode> entry = sources.next();
+            try {
+                FileUtils.writeStringToFile(new File(importPath(entry.getKey(), payload)), entry.getValue().asText(), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.err.println("Cannot write source of " + entry.getKey() + ": " + e.getMessage());
+            }
+        }
+    }
+
+}
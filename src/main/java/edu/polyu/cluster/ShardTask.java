@@ -0,0 +1,63 @@
+package edu.polyu.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description: One unit of a sharded campaign, a rule bucket of the seed folder or some seeds of a bucket.
+ * Seeds are relative to the bucket folder, an empty list means the whole bucket.
+ */
+public class ShardTask {
+
+    private final int id;
+    private final String bucket;
+    private final List<String> seeds;
+
+    public ShardTask(int id, String bucket, List<String> seeds) {
+        this.id = id;
+        this.bucket = bucket;
+        this.seeds = seeds;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getBucket() {
+        return bucket;
+    }
+
+    public List<String> getSeeds() {
+        return seeds;
+    }
+
+    public ObjectNode toJson(ObjectMapper mapper) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("task", id);
+        node.put("bucket", bucket);
+        ArrayNode seedNodes = node.putArray("seeds");
+        for (String seed : seeds) {
+            seedNodes.add(seed);
+        }
+        return node;
+    }
+
+    public static ShardTask fromJson(JsonNode node) {
+        List<String> seeds = new ArrayList<>();
+        for (JsonNode seed : node.get("seeds")) {
+            seeds.add(seed.asText());
+        }
+        return new ShardTask(node.get("task").asInt(), node.get("bucket").asText(), seeds);
+    }
+
+    @Override
+    public String toString() {
+        return "Task " + id + " " + bucket + (seeds.isEmpty() ? "" : " " + seeds);
+    }
+
+}
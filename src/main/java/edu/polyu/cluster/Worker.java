@@ -0,0 +1,116 @@
+package edu.polyu.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Description: Pulls shard tasks from a Coordinator until it answers "done".
+ * A daemon thread sends heartbeats while tasks are executed, so long analyzer runs are not mistaken for a dead worker.
+ */
+public class Worker {
+
+    private final String host;
+    private final int port;
+    private final String name;
+    private final Function<ShardTask, ObjectNode> executor;
+    private final long heartbeatInterval; // milliseconds
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private BufferedWriter writer;
+
+    public Worker(String host, int port, String name, Function<ShardTask, ObjectNode> executor, long heartbeatInterval) {
+        this.host = host;
+        this.port = port;
+        this.name = name;
+        this.executor = executor;
+        this.heartbeatInterval = heartbeatInterval;
+    }
+
+    // Return the number of executed tasks
+    public int run() throws IOException, InterruptedException {
+        int executed = 0;
+        try (Socket socket = connect(60)) {
+            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "worker-heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            heartbeat.scheduleAtFixedRate(() -> send("heartbeat", null), heartbeatInterval, heartbeatInterval, TimeUnit.MILLISECONDS);
+            try {
+                send("hello", null);
+                while (true) {
+                    send("request", null);
+                    String line = reader.readLine();
+                    if (line == null) {
+                        System.err.println("Coordinator has closed the connection.");
+                        break;
+                    }
+                    JsonNode message = mapper.readTree(line);
+                    String type = message.get("type").asText();
+                    if (type.equals("done")) {
+                        break;
+                    }
+                    if (type.equals("wait")) {
+                        Thread.sleep(message.path("millis").asLong(1000));
+                        continue;
+                    }
+                    ShardTask task = ShardTask.fromJson(message);
+                    System.out.println(name + " starts " + task);
+                    ObjectNode result = mapper.createObjectNode();
+                    result.put("task", task.getId());
+                    result.set("payload", executor.apply(task));
+                    send("result", result);
+                    executed++;
+                }
+            } finally {
+                heartbeat.shutdownNow();
+            }
+        }
+        return executed;
+    }
+
+    private Socket connect(int retries) throws IOException, InterruptedException {
+        for (int i = 0; ; i++) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (i >= retries) {
+                    throw e;
+                }
+                Thread.sleep(1000); // the coordinator may still be starting
+            }
+        }
+    }
+
+    private synchronized void send(String type, ObjectNode message) {
+        if (message == null) {
+            message = mapper.createObjectNode();
+        }
+        message.put("type", type);
+        message.put("worker", name);
+        try {
+            writer.write(message.toString());
+            writer.write("\n");
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Fail to send " + type + " to coordinator: " + e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+package edu.polyu.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("statfier.AnalyzerInvocation")
+@Label("Analyzer Invocation")
+@Category({"Statfier", "Analyzer"})
+@Description("One external command or in-process analyzer run")
+public class AnalyzerInvocationEvent extends Event {
+
+    @Label("Tool")
+    public String tool;
+
+    @Label("Batch Size")
+    public int batchSize;
+
+    @Label("Exit Code")
+    public int exitCode;
+
+    @Label("Command")
+    public String command;
+
+}
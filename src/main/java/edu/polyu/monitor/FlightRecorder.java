@@ -0,0 +1,56 @@
+package edu.polyu.monitor;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+
+/**
+ * Description: Starts a JFR recording when the JVM is launched with -Dstatfier.jfr=/path/to/file.jfr.
+ * The Statfier events are always defined, JFR keeps them disabled (and nearly free) when no recording is running.
+ * Optional -Dstatfier.jfr.settings=default|profile selects the JDK event settings, default is "profile".
+ */
+public class FlightRecorder {
+
+    public static final String JFR_PROPERTY = "statfier.jfr";
+    public static final String JFR_SETTINGS_PROPERTY = "statfier.jfr.settings";
+
+    private static Recording recording;
+
+    public static synchronized void startFromSystemProperty() {
+        String destination = System.getProperty(JFR_PROPERTY);
+        if (recording != null || destination == null || destination.isEmpty()) {
+            return;
+        }
+        try {
+            Configuration configuration = Configuration.getConfiguration(System.getProperty(JFR_SETTINGS_PROPERTY, "profile"));
+            Path path = Paths.get(destination).toAbsolutePath();
+            recording = new Recording(configuration);
+            recording.setName("Statfier");
+            recording.setDestination(path); // JFR writes the file when the recording is stopped
+            recording.setToDisk(true);
+            recording.setDumpOnExit(true);
+            recording.enable(MutantGeneratedEvent.class);
+            recording.enable(AnalyzerInvocationEvent.class);
+            recording.enable(ReportParsedEvent.class);
+            recording.enable(TriageDecisionEvent.class);
+            recording.start();
+            System.out.println("JFR recording started: " + path);
+        } catch (IOException | ParseException e) {
+            System.err.println("Fail to start JFR recording: " + destination);
+            e.printStackTrace();
+        }
+    }
+
+    public static synchronized void stop() {
+        if (recording != null) {
+            recording.stop();
+            recording.close();
+            recording = null;
+        }
+    }
+
+}
@@ -0,0 +1,93 @@
+package edu.polyu.monitor;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description: Lock-free latency histogram with HDR-style log-linear buckets.
+ * Values below 32 are counted exactly, larger values are grouped into 16 linear
+ * sub-buckets per power of two, so every recorded value is kept within ~6% precision.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS; // 32
+    private static final int HALF_COUNT = SUB_BUCKET_COUNT >> 1; // 16
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * HALF_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    // percentile is in [0, 100], the upper bound of the matched bucket is returned
+    public long getPercentile(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        if (target < 1) {
+            target = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS + 1;
+        return SUB_BUCKET_COUNT + (shift - 1) * HALF_COUNT + (int) ((value >>> shift) - HALF_COUNT);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / HALF_COUNT + 1;
+        long subBucket = offset % HALF_COUNT + HALF_COUNT;
+        if (shift >= 63 - SUB_BUCKET_BITS + 1 && subBucket == SUB_BUCKET_COUNT - 1) {
+            return Long.MAX_VALUE;
+        }
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+}
@@ -0,0 +1,281 @@
+package edu.polyu.monitor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description: Process-wide registry of counters and latency histograms.
+ * Pipeline stages call {@link #record(String, long, String...)} with a start timestamp from {@link #start()},
+ * and the registry is dumped as JSON and Prometheus text periodically and when the JVM exits.
+ * All methods are no-ops until {@link #enable(File, long)} is invoked.
+ */
+public class Metrics {
+
+    // Pipeline stages, every stage is exported as histogram "statfier_stage_seconds{stage=...}"
+    public static final String PARSE = "parse";
+    public static final String CHECK = "check";
+    public static final String RUN = "run";
+    public static final String REWRITE = "rewrite";
+    public static final String FORMAT = "format";
+    public static final String WRITE = "write";
+    public static final String COMPILE = "compile";
+    public static final String ANALYZE = "analyze";
+    public static final String REPORT_PARSE = "report_parse";
+    public static final String TRIAGE = "triage";
+    public static final String REDUCE = "reduce";
+
+    private static volatile boolean enabled = false;
+
+    private static final ConcurrentHashMap<String, Series<LongAdder>> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Series<LatencyHistogram>> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Series<Double>> gauges = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService exporter;
+    private static File outputFolder;
+
+    private static class Series<T> {
+        final String name;
+        final String labels;
+        volatile T value;
+
+        Series(String name, String labels, T value) {
+            this.name = name;
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void enable(File folder, long intervalSeconds) {
+        if (enabled) {
+            return;
+        }
+        outputFolder = folder;
+        enabled = true;
+        if (intervalSeconds > 0) {
+            exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "metrics-exporter");
+                thread.setDaemon(true);
+                return thread;
+            });
+            exporter.scheduleAtFixedRate(Metrics::export, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(Metrics::export, "metrics-shutdown"));
+    }
+
+    // The start timestamp is shared with Tracer, so it is also taken when only tracing is enabled
+    public static long start() {
+        return enabled || Tracer.isEnabled() ? System.nanoTime() : 0;
+    }
+
+    // Record the time elapsed since startNanos for a pipeline stage, tags are alternating key and value
+    public static void record(String stage, long startNanos, String... tags) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        histogram("statfier_stage_seconds", withStage(stage, tags)).record(elapsed);
+    }
+
+    public static void recordNanos(String name, long nanos, String... tags) {
+        if (!enabled) {
+            return;
+        }
+        histogram(name, tags).record(nanos);
+    }
+
+    public static void increment(String name, String... tags) {
+        add(name, 1, tags);
+    }
+
+    public static void add(String name, long delta, String... tags) {
+        if (!enabled) {
+            return;
+        }
+        String labels = labelsOf(tags);
+        counters.computeIfAbsent(name + "{" + labels + "}", k -> new Series<>(name, labels, new LongAdder())).value.add(delta);
+    }
+
+    public static void gauge(String name, double value, String... tags) {
+        if (!enabled) {
+            return;
+        }
+        String labels = labelsOf(tags);
+        gauges.computeIfAbsent(name + "{" + labels + "}", k -> new Series<>(name, labels, value)).value = value;
+    }
+
+    public static LatencyHistogram histogram(String name, String... tags) {
+        String labels = labelsOf(tags);
+        return histograms.computeIfAbsent(name + "{" + labels + "}", k -> new Series<>(name, labels, new LatencyHistogram())).value;
+    }
+
+    public static long getCount(String name, String... tags) {
+        Series<LongAdder> series = counters.get(name + "{" + labelsOf(tags) + "}");
+        return series == null ? 0 : series.value.sum();
+    }
+
+    private static String[] withStage(String stage, String[] tags) {
+        String[] all = new String[tags.length + 2];
+        all[0] = "stage";
+        all[1] = stage;
+        System.arraycopy(tags, 0, all, 2, tags.length);
+        return all;
+    }
+
+    static String labelsOf(String[] tags) {
+        if (tags.length == 0) {
+            return "";
+        }
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i + 1 < tags.length; i += 2) {
+            if (labels.length() > 0) {
+                labels.append(',');
+            }
+            labels.append(tags[i]).append("=\"").append(escape(tags[i + 1])).append('"');
+        }
+        return labels.toString();
+    }
+
+    private static String escape(String value) {
+        if (value == null) {
+            return "";
+        }
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    public static synchronized void export() {
+        if (!enabled || outputFolder == null) {
+            return;
+        }
+        if (!outputFolder.exists()) {
+            outputFolder.mkdirs();
+        }
+        writeAtomically(new File(outputFolder, "metrics.json"), toJson());
+        writeAtomically(new File(outputFolder, "metrics.prom"), toPrometheus());
+    }
+
+    private static void writeAtomically(File target, String content) {
+        File tmp = new File(target.getAbsolutePath() + ".tmp");
+        try {
+            Files.write(tmp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Fail to export metrics: " + target.getAbsolutePath());
+            e.printStackTrace();
+        }
+    }
+
+    public static String toJson() {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("timestamp", System.currentTimeMillis());
+        ArrayNode counterNodes = mapper.createArrayNode();
+        for (Series<LongAdder> series : sorted(counters).values()) {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("name", series.name);
+            node.put("labels", series.labels);
+            node.put("value", series.value.sum());
+            counterNodes.add(node);
+        }
+        root.set("counters", counterNodes);
+        ArrayNode gaugeNodes = mapper.createArrayNode();
+        for (Series<Double> series : sorted(gauges).values()) {
+            ObjectNode node = mapper.createObjectNode();
+            node.put("name", series.name);
+            node.put("labels", series.labels);
+            node.put("value", series.value);
+            gaugeNodes.add(node);
+        }
+        root.set("gauges", gaugeNodes);
+        ArrayNode histogramNodes = mapper.createArrayNode();
+        for (Series<LatencyHistogram> series : sorted(histograms).values()) {
+            LatencyHistogram histogram = series.value;
+            ObjectNode node = mapper.createObjectNode();
+            node.put("name", series.name);
+            node.put("labels", series.labels);
+            node.put("count", histogram.getCount());
+            node.put("sumMs", histogram.getSum() / 1e6);
+            node.put("meanMs", histogram.getMean() / 1e6);
+            node.put("p50Ms", histogram.getPercentile(50) / 1e6);
+            node.put("p90Ms", histogram.getPercentile(90) / 1e6);
+            node.put("p99Ms", histogram.getPercentile(99) / 1e6);
+            node.put("maxMs", histogram.getMax() / 1e6);
+            histogramNodes.add(node);
+        }
+        root.set("histograms", histogramNodes);
+        return root.toPrettyString();
+    }
+
+    public static String toPrometheus() {
+        List<String> lines = new ArrayList<>();
+        String lastName = null;
+        for (Series<LongAdder> series : sorted(counters).values()) {
+            if (!series.name.equals(lastName)) {
+                lines.add("# TYPE " + series.name + " counter");
+                lastName = series.name;
+            }
+            lines.add(series.name + braces(series.labels) + " " + series.value.sum());
+        }
+        for (Series<Double> series : sorted(gauges).values()) {
+            if (!series.name.equals(lastName)) {
+                lines.add("# TYPE " + series.name + " gauge");
+                lastName = series.name;
+            }
+            lines.add(series.name + braces(series.labels) + " " + series.value);
+        }
+        for (Series<LatencyHistogram> series : sorted(histograms).values()) {
+            LatencyHistogram histogram = series.value;
+            if (!series.name.equals(lastName)) {
+                lines.add("# TYPE " + series.name + " summary");
+                lastName = series.name;
+            }
+            String prefix = series.labels.isEmpty() ? "" : series.labels + ",";
+            for (double quantile : new double[]{0.5, 0.9, 0.99}) {
+                lines.add(series.name + "{" + prefix + "quantile=\"" + quantile + "\"} " + histogram.getPercentile(quantile * 100) / 1e9);
+            }
+            lines.add(series.name + "_sum" + braces(series.labels) + " " + histogram.getSum() / 1e9);
+            lines.add(series.name + "_count" + braces(series.labels) + " " + histogram.getCount());
+        }
+        return String.join("\n", lines) + "\n";
+    }
+
+    private static String braces(String labels) {
+        return labels.isEmpty() ? "" : "{" + labels + "}";
+    }
+
+    private static <T> Map<String, Series<T>> sorted(Map<String, Series<T>> map) {
+        return new TreeMap<>(map);
+    }
+
+    // Only used by tests and by long-running services that reuse the JVM
+    public static synchronized void reset() {
+        counters.clear();
+        histograms.clear();
+        gauges.clear();
+    }
+
+    // Enable recording without exporting, e.g. for in-process embedding
+    public static void enableInMemory() {
+        enabled = true;
+    }
+
+}
@@ -0,0 +1,33 @@
+package edu.polyu.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("statfier.MutantGenerated")
+@Label("Mutant Generated")
+@Category({"Statfier", "Transform"})
+@Description("One transformation attempt on a candidate AST node")
+public class MutantGeneratedEvent extends Event {
+
+    @Label("Transform")
+    public String transform;
+
+    @Label("Seed")
+    public String seed;
+
+    @Label("Mutant")
+    public String mutant;
+
+    @Label("Node Type")
+    public String nodeType;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Success")
+    public boolean success;
+
+}
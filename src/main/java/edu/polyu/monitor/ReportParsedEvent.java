@@ -0,0 +1,21 @@
+package edu.polyu.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("statfier.ReportParsed")
+@Label("Report Parsed")
+@Category({"Statfier", "Analyzer"})
+@Description("Parsing of one analyzer report into file2row/file2bugs")
+public class ReportParsedEvent extends Event {
+
+    @Label("Analyzer")
+    public String analyzer;
+
+    @Label("Report")
+    public String report;
+
+}
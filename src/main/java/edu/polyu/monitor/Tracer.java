@@ -0,0 +1,239 @@
+package edu.polyu.monitor;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: Per-mutant trace spans written in Chrome Trace Event format, viewable in chrome://tracing or Perfetto.
+ * Every seed is shown as a process and every mutant derived from it as a thread of that process,
+ * so the stages of one mutant (generate, rewrite, write, format, compile, analyze, report_parse, triage)
+ * line up in one row and slow seeds or transforms stand out. Events are streamed to disk as they finish.
+ * The lane of a mutant is released once the mutant is triaged or discarded, so only mutants in flight are kept.
+ * All methods are no-ops until {@link #enable(File)} is invoked.
+ */
+public class Tracer {
+
+    public static final String GENERATE = "generate";
+
+    private static volatile boolean enabled = false;
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ConcurrentHashMap<String, Integer> seed2pid = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Lane> mutant2lane = new ConcurrentHashMap<>();
+    private static final AtomicInteger pidCounter = new AtomicInteger(0);
+    private static final AtomicInteger tidCounter = new AtomicInteger(0);
+    private static final AtomicInteger batchCounter = new AtomicInteger(0);
+    private static final long originNanos = System.nanoTime();
+
+    private static BufferedWriter writer;
+    private static boolean firstEvent;
+
+    private static class Lane {
+        final int pid;
+        final int tid;
+        final String seed;
+        final String parent;
+        final String transSeq;
+
+        Lane(int pid, int tid, String seed, String parent, String transSeq) {
+            this.pid = pid;
+            this.tid = tid;
+            this.seed = seed;
+            this.parent = parent;
+            this.transSeq = transSeq;
+        }
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static synchronized void enable(File traceFile) {
+        if (enabled) {
+            return;
+        }
+        try {
+            if (traceFile.getParentFile() != null && !traceFile.getParentFile().exists()) {
+                traceFile.getParentFile().mkdirs();
+            }
+            writer = Files.newBufferedWriter(traceFile.toPath(), StandardCharsets.UTF_8);
+            writer.write("[\n");
+            firstEvent = true;
+        } catch (IOException e) {
+            System.err.println("Fail to create trace file: " + traceFile.getAbsolutePath());
+            e.printStackTrace();
+            return;
+        }
+        enabled = true;
+        Runtime.getRuntime().addShutdownHook(new Thread(Tracer::close, "tracer-shutdown"));
+    }
+
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    // Register the lineage of a mutant, its spans are placed under the process of its initial seed
+    public static void lineage(String mutant, String seed, String parent, String transSeq) {
+        if (!enabled) {
+            return;
+        }
+        laneOf(mutant, seed, parent, transSeq);
+    }
+
+    // Record a span of a pipeline stage for one mutant, args are alternating key and value
+    public static void span(String stage, String mutant, long startNanos, String... args) {
+        if (!enabled || startNanos == 0) {
+            return;
+        }
+        long endNanos = System.nanoTime();
+        emitSpan(stage, laneOf(mutant, null, null, null), startNanos, endNanos, args);
+    }
+
+    // Record a span shared by a batch of mutants, e.g. one analyzer run over a whole rule folder
+    public static void batchSpan(String stage, Collection<String> mutants, long startNanos, String... args) {
+        if (!enabled || startNanos == 0) {
+            return;
+        }
+        long endNanos = System.nanoTime();
+        String batch = String.valueOf(batchCounter.incrementAndGet());
+        String[] batchArgs = new String[args.length + 4];
+        System.arraycopy(args, 0, batchArgs, 0, args.length);
+        batchArgs[args.length] = "batch";
+        batchArgs[args.length + 1] = batch;
+        batchArgs[args.length + 2] = "batchSize";
+        batchArgs[args.length + 3] = String.valueOf(mutants.size());
+        for (String mutant : mutants) {
+            emitSpan(stage, laneOf(mutant, null, null, null), startNanos, endNanos, batchArgs);
+        }
+    }
+
+    // Forget the lane of a mutant that gets no further spans, a later span would open a new lane
+    public static void release(String path) {
+        if (!enabled) {
+            return;
+        }
+        String mutant = new File(path).getAbsolutePath();
+        Lane lane = mutant2lane.remove(mutant);
+        if (lane != null && lane.seed.equals(mutant)) {
+            seed2pid.remove(mutant); // a file traced without lineage is the root of its own process
+        }
+    }
+
+    static int getLaneCount() {
+        return mutant2lane.size();
+    }
+
+    private static Lane laneOf(String path, String seed, String parent, String transSeq) {
+        String mutant = new File(path).getAbsolutePath(); // analyzers and reports may refer to the same file by relative path
+        Lane lane = mutant2lane.get(mutant);
+        if (lane != null) {
+            return lane;
+        }
+        String root = seed == null ? mutant : seed;
+        boolean[] newSeed = new boolean[1];
+        int pid = seed2pid.computeIfAbsent(root, k -> {
+            newSeed[0] = true;
+            return pidCounter.incrementAndGet();
+        });
+        boolean[] newMutant = new boolean[1];
+        lane = mutant2lane.computeIfAbsent(mutant, k -> {
+            newMutant[0] = true;
+            return new Lane(pid, tidCounter.incrementAndGet(), root, parent, transSeq);
+        });
+        if (newSeed[0]) {
+            emitMetadata("process_name", lane.pid, 0, "name", root);
+        }
+        if (newMutant[0]) {
+            String name = new File(mutant).getName();
+            if (transSeq != null) {
+                name += " " + transSeq;
+            }
+            emitMetadata("thread_name", lane.pid, lane.tid, "name", name);
+        }
+        return lane;
+    }
+
+    private static void emitSpan(String stage, Lane lane, long startNanos, long endNanos, String[] args) {
+        ObjectNode event = mapper.createObjectNode();
+        event.put("name", stage);
+        event.put("cat", "statfier");
+        event.put("ph", "X");
+        event.put("ts", (startNanos - originNanos) / 1000.0);
+        event.put("dur", (endNanos - startNanos) / 1000.0);
+        event.put("pid", lane.pid);
+        event.put("tid", lane.tid);
+        ObjectNode argNode = event.putObject("args");
+        argNode.put("seed", lane.seed);
+        if (lane.parent != null) {
+            argNode.put("parent", lane.parent);
+            argNode.put("transSeq", lane.transSeq);
+        }
+        argNode.put("thread", Thread.currentThread().getName());
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            argNode.put(args[i], args[i + 1]);
+        }
+        write(event);
+    }
+
+    private static void emitMetadata(String name, int pid, int tid, String key, String value) {
+        ObjectNode event = mapper.createObjectNode();
+        event.put("name", name);
+        event.put("ph", "M");
+        event.put("pid", pid);
+        event.put("tid", tid);
+        event.putObject("args").put(key, value);
+        write(event);
+    }
+
+    private static synchronized void write(ObjectNode event) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            if (!firstEvent) {
+                writer.write(",\n");
+            }
+            firstEvent = false;
+            writer.write(event.toString());
+        } catch (IOException e) {
+            System.err.println("Fail to write trace event: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void flush() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    public static synchronized void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write("\n]\n");
+            writer.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        writer = null;
+        enabled = false;
+        seed2pid.clear();
+        mutant2lane.clear();
+    }
+
+}
@@ -0,0 +1,30 @@
+package edu.polyu.monitor;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("statfier.TriageDecision")
+@Label("Triage Decision")
+@Category({"Statfier", "Triage"})
+@Description("Metamorphic comparison of a mutant report against its parent report")
+public class TriageDecisionEvent extends Event {
+
+    @Label("Mutant")
+    public String mutant;
+
+    @Label("Seed")
+    public String seed;
+
+    @Label("Transform Sequence")
+    public String transSeq;
+
+    @Label("Depth")
+    public int depth;
+
+    @Label("Buggy")
+    public boolean buggy;
+
+}
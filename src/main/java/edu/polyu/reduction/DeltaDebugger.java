@@ -0,0 +1,222 @@
+package edu.polyu.reduction;
+
+import edu.polyu.analysis.TypeWrapper;
+import edu.polyu.util.Pair;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnonymousClassDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.Statement;
+import org.eclipse.jdt.core.dom.rewrite.ASTRewrite;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.text.edits.TextEdit;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Description: Hierarchical delta debugging (ddmin) over a parent and its bug-triggering mutant.
+ * Units are members of types at the first level and statements of blocks at the second level. A unit of the mutant
+ * is paired with a parent unit of the same text, and pairs are deleted from both files, so the transformed code
+ * and its enclosing scopes are kept while everything unrelated to the finding is removed.
+ * All subsets and complements of one ddmin step are handed to the oracle as one batch.
+ */
+public class DeltaDebugger {
+
+    public interface BatchOracle {
+        // Return for every (parent, mutant) candidate whether the verdict of the finding is kept
+        List<Boolean> test(List<Pair> candidates);
+    }
+
+    private final BatchOracle oracle;
+    private final BooleanSupplier stopped;
+    private int tests = 0;
+
+    public DeltaDebugger(BatchOracle oracle, BooleanSupplier stopped) {
+        this.oracle = oracle;
+        this.stopped = stopped;
+    }
+
+    public int getTests() {
+        return tests;
+    }
+
+    // Reduce until no level removes a unit, origin.first is the parent and origin.second is the mutant
+    public Pair reduce(Pair origin) {
+        Pair current = origin;
+        boolean changed = true;
+        while (changed && !stopped.getAsBoolean()) {
+            changed = false;
+            for (int level = 0; level < 2; level++) {
+                Pair reduced = reduceLevel(current, level);
+                if (reduced != current) {
+                    current = reduced;
+                    changed = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private Pair reduceLevel(Pair current, int level) {
+        CompilationUnit parentUnit = parse(current.first);
+        CompilationUnit mutantUnit = parse(current.second);
+        List<ASTNode[]> pairs = pairUnits(collectUnits(parentUnit, level), collectUnits(mutantUnit, level));
+        if (pairs.isEmpty()) {
+            return current;
+        }
+        List<Integer> config = new ArrayList<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            config.add(i);
+        }
+        if (test(current, parentUnit, mutantUnit, pairs, List.of(List.of())).get(0)) {
+            return delete(current, parentUnit, mutantUnit, pairs, List.of());
+        }
+        int n = 2;
+        while (config.size() >= 2 && !stopped.getAsBoolean()) {
+            List<List<Integer>> chunks = split(config, n);
+            List<List<Integer>> configs = new ArrayList<>(chunks);
+            if (n > 2) {
+                for (List<Integer> chunk : chunks) {
+                    List<Integer> complement = new ArrayList<>(config);
+                    complement.removeAll(chunk);
+                    configs.add(complement);
+                }
+            }
+            List<Boolean> results = test(current, parentUnit, mutantUnit, pairs, configs);
+            int found = results.indexOf(true);
+            if (found >= 0 && found < chunks.size()) {
+                config = configs.get(found);
+                n = 2;
+            } else if (found >= 0) {
+                config = configs.get(found);
+                n = Math.max(n - 1, 2);
+            } else if (n >= config.size()) {
+                break;
+            } else {
+                n = Math.min(config.size(), n * 2);
+            }
+        }
+        if (config.size() == pairs.size()) {
+            return current;
+        }
+        return delete(current, parentUnit, mutantUnit, pairs, config);
+    }
+
+    private List<Boolean> test(Pair current, CompilationUnit parentUnit, CompilationUnit mutantUnit, List<ASTNode[]> pairs, List<List<Integer>> configs) {
+        List<Pair> candidates = new ArrayList<>();
+        for (List<Integer> config : configs) {
+            candidates.add(delete(current, parentUnit, mutantUnit, pairs, config));
+        }
+        tests += candidates.size();
+        return oracle.test(candidates);
+    }
+
+    // Keep the pairs in config, delete the others from both files
+    private static Pair delete(Pair current, CompilationUnit parentUnit, CompilationUnit mutantUnit, List<ASTNode[]> pairs, List<Integer> config) {
+        Set<Integer> kept = new HashSet<>(config);
+        List<ASTNode> parentNodes = new ArrayList<>();
+        List<ASTNode> mutantNodes = new ArrayList<>();
+        for (int i = 0; i < pairs.size(); i++) {
+            if (!kept.contains(i)) {
+                parentNodes.add(pairs.get(i)[0]);
+                mutantNodes.add(pairs.get(i)[1]);
+            }
+        }
+        return new Pair(remove(current.first, parentUnit, parentNodes), remove(current.second, mutantUnit, mutantNodes));
+    }
+
+    public static String remove(String source, CompilationUnit unit, List<ASTNode> nodes) {
+        ASTRewrite rewrite = ASTRewrite.create(unit.getAST());
+        Set<ASTNode> removed = new HashSet<>(nodes);
+        for (ASTNode node : nodes) {
+            if (!hasAncestorIn(node, removed)) {
+                rewrite.remove(node, null);
+            }
+        }
+        Document document = new Document(source);
+        try {
+            TextEdit edits = rewrite.rewriteAST(document, TypeWrapper.compilerOptions);
+            edits.apply(document);
+        } catch (BadLocationException e) {
+            e.printStackTrace();
+            return source;
+        }
+        return document.get();
+    }
+
+    private static boolean hasAncestorIn(ASTNode node, Set<ASTNode> nodes) {
+        for (ASTNode parent = node.getParent(); parent != null; parent = parent.getParent()) {
+            if (nodes.contains(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static CompilationUnit parse(String source) {
+        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(TypeWrapper.compilerOptions);
+        parser.setSource(source.toCharArray());
+        return (CompilationUnit) parser.createAST(null);
+    }
+
+    // Only nodes in list properties are collected, so that removing them always leaves a well-formed AST
+    public static List<ASTNode> collectUnits(CompilationUnit unit, int level) {
+        List<ASTNode> units = new ArrayList<>();
+        unit.accept(new ASTVisitor() {
+            @Override
+            public void preVisit(ASTNode node) {
+                if (node.getLocationInParent() == null || !node.getLocationInParent().isChildListProperty()) {
+                    return;
+                }
+                ASTNode parent = node.getParent();
+                boolean member = node instanceof BodyDeclaration && (parent instanceof AbstractTypeDeclaration || parent instanceof AnonymousClassDeclaration);
+                if ((level == 0 && member) || (level == 1 && node instanceof Statement)) {
+                    units.add(node);
+                }
+            }
+        });
+        return units;
+    }
+
+    // The k-th mutant unit with a given text is paired with the k-th parent unit with the same text
+    public static List<ASTNode[]> pairUnits(List<ASTNode> parentUnits, List<ASTNode> mutantUnits) {
+        Map<String, ArrayDeque<ASTNode>> text2parentUnits = new HashMap<>();
+        for (ASTNode parentUnit : parentUnits) {
+            text2parentUnits.computeIfAbsent(parentUnit.toString(), k -> new ArrayDeque<>()).add(parentUnit);
+        }
+        List<ASTNode[]> pairs = new ArrayList<>();
+        for (ASTNode mutantUnit : mutantUnits) {
+            ArrayDeque<ASTNode> candidates = text2parentUnits.get(mutantUnit.toString());
+            if (candidates != null && !candidates.isEmpty()) {
+                pairs.add(new ASTNode[]{candidates.pollFirst(), mutantUnit});
+            }
+        }
+        return pairs;
+    }
+
+    private static List<List<Integer>> split(List<Integer> config, int n) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < n; i++) {
+            int end = start + (config.size() - start) / (n - i);
+            chunks.add(new ArrayList<>(config.subList(start, end)));
+            start = end;
+        }
+        return chunks;
+    }
+
+}
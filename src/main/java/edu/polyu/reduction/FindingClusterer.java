@@ -0,0 +1,229 @@
+package edu.polyu.reduction;
+
+import edu.polyu.util.MutantStore;
+import edu.polyu.util.TriTuple;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.ASTVisitor;
+import org.eclipse.jdt.core.dom.Assignment;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.InfixExpression;
+import org.eclipse.jdt.core.dom.PostfixExpression;
+import org.eclipse.jdt.core.dom.PrefixExpression;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Description: Groups the findings of compactIssues that most likely come from the same analyzer bug.
+ * A finding is fingerprinted by rule, FP/FN direction, transform sequence and the normalized AST diff between its parent
+ * and its mutant. The diff consists of the innermost members and statements that only appear in one of both files,
+ * written as node types with unchanged inner units replaced by "*", so identifiers, literals and the code around
+ * the transformed location of different seeds do not split a cluster.
+ */
+public class FindingClusterer {
+
+    public static class Cluster {
+        public final String fingerprint;
+        public final String rule;
+        public final String kind; // FP or FN
+        public final String seq;
+        public final String diff;
+        public final List<TriTuple> members = new ArrayList<>();
+        private final Map<TriTuple, Long> member2size = new HashMap<>();
+
+        Cluster(String rule, String kind, String seq, String diff) {
+            this.rule = rule;
+            this.kind = kind;
+            this.seq = seq;
+            this.diff = diff;
+            this.fingerprint = Integer.toHexString((rule + "|" + kind + "|" + seq + "|" + diff).hashCode());
+        }
+
+        // The finding with the smallest mutant, it is the cheapest one to reduce and to inspect
+        public TriTuple getRepresentative() {
+            return members.get(0);
+        }
+
+        public int getSeedCount() {
+            Set<String> seeds = new HashSet<>();
+            for (TriTuple member : members) {
+                seeds.add(member.first);
+            }
+            return seeds.size();
+        }
+    }
+
+    private FindingClusterer() {
+    }
+
+    // Return clusters ordered by size, members of a cluster are ordered by the size of their mutants
+    public static List<Cluster> cluster(Map<String, HashMap<String, List<TriTuple>>> compactIssues, Map<String, String> mutant2parent) {
+        Map<String, Cluster> key2cluster = new LinkedHashMap<>();
+        for (Map.Entry<String, HashMap<String, List<TriTuple>>> rule : compactIssues.entrySet()) {
+            for (Map.Entry<String, List<TriTuple>> seq : rule.getValue().entrySet()) {
+                for (TriTuple tuple : seq.getValue()) {
+                    String parentPath = mutant2parent.getOrDefault(tuple.second, tuple.first);
+                    String mutantSource = null;
+                    String diff = "";
+                    try {
+                        mutantSource = MutantStore.read(tuple.second);
+                        diff = diff(MutantStore.read(parentPath), mutantSource);
+                    } catch (IOException e) {
+                        // Sources of a sharded campaign may stay on the workers, the finding is clustered by its sequence
+                    }
+                    String key = rule.getKey() + "|" + tuple.third + "|" + seq.getKey() + "|" + diff;
+                    if (!key2cluster.containsKey(key)) {
+                        key2cluster.put(key, new Cluster(rule.getKey(), tuple.third, seq.getKey(), diff));
+                    }
+                    Cluster cluster = key2cluster.get(key);
+                    cluster.members.add(tuple);
+                    cluster.member2size.put(tuple, mutantSource == null ? Long.MAX_VALUE : mutantSource.length());
+                }
+            }
+        }
+        List<Cluster> clusters = new ArrayList<>(key2cluster.values());
+        for (Cluster cluster : clusters) {
+            cluster.members.sort(Comparator.comparingLong(cluster.member2size::get));
+        }
+        clusters.sort((c1, c2) -> Integer.compare(c2.members.size(), c1.members.size()));
+        return clusters;
+    }
+
+    public static String diff(String parentSource, String mutantSource) {
+        CompilationUnit parentUnit = DeltaDebugger.parse(parentSource);
+        CompilationUnit mutantUnit = DeltaDebugger.parse(mutantSource);
+        List<ASTNode> parentUnits = collectUnits(parentUnit);
+        List<ASTNode> mutantUnits = collectUnits(mutantUnit);
+        Map<ASTNode, ASTNode> counterparts = new HashMap<>();
+        for (ASTNode[] pair : DeltaDebugger.pairUnits(parentUnits, mutantUnits)) {
+            counterparts.put(pair[0], pair[1]);
+            counterparts.put(pair[1], pair[0]);
+        }
+        Set<ASTNode> allUnits = new HashSet<>(parentUnits);
+        allUnits.addAll(mutantUnits);
+        Set<ASTNode> parentEnclosing = enclosing(parentUnits, counterparts);
+        Set<ASTNode> mutantEnclosing = enclosing(mutantUnits, counterparts);
+        List<String> shapes = new ArrayList<>();
+        for (ASTNode node : innermost(parentUnits, allUnits, counterparts, parentEnclosing, mutantEnclosing)) {
+            shapes.add("-" + shape(node, counterparts.keySet()));
+        }
+        for (ASTNode node : innermost(mutantUnits, allUnits, counterparts, mutantEnclosing, parentEnclosing)) {
+            shapes.add("+" + shape(node, counterparts.keySet()));
+        }
+        Collections.sort(shapes);
+        return String.join(";", shapes);
+    }
+
+    private static List<ASTNode> collectUnits(CompilationUnit unit) {
+        List<ASTNode> units = DeltaDebugger.collectUnits(unit, 0);
+        units.addAll(DeltaDebugger.collectUnits(unit, 1));
+        return units;
+    }
+
+    // Nodes that contain an unpaired unit
+    private static Set<ASTNode> enclosing(List<ASTNode> units, Map<ASTNode, ASTNode> counterparts) {
+        Set<ASTNode> enclosing = new HashSet<>();
+        for (ASTNode unit : units) {
+            if (counterparts.containsKey(unit)) {
+                continue;
+            }
+            for (ASTNode parent = unit.getParent(); parent != null; parent = parent.getParent()) {
+                enclosing.add(parent);
+            }
+        }
+        return enclosing;
+    }
+
+    // Unpaired units that contain no other unpaired unit. A unit is left out if it only differs because the corresponding
+    // unit of the other file encloses a change, e.g. the method around a statement that the mutant wraps with an if
+    private static List<ASTNode> innermost(List<ASTNode> units, Set<ASTNode> allUnits, Map<ASTNode, ASTNode> counterparts, Set<ASTNode> enclosing, Set<ASTNode> otherEnclosing) {
+        List<ASTNode> innermost = new ArrayList<>();
+        for (ASTNode unit : units) {
+            if (counterparts.containsKey(unit) || enclosing.contains(unit)) {
+                continue;
+            }
+            ASTNode counterpart = findCounterpart(unit, allUnits, counterparts);
+            if (counterpart == null || !otherEnclosing.contains(counterpart)) {
+                innermost.add(unit);
+            }
+        }
+        return innermost;
+    }
+
+    // The nearest unpaired unit that encloses the counterparts of all paired units inside the unit
+    private static ASTNode findCounterpart(ASTNode unit, Set<ASTNode> allUnits, Map<ASTNode, ASTNode> counterparts) {
+        List<ASTNode> inner = new ArrayList<>();
+        unit.accept(new ASTVisitor() {
+            @Override
+            public boolean preVisit2(ASTNode node) {
+                if (node != unit && counterparts.containsKey(node)) {
+                    inner.add(counterparts.get(node));
+                    return false;
+                }
+                return true;
+            }
+        });
+        if (inner.isEmpty()) {
+            return null;
+        }
+        List<ASTNode> ancestors = new ArrayList<>();
+        for (ASTNode node = inner.get(0); node != null; node = node.getParent()) {
+            ancestors.add(node);
+        }
+        for (ASTNode other : inner) {
+            Set<ASTNode> otherAncestors = new HashSet<>();
+            for (ASTNode node = other; node != null; node = node.getParent()) {
+                otherAncestors.add(node);
+            }
+            ancestors.removeIf(node -> !otherAncestors.contains(node));
+        }
+        for (ASTNode node : ancestors) {
+            if (allUnits.contains(node) && !counterparts.containsKey(node)) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    private static String shape(ASTNode root, Set<ASTNode> paired) {
+        StringBuilder builder = new StringBuilder();
+        root.accept(new ASTVisitor() {
+            @Override
+            public boolean preVisit2(ASTNode node) {
+                if (node != root && paired.contains(node)) {
+                    builder.append("*");
+                    return false;
+                }
+                builder.append(node.getClass().getSimpleName());
+                if (node instanceof InfixExpression) {
+                    builder.append(((InfixExpression) node).getOperator());
+                } else if (node instanceof PrefixExpression) {
+                    builder.append(((PrefixExpression) node).getOperator());
+                } else if (node instanceof PostfixExpression) {
+                    builder.append(((PostfixExpression) node).getOperator());
+                } else if (node instanceof Assignment) {
+                    builder.append(((Assignment) node).getOperator());
+                }
+                builder.append("(");
+                return true;
+            }
+
+            @Override
+            public void postVisit(ASTNode node) {
+                if (node == root || !paired.contains(node)) {
+                    builder.append(")");
+                }
+            }
+        });
+        return builder.toString();
+    }
+
+}
@@ -0,0 +1,216 @@
+package edu.polyu.reduction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.analysis.TypeWrapper;
+import edu.polyu.monitor.Metrics;
+import edu.polyu.util.AnalyzerSpace;
+import edu.polyu.util.MutantStore;
+import edu.polyu.util.Pair;
+import edu.polyu.util.Schedule;
+import edu.polyu.util.TimeBudget;
+import edu.polyu.util.TriTuple;
+import edu.polyu.util.Utility;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static edu.polyu.util.Utility.EVALUATION_PATH;
+import static edu.polyu.util.Utility.Path2Last;
+import static edu.polyu.util.Utility.REDUCTION_LIMIT;
+import static edu.polyu.util.Utility.REDUCTION_THREADS;
+import static edu.polyu.util.Utility.WORK_PATH;
+import static edu.polyu.util.Utility.sep;
+
+/**
+ * Description: Shrinks the parent and the mutant of the smallest findings of every FindingClusterer cluster with DeltaDebugger.
+ * A candidate keeps the verdict if the mutant still has more (FP) or fewer (FN) violations of the rule than the parent.
+ * Candidate files are analyzed in parallel batches by the analyzer that reported the finding, and verdicts are cached
+ * by the content of the file, so a candidate that appears again in a later ddmin step is not analyzed twice.
+ * Reduced pairs are written to EVALUATION_PATH/reduced/rule/mutant with a summary in reduced.json.
+ */
+public class Reducer {
+
+    private static final Map<String, Map<String, List<Integer>>> cache = new ConcurrentHashMap<>();
+    private static final Map<String, List<Integer>> FAILED = new HashMap<>(); // sentinel of failed analyses in the cache
+    private static final AtomicInteger candidateCounter = new AtomicInteger(0);
+
+    private Reducer() {
+    }
+
+    public static void reduceFindings() {
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode summary = mapper.createArrayNode();
+        if (Schedule.analyzerSpaces.isEmpty()) {
+            reduceFindings(Utility.getAnalyzerName(), summary);
+        } else {
+            for (AnalyzerSpace space : Schedule.analyzerSpaces) {
+                space.activate();
+                reduceFindings(space.analyzer, summary);
+            }
+        }
+        File summaryFile = new File(EVALUATION_PATH + sep + "reduced" + sep + "reduced.json");
+        summaryFile.getParentFile().mkdirs();
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(summaryFile, summary);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        System.out.println("Reduced Findings: " + summary.size());
+    }
+
+    private static void reduceFindings(String analyzer, ArrayNode summary) {
+        if (analyzer.equals("SonarQube")) {
+            System.out.println("Reduction is not supported for SonarQube, its project has to be rescanned for every candidate.");
+            return;
+        }
+        // Members of a cluster most likely share one analyzer bug, so only its smallest findings are reduced
+        for (FindingClusterer.Cluster cluster : FindingClusterer.cluster(Utility.compactIssues, TypeWrapper.mutant2parent)) {
+            for (int i = 0; i < Math.min(REDUCTION_LIMIT, cluster.members.size()); i++) {
+                if (TimeBudget.getInstance().isExpired()) {
+                    System.out.println("Time budget is exhausted, stop reducing findings.");
+                    return;
+                }
+                ObjectNode entry = reduceFinding(analyzer, cluster.rule, cluster.seq, cluster.members.get(i));
+                if (entry != null) {
+                    entry.put("cluster", cluster.fingerprint);
+                    entry.put("clusterSize", cluster.members.size());
+                    summary.add(entry);
+                }
+            }
+        }
+    }
+
+    private static ObjectNode reduceFinding(String analyzer, String rule, String seq, TriTuple tuple) {
+        String seedPath = tuple.first;
+        String mutantPath = tuple.second;
+        String parentPath = TypeWrapper.mutant2parent.getOrDefault(mutantPath, seedPath);
+        String seedFolderName = new File(seedPath).getParentFile().getName();
+        boolean isFP = tuple.third.equals("FP");
+        Pair origin;
+        try {
+            origin = new Pair(MutantStore.read(parentPath), MutantStore.read(mutantPath));
+        } catch (IOException e) {
+            System.err.println("Fail to read the finding: " + mutantPath);
+            return null;
+        }
+        String parentName = Path2Last(parentPath) + ".java";
+        String mutantName = Path2Last(mutantPath) + ".java";
+        DeltaDebugger.BatchOracle oracle = candidates -> {
+            List<String> contents = new ArrayList<>();
+            List<String> fileNames = new ArrayList<>();
+            for (Pair candidate : candidates) {
+                contents.add(candidate.first);
+                fileNames.add(parentName);
+                contents.add(candidate.second);
+                fileNames.add(mutantName);
+            }
+            List<Map<String, List<Integer>>> violations = analyze(analyzer, seedPath, seedFolderName, fileNames, contents);
+            List<Boolean> results = new ArrayList<>();
+            for (int i = 0; i < candidates.size(); i++) {
+                results.add(keepsVerdict(violations.get(2 * i), violations.get(2 * i + 1), rule, isFP));
+            }
+            return results;
+        };
+        if (!oracle.test(List.of(origin)).get(0)) {
+            System.out.println("Finding is not reproduced, skip reduction: " + mutantPath);
+            return null;
+        }
+        long startTime = Metrics.start();
+        DeltaDebugger debugger = new DeltaDebugger(oracle, () -> TimeBudget.getInstance().isExpired());
+        Pair reduced = debugger.reduce(origin);
+        Metrics.record(Metrics.REDUCE, startTime, "analyzer", analyzer);
+        String outputFolder = EVALUATION_PATH + sep + "reduced" + sep + rule + sep + Path2Last(mutantPath);
+        writeFile(outputFolder + sep + "parent" + sep + parentName, reduced.first);
+        writeFile(outputFolder + sep + "mutant" + sep + mutantName, reduced.second);
+        ObjectNode entry = new ObjectMapper().createObjectNode();
+        entry.put("analyzer", analyzer);
+        entry.put("rule", rule);
+        entry.put("transSeq", seq);
+        entry.put("kind", tuple.third);
+        entry.put("seed", seedPath);
+        entry.put("parent", parentPath);
+        entry.put("mutant", mutantPath);
+        entry.put("output", outputFolder);
+        entry.put("originalLines", countLines(origin.second));
+        entry.put("reducedLines", countLines(reduced.second));
+        entry.put("tests", debugger.getTests());
+        System.out.println("Reduce " + mutantPath + " from " + countLines(origin.second) + " to " + countLines(reduced.second) + " line(s) with " + debugger.getTests() + " test(s).");
+        return entry;
+    }
+
+    // A failed analysis never keeps the verdict
+    static boolean keepsVerdict(Map<String, List<Integer>> parentViolations, Map<String, List<Integer>> mutantViolations, String rule, boolean isFP) {
+        if (parentViolations == null || mutantViolations == null) {
+            return false;
+        }
+        int parentCount = parentViolations.getOrDefault(rule, List.of()).size();
+        int mutantCount = mutantViolations.getOrDefault(rule, List.of()).size();
+        return isFP ? mutantCount > parentCount : mutantCount < parentCount;
+    }
+
+    // Return the violations of every content, null if it could not be analyzed. Contents missing in the cache are analyzed as one batch
+    private static List<Map<String, List<Integer>>> analyze(String analyzer, String seedPath, String seedFolderName, List<String> fileNames, List<String> contents) {
+        List<String> keys = new ArrayList<>();
+        Map<String, String> key2path = new LinkedHashMap<>();
+        for (int i = 0; i < contents.size(); i++) {
+            String key = analyzer + "|" + seedFolderName + "|" + fileNames.get(i) + "|" + hash(contents.get(i));
+            keys.add(key);
+            if (cache.containsKey(key)) {
+                Metrics.increment("statfier_reduction_cache_total", "result", "hit");
+            } else if (!key2path.containsKey(key)) {
+                Metrics.increment("statfier_reduction_cache_total", "result", "miss");
+                String filePath = WORK_PATH + sep + "reduction" + sep + "candidate_" + candidateCounter.incrementAndGet() + sep + fileNames.get(i);
+                writeFile(filePath, contents.get(i));
+                key2path.put(key, new File(filePath).getAbsolutePath());
+            }
+        }
+        if (!key2path.isEmpty()) {
+            Map<String, Map<String, List<Integer>>> file2violations = Schedule.getInstance().analyzeFiles(analyzer, new ArrayList<>(key2path.values()), seedPath, seedFolderName, REDUCTION_THREADS);
+            for (Map.Entry<String, String> entry : key2path.entrySet()) {
+                Map<String, List<Integer>> violations = file2violations.get(entry.getValue());
+                cache.put(entry.getKey(), violations == null ? FAILED : violations);
+            }
+        }
+        List<Map<String, List<Integer>>> violations = new ArrayList<>();
+        for (String key : keys) {
+            Map<String, List<Integer>> bug2lines = cache.get(key);
+            violations.add(bug2lines == FAILED ? null : bug2lines);
+        }
+        return violations;
+    }
+
+    private static void writeFile(String filePath, String content) {
+        new File(filePath).getParentFile().mkdirs();
+        Utility.writeLinesToFile(filePath, content);
+    }
+
+    private static String hash(String content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static int countLines(String content) {
+        return content.split("\n", -1).length;
+    }
+
+}
@@ -1,5 +1,7 @@
 package edu.polyu.report;
 
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.ReportParsedEvent;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileInputStream;
@@ -19,7 +21,21 @@ public class CheckStyleReport extends Report {
         super(filePath);
     }
 
-    public static void readCheckStyleResultFile(String reportPath) { // Actually, this is readSingleCheckStyleResultFile
+    public static void readCheckStyleResultFile(String reportPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseCheckStyleResultFile(reportPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "CheckStyle");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "CheckStyle";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parseCheckStyleResultFile(String reportPath) { // Actually, this is readSingleCheckStyleResultFile
         HashMap<String, Report> name2report = new HashMap<>();
         File reportFile = new File(reportPath);
         if (!reportFile.exists()) {
@@ -1,5 +1,7 @@
 package edu.polyu.report;
 
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.ReportParsedEvent;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
@@ -45,6 +47,20 @@ public class CodeNaviReport extends Report {
      * @param reportPath The path to the CodeNavi XML report file
      */
     public static void readCodeNaviResultFile(String seedFolderPath, String reportPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseCodeNaviResultFile(seedFolderPath, reportPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "CodeNavi");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "CodeNavi";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parseCodeNaviResultFile(String seedFolderPath, String reportPath) {
         if (DEBUG) {
             System.out.println("CodeNavi Detection Result FileName: " + reportPath);
         }
@@ -138,6 +154,20 @@ public class CodeNaviReport extends Report {
      * @param reportPath The path to the CodeNavi XML report file
      */
     public static void readSingleCodeNaviResultFile(File seedFile, String reportPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseSingleCodeNaviResultFile(seedFile, reportPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "CodeNavi");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "CodeNavi";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parseSingleCodeNaviResultFile(File seedFile, String reportPath) {
         if (DEBUG) {
             System.out.println("CodeNavi Detection Result FileName: " + reportPath);
         }
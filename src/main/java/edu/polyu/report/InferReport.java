@@ -1,5 +1,7 @@
 package edu.polyu.report;
 
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.ReportParsedEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,6 +25,20 @@ public class InferReport extends Report {
 
     // seedFolderPath has iter depth information
     public static void readSingleInferResultFile(String seedPath, String reportPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseSingleInferResultFile(seedPath, reportPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "Infer");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "Infer";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parseSingleInferResultFile(String seedPath, String reportPath) {
         Report report = new InferReport(seedPath);
         ObjectMapper mapper = new ObjectMapper();
         File reportFile = new File(reportPath);
@@ -1,5 +1,7 @@
 package edu.polyu.report;
 
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.ReportParsedEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -39,6 +41,20 @@ public class PMDReport extends Report {
 
     // Read PMD result file which includes only one seed file.
     public static void readSinglePMDResultFile(final String reportPath, String detectionPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseSinglePMDResultFile(reportPath, detectionPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "PMD");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "PMD";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parseSinglePMDResultFile(final String reportPath, String detectionPath) {
         ObjectMapper mapper = new ObjectMapper();
         File reportFile = new File(reportPath);
         if(!reportFile.exists()) {
@@ -93,6 +109,20 @@ public class PMDReport extends Report {
     }
 
     public static void readPMDResultFile(final String reportPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parsePMDResultFile(reportPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "PMD");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "PMD";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parsePMDResultFile(final String reportPath) {
         List<Report> reports = new ArrayList<>();
         ObjectMapper mapper = new ObjectMapper();
         File jsonFile = new File(reportPath);
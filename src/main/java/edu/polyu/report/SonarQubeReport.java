@@ -1,5 +1,7 @@
 package edu.polyu.report;
 
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.ReportParsedEvent;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
@@ -116,6 +118,20 @@ public class SonarQubeReport extends Report {
     }
 
     public static void readSonarQubeResultFile(String filePath, String jsonContent) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseSonarQubeResultFile(filePath, jsonContent);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "SonarQube");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "SonarQube";
+            event.report = filePath;
+            event.commit();
+        }
+    }
+
+    private static void parseSonarQubeResultFile(String filePath, String jsonContent) {
         Map<String, Report> path2report = new HashMap<>();
         JSONObject root = new JSONObject(jsonContent);
         int total = root.getInt("total");
@@ -178,6 +194,20 @@ public class SonarQubeReport extends Report {
     // Deprecated: This is a CNES version.
     @Deprecated
     public static void readSonarQubeResultFile(String reportPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseSonarQubeResultFile(reportPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "SonarQube");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "SonarQube";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parseSonarQubeResultFile(String reportPath) {
         if (DEBUG) {
             System.out.println("SonarQube Detection Result FileName: " + reportPath);
         }
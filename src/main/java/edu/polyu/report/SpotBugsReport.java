@@ -1,5 +1,7 @@
 package edu.polyu.report;
 
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.ReportParsedEvent;
 import org.dom4j.Document;
 import org.dom4j.DocumentException;
 import org.dom4j.Element;
@@ -43,6 +45,20 @@ public class SpotBugsReport extends Report {
     // Variable seedFolderPath contains sub seed folder name
     // seedFolderPath is the absolute path
     public static void readSpotBugsResultFile(String seedFolderPath, String reportPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseSpotBugsResultFile(seedFolderPath, reportPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "SpotBugs");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "SpotBugs";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parseSpotBugsResultFile(String seedFolderPath, String reportPath) {
         if (DEBUG) {
             System.out.println("SpotBugs Detection Result FileName: " + reportPath);
         }
@@ -90,6 +106,20 @@ public class SpotBugsReport extends Report {
     }
 
     public static void readSingleSpotBugsResultFile(File seedFile, String reportPath) {
+        long startTime = Metrics.start();
+        ReportParsedEvent event = new ReportParsedEvent();
+        event.begin();
+        parseSingleSpotBugsResultFile(seedFile, reportPath);
+        Metrics.record(Metrics.REPORT_PARSE, startTime, "analyzer", "SpotBugs");
+        event.end();
+        if (event.shouldCommit()) {
+            event.analyzer = "SpotBugs";
+            event.report = reportPath;
+            event.commit();
+        }
+    }
+
+    private static void parseSingleSpotBugsResultFile(File seedFile, String reportPath) {
         if (DEBUG) {
             System.out.println("SpotBugs Detection Result FileName: " + reportPath);
         }
@@ -25,20 +25,24 @@ public class CheckStyleInvokeThread implements Runnable {
         this.seedFolderName = seedFolderName;
     }
 
+    // The digit before the suffix of a seed selects its config, e.g. Seed_3.java uses <seedFolderName>3.xml
+    public static String getConfigPath(String filePath, String seedFolderName) {
+        String[] tokens = filePath.split(reg_sep);
+        int configIndex = Character.getNumericValue(tokens[tokens.length - 1].charAt(tokens[tokens.length - 1].indexOf(".") - 1));
+        File configFile = new File(CHECKSTYLE_CONFIG_PATH + sep + seedFolderName + configIndex + ".xml");
+        if(configFile.exists()) {
+            return configFile.getAbsolutePath();
+        } else {
+            return CHECKSTYLE_CONFIG_PATH + sep + seedFolderName + 0 + ".xml";
+        }
+    }
+
     @Override
     public void run() {
         List<String> filePaths = Utility.getFilenamesFromFolder(seedFolderPath + File.separator + seedFolderName, true);
         for(int i = 0; i < filePaths.size(); i++) {
             String filePath = filePaths.get(i);
-            String[] tokens = filePath.split(reg_sep);
-            int configIndex = Character.getNumericValue(tokens[tokens.length - 1].charAt(tokens[tokens.length - 1].indexOf(".") - 1));
-            File configFile = new File(CHECKSTYLE_CONFIG_PATH + sep + seedFolderName + configIndex + ".xml");
-            String configPath;
-            if(configFile.exists()) {
-                configPath = configFile.getAbsolutePath();
-            } else {
-                configPath = CHECKSTYLE_CONFIG_PATH + sep + seedFolderName + 0 + ".xml";
-            }
+            String configPath = getConfigPath(filePath, seedFolderName);
             file2config.put(filePath, configPath);
             String reportPath = REPORT_FOLDER + File.separator + "iter0" + "_" + seedFolderName + i + "_Result.txt";
             String[] invokeCommands = new String[3];
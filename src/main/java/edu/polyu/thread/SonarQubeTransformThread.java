@@ -44,6 +44,9 @@ public class SonarQubeTransformThread implements Runnable {
                         if(Utility.DIV_SELECTION) {
                             wrappers.addAll(SelectionAlgorithm.Div_Selection(mutants));
                         }
+                        if(Utility.LSH_SELECTION) {
+                            wrappers.addAll(SelectionAlgorithm.LSH_Selection(mutants));
+                        }
                     }
                 } else {
                     wrappers.addFirst(wrapper);
@@ -13,6 +13,7 @@ import java.util.List;
 
 import static edu.polyu.report.SpotBugsReport.readSpotBugsResultFile;
 import static edu.polyu.util.Utility.DIV_SELECTION;
+import static edu.polyu.util.Utility.LSH_SELECTION;
 import static edu.polyu.util.Utility.GUIDED_LOCATION;
 import static edu.polyu.util.Utility.NO_SELECTION;
 import static edu.polyu.util.Utility.RANDOM_LOCATION;
@@ -49,6 +50,9 @@ public class SpotBugsExec {
                             if(DIV_SELECTION) {
                                 wrappers.addAll(SelectionAlgorithm.Div_Selection(mutants));
                             }
+                            if(LSH_SELECTION) {
+                                wrappers.addAll(SelectionAlgorithm.LSH_Selection(mutants));
+                            }
                         }
                     } else {
                         wrappers.addFirst(wrapper);
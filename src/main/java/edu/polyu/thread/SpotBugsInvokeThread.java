@@ -32,6 +32,7 @@ public class SpotBugsInvokeThread implements Runnable {
                 CLASS_FOLDER.mkdirs();
             }
             Invoker.compileJavaSourceFile(this.seedFolderPath, seedFileNameWithSuffix, CLASS_FOLDER.getAbsolutePath());
+            Utility.ensureFolder(new File(REPORT_FOLDER.getAbsolutePath()  + File.separator + this.seedFolderName));
             String reportPath = REPORT_FOLDER.getAbsolutePath()  + File.separator + this.seedFolderName + File.separator + seedFileName + "_Result.xml";
             if(DEBUG) {
                 System.out.println("Report: " + reportPath);
@@ -0,0 +1,217 @@
+package edu.polyu.transform;
+
+import edu.polyu.analysis.MutantHandle;
+import edu.polyu.analysis.TypeWrapper;
+import edu.polyu.monitor.Metrics;
+import edu.polyu.util.Frontier;
+import edu.polyu.util.MutantStore;
+import edu.polyu.util.Utility;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Description: Beam-bounded exploration frontier. Before mutants of a depth are expanded, at most width mutants are
+ * kept per seed lineage and depth. Every transform applied last in the group gets an equal quota of the beam first,
+ * the remaining slots go to the best scored mutants of any transform. Scores are pluggable, see register().
+ * Mutants are scored on their handles, which carry the features of their last transformed node, so a frontier that is
+ * expanded chunk by chunk is pruned as a whole before its first chunk, see prune(Frontier).
+ */
+public class BeamSearch {
+
+    public interface Score {
+        // Scores of all mutants of one lineage and depth, higher is kept first
+        double[] score(List<MutantHandle> group);
+    }
+
+    // Settings are overwritten in Utility.initEnv from config.properties
+    public static int width = 0; // 0 disables the beam
+    public static String scoreName = "novelty";
+
+    private static final Map<String, Score> name2score = new HashMap<>();
+
+    static {
+        register("novelty", BeamSearch::novelty);
+        register("distance", BeamSearch::distance);
+        register("violation_delta", BeamSearch::violationDelta);
+    }
+
+    private BeamSearch() {
+    }
+
+    public static void register(String name, Score score) {
+        name2score.put(name, score);
+    }
+
+    public static boolean isEnabled() {
+        return width > 0;
+    }
+
+    // Remove the mutants that fall out of the beam from the frontier
+    public static void prune(Collection<TypeWrapper> frontier) {
+        if (width <= 0 || frontier.size() <= width) {
+            return;
+        }
+        List<MutantHandle> handles = new ArrayList<>();
+        Map<MutantHandle, TypeWrapper> handle2wrapper = new IdentityHashMap<>();
+        for (TypeWrapper wrapper : frontier) {
+            MutantHandle handle = wrapper.toHandle();
+            handles.add(handle);
+            handle2wrapper.put(handle, wrapper);
+        }
+        Set<TypeWrapper> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (MutantHandle handle : select(handles)) {
+            kept.add(handle2wrapper.get(handle));
+        }
+        frontier.removeIf(wrapper -> !kept.contains(wrapper));
+    }
+
+    // Prune the whole frontier of a bucket and depth before it is expanded chunk by chunk, its handles are held in
+    // memory meanwhile and the kept ones are added back in their order
+    public static void prune(Frontier frontier) {
+        if (width <= 0 || frontier.size() <= width) {
+            return;
+        }
+        for (MutantHandle handle : select(frontier.poll(frontier.size()))) {
+            frontier.add(handle);
+        }
+    }
+
+    // Handles that stay in the beam, in the order of handles
+    private static List<MutantHandle> select(Collection<MutantHandle> handles) {
+        Score score = name2score.get(scoreName);
+        if (score == null) {
+            throw new IllegalArgumentException("Unknown beam score: " + scoreName);
+        }
+        Map<String, List<MutantHandle>> groups = new LinkedHashMap<>();
+        for (MutantHandle handle : handles) {
+            groups.computeIfAbsent(handle.getInitSeedPath() + "#" + handle.getDepth(), k -> new ArrayList<>()).add(handle);
+        }
+        Set<MutantHandle> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<MutantHandle> group : groups.values()) {
+            if (group.size() <= width) {
+                kept.addAll(group);
+            } else {
+                kept.addAll(select(group, score.score(group), BeamSearch::getLastTransform, width));
+            }
+        }
+        List<MutantHandle> selected = new ArrayList<>();
+        for (MutantHandle handle : handles) {
+            if (kept.contains(handle)) {
+                selected.add(handle);
+            }
+        }
+        int pruned = handles.size() - selected.size();
+        if (pruned > 0) {
+            Metrics.add("statfier_beam_pruned_total", pruned);
+        }
+        return selected;
+    }
+
+    // Fill an equal quota per stratum with its best items first, then the remaining slots with the best items left
+    public static <T> List<T> select(List<T> group, double[] scores, Function<T, String> getStratum, int width) {
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < group.size(); i++) {
+            order.add(i);
+        }
+        order.sort((i1, i2) -> Double.compare(scores[i2], scores[i1]));
+        Map<String, Integer> stratum2count = new HashMap<>();
+        for (T item : group) {
+            stratum2count.put(getStratum.apply(item), 0);
+        }
+        int quota = (int) Math.ceil(width / (double) stratum2count.size());
+        List<Integer> selected = new ArrayList<>();
+        Set<Integer> taken = new HashSet<>();
+        for (int index : order) {
+            if (selected.size() >= width) {
+                break;
+            }
+            String stratum = getStratum.apply(group.get(index));
+            if (stratum2count.get(stratum) < quota) {
+                stratum2count.merge(stratum, 1, Integer::sum);
+                selected.add(index);
+                taken.add(index);
+            }
+        }
+        for (int index : order) {
+            if (selected.size() >= width) {
+                break;
+            }
+            if (!taken.contains(index)) {
+                selected.add(index);
+            }
+        }
+        Collections.sort(selected);
+        List<T> result = new ArrayList<>();
+        for (int index : selected) {
+            result.add(group.get(index));
+        }
+        return result;
+    }
+
+    private static String getLastTransform(MutantHandle handle) {
+        List<String> transSeq = handle.getTransSeq();
+        return transSeq.isEmpty() ? "" : transSeq.get(transSeq.size() - 1);
+    }
+
+    // Mean rarity of the features of a mutant within its group, see MinHashSelector.getFeatures
+    private static double[] novelty(List<MutantHandle> group) {
+        List<Set<String>> features = new ArrayList<>();
+        Map<String, Integer> feature2count = new HashMap<>();
+        for (MutantHandle handle : group) {
+            Set<String> set = new HashSet<>(handle.getFeatures());
+            features.add(set);
+            for (String feature : set) {
+                feature2count.merge(feature, 1, Integer::sum);
+            }
+        }
+        double[] scores = new double[group.size()];
+        for (int i = 0; i < group.size(); i++) {
+            for (String feature : features.get(i)) {
+                scores[i] += 1.0 / feature2count.get(feature);
+            }
+            scores[i] /= Math.max(1, features.get(i).size());
+        }
+        return scores;
+    }
+
+    // Number of different transforms between the seed and the mutant
+    private static double[] distance(List<MutantHandle> group) {
+        double[] scores = new double[group.size()];
+        for (int i = 0; i < group.size(); i++) {
+            scores[i] = new HashSet<>(group.get(i).getTransSeq()).size();
+        }
+        return scores;
+    }
+
+    // Change of the number of reported violations compared to the seed
+    private static double[] violationDelta(List<MutantHandle> group) {
+        double[] scores = new double[group.size()];
+        for (int i = 0; i < group.size(); i++) {
+            MutantHandle handle = group.get(i);
+            scores[i] = Math.abs(countViolations(handle.getFilePath()) - countViolations(handle.getInitSeedPath()));
+        }
+        return scores;
+    }
+
+    private static int countViolations(String filePath) {
+        int count = 0;
+        Map<String, List<Integer>> bug2lines = MutantStore.getBug2lines(filePath);
+        if (bug2lines != null) {
+            for (List<Integer> lines : bug2lines.values()) {
+                count += lines.size();
+            }
+        }
+        return count;
+    }
+
+}
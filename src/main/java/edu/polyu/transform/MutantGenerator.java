@@ -0,0 +1,203 @@
+package edu.polyu.transform;
+
+import edu.polyu.analysis.TypeWrapper;
+import org.eclipse.jdt.core.dom.ASTNode;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Description: In-memory mutant generation for callers that embed Statfier, e.g. the test suite of an analyzer.
+ * Sources are given as text and mutants are returned as a lazy stream, nothing is written and the lineage maps and
+ * counters of campaigns are not updated. Mutants are generated per candidate node and transform while the stream is
+ * consumed, so a caller that stops early pays only for the mutants it has seen. Mutants can be expanded again with
+ * generate(Mutant). No config.properties or tools are needed, see Utility.checkConfig(). A stream is not thread-safe,
+ * streams of different sources can be consumed concurrently.
+ * Usage: new MutantGenerator().generate(source).filter(..).forEach(mutant -> check(source, mutant.getSource()))
+ */
+public class MutantGenerator {
+
+    // Parent folder of the names given to sources and mutants, it is never created
+    private static final String MEMORY_FOLDER = File.separator + "memory";
+
+    public static class Mutant {
+        private final String name;
+        private final String source;
+        private final String transform;
+        private final int line; // position of the transformed node in the parent
+        private final int column;
+        private final int nodeType;
+        private final Mutant parent; // null for mutants of the given source
+        private final List<String> transSeq;
+
+        Mutant(String name, String source, String transform, int line, int column, int nodeType, Mutant parent) {
+            this.name = name;
+            this.source = source;
+            this.transform = transform;
+            this.line = line;
+            this.column = column;
+            this.nodeType = nodeType;
+            this.parent = parent;
+            List<String> transSeq = parent == null ? new ArrayList<>() : new ArrayList<>(parent.transSeq);
+            transSeq.add(transform);
+            this.transSeq = Collections.unmodifiableList(transSeq);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public String getTransform() {
+            return transform;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getColumn() {
+            return column;
+        }
+
+        public int getNodeType() {
+            return nodeType;
+        }
+
+        public Mutant getParent() {
+            return parent;
+        }
+
+        public List<String> getTransSeq() {
+            return transSeq;
+        }
+
+        public int getDepth() {
+            return transSeq.size();
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + transSeq + " at " + line + ":" + column;
+        }
+    }
+
+    private final List<Transform> transforms;
+
+    public MutantGenerator() {
+        this(Transform.getTransforms());
+    }
+
+    public MutantGenerator(List<Transform> transforms) {
+        this.transforms = new ArrayList<>(transforms);
+    }
+
+    public static MutantGenerator of(String... transformNames) {
+        List<Transform> transforms = new ArrayList<>();
+        for (String transformName : transformNames) {
+            Transform transform = Transform.name2transform.get(transformName);
+            if (transform == null) {
+                throw new IllegalArgumentException("Transform not found: " + transformName);
+            }
+            transforms.add(transform);
+        }
+        return new MutantGenerator(transforms);
+    }
+
+    // The name of the source is taken from its first type, mutants are named <Name>_<n>
+    public Stream<Mutant> generate(String source) {
+        TypeWrapper wrapper = new TypeWrapper(MEMORY_FOLDER + File.separator + "Source.java", "memory", source);
+        return stream(getTypeName(wrapper.getCompilationUnit()), wrapper, null);
+    }
+
+    public Stream<Mutant> generate(String name, String source) {
+        return stream(name, new TypeWrapper(MEMORY_FOLDER + File.separator + name + ".java", "memory", source), null);
+    }
+
+    // Parsed sources are transformed from their flattened text, pass the original text to keep its formatting and lines
+    public Stream<Mutant> generate(CompilationUnit compilationUnit) {
+        return generate(getTypeName(compilationUnit), compilationUnit.toString());
+    }
+
+    // Mutants of the next depth, their lineage continues the one of the parent
+    public Stream<Mutant> generate(Mutant parent) {
+        return stream(parent.name, new TypeWrapper(MEMORY_FOLDER + File.separator + parent.name + ".java", "memory", parent.source), parent);
+    }
+
+    private Stream<Mutant> stream(String name, TypeWrapper wrapper, Mutant parent) {
+        Iterator<Mutant> iterator = new MutantIterator(name, wrapper, parent);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static String getTypeName(CompilationUnit compilationUnit) {
+        for (Object type : compilationUnit.types()) {
+            return ((AbstractTypeDeclaration) type).getName().getIdentifier();
+        }
+        return "Source";
+    }
+
+    // Walks transforms and candidate nodes in the order of TransformInterface
+    private class MutantIterator implements Iterator<Mutant> {
+        private final String name;
+        private final TypeWrapper wrapper;
+        private final Mutant parent;
+        private final List<ASTNode> nodes;
+        private final Deque<Mutant> pending = new ArrayDeque<>();
+        private int transformIndex = 0;
+        private int nodeIndex = 0;
+        private int count = 0;
+
+        MutantIterator(String name, TypeWrapper wrapper, Mutant parent) {
+            this.name = name;
+            this.wrapper = wrapper;
+            this.parent = parent;
+            this.nodes = wrapper.getTransformableNodes();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (pending.isEmpty() && transformIndex < transforms.size()) {
+                if (nodeIndex == nodes.size()) {
+                    nodeIndex = 0;
+                    transformIndex++;
+                    continue;
+                }
+                Transform transform = transforms.get(transformIndex);
+                ASTNode node = nodes.get(nodeIndex++);
+                int line = wrapper.getCompilationUnit().getLineNumber(node.getStartPosition());
+                int column = wrapper.getCompilationUnit().getColumnNumber(node.getStartPosition());
+                List<TypeWrapper> mutants = wrapper.applyTransform(transform, node,
+                        index -> MEMORY_FOLDER + File.separator + name + "_" + (count + index) + ".java");
+                for (TypeWrapper mutant : mutants) {
+                    pending.add(new Mutant(name + "_" + (++count), mutant.getCode(), transform.getIndex(), line, column,
+                            node.getNodeType(), parent));
+                }
+            }
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Mutant next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.poll();
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package edu.polyu.transform;
 import edu.polyu.analysis.TypeWrapper;
 import org.eclipse.jdt.core.dom.ASTNode;
 import edu.polyu.analysis.SelectionAlgorithm;
+import edu.polyu.util.TimeBudget;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -14,6 +15,7 @@ import static edu.polyu.util.Utility.CHECKSTYLE_MUTATION;
 import static edu.polyu.util.Utility.COMPILE;
 import static edu.polyu.util.Utility.DEBUG;
 import static edu.polyu.util.Utility.DIV_SELECTION;
+import static edu.polyu.util.Utility.LSH_SELECTION;
 import static edu.polyu.util.Utility.GUIDED_LOCATION;
 import static edu.polyu.util.Utility.INFER_MUTATION;
 import static edu.polyu.util.Utility.NO_SELECTION;
@@ -114,8 +116,13 @@ public abstract class Transform {
     public static AtomicInteger cnt2 = new AtomicInteger(0);
 
     public static void singleLevelExplorer(List<TypeWrapper> wrappers, int currentDepth) {  // Current depth means the depth of variants in wrappers, not the iteration level
+        BeamSearch.prune(wrappers);
         while (!wrappers.isEmpty()) {
             TypeWrapper wrapper = wrappers.get(0); // remove TypeWrapper in currentDepth level
+            if (TimeBudget.getInstance().isExhausted(wrapper.getFolderName())) {
+                TimeBudget.getInstance().stop(wrapper.getFolderName());
+                break;
+            }
             wrappers.remove(0);
             if (wrapper.depth == currentDepth) {
                 if (!wrapper.isBuggy()) {
@@ -140,6 +147,9 @@ public abstract class Transform {
                     if (DIV_SELECTION) {
                         reducedMutants = SelectionAlgorithm.Div_Selection(mutants);
                     }
+                    if (LSH_SELECTION) {
+                        reducedMutants = SelectionAlgorithm.LSH_Selection(mutants);
+                    }
                     if(DEBUG) {
                         System.out.println("Reduced Mutant Size: " + reducedMutants.size());
                     }
@@ -155,6 +165,7 @@ public abstract class Transform {
                         if (newMutant.writeToJavaFile()) {
                             TypeWrapper.mutant2seed.put(newMutant.getFilePath(), newMutant.getInitSeedPath());
                             TypeWrapper.mutant2seq.put(newMutant.getFilePath(), newMutant.getTransSeq().toString());
+                            TypeWrapper.mutant2parent.put(newMutant.getFilePath(), newMutant.getParentPath());
                         }
                     }
                     wrappers.addAll(reducedMutants);
@@ -166,11 +177,16 @@ public abstract class Transform {
         }
     }
 
-    // Return value:
+    // Return value: the mutants of a chunk of parents, the beam is applied to the whole frontier before it is chunked,
+    // see BeamSearch.prune(Frontier)
     public static List<TypeWrapper> singleLevelExplorer(List<TypeWrapper> wrappers) {  // Current depth means the depth of variants in wrappers, not the iteration level
         List<TypeWrapper> newWrappers = new ArrayList<>();
         while (!wrappers.isEmpty()) {
             TypeWrapper wrapper = wrappers.get(0); // remove TypeWrapper in currentDepth level
+            if (TimeBudget.getInstance().isExhausted(wrapper.getFolderName())) {
+                TimeBudget.getInstance().stop(wrapper.getFolderName());
+                break;
+            }
             wrappers.remove(0);
             List<TypeWrapper> mutants = new ArrayList<>();
             if (GUIDED_LOCATION) {
@@ -193,6 +209,9 @@ public abstract class Transform {
             if (DIV_SELECTION) {
                 reducedMutants = SelectionAlgorithm.Div_Selection(mutants);
             }
+            if (LSH_SELECTION) {
+                reducedMutants = SelectionAlgorithm.LSH_Selection(mutants);
+            }
             if(DEBUG) {
                 System.out.println("Reduced Mutant Size: " + reducedMutants.size());
             }
@@ -208,6 +227,7 @@ public abstract class Transform {
                 if (newMutant.writeToJavaFile()) {
                     TypeWrapper.mutant2seed.put(newMutant.getFilePath(), newMutant.getInitSeedPath());
                     TypeWrapper.mutant2seq.put(newMutant.getFilePath(), newMutant.getTransSeq().toString());
+                    TypeWrapper.mutant2parent.put(newMutant.getFilePath(), newMutant.getParentPath());
                 }
             }
             newWrappers.addAll(reducedMutants);
@@ -216,8 +236,15 @@ public abstract class Transform {
     }
 
     public static void singleLevelExplorer(ArrayDeque<TypeWrapper> wrappers, int currentDepth) {  // Current depth means the depth of variants in wrappers, not the iteration level
+        List<TypeWrapper> stoppedWrappers = new ArrayList<>(); // buckets of the deque are mixed, only exhausted ones are kept back
+        BeamSearch.prune(wrappers);
         while (!wrappers.isEmpty()) {
             TypeWrapper wrapper = wrappers.pollFirst(); // remove TypeWrapper in currentDepth level
+            if (wrapper.depth < currentDepth && TimeBudget.getInstance().isExhausted(wrapper.getFolderName())) {
+                TimeBudget.getInstance().stop(wrapper.getFolderName());
+                stoppedWrappers.add(wrapper);
+                continue;
+            }
             if (wrapper.depth < currentDepth) {
                 if (!wrapper.isBuggy()) {
                     List<TypeWrapper> mutants = new ArrayList<>();
@@ -241,6 +268,9 @@ public abstract class Transform {
                     if (DIV_SELECTION) {
                         reducedMutants = SelectionAlgorithm.Div_Selection(mutants);
                     }
+                    if (LSH_SELECTION) {
+                        reducedMutants = SelectionAlgorithm.LSH_Selection(mutants);
+                    }
                     if(DEBUG) {
                         System.out.println("Reduced Mutant Size: " + reducedMutants.size());
                     }
@@ -256,6 +286,7 @@ public abstract class Transform {
                         if (newMutant.writeToJavaFile()) {
                             TypeWrapper.mutant2seed.put(newMutant.getFilePath(), newMutant.getInitSeedPath());
                             TypeWrapper.mutant2seq.put(newMutant.getFilePath(), newMutant.getTransSeq().toString());
+                            TypeWrapper.mutant2parent.put(newMutant.getFilePath(), newMutant.getParentPath());
                         }
                     }
                     wrappers.addAll(reducedMutants);
@@ -265,6 +296,7 @@ public abstract class Transform {
                 break;
             }
         }
+        wrappers.addAll(stoppedWrappers);
     }
 
 }
@@ -0,0 +1,213 @@
+package edu.polyu.transform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.monitor.Metrics;
+import org.eclipse.jdt.core.dom.ASTNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Description: Thompson sampling over arms (transform, AST node type, rule bucket).
+ * Every arm keeps a Beta posterior of the probability that a mutant triggers an isBuggy verdict.
+ * For each candidate node, transforms are tried in the order of their sampled yields and only the first
+ * armsPerNode applicable ones are pulled. With probability exploration an arm is ranked by a uniform sample instead.
+ * Posteriors are persisted as JSON and decayed by priorDecay when they are loaded by the next campaign.
+ */
+public class TransformBandit {
+
+    // Settings are overwritten in Utility.initEnv from config.properties
+    public static boolean enabled = false;
+    public static int armsPerNode = 3;
+    public static double exploration = 0.1;
+    public static double priorDecay = 0.5;
+
+    private static TransformBandit instance = new TransformBandit(new Random());
+
+    private final Random random;
+    private final Map<String, double[]> arms = new HashMap<>(); // arm -> {buggy, clean}
+    private final Map<String, double[]> observations = new HashMap<>(); // verdicts since the last drain
+
+    public TransformBandit(Random random) {
+        this.random = random;
+    }
+
+    public static TransformBandit getInstance() {
+        return instance;
+    }
+
+    public static void init(File priors, Random random) {
+        instance = new TransformBandit(random);
+        if (priors.exists()) {
+            instance.load(priors, priorDecay);
+        }
+    }
+
+    public static String getArm(String transform, String nodeType, String bucket) {
+        return transform + "|" + nodeType + "|" + bucket;
+    }
+
+    public static String getNodeType(ASTNode node) {
+        return node.getClass().getSimpleName();
+    }
+
+    public static String getNodeType(int nodeType) {
+        return ASTNode.nodeClassForType(nodeType).getSimpleName();
+    }
+
+    // Return transforms in the order they should be tried on the candidate node
+    public static List<Transform> order(List<Transform> transforms, ASTNode candidateNode, String bucket) {
+        if (!enabled) {
+            return transforms;
+        }
+        return instance.rank(transforms, Transform::getIndex, getNodeType(candidateNode), bucket);
+    }
+
+    public static void reward(String transform, String nodeType, String bucket, boolean buggy) {
+        if (enabled) {
+            instance.update(getArm(transform, nodeType, bucket), buggy);
+            Metrics.increment("statfier_bandit_verdicts_total", "transform", transform, "verdict", buggy ? "buggy" : "clean");
+        }
+    }
+
+    // A mutant is triaged once per analyzer in multi-analyzer campaigns, a later buggy verdict replaces a clean one
+    public static void upgrade(String transform, String nodeType, String bucket) {
+        if (enabled) {
+            instance.revise(getArm(transform, nodeType, bucket));
+        }
+    }
+
+    public synchronized <T> List<T> rank(List<T> transforms, Function<T, String> getIndex, String nodeType, String bucket) {
+        List<T> ranked = new ArrayList<>(transforms);
+        Map<T, Double> transform2sample = new HashMap<>();
+        for (T transform : transforms) {
+            double[] arm = arms.getOrDefault(getArm(getIndex.apply(transform), nodeType, bucket), new double[2]);
+            double sample;
+            if (random.nextDouble() < exploration) {
+                sample = random.nextDouble();
+            } else {
+                sample = sampleBeta(1 + arm[0], 1 + arm[1]);
+            }
+            transform2sample.put(transform, sample);
+        }
+        ranked.sort((t1, t2) -> Double.compare(transform2sample.get(t2), transform2sample.get(t1)));
+        return ranked;
+    }
+
+    public synchronized void update(String arm, boolean buggy) {
+        arms.computeIfAbsent(arm, k -> new double[2])[buggy ? 0 : 1]++;
+        observations.computeIfAbsent(arm, k -> new double[2])[buggy ? 0 : 1]++;
+    }
+
+    private synchronized void revise(String arm) {
+        for (Map<String, double[]> map : List.of(arms, observations)) {
+            double[] counts = map.computeIfAbsent(arm, k -> new double[2]);
+            counts[0]++;
+            counts[1] = Math.max(0, counts[1] - 1);
+        }
+    }
+
+    public synchronized double getMean(String arm) {
+        double[] counts = arms.getOrDefault(arm, new double[2]);
+        return (1 + counts[0]) / (2 + counts[0] + counts[1]);
+    }
+
+    public synchronized int size() {
+        return arms.size();
+    }
+
+    // Merge verdicts observed by a worker JVM
+    public synchronized void merge(JsonNode node) {
+        Iterator<Map.Entry<String, JsonNode>> entries = node.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            double[] counts = arms.computeIfAbsent(entry.getKey(), k -> new double[2]);
+            counts[0] += entry.getValue().get(0).asDouble();
+            counts[1] += entry.getValue().get(1).asDouble();
+        }
+    }
+
+    // Verdicts since the last call, a worker sends them with the result of every task
+    public synchronized ObjectNode drainObservations(ObjectMapper mapper) {
+        ObjectNode node = toJson(mapper, observations);
+        observations.clear();
+        return node;
+    }
+
+    public synchronized void load(File file, double decay) {
+        try {
+            JsonNode root = new ObjectMapper().readTree(file);
+            Iterator<Map.Entry<String, JsonNode>> entries = root.path("arms").fields();
+            while (entries.hasNext()) {
+                Map.Entry<String, JsonNode> entry = entries.next();
+                arms.put(entry.getKey(), new double[]{entry.getValue().get(0).asDouble() * decay, entry.getValue().get(1).asDouble() * decay});
+            }
+            System.out.println("Load " + arms.size() + " bandit priors from " + file.getAbsolutePath());
+        } catch (IOException e) {
+            System.err.println("Fail to load bandit priors: " + file.getAbsolutePath());
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void save(File file) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("timestamp", System.currentTimeMillis());
+        root.set("arms", toJson(mapper, arms));
+        File tmp = new File(file.getAbsolutePath() + ".tmp");
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(tmp, root);
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Fail to save bandit priors: " + file.getAbsolutePath());
+            e.printStackTrace();
+        }
+    }
+
+    private static ObjectNode toJson(ObjectMapper mapper, Map<String, double[]> arm2counts) {
+        ObjectNode node = mapper.createObjectNode();
+        for (Map.Entry<String, double[]> entry : arm2counts.entrySet()) {
+            ArrayNode counts = node.putArray(entry.getKey());
+            counts.add(entry.getValue()[0]);
+            counts.add(entry.getValue()[1]);
+        }
+        return node;
+    }
+
+    private double sampleBeta(double alpha, double beta) {
+        double x = sampleGamma(alpha);
+        double y = sampleGamma(beta);
+        return x / (x + y);
+    }
+
+    // Marsaglia and Tsang, shape is at least 1 because posteriors start from Beta(1, 1)
+    private double sampleGamma(double shape) {
+        double d = shape - 1.0 / 3;
+        double c = 1 / Math.sqrt(9 * d);
+        while (true) {
+            double x = random.nextGaussian();
+            double v = 1 + c * x;
+            if (v <= 0) {
+                continue;
+            }
+            v = v * v * v;
+            double u = random.nextDouble();
+            if (Math.log(u) < 0.5 * x * x + d - d * v + d * Math.log(v)) {
+                return d * v;
+            }
+        }
+    }
+
+}
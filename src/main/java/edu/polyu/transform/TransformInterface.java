@@ -3,11 +3,11 @@ package edu.polyu.transform;
 import static edu.polyu.util.Utility.reg_sep;
 
 import edu.polyu.analysis.TypeWrapper;
-import edu.polyu.util.Utility;
-import org.eclipse.jdt.core.dom.ASTNode;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -25,52 +25,13 @@ public class TransformInterface {
         List<String> mutantPaths = new ArrayList<>();
         
         try {
-            // Initialize environment
-            Utility.initEnv();
-
-            String[] tokens = filePath.split(reg_sep);
-            String folderName = tokens[tokens.length - 2];
-            TypeWrapper wrapper = new TypeWrapper(filePath, folderName);
-            
-            int globalIterCount = 1;
+            // The configuration is read once when Utility is loaded, initEnv would clear EVALUATION_PATH on every call
+            TypeWrapper wrapper = new TypeWrapper(filePath, getFolderName(filePath));
             
             // Try each available transform
             for (Transform transform : Transform.getTransforms()) {
                 try {
-                    // Get all nodes that can be transformed
-                    List<ASTNode> candidateNodes = transform.check(wrapper, wrapper.getCompilationUnit());
-                    
-                    if (candidateNodes.isEmpty()) {
-                        continue; // Skip this transform if no applicable nodes
-                    }
-                    
-                    System.out.println("Applying transform: " + transform.getIndex() + " to " + filePath);
-                    
-                    // Generate mutants for each candidate node
-                    for (ASTNode node : candidateNodes) {
-                        // Create a copy of the wrapper for this mutant
-                        TypeWrapper mutantWrapper = wrapper.deepCopy();
-                        
-                        // Apply the transform
-                        boolean success = transform.run(node, mutantWrapper, node, node);
-                        
-                        if (success) {
-                            // Generate mutant file name
-                            String mutantPath = generateMutantPath(filePath, globalIterCount);
-                            
-                            // Set the mutant path
-                            mutantWrapper.setFilePath(mutantPath);
-                            
-                            // Rewrite and save the mutant
-                            mutantWrapper.rewriteJavaCode();
-                            if (mutantWrapper.writeToJavaFile()) {
-                                mutantPaths.add(mutantPath);
-                                System.out.println("Generated mutant: " + mutantPath + " using " + transform.getIndex());
-                                globalIterCount++;
-                            }
-                        }
-                    }
-                    
+                    mutantPaths.addAll(writeMutants(wrapper, transform, filePath, mutantPaths.size()));
                 } catch (Exception e) {
                     System.err.println("Error applying transform " + transform.getIndex() + ": " + e.getMessage());
                     // Continue with next transform
@@ -96,9 +57,6 @@ public class TransformInterface {
         List<String> mutantPaths = new ArrayList<>();
         
         try {
-            // Initialize environment
-            Utility.initEnv();
-            
             // Get the transform instance
             Transform transform = Transform.name2transform.get(transformName);
             if (transform == null) {
@@ -107,40 +65,10 @@ public class TransformInterface {
             }
             
             // Create TypeWrapper from the file
-            TypeWrapper wrapper = new TypeWrapper(filePath);
-            
-            // Get all nodes that can be transformed
-            List<ASTNode> candidateNodes = transform.check(wrapper, wrapper.getCompilationUnit());
-            
-            if (candidateNodes.isEmpty()) {
+            TypeWrapper wrapper = new TypeWrapper(filePath, getFolderName(filePath));
+            mutantPaths.addAll(writeMutants(wrapper, transform, filePath, 0));
+            if (mutantPaths.isEmpty()) {
                 System.out.println("No applicable nodes found for transform: " + transformName);
-                return mutantPaths;
-            }
-            
-            // Generate mutants for each candidate node
-            int iterCount = 1;
-            for (ASTNode node : candidateNodes) {
-                // Create a copy of the wrapper for this mutant
-                TypeWrapper mutantWrapper = wrapper.deepCopy();
-                
-                // Apply the transform
-                boolean success = transform.run(node, mutantWrapper, node, node);
-                
-                if (success) {
-                    // Generate mutant file name
-                    String mutantPath = generateMutantPath(filePath, iterCount);
-                    
-                    // Set the mutant path
-                    mutantWrapper.setFilePath(mutantPath);
-                    
-                    // Rewrite and save the mutant
-                    mutantWrapper.rewriteJavaCode();
-                    if (mutantWrapper.writeToJavaFile()) {
-                        mutantPaths.add(mutantPath);
-                        System.out.println("Generated mutant: " + mutantPath);
-                        iterCount++;
-                    }
-                }
             }
             
         } catch (Exception e) {
@@ -151,6 +79,31 @@ public class TransformInterface {
         return mutantPaths;
     }
     
+    /**
+     * Write the mutants of one transform next to the original file
+     * 
+     * @param wrapper Parsed original file
+     * @param transform Transform to apply
+     * @param filePath Path to the original file
+     * @param offset Number of mutants already written for the file
+     * @return List of file paths to written mutants
+     */
+    private static List<String> writeMutants(TypeWrapper wrapper, Transform transform, String filePath, int offset) {
+        List<String> mutantPaths = new ArrayList<>();
+        for (TypeWrapper mutantWrapper : wrapper.applyTransform(transform, index -> generateMutantPath(filePath, offset + index))) {
+            if (mutantWrapper.writeToJavaFile()) {
+                mutantPaths.add(mutantWrapper.getFilePath());
+                System.out.println("Generated mutant: " + mutantWrapper.getFilePath() + " using " + transform.getIndex());
+            }
+        }
+        return mutantPaths;
+    }
+    
+    static String getFolderName(String filePath) {
+        String[] tokens = new File(filePath).getAbsolutePath().split(reg_sep);
+        return tokens.length > 1 ? tokens[tokens.length - 2] : "";
+    }
+    
     /**
      * Apply multiple transforms to a Java file
      * 
@@ -185,7 +138,7 @@ public class TransformInterface {
      * @param iteration Iteration number
      * @return Generated mutant file path
      */
-    private static String generateMutantPath(String originalPath, int iteration) {
+    static String generateMutantPath(String originalPath, int iteration) {
         File originalFile = new File(originalPath);
         String parentDir = originalFile.getParent();
         String fileName = originalFile.getName();
@@ -227,11 +180,17 @@ public class TransformInterface {
     
     /**
      * Main method for command-line usage
-     * Usage: java TransformInterface <file_path> [transform_name]
+     * Usage: java TransformInterface <file_path> [transform_name], or java TransformInterface --daemon [--port n]
      */
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--daemon")) {
+            // Batches of files are served by one JVM, see TransformService
+            TransformService.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         if (args.length < 1) {
             System.err.println("Usage: java TransformInterface <file_path> [transform_name]");
+            System.err.println("       java TransformInterface --daemon [--port n]");
             System.err.println("  file_path: Path to the Java file to transform");
             System.err.println("  transform_name: Optional specific transform name");
             System.err.println("Available transforms:");
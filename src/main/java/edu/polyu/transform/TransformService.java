@@ -0,0 +1,261 @@
+package edu.polyu.transform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.analysis.TypeWrapper;
+import edu.polyu.monitor.Metrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+
+import static edu.polyu.util.Utility.TRANSFORM_SERVICE_THREADS;
+
+/**
+ * Description: Long-running transform daemon, so that callers pay JVM and JDT startup once instead of once per file.
+ * Requests are JSON lines read from stdin, or from every connection to 127.0.0.1:port with --port, and are processed
+ * concurrently by TRANSFORM_SERVICE_THREADS threads. Results are streamed back as JSON lines as soon as they are ready.
+ * Client -> service: {"type":"transform","id":..,"file":path | "source":code,"name":"A.java","transforms":[..],"output":folder},
+ * {"type":"list"}, {"type":"shutdown"}. Without transforms every transform is applied, without output the mutants are returned inline.
+ * Service -> client: {"type":"mutant","id":..,"index":n,"transform":..,"path":..|"source":..}, {"type":"done","id":..,"mutants":n,"millis":n},
+ * {"type":"error","id":..,"message":..}, {"type":"transforms","names":[..]}.
+ * In stdin mode, stdout carries the protocol only, the log output of transforms is sent to stderr.
+ */
+public class TransformService {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ExecutorService pool;
+    private volatile boolean running = true;
+    private ServerSocket serverSocket;
+
+    private class Session {
+        final BufferedWriter writer;
+        final Phaser inflight = new Phaser(1); // requests of the session that are still running
+
+        Session(OutputStream output) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        }
+
+        synchronized void send(ObjectNode message) {
+            try {
+                writer.write(message.toString());
+                writer.write("\n");
+                writer.flush();
+            } catch (IOException e) {
+                System.err.println("Cannot send to the client: " + e.getMessage());
+            }
+        }
+    }
+
+    public TransformService(int threads) {
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "transform-service");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Serve the requests of one stream until it ends or a shutdown request arrives, pending results are sent before returning
+    public void serve(InputStream input, OutputStream output) throws IOException {
+        Session session = new Session(output);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        String line;
+        while (running && (line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode request;
+            try {
+                request = mapper.readTree(line);
+            } catch (IOException e) {
+                session.send(error(null, "Malformed request: " + e.getMessage()));
+                continue;
+            }
+            String type = request.path("type").asText("transform");
+            if (type.equals("shutdown")) {
+                shutdown();
+                break;
+            } else if (type.equals("list")) {
+                ObjectNode message = mapper.createObjectNode();
+                message.put("type", "transforms");
+                ArrayNode names = message.putArray("names");
+                for (Transform transform : Transform.getTransforms()) {
+                    names.add(transform.getIndex());
+                }
+                session.send(message);
+            } else if (type.equals("transform")) {
+                session.inflight.register();
+                pool.submit(() -> {
+                    try {
+                        handle(request, session);
+                    } finally {
+                        session.inflight.arriveAndDeregister();
+                    }
+                });
+            } else {
+                session.send(error(request.get("id"), "Unknown request type: " + type));
+            }
+        }
+        session.inflight.arriveAndAwaitAdvance();
+    }
+
+    // Accept connections on the loopback interface, each connection is a session
+    public void listen(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        System.err.println("Transform service listening on 127.0.0.1:" + serverSocket.getLocalPort());
+        while (running) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("Transform service stopped accepting: " + e.getMessage());
+                }
+                break;
+            }
+            Thread thread = new Thread(() -> {
+                try (Socket client = socket) {
+                    serve(client.getInputStream(), client.getOutputStream());
+                } catch (IOException e) {
+                    System.err.println("Connection closed: " + e.getMessage());
+                }
+            }, "transform-session");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    public void shutdown() {
+        running = false;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    public void close() {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(JsonNode request, Session session) {
+        JsonNode id = request.get("id");
+        long startTime = System.currentTimeMillis();
+        try {
+            List<Transform> transforms = new ArrayList<>();
+            if (request.has("transforms")) {
+                for (JsonNode name : request.get("transforms")) {
+                    Transform transform = Transform.name2transform.get(name.asText());
+                    if (transform == null) {
+                        session.send(error(id, "Transform not found: " + name.asText()));
+                        return;
+                    }
+                    transforms.add(transform);
+                }
+            } else {
+                transforms.addAll(Transform.getTransforms());
+            }
+            File output = request.hasNonNull("output") ? new File(request.get("output").asText()) : null;
+            TypeWrapper wrapper;
+            String filePath;
+            if (request.hasNonNull("source")) {
+                File folder = output != null ? output : new File(".");
+                filePath = new File(folder, request.path("name").asText("Input.java")).getAbsolutePath();
+                wrapper = new TypeWrapper(filePath, TransformInterface.getFolderName(filePath), request.get("source").asText());
+            } else if (request.hasNonNull("file")) {
+                filePath = new File(request.get("file").asText()).getAbsolutePath();
+                if (!new File(filePath).isFile()) {
+                    session.send(error(id, "File not found: " + filePath));
+                    return;
+                }
+                wrapper = new TypeWrapper(filePath, TransformInterface.getFolderName(filePath));
+            } else {
+                session.send(error(id, "A transform request needs a file or a source"));
+                return;
+            }
+            if (output != null) {
+                output.mkdirs();
+            }
+            int count = 0;
+            for (Transform transform : transforms) {
+                int offset = count;
+                String mutantFolder = output != null ? output.getAbsolutePath() : new File(filePath).getParent();
+                for (TypeWrapper mutant : wrapper.applyTransform(transform, index -> TransformInterface.generateMutantPath(
+                        new File(mutantFolder, new File(filePath).getName()).getPath(), offset + index))) {
+                    ObjectNode message = mapper.createObjectNode();
+                    message.put("type", "mutant");
+                    message.set("id", id);
+                    message.put("index", ++count);
+                    message.put("transform", transform.getIndex());
+                    if (output != null) {
+                        Files.writeString(new File(mutant.getFilePath()).toPath(), mutant.getCode());
+                        message.put("path", mutant.getFilePath());
+                    } else {
+                        message.put("source", mutant.getCode());
+                    }
+                    session.send(message);
+                }
+            }
+            ObjectNode done = mapper.createObjectNode();
+            done.put("type", "done");
+            done.set("id", id);
+            done.put("mutants", count);
+            done.put("millis", System.currentTimeMillis() - startTime);
+            session.send(done);
+            Metrics.increment("statfier_service_requests_total", "result", "success");
+        } catch (Exception e) {
+            session.send(error(id, e.getClass().getSimpleName() + ": " + e.getMessage()));
+            Metrics.increment("statfier_service_requests_total", "result", "error");
+        }
+    }
+
+    private ObjectNode error(JsonNode id, String message) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("type", "error");
+        node.set("id", id);
+        node.put("message", message);
+        return node;
+    }
+
+    /**
+     * Usage: java edu.polyu.transform.TransformService [--port n]
+     */
+    public static void main(String[] args) throws IOException {
+        TransformService service = new TransformService(TRANSFORM_SERVICE_THREADS);
+        if (args.length > 1 && args[0].equals("--port")) {
+            service.listen(Integer.parseInt(args[1]));
+        } else {
+            PrintStream protocol = System.out;
+            System.setOut(System.err);
+            service.serve(System.in, protocol);
+        }
+        service.close();
+    }
+
+}
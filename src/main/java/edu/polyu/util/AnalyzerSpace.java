@@ -0,0 +1,85 @@
+package edu.polyu.util;
+
+import edu.polyu.report.Report;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description: Violations, findings and report folder of one analyzer in a campaign with several analyzers.
+ * Report parsers, TypeWrapper and Invoker keep working on Utility.file2row, file2bugs, file2report, compactIssues
+ * and REPORT_FOLDER, activate() points these fields to the namespace of one analyzer.
+ */
+public class AnalyzerSpace {
+
+    private static AnalyzerSpace current = null; // null in single analyzer campaigns and while mutants are generated
+    private static AnalyzerSpace active = null; // the union while mutants are generated
+
+    public final String analyzer;
+    public final File reportFolder;
+    private final boolean shared;
+    public final HashMap<String, List<Integer>> file2row = new HashMap<>();
+    public final HashMap<String, Report> file2report = new HashMap<>();
+    public final HashMap<String, HashMap<String, List<Integer>>> file2bugs = new HashMap<>();
+    public final ConcurrentHashMap<String, HashMap<String, List<TriTuple>>> compactIssues = new ConcurrentHashMap<>();
+    // Seeds and mutants that passed the triage of this analyzer, only their children are analyzed by it
+    public final Set<String> survivors = new HashSet<>();
+
+    public AnalyzerSpace(String analyzer, File reportFolder) {
+        this(analyzer, reportFolder, false);
+    }
+
+    private AnalyzerSpace(String analyzer, File reportFolder, boolean shared) {
+        this.analyzer = analyzer;
+        this.reportFolder = reportFolder;
+        this.shared = shared;
+    }
+
+    public void activate() {
+        Utility.file2row = file2row;
+        Utility.file2report = file2report;
+        Utility.file2bugs = file2bugs;
+        Utility.compactIssues = compactIssues;
+        Utility.REPORT_FOLDER = reportFolder;
+        current = shared ? null : this;
+        active = this;
+    }
+
+    public static AnalyzerSpace getCurrent() {
+        return current;
+    }
+
+    public static AnalyzerSpace getActive() {
+        return active;
+    }
+
+    // Generation is shared, so transforms see the violation lines of every analyzer. Reports are taken from the first analyzer
+    public static AnalyzerSpace union(List<AnalyzerSpace> spaces, File reportFolder) {
+        AnalyzerSpace union = new AnalyzerSpace("union", reportFolder, true);
+        for (AnalyzerSpace space : spaces) {
+            for (Map.Entry<String, List<Integer>> entry : space.file2row.entrySet()) {
+                Set<Integer> rows = new LinkedHashSet<>(union.file2row.getOrDefault(entry.getKey(), new ArrayList<>()));
+                rows.addAll(entry.getValue());
+                union.file2row.put(entry.getKey(), new ArrayList<>(rows));
+            }
+            for (Map.Entry<String, Report> entry : space.file2report.entrySet()) {
+                union.file2report.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        }
+        return union;
+    }
+
+    // PMD and SonarQube only report files with violations, so a file without report is clean
+    public static boolean isMissingReportClean() {
+        String analyzer = Utility.getAnalyzerName();
+        return analyzer.equals("PMD") || analyzer.equals("SonarQube");
+    }
+
+}
@@ -0,0 +1,155 @@
+package edu.polyu.util;
+
+import edu.polyu.monitor.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description: AIMD limiter of in-flight subprocesses per tool.
+ * The limit grows by one per window of completions while the tool is saturated and latency stays near its baseline,
+ * and is cut multiplicatively when latency inflates, a run times out, the load per core is too high or free memory is low.
+ * Every decision is exported as metrics "statfier_concurrency_limit" and "statfier_concurrency_decisions_total".
+ */
+public class ConcurrencyLimiter {
+
+    // Settings are overwritten in Utility.initEnv from config.properties
+    public static boolean enabled = false;
+    public static int defaultMin = 1;
+    public static int defaultMax = Runtime.getRuntime().availableProcessors();
+    public static int initialLimit = 1;
+    public static double maxLoadPerCore = 1.0;
+    public static long minFreeMemory = 1024L * 1024 * 1024; // bytes
+    public static double latencyTolerance = 2.0; // decrease if recent latency exceeds baseline by this factor
+    public static double backoffRatio = 0.75;
+    public static final Map<String, Integer> tool2min = new ConcurrentHashMap<>();
+    public static final Map<String, Integer> tool2max = new ConcurrentHashMap<>();
+
+    private static final Map<String, ConcurrencyLimiter> tool2limiter = new ConcurrentHashMap<>();
+
+    private final String tool;
+    private final int min;
+    private final int max;
+    private double limit;
+    private int inflight = 0;
+    private double baseline = 0; // slow moving latency in ns, pulled down by faster samples
+    private double recent = 0; // fast moving latency in ns
+    private long lastDecrease = 0;
+
+    public ConcurrencyLimiter(String tool, int min, int max, int initial) {
+        this.tool = tool;
+        this.min = Math.max(1, min);
+        this.max = Math.max(this.min, max);
+        this.limit = Math.max(this.min, Math.min(this.max, initial));
+        Metrics.gauge("statfier_concurrency_limit", this.limit, "tool", tool);
+    }
+
+    public static ConcurrencyLimiter of(String tool) {
+        return tool2limiter.computeIfAbsent(tool, k -> new ConcurrencyLimiter(tool,
+                tool2min.getOrDefault(tool, defaultMin), tool2max.getOrDefault(tool, defaultMax), initialLimit));
+    }
+
+    public synchronized void acquire() throws InterruptedException {
+        long startTime = System.nanoTime();
+        while (inflight >= (int) limit) {
+            wait();
+        }
+        inflight++;
+        Metrics.recordNanos("statfier_concurrency_wait_seconds", System.nanoTime() - startTime, "tool", tool);
+        Metrics.gauge("statfier_concurrency_inflight", inflight, "tool", tool);
+    }
+
+    // dropped means the run timed out or could not be completed
+    public void release(long latencyNanos, boolean dropped) {
+        update(latencyNanos, dropped, getLoadPerCore(), getFreeMemory());
+    }
+
+    synchronized String update(long latencyNanos, boolean dropped, double loadPerCore, long freeMemory) {
+        boolean saturated = inflight >= (int) limit;
+        inflight = Math.max(0, inflight - 1);
+        if (!dropped) {
+            recent = recent == 0 ? latencyNanos : recent * 0.8 + latencyNanos * 0.2;
+            baseline = baseline == 0 ? latencyNanos : Math.min(recent, baseline * 0.98 + latencyNanos * 0.02);
+        }
+        String reason;
+        if (dropped) {
+            reason = "timeout";
+        } else if (freeMemory >= 0 && freeMemory < minFreeMemory) {
+            reason = "memory";
+        } else if (loadPerCore > maxLoadPerCore) {
+            reason = "load";
+        } else if (recent > baseline * latencyTolerance) {
+            reason = "latency";
+        } else {
+            reason = saturated ? "saturated" : "idle";
+        }
+        String decision;
+        long now = System.nanoTime();
+        if (reason.equals("saturated")) {
+            limit = Math.min(max, limit + 1.0 / limit);
+            decision = "increase";
+        } else if (reason.equals("idle")) {
+            decision = "hold";
+        } else if (lastDecrease != 0 && now - lastDecrease < baseline) {
+            decision = "hold"; // the previous decrease is not observable yet
+        } else {
+            limit = Math.max(min, limit * backoffRatio);
+            lastDecrease = now;
+            decision = "decrease";
+        }
+        notifyAll();
+        Metrics.increment("statfier_concurrency_decisions_total", "tool", tool, "decision", decision, "reason", reason);
+        Metrics.gauge("statfier_concurrency_limit", (int) limit, "tool", tool);
+        Metrics.gauge("statfier_concurrency_inflight", inflight, "tool", tool);
+        return decision;
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public synchronized int getInflight() {
+        return inflight;
+    }
+
+    private static double getLoadPerCore() {
+        double load = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
+        return load < 0 ? 0 : load / Runtime.getRuntime().availableProcessors();
+    }
+
+    // Available memory including reclaimable page cache on Linux, -1 if it cannot be observed
+    private static long getFreeMemory() {
+        File meminfo = new File("/proc/meminfo");
+        if (meminfo.exists()) {
+            try {
+                for (String line : Files.readAllLines(meminfo.toPath())) {
+                    if (line.startsWith("MemAvailable:")) {
+                        return Long.parseLong(line.replaceAll("[^0-9]", "")) * 1024;
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                // fall back to the JVM view
+            }
+        }
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (bean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) bean).getFreePhysicalMemorySize();
+        }
+        return -1;
+    }
+
+    // Only used by tests
+    static void reset() {
+        tool2limiter.clear();
+    }
+
+}
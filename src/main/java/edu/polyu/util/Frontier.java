@@ -0,0 +1,139 @@
+package edu.polyu.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.polyu.analysis.MutantHandle;
+import edu.polyu.monitor.Metrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: FIFO frontier of the mutants of one bucket that wait to be expanded. At most memoryLimit handles are
+ * kept in memory, further handles are appended to a spill file as JSON lines and read back in order once the memory
+ * part is drained. A handle is also spilled while the heap occupancy is above heapThreshold.
+ */
+public class Frontier {
+
+    // Settings are overwritten in Utility.initEnv from config.properties
+    public static int memoryLimit = 10000; // handles kept in memory per bucket
+    public static int chunkSize = 64; // parents expanded before their mutants are analyzed
+    public static double heapThreshold = 0.8; // used / max heap
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final AtomicInteger spillCounter = new AtomicInteger(0);
+
+    private final String bucket;
+    private final File spillFolder;
+    private final ArrayDeque<MutantHandle> handles = new ArrayDeque<>();
+    private File spillFile;
+    private BufferedWriter writer;
+    private BufferedReader reader;
+    private int spilled = 0; // handles in the spill file that have not been read back
+
+    public Frontier(String bucket, File spillFolder) {
+        this.bucket = bucket;
+        this.spillFolder = spillFolder;
+    }
+
+    public static boolean isHeapCritical() {
+        MemoryUsage usage = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long max = usage.getMax() > 0 ? usage.getMax() : usage.getCommitted();
+        return usage.getUsed() > heapThreshold * max;
+    }
+
+    // Once handles are spilled, later handles are spilled too, so the frontier keeps the order of admission
+    public synchronized void add(MutantHandle handle) {
+        if (spilled == 0 && handles.size() < memoryLimit && !isHeapCritical()) {
+            handles.add(handle);
+            return;
+        }
+        try {
+            if (writer == null) {
+                spillFolder.mkdirs();
+                spillFile = new File(spillFolder, bucket + "_" + spillCounter.incrementAndGet() + ".jsonl");
+                writer = Files.newBufferedWriter(spillFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            }
+            writer.write(mapper.writeValueAsString(handle.toJson(mapper)));
+            writer.newLine();
+            spilled++;
+            Metrics.increment("statfier_frontier_spilled_total");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot spill the frontier of " + bucket, e);
+        }
+    }
+
+    public synchronized MutantHandle poll() {
+        if (!handles.isEmpty()) {
+            return handles.poll();
+        }
+        if (spilled == 0) {
+            return null;
+        }
+        try {
+            writer.flush();
+            if (reader == null) {
+                reader = Files.newBufferedReader(spillFile.toPath(), StandardCharsets.UTF_8);
+            }
+            String line = reader.readLine();
+            spilled--;
+            return MutantHandle.fromJson(mapper.readTree(line));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read the spilled frontier of " + bucket, e);
+        }
+    }
+
+    public synchronized List<MutantHandle> poll(int count) {
+        List<MutantHandle> polled = new ArrayList<>();
+        while (polled.size() < count) {
+            MutantHandle handle = poll();
+            if (handle == null) {
+                break;
+            }
+            polled.add(handle);
+        }
+        return polled;
+    }
+
+    public synchronized int size() {
+        return handles.size() + spilled;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Drop the remaining handles and delete the spill file
+    public synchronized void close() {
+        handles.clear();
+        spilled = 0;
+        try {
+            if (reader != null) {
+                reader.close();
+            }
+            if (writer != null) {
+                writer.close();
+            }
+            if (spillFile != null) {
+                Files.deleteIfExists(spillFile.toPath());
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        reader = null;
+        writer = null;
+        spillFile = null;
+    }
+
+}
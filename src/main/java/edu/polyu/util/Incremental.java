@@ -0,0 +1,366 @@
+package edu.polyu.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.analysis.TypeWrapper;
+import edu.polyu.monitor.Metrics;
+import edu.polyu.thread.CheckStyleInvokeThread;
+import edu.polyu.transform.Transform;
+import net.sourceforge.pmd.PMDVersion;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static edu.polyu.util.Utility.CHECKSTYLE_MUTATION;
+import static edu.polyu.util.Utility.CHECKSTYLE_PATH;
+import static edu.polyu.util.Utility.CODENAVI_CHECKER_DIR;
+import static edu.polyu.util.Utility.CODENAVI_PATH;
+import static edu.polyu.util.Utility.EVALUATION_PATH;
+import static edu.polyu.util.Utility.INFER_PATH;
+import static edu.polyu.util.Utility.SPOTBUGS_PATH;
+import static edu.polyu.util.Utility.getFilenamesFromFolder;
+import static edu.polyu.util.Utility.reg_sep;
+import static edu.polyu.util.Utility.sep;
+
+/**
+ * Description: Incremental campaigns (INCREMENTAL=true) that only process new or changed seeds.
+ * The lineage of every seed has a fingerprint of the seed, its CheckStyle config and the campaign fingerprint, which covers the
+ * enabled analyzers and their versions, the transforms and their bytecode and the search settings. The fingerprints of a run are
+ * written to EVALUATION_PATH/fingerprints.json and compared with those of the run in INCREMENTAL_BASE, by default
+ * EVALUATION_PATH.previous. Buckets whose seeds are all unchanged are not analyzed at all, in the other buckets only new and
+ * changed seeds are expanded. The result store rows of unchanged seeds, with the files of their findings, are carried into this run.
+ */
+public class Incremental {
+
+    public static final String MANIFEST = "fingerprints.json";
+    public static final String CARRIED = "carried";
+
+    // Settings of config.properties that change which mutants are generated
+    private static final String[] SETTINGS = {"SEARCH_DEPTH", "NO_SELECTION", "RANDOM_SELECTION", "DIV_SELECTION", "LSH_SELECTION",
+            "LSH_BUDGET", "LSH_THRESHOLD", "RANDOM_LOCATION", "GUIDED_LOCATION", "BEAM_WIDTH", "BEAM_SCORE", "BANDIT_SCHEDULING",
+            "BANDIT_ARMS_PER_NODE"};
+
+    private static boolean enabled = false;
+    private static File previousFolder;
+    private static String campaign;
+    private static Map<String, String> seed2fingerprint = new LinkedHashMap<>();
+    private static final Set<String> reusedSeeds = new HashSet<>();
+    private static final Set<String> affectedBuckets = new TreeSet<>();
+
+    private Incremental() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // Seeds whose results are carried from the previous run, they are analyzed but never expanded
+    public static boolean isReused(String seedPath) {
+        return enabled && reusedSeeds.contains(seedPath);
+    }
+
+    // Fingerprint the seeds of seedFolderPath and keep only the affected buckets in Utility.subSeedFolderNameList
+    public static void init(File previous, String seedFolderPath) {
+        List<String> analyzers = Utility.getEnabledAnalyzers();
+        if (analyzers.contains("SonarQube")) {
+            System.err.println("SonarQube expands all seeds together, the incremental mode is disabled.");
+            return;
+        }
+        if (!ResultStore.isEnabled()) {
+            System.err.println("Incremental campaigns merge the result store of the previous run, set RESULT_STORE=true.");
+            return;
+        }
+        enabled = true;
+        previousFolder = previous;
+        campaign = getCampaignFingerprint(analyzers);
+        seed2fingerprint = new LinkedHashMap<>();
+        for (String seedPath : getFilenamesFromFolder(seedFolderPath, true)) {
+            String configPath = CHECKSTYLE_MUTATION ? CheckStyleInvokeThread.getConfigPath(seedPath, getBucket(seedPath)) : null;
+            seed2fingerprint.put(seedPath, getSeedFingerprint(campaign, seedPath, configPath));
+        }
+        reusedSeeds.clear();
+        affectedBuckets.clear();
+        Map<String, String> previousFingerprints = readManifest(previous, campaign);
+        if (previousFingerprints != null && !new File(previous, "results_store" + sep + "mutant.col").exists()) {
+            System.out.println("No result store in " + previous.getAbsolutePath() + ", all seeds are analyzed.");
+            previousFingerprints = null;
+        }
+        for (Map.Entry<String, String> entry : seed2fingerprint.entrySet()) {
+            if (previousFingerprints != null && entry.getValue().equals(previousFingerprints.get(entry.getKey()))) {
+                reusedSeeds.add(entry.getKey());
+            } else {
+                affectedBuckets.add(getBucket(entry.getKey()));
+            }
+        }
+        Utility.subSeedFolderNameList.retainAll(affectedBuckets);
+        System.out.println("Incremental Reused Seeds: " + reusedSeeds.size() + " Changed Seeds: " + (seed2fingerprint.size() - reusedSeeds.size()));
+        System.out.println("Incremental Affected Buckets: " + affectedBuckets);
+        Metrics.gauge("statfier_incremental_seeds", reusedSeeds.size(), "status", "reused");
+        Metrics.gauge("statfier_incremental_seeds", seed2fingerprint.size() - reusedSeeds.size(), "status", "changed");
+    }
+
+    // Carry the results of the reused seeds into this run and write the fingerprints of the seeds whose lineages are complete.
+    // Called before the findings are written, summary lines are appended to output.
+    public static void merge(List<String> output) {
+        if (!enabled) {
+            return;
+        }
+        int carriedRows = 0;
+        int carriedFindings = 0;
+        if (!reusedSeeds.isEmpty()) {
+            try (ResultStore.Reader reader = new ResultStore.Reader(new File(previousFolder, "results_store"))) {
+                for (int row = 0; row < reader.getRows(); row++) {
+                    ResultStore.Row result = reader.get(row);
+                    if (!reusedSeeds.contains(result.seed)) {
+                        continue;
+                    }
+                    boolean finding = !result.kind.equals(ResultStore.KINDS[ResultStore.CLEAN]);
+                    String mutant = carry(result.mutant, result.seed, finding);
+                    String parent = result.parent.isEmpty() ? "" : carry(result.parent, result.seed, finding);
+                    byte kind = (byte) Arrays.asList(ResultStore.KINDS).indexOf(result.kind);
+                    ResultStore.getInstance().append(mutant, parent, result.seed, result.seq, result.analyzer, result.rule, kind, result.delta);
+                    carriedRows++;
+                    if (finding) {
+                        getIssues(result.analyzer).computeIfAbsent(result.rule, k -> new HashMap<>())
+                                .computeIfAbsent(result.seq, k -> new ArrayList<>()).add(new TriTuple(result.seed, mutant, result.kind));
+                        if (!parent.isEmpty()) {
+                            TypeWrapper.mutant2parent.put(mutant, parent);
+                        }
+                        carriedFindings++;
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot carry the results of " + previousFolder.getAbsolutePath() + ": " + e.getMessage());
+            }
+        }
+        writeManifest();
+        output.add("Incremental Reused Seeds: " + reusedSeeds.size());
+        output.add("Incremental Affected Buckets: " + affectedBuckets);
+        output.add("Incremental Carried Rows: " + carriedRows);
+        output.add("Incremental Carried Findings: " + carriedFindings);
+    }
+
+    // compactIssues of the analyzer of a carried row, the union of a multi-analyzer campaign is skipped
+    private static ConcurrentHashMap<String, HashMap<String, List<TriTuple>>> getIssues(String analyzer) {
+        for (AnalyzerSpace space : Schedule.analyzerSpaces) {
+            if (space.analyzer.equals(analyzer)) {
+                return space.compactIssues;
+            }
+        }
+        return Utility.compactIssues;
+    }
+
+    // Copy the file of a finding into EVALUATION_PATH/carried/<seed>, rows of clean mutants only keep the path
+    private static String carry(String path, String seedPath, boolean copy) {
+        String tail = getCarriedTail(path);
+        if (tail == null) {
+            return path; // seeds stay where they are
+        }
+        File target = new File(EVALUATION_PATH + sep + getCarriedPath(tail, seedPath));
+        File source = new File(previousFolder, tail);
+        if (copy && source.exists() && !target.exists()) {
+            try {
+                target.getParentFile().mkdirs();
+                Files.copy(source.toPath(), target.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+            } catch (IOException e) {
+                System.err.println("Cannot carry " + source.getAbsolutePath() + ": " + e.getMessage());
+            }
+        }
+        return target.getPath();
+    }
+
+    // The part of a stored path below the evaluation folder, mutants/... or carried/<seed>/mutants/..., null for seeds
+    static String getCarriedTail(String path) {
+        String marker = File.separator + "mutants" + File.separator;
+        int index = path.lastIndexOf(marker);
+        if (index < 0) {
+            return null;
+        }
+        String[] tokens = path.substring(0, index).split(reg_sep);
+        if (tokens.length >= 2 && tokens[tokens.length - 2].equals(CARRIED)) {
+            index -= tokens[tokens.length - 1].length() + CARRIED.length() + 2;
+        }
+        return path.substring(index + 1);
+    }
+
+    // Files of all generations of a seed go to carried/<seed hash>, so mutant names of different runs never collide
+    static String getCarriedPath(String tail, String seedPath) {
+        if (tail.startsWith(CARRIED + File.separator)) {
+            tail = tail.substring(tail.indexOf("mutants" + File.separator));
+        }
+        return CARRIED + File.separator + hash(seedPath.getBytes(StandardCharsets.UTF_8)).substring(0, 12) + File.separator + tail;
+    }
+
+    private static String getBucket(String seedPath) {
+        String[] tokens = seedPath.split(reg_sep);
+        return tokens[tokens.length - 2];
+    }
+
+    // Reused seeds keep their fingerprints, seeds of buckets stopped by the time budget are left out so that they are analyzed again
+    private static void writeManifest() {
+        boolean cancelled = TimeBudget.getInstance().isCancelled();
+        List<String> stoppedBuckets = TimeBudget.getInstance().getStoppedBuckets();
+        Map<String, String> complete = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : seed2fingerprint.entrySet()) {
+            String seedPath = entry.getKey();
+            if (reusedSeeds.contains(seedPath) || (!cancelled && !stoppedBuckets.contains(getBucket(seedPath)))) {
+                complete.put(seedPath, entry.getValue());
+            }
+        }
+        writeManifest(new File(EVALUATION_PATH), campaign, complete);
+    }
+
+    static void writeManifest(File folder, String campaign, Map<String, String> seed2fingerprint) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("Campaign", campaign);
+        ObjectNode seeds = root.putObject("Seeds");
+        for (Map.Entry<String, String> entry : seed2fingerprint.entrySet()) {
+            seeds.put(entry.getKey(), entry.getValue());
+        }
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(folder, MANIFEST), root);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // Seed fingerprints of a previous run, null if it has none or was run with another campaign fingerprint
+    static Map<String, String> readManifest(File folder, String campaign) {
+        File manifest = new File(folder, MANIFEST);
+        if (!manifest.exists()) {
+            System.out.println("No fingerprints in " + folder.getAbsolutePath() + ", all seeds are analyzed.");
+            return null;
+        }
+        try {
+            JsonNode root = new ObjectMapper().readTree(manifest);
+            if (!root.path("Campaign").asText().equals(campaign)) {
+                System.out.println("Analyzers, transforms or settings have changed since the previous run, all seeds are analyzed.");
+                return null;
+            }
+            Map<String, String> seed2fingerprint = new HashMap<>();
+            Iterator<Map.Entry<String, JsonNode>> seeds = root.path("Seeds").fields();
+            while (seeds.hasNext()) {
+                Map.Entry<String, JsonNode> entry = seeds.next();
+                seed2fingerprint.put(entry.getKey(), entry.getValue().asText());
+            }
+            return seed2fingerprint;
+        } catch (IOException e) {
+            System.err.println("Cannot read " + manifest.getAbsolutePath() + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    static String getSeedFingerprint(String campaign, String seedPath, String configPath) {
+        return hash((campaign + "\n" + hashFile(seedPath) + "\n" + (configPath == null ? "" : hashFile(configPath))).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String getCampaignFingerprint(List<String> analyzers) {
+        StringBuilder builder = new StringBuilder();
+        for (String analyzer : analyzers) {
+            builder.append(analyzer).append('=').append(getAnalyzerVersion(analyzer)).append('\n');
+        }
+        for (Transform transform : Transform.getTransforms()) {
+            String className = transform.getClass().getSimpleName() + ".class";
+            byte[] bytecode = new byte[0];
+            try (InputStream input = transform.getClass().getResourceAsStream(className)) {
+                if (input != null) {
+                    bytecode = input.readAllBytes();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            builder.append(transform.getIndex()).append('=').append(hash(bytecode)).append('\n');
+        }
+        for (String setting : SETTINGS) {
+            builder.append(setting).append('=').append(Utility.getProperty(setting, "")).append('\n');
+        }
+        return hash(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // PMD runs in this JVM, the external analyzers are identified by their installation
+    private static String getAnalyzerVersion(String analyzer) {
+        switch (analyzer) {
+            case "PMD":
+                return PMDVersion.VERSION;
+            case "SpotBugs":
+                return describeTool(SPOTBUGS_PATH);
+            case "CheckStyle":
+                return describeTool(CHECKSTYLE_PATH);
+            case "Infer":
+                return describeTool(INFER_PATH);
+            case "CodeNavi":
+                StringBuilder checkers = new StringBuilder(describeTool(CODENAVI_PATH));
+                for (String checkerPath : new TreeSet<>(getFilenamesFromFolder(CODENAVI_CHECKER_DIR, true))) {
+                    checkers.append(';').append(new File(checkerPath).getName()).append(':').append(hashFile(checkerPath));
+                }
+                return checkers.toString();
+            default:
+                return analyzer;
+        }
+    }
+
+    // Resolved path, size and modification time of the tool, and the jars next to a launcher in bin/
+    static String describeTool(String toolPath) {
+        File tool = new File(toolPath);
+        if (!tool.exists()) {
+            return toolPath;
+        }
+        StringBuilder builder = new StringBuilder();
+        try {
+            tool = tool.getCanonicalFile();
+        } catch (IOException e) {
+            tool = tool.getAbsoluteFile();
+        }
+        builder.append(tool.getPath()).append(':').append(tool.length()).append(':').append(tool.lastModified());
+        File parent = tool.getParentFile();
+        if (parent != null && parent.getName().equals("bin") && parent.getParentFile() != null) {
+            String[] jars = new File(parent.getParentFile(), "lib").list();
+            if (jars != null) {
+                Arrays.sort(jars);
+                builder.append(':').append(String.join(",", jars));
+            }
+        }
+        return builder.toString();
+    }
+
+    private static String hashFile(String filePath) {
+        try {
+            return hash(Files.readAllBytes(new File(filePath).toPath()));
+        } catch (IOException e) {
+            return "";
+        }
+    }
+
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder builder = new StringBuilder();
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -1,16 +1,19 @@
 package edu.polyu.util;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.concurrent.ExecutorService;
 
+import edu.polyu.analyzer.MutantRef;
+import edu.polyu.monitor.AnalyzerInvocationEvent;
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
 import edu.polyu.report.CheckStyleReport;
 import edu.polyu.report.InferReport;
 import edu.polyu.report.PMDReport;
@@ -24,7 +27,6 @@ import edu.polyu.thread.SpotBugsInvokeThread;
 import net.sourceforge.pmd.PMD;
 import net.sourceforge.pmd.PMDConfiguration;
 import org.json.JSONObject;
-import org.zeroturnaround.exec.ProcessExecutor;
 
 import static edu.polyu.util.Utility.EVALUATION_PATH;
 import static edu.polyu.util.Utility.Path2Last;
@@ -52,25 +54,90 @@ public class Invoker {
         for (String arg : cmdArgs) {
             argStr.append(arg + " ");
         }
-        try {
-            ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
-            output = new ProcessExecutor().command(cmdArgs).redirectError(errorStream).readOutput(true).execute().outputUTF8();
-        } catch (Exception e) {
-            e.printStackTrace();
+        String tool = getToolName(cmdArgs);
+        ProcessSupervisor.Result result = ProcessSupervisor.execute(tool, cmdArgs, true, null);
+        if (result.timedOut) {
+            recordTimeout(tool, cmdArgs);
+            return "";
+        }
+        if (result.exception != null) {
+            System.err.println(argStr);
+            result.exception.printStackTrace();
             return "";
         }
+        output = result.output;
         return output;
     }
 
+    // Feed input to stdin and return stdout, or null if the command fails
+    public static String invokeCommandsByZTWithInput(String[] cmdArgs, String input) {
+        String tool = getToolName(cmdArgs);
+        ProcessSupervisor.Result result = ProcessSupervisor.execute(tool, cmdArgs, true, null, input.getBytes(StandardCharsets.UTF_8));
+        if (result.timedOut) {
+            recordTimeout(tool, cmdArgs);
+            return null;
+        }
+        if (result.exception != null || result.exitValue != 0) {
+            if (result.exception != null) {
+                result.exception.printStackTrace();
+            }
+            failedCommands.add(String.join(" ", cmdArgs));
+            return null;
+        }
+        return result.output;
+    }
+
     public static boolean invokeCommandsByZT(String[] cmdArgs) {
+        AnalyzerInvocationEvent event = new AnalyzerInvocationEvent();
+        event.begin();
+        event.exitCode = -1;
+        boolean success = invokeCommandsByZT(cmdArgs, event);
+        event.end();
+        if (event.shouldCommit()) {
+            event.tool = getToolName(cmdArgs);
+            event.batchSize = 1;
+            event.command = String.join(" ", cmdArgs);
+            event.commit();
+        }
+        return success;
+    }
+
+    // Name of the tool behind a command line, used to tag telemetry
+    public static String getToolName(String[] cmdArgs) {
+        String cmd = String.join(" ", cmdArgs);
+        if (cmd.contains(Utility.GOOGLE_FORMAT_PATH)) {
+            return "GoogleFormatter";
+        }
+        if (cmdArgs.length > 0 && cmdArgs[0].equals("curl")) {
+            return "curl";
+        }
+        if (cmdArgs.length > 0 && cmdArgs[0].equals(Utility.JAVAC_PATH)) {
+            return "javac";
+        }
+        return Utility.getAnalyzerName();
+    }
+
+    private static boolean invokeCommandsByZT(String[] cmdArgs, AnalyzerInvocationEvent event) {
         StringBuilder argStr = new StringBuilder();
         for (String arg : cmdArgs) {
             argStr.append(arg + " ");
         }
+        String tool = getToolName(cmdArgs);
+        ProcessSupervisor.Result result = ProcessSupervisor.execute(tool, cmdArgs);
+        if (result.timedOut) {
+            recordTimeout(tool, cmdArgs);
+            return false;
+        }
         try {
+            if (result.exception != null) {
+                throw result.exception;
+            }
             ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
-            int exitValue = new ProcessExecutor().command(cmdArgs).redirectError(errorStream).execute().getExitValue();
-            if (Utility.CHECKSTYLE_MUTATION) {
+            errorStream.write(result.error.getBytes());
+            int exitValue = result.exitValue;
+            event.exitCode = exitValue;
+            String analyzer = Utility.getAnalyzerName(); // the active analyzer of a multi-analyzer campaign
+            if (analyzer.equals("CheckStyle")) {
                 String errorInfo = new String(errorStream.toByteArray());
                 if (argStr.toString().contains("javac")) {
                     if (exitValue != 0) {
@@ -90,32 +157,32 @@ public class Invoker {
                     }
                 }
             }
-            if (Utility.PMD_MUTATION && exitValue != 4 && exitValue != 0) {
+            if (analyzer.equals("PMD") && exitValue != 4 && exitValue != 0) {
                 System.out.println("Execute PMD Error!");
                 System.out.println(argStr);
                 return false;
             }
-            if (Utility.SPOTBUGS_MUTATION && exitValue != 0) {
+            if (analyzer.equals("SpotBugs") && exitValue != 0) {
                 failedCommands.add(argStr.toString());
                 System.out.println("Invoke SpotBugs Error Value: " + exitValue);
                 System.out.println(argStr);
                 System.out.println("Error Msg: " + new String(errorStream.toByteArray()));
                 return false;
             }
-            if (Utility.INFER_MUTATION && exitValue != 0) {
+            if (analyzer.equals("Infer") && exitValue != 0) {
                 System.out.println("Invoke Infer Error Value: " + exitValue);
                 System.out.println(argStr);
                 System.out.println("Error Msg: " + new String(errorStream.toByteArray()));
                 return false;
             }
-            if (Utility.SONARQUBE_MUTATION && exitValue != 0) {
+            if (analyzer.equals("SonarQube") && exitValue != 0) {
                 System.err.println("Invoke SonarQube Error and Return Value: " + exitValue);
                 System.err.println(argStr);
                 System.err.println("Error Msg: " + new String(errorStream.toByteArray()));
                 System.exit(-1);
                 return false;
             }
-            if (Utility.FINDSECBUGS_MUTATION && exitValue != 0) {
+            if (analyzer.equals("FindSecBugs") && exitValue != 0) {
                 failedCommands.add(argStr.toString());
                 System.out.println("Invoke FindSecBugs Error Value: " + exitValue);
                 System.out.println(argStr);
@@ -135,20 +202,20 @@ public class Invoker {
         for (int i = 0; i < cmdArgs.length; i++) {
             args.append(cmdArgs[i] + " ");
         }
-        InputStream in;
+        String tool = getToolName(cmdArgs);
+        ProcessSupervisor.Result result = ProcessSupervisor.execute(tool, cmdArgs, true, System.out);
+        if (result.timedOut) {
+            recordTimeout(tool, cmdArgs);
+            return false;
+        }
         try {
-            Process process = Runtime.getRuntime().exec(cmdArgs);
-            in = process.getInputStream();
-            BufferedReader read = new BufferedReader(new InputStreamReader(in, "UTF-8"));
-            String line;
-            StringBuilder builder = new StringBuilder();
-            while ((line = read.readLine()) != null) {
-                System.out.println(line);
-                builder.append(line);
+            if (result.exception != null) {
+                throw result.exception;
             }
-            int exitValue = process.waitFor();
+            StringBuilder builder = new StringBuilder(result.output);
+            int exitValue = result.exitValue;
             if (exitValue != 4 && exitValue != 0) {
-                if (Utility.SPOTBUGS_MUTATION) {
+                if (Utility.getAnalyzerName().equals("SpotBugs")) {
                     failedCommands.add(args.toString());
                 } else {
                     System.err.println("Fail to Invoke Commands1: " + args);
@@ -158,19 +225,59 @@ public class Invoker {
                 }
                 return false;
             }
-            process.getOutputStream().close();
-        } catch (IOException e) {
-            System.err.println("Fail to Invoke Commands2: " + args);
-            e.printStackTrace();
-            return false;
         } catch (InterruptedException e) {
             System.err.println("Fail to Invoke Commands:3 " + args);
             e.printStackTrace();
             return false;
+        } catch (Exception e) {
+            System.err.println("Fail to Invoke Commands2: " + args);
+            e.printStackTrace();
+            return false;
         }
         return true;
     }
 
+    // Mutants whose analysis runs on this thread, set by AnalysisEngine and FileAnalyzer around the invocations of the tool
+    private static final ThreadLocal<List<MutantRef>> analyzedMutants = new ThreadLocal<>();
+
+    // Pass null once the invocations for the mutants are done
+    public static void setAnalyzedMutants(List<MutantRef> mutants) {
+        if (mutants == null) {
+            analyzedMutants.remove();
+        } else {
+            analyzedMutants.set(mutants);
+        }
+    }
+
+    public static List<MutantRef> getAnalyzedMutants() {
+        return analyzedMutants.get();
+    }
+
+    // A command that keeps timing out is quarantined. If it analyzes mutants, every one of them is quarantined instead and
+    // the mutants of the campaign are recorded as analyzer bugs.
+    public static void recordTimeout(String tool, String[] cmdArgs) {
+        String command = String.join(" ", cmdArgs);
+        synchronized (failedCommands) {
+            failedCommands.add(command);
+        }
+        List<MutantRef> mutants = analyzedMutants.get();
+        if (mutants == null || mutants.isEmpty()) {
+            ProcessSupervisor.addToQuarantine(command, tool);
+            return;
+        }
+        for (MutantRef mutant : mutants) {
+            ProcessSupervisor.addToQuarantine(mutant.getFilePath(), tool);
+            if (mutant.getTransSeq() == null || !tool.equals(Utility.getAnalyzerName())) {
+                continue;
+            }
+            HashMap<String, List<TriTuple>> seq2paths = Utility.compactIssues.computeIfAbsent(tool + "_Timeout", k -> new HashMap<>());
+            synchronized (seq2paths) {
+                seq2paths.computeIfAbsent(mutant.getTransSeq(), k -> new ArrayList<>()).add(new TriTuple(mutant.getSeedPath(), mutant.getFilePath(), "Timeout"));
+            }
+            Metrics.increment("statfier_findings_total", "kind", "Timeout", "transform", mutant.getTransSeq());
+        }
+    }
+
     public static boolean compileJavaSourceFile(String srcFolderPath, String fileName, String classFileFolder) {
         if (Utility.DEBUG) {
             System.out.println("Compiling: " + fileName);
@@ -195,7 +302,10 @@ public class Invoker {
             cmd_list.add(Utility.findSecBugsJarStr.toString());
         }
         cmd_list.add(srcFolderPath + File.separator + fileName + ".java");
+        long startTime = Metrics.start();
         boolean tag = invokeCommandsByZT(cmd_list.toArray(new String[cmd_list.size()]));
+        Metrics.record(Metrics.COMPILE, startTime, "result", tag ? "success" : "failed");
+        Tracer.span(Metrics.COMPILE, srcFolderPath + File.separator + fileName + ".java", startTime, "result", tag ? "success" : "failed");
         return tag;
     }
 
@@ -206,6 +316,7 @@ public class Invoker {
         if (Utility.DEBUG) {
             System.out.println("Invoke SpotBugs Path: " + seedFolderPath);
         }
+        long startTime = Metrics.start();
         ExecutorService threadPool = Utility.initThreadPool();
         for (int i = 0; i < Utility.subSeedFolderNameList.size(); i++) {
             String subSeedFolderName = Utility.subSeedFolderNameList.get(i);
@@ -214,7 +325,11 @@ public class Invoker {
             threadPool.submit(new SpotBugsInvokeThread(subSeedFolderPath, subSeedFolderName, seedFileNames));
         }
         Utility.waitThreadPoolEnding(threadPool);
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "SpotBugs", "phase", "seed");
         for (String subSeedFolderName : Utility.subSeedFolderNameList) {
+            if (!new File(REPORT_FOLDER.getAbsolutePath() + File.separator + subSeedFolderName).exists()) {
+                continue; // no seed of the folder has been analyzed
+            }
             List<String> reportPaths = getFilenamesFromFolder(REPORT_FOLDER.getAbsolutePath() + File.separator + subSeedFolderName, true);
             for (String reportPath : reportPaths) {
                 SpotBugsReport.readSpotBugsResultFile(seedFolderPath + File.separator + subSeedFolderName, reportPath);
@@ -307,7 +422,9 @@ public class Invoker {
                         + " -Dsonar.sources=" + seedPath
                         + " -Dsonar.host.url=http://localhost:9000"
                         + " -Dsonar.login=admin -Dsonar.password=123456";
+                long startTime = Metrics.start();
                 boolean hasExec = invokeCommandsByZT(invokeCommands); // invoke SonarQube to detect target file
+                Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "SonarQube", "phase", "seed");
                 if (hasExec) {
                     waitTaskEnd(SONARQUBE_PROJECT_NAME);
                 } else {
@@ -330,11 +447,13 @@ public class Invoker {
     }
 
     public static void invokeInfer(String seedFolderPath) {
+        long startTime = Metrics.start();
         ExecutorService threadPool = Utility.initThreadPool();
         for (int i = 0; i < Utility.subSeedFolderNameList.size(); i++) {
             threadPool.submit(new InferInvokeThread(0, seedFolderPath, Utility.subSeedFolderNameList.get(i)));
         }
         Utility.waitThreadPoolEnding(threadPool);
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "Infer", "phase", "seed");
         System.out.println("Infer Result Folder: " + REPORT_FOLDER.getAbsolutePath());
         List<String> seedPaths = getFilenamesFromFolder(seedFolderPath, true);
         for (String seedPath : seedPaths) {
@@ -344,11 +463,13 @@ public class Invoker {
     }
 
     public static void invokeCheckStyle(String seedFolderPath) {
+        long startTime = Metrics.start();
         ExecutorService threadPool = Utility.initThreadPool();
         for (int i = 0; i < Utility.subSeedFolderNameList.size(); i++) {
             threadPool.submit(new CheckStyleInvokeThread(0, seedFolderPath, Utility.subSeedFolderNameList.get(i)));
         }
         Utility.waitThreadPoolEnding(threadPool);
+        Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "CheckStyle", "phase", "seed");
         List<String> reportPaths = getFilenamesFromFolder(REPORT_FOLDER.getAbsolutePath(), true);
         for (int i = 0; i < reportPaths.size(); i++) {
             CheckStyleReport.readCheckStyleResultFile(reportPaths.get(i));
@@ -356,12 +477,14 @@ public class Invoker {
     }
 
     public static void invokePMD(String seedFolderPath) {
+        long startTime = Metrics.start();
         if (Utility.THREAD_COUNT > 1) {
             ExecutorService threadPool = Utility.initThreadPool();
             for (int i = 0; i < Utility.subSeedFolderNameList.size(); i++) {
                 threadPool.submit(new PMDInvokeThread(0, seedFolderPath, Utility.subSeedFolderNameList.get(i)));
             }
             Utility.waitThreadPoolEnding(threadPool);
+            Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "PMD", "phase", "seed");
             for (int i = 0; i < Utility.subSeedFolderNameList.size(); i++) {
                 PMDReport.readPMDResultFile(REPORT_FOLDER.getAbsolutePath() + File.separator + "iter0_" + Utility.subSeedFolderNameList.get(i) + "_Result.json");
             }
@@ -381,6 +504,7 @@ public class Invoker {
                 pmdConfig.setIgnoreIncrementalAnalysis(true);
                 PMD.runPmd(pmdConfig);
             }
+            Metrics.record(Metrics.ANALYZE, startTime, "analyzer", "PMD", "phase", "seed");
             for (int i = 0; i < Utility.subSeedFolderNameList.size(); i++) {
                 PMDReport.readPMDResultFile(REPORT_FOLDER.getAbsolutePath() + File.separator + "iter0_" + Utility.subSeedFolderNameList.get(i) + "_Result.json");
             }
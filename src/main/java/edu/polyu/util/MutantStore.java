@@ -0,0 +1,411 @@
+package edu.polyu.util;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Description: Append-only packs of compressed mutant sources and parsed analyzer results. A mutant keeps its path,
+ * e.g. mutants/iter2/bucket/mutant_7.java, as its key, and is appended to the pack of its folder, here iter2_bucket.pack.
+ * Every record is [kind][path length][path][raw length][compressed length][deflated bytes], so the index is rebuilt by
+ * scanning the packs when a store is reopened. Records are read through a memory mapping of the pack, so a pack is
+ * rolled over to a new segment, e.g. iter2_bucket.1.pack, before it grows beyond segmentLimit.
+ * The parsed violations of a mutant are moved from Utility.file2bugs to the store once its chunk is triaged and are
+ * read back by getBug2lines(). In a campaign with several analyzers, the violations are kept per analyzer under the key
+ * path\0analyzer of the active AnalyzerSpace. Real files are only written by export(), for external analyzers and the
+ * files of findings.
+ */
+public class MutantStore {
+
+    public static final byte SOURCE = 0;
+    public static final byte RESULT = 1;
+
+    // Set in Utility.initEnv from config.properties
+    public static boolean enabled = false;
+    private static MutantStore instance;
+    // Records are read at int offsets of the mapping of a segment
+    static long segmentLimit = Integer.MAX_VALUE;
+    private static final ObjectMapper resultMapper = new ObjectMapper();
+    private static final char ANALYZER_SEPARATOR = '\0'; // never part of a path
+
+    private static class Entry {
+        final Pack pack;
+        final long offset; // offset of the compressed bytes
+        final int rawLength;
+        final int length;
+
+        Entry(Pack pack, long offset, int rawLength, int length) {
+            this.pack = pack;
+            this.offset = offset;
+            this.rawLength = rawLength;
+            this.length = length;
+        }
+    }
+
+    private static class Pack {
+        final int segment;
+        final FileChannel channel;
+        long size;
+        MappedByteBuffer mapped;
+
+        Pack(File file, int segment) throws IOException {
+            this.segment = segment;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+
+        // Return -1 if the record would grow the segment beyond segmentLimit, an empty segment takes any record
+        synchronized long append(byte kind, String path, int rawLength, byte[] data) throws IOException {
+            byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+            ByteBuffer record = ByteBuffer.allocate(1 + 4 + pathBytes.length + 4 + 4 + data.length);
+            if (size > 0 && size + record.capacity() > segmentLimit) {
+                return -1;
+            }
+            record.put(kind).putInt(pathBytes.length).put(pathBytes).putInt(rawLength).putInt(data.length).put(data);
+            record.flip();
+            long start = size;
+            while (record.hasRemaining()) {
+                size += channel.write(record, size);
+            }
+            return start + 1 + 4 + pathBytes.length + 4 + 4;
+        }
+
+        // The mapping covers the whole segment and is renewed when a record lies behind its end
+        synchronized ByteBuffer read(long offset, int length) throws IOException {
+            if (mapped == null || offset + length > mapped.capacity()) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer buffer = mapped.duplicate();
+            buffer.position((int) offset).limit((int) offset + length);
+            return buffer.slice();
+        }
+    }
+
+    private final File folder;
+    private final Map<String, Pack> name2pack = new ConcurrentHashMap<>(); // pack name -> last segment
+    private final List<Pack> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Entry> sources = new ConcurrentHashMap<>();
+    private final Map<String, Entry> results = new ConcurrentHashMap<>();
+    private final Set<String> kept = ConcurrentHashMap.newKeySet(); // exported files that are never released
+
+    public MutantStore(File folder) {
+        this.folder = folder;
+        folder.mkdirs();
+        File[] packFiles = folder.listFiles((dir, name) -> name.endsWith(".pack"));
+        if (packFiles != null) {
+            List<String> fileNames = new ArrayList<>();
+            for (File packFile : packFiles) {
+                fileNames.add(packFile.getName());
+            }
+            // earlier segments are scanned first, so the later record of a path wins
+            fileNames.sort(Comparator.comparingInt(MutantStore::getSegment));
+            for (String fileName : fileNames) {
+                String name = fileName.substring(0, fileName.length() - ".pack".length());
+                int segment = getSegment(fileName);
+                if (segment > 0) {
+                    name = name.substring(0, name.lastIndexOf('.'));
+                }
+                Pack pack = openSegment(name, segment);
+                name2pack.merge(name, pack, (a, b) -> a.segment > b.segment ? a : b);
+                scan(pack);
+            }
+        }
+    }
+
+    public static void init(File folder) {
+        instance = new MutantStore(folder);
+    }
+
+    public static MutantStore getInstance() {
+        return instance;
+    }
+
+    // Source of a mutant from the store, or from the file system if it is not stored
+    public static String read(String path) throws IOException {
+        if (enabled) {
+            String source = instance.getSource(path);
+            if (source != null) {
+                return source;
+            }
+        }
+        return Files.readString(Paths.get(path));
+    }
+
+    // Write the stored source of the mutant as a real file, return false if the mutant is not stored
+    public static boolean export(String path) {
+        if (!enabled) {
+            return false;
+        }
+        String source = instance.getSource(path);
+        if (source == null) {
+            return false;
+        }
+        File file = new File(path);
+        if (!file.exists()) {
+            file.getParentFile().mkdirs();
+            try {
+                Files.writeString(file.toPath(), source);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot export " + path, e);
+            }
+        }
+        return true;
+    }
+
+    // Export the mutant of a finding, its file is kept for the reports and the reducer
+    public static void keep(String path) {
+        if (export(path)) {
+            instance.kept.add(path);
+        }
+    }
+
+    // Move the parsed violations of a stored mutant from the report maps to the store, the caller holds AnalysisEngine.REPORT_LOCK
+    public static void storeBug2lines(String path) {
+        if (!enabled || !instance.sources.containsKey(path)) {
+            return;
+        }
+        Map<String, List<Integer>> bug2lines = Utility.file2bugs.get(path);
+        if (bug2lines == null) {
+            return; // no report, getBug2lines() keeps returning null
+        }
+        try {
+            instance.putResult(getResultKey(path), resultMapper.writeValueAsString(bug2lines));
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        Utility.file2bugs.remove(path);
+    }
+
+    // Violations of a file from the report maps, or from the store once its chunk is triaged, null if it has no report
+    public static Map<String, List<Integer>> getBug2lines(String path) {
+        Map<String, List<Integer>> bug2lines = Utility.file2bugs.get(path);
+        if (bug2lines != null || !enabled) {
+            return bug2lines;
+        }
+        String result = instance.getResult(getResultKey(path));
+        if (result == null) {
+            return null;
+        }
+        try {
+            return resultMapper.readValue(result, new TypeReference<HashMap<String, List<Integer>>>() {});
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupted result of " + path + " in the mutant store", e);
+        }
+    }
+
+    // Paths whose violations are only kept in the store, see storeBug2lines()
+    public static Set<String> getStoredPaths() {
+        if (!enabled) {
+            return new HashSet<>();
+        }
+        AnalyzerSpace space = AnalyzerSpace.getCurrent();
+        String suffix = space == null ? null : ANALYZER_SEPARATOR + space.analyzer;
+        Set<String> paths = new HashSet<>();
+        for (String key : instance.results.keySet()) {
+            if (suffix == null && key.indexOf(ANALYZER_SEPARATOR) < 0) {
+                paths.add(key);
+            } else if (suffix != null && key.endsWith(suffix)) {
+                paths.add(key.substring(0, key.length() - suffix.length()));
+            }
+        }
+        paths.removeAll(Utility.file2bugs.keySet());
+        return paths;
+    }
+
+    // Violations of the same mutant differ between the analyzers of a campaign
+    private static String getResultKey(String path) {
+        AnalyzerSpace space = AnalyzerSpace.getCurrent();
+        return space == null ? path : path + ANALYZER_SEPARATOR + space.analyzer;
+    }
+
+    // Forget the stored violations, e.g. when a worker starts its next task, the records stay in the packs
+    public static void clearResults() {
+        if (enabled) {
+            instance.results.clear();
+        }
+    }
+
+    // Delete the exported file of a stored mutant once external analyzers are done with it
+    public static void release(String path) {
+        if (enabled && instance.sources.containsKey(path) && !instance.kept.contains(path)) {
+            new File(path).delete();
+        }
+    }
+
+    public void putSource(String path, String source) {
+        put(SOURCE, path, source, sources);
+    }
+
+    public String getSource(String path) {
+        return get(sources.get(path));
+    }
+
+    public void putResult(String path, String result) {
+        put(RESULT, path, result, results);
+    }
+
+    public String getResult(String path) {
+        return get(results.get(path));
+    }
+
+    public boolean contains(String path) {
+        return sources.containsKey(path);
+    }
+
+    public void close() {
+        for (Pack pack : segments) {
+            try {
+                pack.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        name2pack.clear();
+        segments.clear();
+        sources.clear();
+        results.clear();
+        kept.clear();
+    }
+
+    private void put(byte kind, String path, String content, Map<String, Entry> index) {
+        byte[] raw = content.getBytes(StandardCharsets.UTF_8);
+        byte[] data = deflate(raw);
+        String name = getPackName(path);
+        try {
+            Pack pack = getPack(name);
+            long offset = pack.append(kind, path, raw.length, data);
+            while (offset < 0) {
+                pack = rollOver(name, pack);
+                offset = pack.append(kind, path, raw.length, data);
+            }
+            index.put(path, new Entry(pack, offset, raw.length, data.length));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append " + path + " to the mutant store", e);
+        }
+    }
+
+    private String get(Entry entry) {
+        if (entry == null) {
+            return null;
+        }
+        try {
+            ByteBuffer buffer = entry.pack.read(entry.offset, entry.length);
+            Inflater inflater = new Inflater();
+            inflater.setInput(buffer);
+            byte[] raw = new byte[entry.rawLength];
+            int count = 0;
+            while (count < raw.length && !inflater.finished()) {
+                count += inflater.inflate(raw, count, raw.length - count);
+            }
+            inflater.end();
+            return new String(raw, StandardCharsets.UTF_8);
+        } catch (IOException | DataFormatException e) {
+            throw new IllegalStateException("Corrupted record in the mutant store", e);
+        }
+    }
+
+    private Pack getPack(String name) {
+        return name2pack.computeIfAbsent(name, k -> openSegment(k, 0));
+    }
+
+    // Threads that found the same segment full open its successor only once
+    private Pack rollOver(String name, Pack full) {
+        return name2pack.compute(name, (k, last) -> last != full ? last : openSegment(k, full.segment + 1));
+    }
+
+    private Pack openSegment(String name, int segment) {
+        String fileName = segment == 0 ? name + ".pack" : name + "." + segment + ".pack";
+        try {
+            Pack pack = new Pack(new File(folder, fileName), segment);
+            segments.add(pack);
+            return pack;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open pack " + fileName, e);
+        }
+    }
+
+    // iter2_bucket.pack is segment 0, iter2_bucket.3.pack is segment 3
+    static int getSegment(String fileName) {
+        String name = fileName.substring(0, fileName.length() - ".pack".length());
+        String suffix = name.substring(name.lastIndexOf('.') + 1);
+        if (suffix.equals(name) || suffix.isEmpty() || !suffix.chars().allMatch(Character::isDigit)) {
+            return 0;
+        }
+        return Integer.parseInt(suffix);
+    }
+
+    // A later record of the same path replaces the earlier one, a truncated last record is ignored
+    private void scan(Pack pack) {
+        long offset = 0;
+        try {
+            while (offset + 13 <= pack.size) {
+                ByteBuffer header = pack.read(offset, 5);
+                byte kind = header.get();
+                int pathLength = header.getInt();
+                ByteBuffer pathBuffer = pack.read(offset + 5, pathLength + 8);
+                byte[] pathBytes = new byte[pathLength];
+                pathBuffer.get(pathBytes);
+                int rawLength = pathBuffer.getInt();
+                int length = pathBuffer.getInt();
+                long dataOffset = offset + 5 + pathLength + 8;
+                if (dataOffset + length > pack.size) {
+                    break;
+                }
+                String path = new String(pathBytes, StandardCharsets.UTF_8);
+                (kind == SOURCE ? sources : results).put(path, new Entry(pack, dataOffset, rawLength, length));
+                offset = dataOffset + length;
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Stop reading a damaged pack at offset " + offset);
+        }
+        pack.size = offset;
+    }
+
+    // mutants/iter2/bucket/mutant_7.java is kept in the pack iter2_bucket
+    static String getPackName(String path) {
+        File parent = new File(path).getParentFile();
+        if (parent == null) {
+            return "default";
+        }
+        File grandParent = parent.getParentFile();
+        return (grandParent == null ? "" : grandParent.getName() + "_") + parent.getName();
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        deflater.setInput(raw);
+        deflater.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, raw.length / 3));
+        byte[] chunk = new byte[8192];
+        while (!deflater.finished()) {
+            output.write(chunk, 0, deflater.deflate(chunk));
+        }
+        deflater.end();
+        return output.toByteArray();
+    }
+
+}
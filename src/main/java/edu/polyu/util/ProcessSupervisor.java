@@ -0,0 +1,211 @@
+package edu.polyu.util;
+
+import edu.polyu.monitor.LatencyHistogram;
+import edu.polyu.monitor.Metrics;
+import org.zeroturnaround.exec.ProcessExecutor;
+import org.zeroturnaround.exec.ProcessResult;
+import org.zeroturnaround.exec.StartedProcess;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Description: Runs external commands with a per-tool timeout, kills the whole process tree of a hung command
+ * and retries it a bounded number of times with exponential backoff.
+ * The timeout of a tool starts at {@link #defaultTimeout} and, once enough runs are observed,
+ * follows the p99 latency of that tool times {@link #timeoutMultiplier}.
+ * Commands that still time out after all retries are put into the quarantine list.
+ */
+public class ProcessSupervisor {
+
+    // Settings are overwritten in Utility.initEnv from config.properties
+    public static long defaultTimeout = 1800; // seconds, used until minSamples runs of a tool are observed
+    public static long minTimeout = 60; // seconds
+    public static double timeoutMultiplier = 4.0;
+    public static int minSamples = 20;
+    public static int maxRetries = 1;
+    public static long retryBackoff = 2000; // milliseconds, doubled for every retry
+
+    private static final Map<String, LatencyHistogram> tool2latency = new ConcurrentHashMap<>();
+    // command or mutant path -> tool, commands that timed out in every attempt
+    public static final Map<String, String> quarantine = new ConcurrentHashMap<>();
+    // Running processes, killed by cancelAll when the time budget of the campaign is exhausted
+    private static final Set<Process> running = ConcurrentHashMap.newKeySet();
+    private static volatile boolean cancelled = false;
+
+    public static class Result {
+        public int exitValue = -1;
+        public String output = "";
+        public String error = "";
+        public boolean timedOut = false;
+        public int attempts = 0;
+        public Exception exception = null; // set if the command could not be started or its output could not be read
+    }
+
+    public static Result execute(String tool, String[] cmdArgs) {
+        return execute(tool, cmdArgs, false, null);
+    }
+
+    // readOutput keeps stdout in the result, stdout is additionally copied to outputStream if it is not null
+    public static Result execute(String tool, String[] cmdArgs, boolean readOutput, OutputStream outputStream) {
+        return execute(tool, cmdArgs, readOutput, outputStream, null);
+    }
+
+    // input is written to stdin of every attempt if it is not null
+    public static Result execute(String tool, String[] cmdArgs, boolean readOutput, OutputStream outputStream, byte[] input) {
+        Result result = new Result();
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            if (attempt > 0) {
+                long backoff = retryBackoff << (attempt - 1);
+                System.err.println("Retry " + tool + " in " + backoff + " ms, attempt: " + (attempt + 1));
+                Metrics.increment("statfier_process_retries_total", "tool", tool);
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return result;
+                }
+            }
+            result = executeOnce(tool, cmdArgs, readOutput, outputStream, input);
+            result.attempts = attempt + 1;
+            if (!result.timedOut || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        if (result.timedOut) {
+            Metrics.increment("statfier_process_timeouts_total", "tool", tool);
+        }
+        return result;
+    }
+
+    private static Result executeOnce(String tool, String[] cmdArgs, boolean readOutput, OutputStream outputStream, byte[] input) {
+        Result result = new Result();
+        if (cancelled) {
+            result.exception = new IllegalStateException("Campaign has been cancelled");
+            return result;
+        }
+        long timeout = getTimeout(tool);
+        ByteArrayOutputStream errorStream = new ByteArrayOutputStream();
+        ProcessExecutor executor = new ProcessExecutor().command(cmdArgs).redirectError(errorStream).readOutput(readOutput);
+        if (outputStream != null) {
+            executor.redirectOutput(outputStream);
+        }
+        if (input != null) {
+            executor.redirectInput(new ByteArrayInputStream(input));
+        }
+        ConcurrencyLimiter limiter = ConcurrencyLimiter.enabled ? ConcurrencyLimiter.of(tool) : null;
+        if (limiter != null) {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                result.exception = e;
+                Thread.currentThread().interrupt();
+                return result;
+            }
+        }
+        long startTime = System.nanoTime();
+        try {
+            return executeStarted(tool, cmdArgs, timeout, executor, errorStream, readOutput, startTime, result);
+        } finally {
+            if (limiter != null) {
+                limiter.release(System.nanoTime() - startTime, result.timedOut || result.exception != null);
+            }
+        }
+    }
+
+    private static Result executeStarted(String tool, String[] cmdArgs, long timeout, ProcessExecutor executor,
+                                         ByteArrayOutputStream errorStream, boolean readOutput, long startTime, Result result) {
+        StartedProcess process;
+        try {
+            process = executor.start();
+        } catch (Exception e) {
+            result.exception = e;
+            return result;
+        }
+        Future<ProcessResult> future = process.getFuture();
+        running.add(process.getProcess());
+        if (cancelled) {
+            killProcessTree(process.getProcess()); // cancelAll may have missed this process
+        }
+        try {
+            ProcessResult processResult = future.get(timeout, TimeUnit.SECONDS);
+            tool2latency.computeIfAbsent(tool, k -> new LatencyHistogram()).record(System.nanoTime() - startTime);
+            result.exitValue = processResult.getExitValue();
+            if (readOutput) {
+                result.output = processResult.outputUTF8();
+            }
+        } catch (TimeoutException e) {
+            killProcessTree(process.getProcess());
+            future.cancel(true);
+            result.timedOut = true;
+            System.err.println("Timeout after " + timeout + " s, killed " + tool + ": " + String.join(" ", cmdArgs));
+        } catch (InterruptedException e) {
+            // The pool is shutting down, do not leave the child running
+            killProcessTree(process.getProcess());
+            future.cancel(true);
+            result.exception = e;
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            result.exception = e;
+        } finally {
+            running.remove(process.getProcess());
+        }
+        result.error = new String(errorStream.toByteArray());
+        return result;
+    }
+
+    // Child processes are killed before the parent, so that "bash -c" wrappers cannot leave orphans behind
+    public static void killProcessTree(Process process) {
+        if (process == null) {
+            return;
+        }
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+        try {
+            process.waitFor(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Kill running commands and refuse new ones, their results carry an exception
+    public static void cancelAll() {
+        cancelled = true;
+        for (Process process : running) {
+            killProcessTree(process);
+        }
+    }
+
+    // Timeout in seconds of the next run of a tool
+    public static long getTimeout(String tool) {
+        LatencyHistogram latency = tool2latency.get(tool);
+        if (latency == null || latency.getCount() < minSamples) {
+            return defaultTimeout;
+        }
+        long derived = (long) Math.ceil(latency.getPercentile(99) / 1e9 * timeoutMultiplier);
+        return Math.max(minTimeout, Math.min(defaultTimeout, derived));
+    }
+
+    public static void addToQuarantine(String key, String tool) {
+        quarantine.put(key, tool);
+    }
+
+    public static boolean isQuarantined(String key) {
+        return quarantine.containsKey(key);
+    }
+
+    // Only used by tests
+    static void reset() {
+        tool2latency.clear();
+        quarantine.clear();
+    }
+
+}
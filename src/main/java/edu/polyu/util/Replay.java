@@ -0,0 +1,237 @@
+package edu.polyu.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.monitor.Metrics;
+import edu.polyu.thread.CheckStyleInvokeThread;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static edu.polyu.util.Utility.EVALUATION_PATH;
+import static edu.polyu.util.Utility.REPLAY_BATCH;
+import static edu.polyu.util.Utility.THREAD_COUNT;
+import static edu.polyu.util.Utility.sep;
+import static edu.polyu.util.Utility.writeLinesToFile;
+
+/**
+ * Description: Regression replay of the findings of a previous campaign against the analyzers of this campaign, e.g.
+ * after a new analyzer release. Findings are read from the results_store of the previous EVALUATION_PATH, or from its
+ * results/<rule>.json files. Every mutant and its parent are analyzed again, REPLAY_BATCH findings of a seed at a time,
+ * and the finding is reported as fixed, still failing or changed from FP to FN or back. No mutants are generated.
+ * The verdicts are written to EVALUATION_PATH/replay.json with a summary in replay.log.
+ */
+public class Replay {
+
+    public static final String FIXED = "fixed";
+    public static final String STILL_FAILING = "still_failing";
+    public static final String CHANGED = "changed";
+    public static final String ERROR = "error";
+
+    public static class Finding {
+        public final String mutant;
+        public final String parent; // the seed if the parent is unknown
+        public final String seed;
+        public final String seq;
+        public final String analyzer;
+        public final String rule;
+        public final String kind;
+
+        public Finding(String mutant, String parent, String seed, String seq, String analyzer, String rule, String kind) {
+            this.mutant = mutant;
+            this.parent = parent == null || parent.isEmpty() ? seed : parent;
+            this.seed = seed;
+            this.seq = seq;
+            this.analyzer = analyzer;
+            this.rule = rule;
+            this.kind = kind;
+        }
+
+        String getKey() {
+            return analyzer + "|" + rule + "|" + kind + "|" + mutant;
+        }
+    }
+
+    private Replay() {
+    }
+
+    public static void replay(File previousFolder) {
+        List<Finding> findings = loadFindings(previousFolder, Utility.getAnalyzerName());
+        System.out.println("Replayed Findings: " + findings.size());
+        List<String> analyzers = Utility.getEnabledAnalyzers();
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode verdicts = mapper.createArrayNode();
+        Map<String, Integer> verdict2count = new TreeMap<>();
+        for (String analyzer : analyzers) {
+            if (analyzer.equals("SonarQube")) {
+                System.out.println("Replay is not supported for SonarQube, its project has to be rescanned for every mutant.");
+                continue;
+            }
+            if (analyzers.size() > 1) {
+                AnalyzerSpace space = new AnalyzerSpace(analyzer, new File(Utility.WORK_PATH + sep + "reports" + sep + analyzer));
+                space.reportFolder.mkdirs();
+                space.activate();
+            }
+            Map<String, List<Finding>> seed2findings = new LinkedHashMap<>();
+            for (Finding finding : findings) {
+                if (finding.analyzer.equals(analyzer)) {
+                    seed2findings.computeIfAbsent(finding.seed, k -> new ArrayList<>()).add(finding);
+                }
+            }
+            for (Map.Entry<String, List<Finding>> entry : seed2findings.entrySet()) {
+                replaySeed(analyzer, entry.getKey(), entry.getValue(), mapper, verdicts, verdict2count);
+            }
+        }
+        try {
+            mapper.writerWithDefaultPrettyPrinter().writeValue(new File(EVALUATION_PATH + sep + "replay.json"), verdicts);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        List<String> summary = new ArrayList<>();
+        summary.add("Replayed Run: " + previousFolder.getAbsolutePath());
+        summary.add("Replayed Findings: " + verdicts.size());
+        for (Map.Entry<String, Integer> entry : verdict2count.entrySet()) {
+            summary.add(entry.getKey() + ": " + entry.getValue());
+            Metrics.gauge("statfier_replay_findings", entry.getValue(), "verdict", entry.getKey());
+        }
+        writeLinesToFile(EVALUATION_PATH + sep + "replay.log", summary);
+        summary.forEach(System.out::println);
+    }
+
+    private static void replaySeed(String analyzer, String seedPath, List<Finding> findings,
+                                   ObjectMapper mapper, ArrayNode verdicts, Map<String, Integer> verdict2count) {
+        String seedFolderName = new File(seedPath).getParentFile().getName();
+        if (analyzer.equals("CheckStyle")) {
+            Schedule.file2config.put(seedPath, CheckStyleInvokeThread.getConfigPath(seedPath, seedFolderName));
+        }
+        for (int start = 0; start < findings.size(); start += REPLAY_BATCH) {
+            List<Finding> batch = findings.subList(start, Math.min(findings.size(), start + REPLAY_BATCH));
+            Set<String> filePaths = new LinkedHashSet<>();
+            for (Finding finding : batch) {
+                for (String filePath : new String[] {finding.mutant, finding.parent}) {
+                    if (new File(filePath).exists()) {
+                        filePaths.add(filePath);
+                    }
+                }
+            }
+            Map<String, Map<String, List<Integer>>> file2violations = filePaths.isEmpty() ? new LinkedHashMap<>()
+                    : Schedule.getInstance().analyzeFiles(analyzer, new ArrayList<>(filePaths), seedPath, seedFolderName, THREAD_COUNT);
+            for (Finding finding : batch) {
+                String verdict = getVerdict(file2violations.get(finding.parent), file2violations.get(finding.mutant), finding.rule, finding.kind);
+                verdict2count.merge(verdict, 1, Integer::sum);
+                ObjectNode node = mapper.createObjectNode();
+                node.put("analyzer", finding.analyzer);
+                node.put("rule", finding.rule);
+                node.put("kind", finding.kind);
+                node.put("seed", finding.seed);
+                node.put("parent", finding.parent);
+                node.put("mutant", finding.mutant);
+                node.put("seq", finding.seq);
+                node.put("verdict", verdict);
+                verdicts.add(node);
+            }
+        }
+        if (analyzer.equals("CheckStyle")) {
+            Schedule.file2config.remove(seedPath);
+        }
+    }
+
+    // The triage of TypeWrapper on the new reports: more violations of the rule in the mutant than in its parent is a FP,
+    // fewer is a FN. A file that could not be analyzed or does not exist any more gives an error.
+    static String getVerdict(Map<String, List<Integer>> parentViolations, Map<String, List<Integer>> mutantViolations, String rule, String kind) {
+        if (parentViolations == null || mutantViolations == null) {
+            return ERROR;
+        }
+        int parentCount = parentViolations.getOrDefault(rule, List.of()).size();
+        int mutantCount = mutantViolations.getOrDefault(rule, List.of()).size();
+        if (parentCount == mutantCount) {
+            return FIXED;
+        }
+        String current = mutantCount > parentCount ? "FP" : "FN";
+        return current.equals(kind) ? STILL_FAILING : CHANGED;
+    }
+
+    // Findings of the previous run, from its result store if it has one. Findings of results/<rule>.json without an
+    // analyzer folder belong to defaultAnalyzer, their parents are unknown and replaced by the seed.
+    public static List<Finding> loadFindings(File previousFolder, String defaultAnalyzer) {
+        Map<String, Finding> key2finding = new LinkedHashMap<>();
+        File storeFolder = new File(previousFolder, "results_store");
+        if (new File(storeFolder, "mutant.col").exists()) {
+            try (ResultStore.Reader reader = new ResultStore.Reader(storeFolder)) {
+                for (int row = 0; row < reader.getRows(); row++) {
+                    ResultStore.Row result = reader.get(row);
+                    if (!result.kind.equals(ResultStore.KINDS[ResultStore.CLEAN])) {
+                        Finding finding = new Finding(relocate(result.mutant, previousFolder), relocate(result.parent, previousFolder),
+                                result.seed, result.seq, result.analyzer, result.rule, result.kind);
+                        key2finding.putIfAbsent(finding.getKey(), finding);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot read the result store of " + previousFolder + ": " + e.getMessage());
+            }
+            return new ArrayList<>(key2finding.values());
+        }
+        File resultFolder = new File(previousFolder, "results");
+        File[] children = resultFolder.listFiles();
+        if (children == null) {
+            System.err.println("No results in " + previousFolder.getAbsolutePath());
+            return new ArrayList<>();
+        }
+        for (File child : children) {
+            if (child.isDirectory()) {
+                readResultFolder(child, child.getName(), key2finding); // results/<analyzer> of a multi-analyzer campaign
+            }
+        }
+        readResultFolder(resultFolder, defaultAnalyzer, key2finding);
+        List<Finding> findings = new ArrayList<>();
+        for (Finding finding : key2finding.values()) {
+            findings.add(new Finding(relocate(finding.mutant, previousFolder), relocate(finding.parent, previousFolder),
+                    finding.seed, finding.seq, finding.analyzer, finding.rule, finding.kind));
+        }
+        return findings;
+    }
+
+    // Paths are stored below the EVALUATION_PATH of the previous run, which had to be moved for this one
+    static String relocate(String path, File previousFolder) {
+        String marker = File.separator + "mutants" + File.separator;
+        int index = path.lastIndexOf(marker);
+        if (index < 0 || new File(path).exists()) {
+            return path;
+        }
+        return new File(previousFolder, path.substring(index + 1)).getPath();
+    }
+
+    private static void readResultFolder(File folder, String analyzer, Map<String, Finding> key2finding) {
+        ObjectMapper mapper = new ObjectMapper();
+        File[] files = folder.listFiles((dir, name) -> name.endsWith(".json") && !name.equals("clusters.json"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            try {
+                JsonNode root = mapper.readTree(file);
+                String rule = root.path("Rule").asText();
+                for (JsonNode bug : root.path("Results")) {
+                    String seq = bug.path("Transform_Sequence").asText();
+                    for (JsonNode tuple : bug.path("Bugs")) {
+                        Finding finding = new Finding(tuple.path("Mutant").asText(), null, tuple.path("Seed").asText(), seq,
+                                analyzer, rule, tuple.path("BugType").asText());
+                        key2finding.putIfAbsent(finding.getKey(), finding);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Cannot read the result file: " + file.getAbsolutePath());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,163 @@
+package edu.polyu.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Description: Command line queries on the ResultStore of a finished campaign, e.g.
+ * java -cp Statfier.jar edu.polyu.util.ResultQuery EVALUATION_PATH/results_store rule=UnusedPrivateField kind=FP --limit 20
+ * Filters: rule=, seed=, transform=, seq=, analyzer=, kind= (clean, FP or FN); seed also matches a path suffix,
+ * transform matches every sequence that applies the transform. Filters on the indexed columns read only the matching rows.
+ * Options: --count prints the number of matching rows, --group <column> the number of matching rows per value of a column.
+ */
+public class ResultQuery {
+
+    private final ResultStore.Reader reader;
+    private final List<String[]> filters = new ArrayList<>(); // column, value
+    private String kind = null;
+
+    public ResultQuery(ResultStore.Reader reader) {
+        this.reader = reader;
+    }
+
+    public ResultQuery filter(String column, String value) {
+        if (column.equals("kind")) {
+            kind = value;
+        } else {
+            if (!column.equals("transform")) {
+                ResultStore.Reader.columnOf(column);
+            }
+            filters.add(new String[] {column, value});
+        }
+        return this;
+    }
+
+    // Ids of the matching rows in row order
+    public int[] rows() throws IOException {
+        int[] rows = null;
+        for (String[] filter : filters) {
+            String column = filter[0].equals("transform") ? "seq" : filter[0];
+            List<String> values = reader.getValues(column);
+            List<Integer> valueIds = new ArrayList<>();
+            for (int id = 0; id < values.size(); id++) {
+                if (matches(filter[0], values.get(id), filter[1])) {
+                    valueIds.add(id);
+                }
+            }
+            int[] found = reader.find(column, valueIds);
+            rows = rows == null ? found : intersect(rows, found);
+        }
+        if (rows == null) {
+            rows = new int[reader.getRows()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = i;
+            }
+        }
+        if (kind == null) {
+            return rows;
+        }
+        List<Integer> kept = new ArrayList<>();
+        for (int row : rows) {
+            if (reader.get(row).kind.equalsIgnoreCase(kind)) {
+                kept.add(row);
+            }
+        }
+        return kept.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    static boolean matches(String column, String value, String expected) {
+        if (column.equals("transform")) {
+            return Arrays.asList(value.replace("[", "").replace("]", "").split(",\\s*")).contains(expected);
+        }
+        if (column.equals("seed")) {
+            return value.equals(expected) || value.endsWith(File.separator + expected);
+        }
+        return value.equals(expected);
+    }
+
+    private static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int i = 0;
+        int j = 0;
+        int size = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[size++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ResultQuery <store folder> [rule=|seed=|transform=|seq=|analyzer=|kind=value]... [--count] [--group column] [--limit n]");
+            System.exit(-1);
+        }
+        try (ResultStore.Reader reader = new ResultStore.Reader(new File(args[0]))) {
+            ResultQuery query = new ResultQuery(reader);
+            boolean count = false;
+            String group = null;
+            int limit = Integer.MAX_VALUE;
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--count")) {
+                    count = true;
+                } else if (args[i].equals("--group") && i + 1 < args.length) {
+                    group = args[++i];
+                } else if (args[i].equals("--limit") && i + 1 < args.length) {
+                    limit = Integer.parseInt(args[++i]);
+                } else if (args[i].contains("=")) {
+                    query.filter(args[i].substring(0, args[i].indexOf('=')), args[i].substring(args[i].indexOf('=') + 1));
+                } else {
+                    System.err.println("Unknown argument: " + args[i]);
+                    System.exit(-1);
+                }
+            }
+            print(reader, query.rows(), count, group, limit, System.out);
+        }
+    }
+
+    static void print(ResultStore.Reader reader, int[] rows, boolean count, String group, int limit, PrintStream out) throws IOException {
+        if (count) {
+            out.println(rows.length);
+            return;
+        }
+        if (group != null) {
+            Map<String, Integer> value2count = new TreeMap<>();
+            for (int row : rows) {
+                ResultStore.Row result = reader.get(row);
+                String value;
+                switch (group) {
+                    case "seed": value = result.seed; break;
+                    case "seq": value = result.seq; break;
+                    case "analyzer": value = result.analyzer; break;
+                    case "rule": value = result.rule; break;
+                    case "kind": value = result.kind; break;
+                    default:
+                        throw new IllegalArgumentException("Cannot group by " + group);
+                }
+                value2count.merge(value, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : value2count.entrySet()) {
+                out.println(entry.getValue() + "\t" + entry.getKey());
+            }
+            return;
+        }
+        out.println("id\tmutant\tparent\tseed\tseq\tanalyzer\trule\tkind\tdelta");
+        for (int i = 0; i < rows.length && i < limit; i++) {
+            out.println(reader.get(rows[i]));
+        }
+    }
+
+}
@@ -0,0 +1,447 @@
+package edu.polyu.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Description: Column store of the analyzed mutants of a campaign, one row per (mutant, analyzer) outcome: a clean
+ * mutant gets one row, a mutant with findings one row per rule and kind. Rows are appended while the campaign runs.
+ * Every column is a file of fixed-width values:
+ * - mutant.col holds offsets into mutant.str, the length-prefixed UTF-8 paths of the mutant and its parent, so the row of
+ *   a mutant is its mutant ID;
+ * - seed, seq, analyzer and rule hold ids of the values in the <column>.dict files, one value per line;
+ * - kind holds a byte, see CLEAN, FP and FN, and delta the violations of the mutant minus those of its parent.
+ * close() writes a posting list per dictionary value to <column>.idx, so queries read only the matching rows.
+ */
+public class ResultStore {
+
+    public static final byte CLEAN = 0;
+    public static final byte FP = 1;
+    public static final byte FN = 2;
+    public static final String[] KINDS = {"clean", "FP", "FN"};
+    public static final String[] DICT_COLUMNS = {"seed", "seq", "analyzer", "rule"};
+
+    private static ResultStore instance;
+
+    private final File folder;
+    private final List<Map<String, Integer>> dicts = new ArrayList<>();
+    private final List<Writer> dictWriters = new ArrayList<>();
+    private final List<DataOutputStream> dictColumns = new ArrayList<>();
+    private final DataOutputStream mutantColumn;
+    private final DataOutputStream mutantStrings;
+    private final DataOutputStream kindColumn;
+    private final DataOutputStream deltaColumn;
+    private long stringOffset;
+    private int rows;
+
+    // Rows of an existing store in the folder are kept and appended to
+    public ResultStore(File folder) throws IOException {
+        this.folder = folder;
+        folder.mkdirs();
+        truncatePartialRow();
+        for (String column : DICT_COLUMNS) {
+            File dictFile = new File(folder, column + ".dict");
+            Map<String, Integer> dict = new HashMap<>();
+            for (String value : readDict(dictFile)) {
+                dict.put(value, dict.size());
+            }
+            dicts.add(dict);
+            dictWriters.add(Files.newBufferedWriter(dictFile.toPath(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+            dictColumns.add(open(column + ".col"));
+        }
+        this.mutantColumn = open("mutant.col");
+        this.mutantStrings = open("mutant.str");
+        this.kindColumn = open("kind.col");
+        this.deltaColumn = open("delta.col");
+        this.stringOffset = new File(folder, "mutant.str").length();
+        this.rows = (int) (new File(folder, "mutant.col").length() / Long.BYTES);
+        for (String column : DICT_COLUMNS) {
+            new File(folder, column + ".idx").delete(); // rebuilt by close()
+        }
+    }
+
+    public static void init(File folder) {
+        try {
+            instance = new ResultStore(folder);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the result store " + folder, e);
+        }
+    }
+
+    public static boolean isEnabled() {
+        return instance != null;
+    }
+
+    public static ResultStore getInstance() {
+        return instance;
+    }
+
+    // Close the store of the campaign and build its indexes
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.close();
+            instance = null;
+        }
+    }
+
+    // A store that was not closed may end with a partial row, which is cut off before rows are appended
+    private void truncatePartialRow() throws IOException {
+        File mutantFile = new File(folder, "mutant.col");
+        if (!mutantFile.exists()) {
+            return;
+        }
+        long count = Math.min(mutantFile.length() / Long.BYTES, new File(folder, "kind.col").length());
+        count = Math.min(count, new File(folder, "delta.col").length() / Integer.BYTES);
+        for (String column : DICT_COLUMNS) {
+            count = Math.min(count, new File(folder, column + ".col").length() / Integer.BYTES);
+        }
+        long stringEnd = 0;
+        try (RandomAccessFile mutants = new RandomAccessFile(mutantFile, "rw");
+             RandomAccessFile strings = new RandomAccessFile(new File(folder, "mutant.str"), "rw")) {
+            // the last row is dropped as well if its path was not written completely
+            while (count > 0) {
+                mutants.seek((count - 1) * Long.BYTES);
+                long offset = mutants.readLong();
+                long end = offset;
+                for (int i = 0; i < 2 && end + Integer.BYTES <= strings.length(); i++) {
+                    strings.seek(end);
+                    end += Integer.BYTES + strings.readInt();
+                }
+                if (end > offset && end <= strings.length() && isComplete(strings, offset, end)) {
+                    stringEnd = end;
+                    break;
+                }
+                count--;
+            }
+            mutants.setLength(count * Long.BYTES);
+            strings.setLength(stringEnd);
+        }
+        truncate("kind.col", count);
+        truncate("delta.col", count * Integer.BYTES);
+        for (String column : DICT_COLUMNS) {
+            truncate(column + ".col", count * Integer.BYTES);
+        }
+    }
+
+    // The mutant path and the parent path of a row are both in the string heap
+    private static boolean isComplete(RandomAccessFile strings, long offset, long end) throws IOException {
+        strings.seek(offset);
+        long parentOffset = offset + Integer.BYTES + strings.readInt();
+        if (parentOffset + Integer.BYTES > end) {
+            return false;
+        }
+        strings.seek(parentOffset);
+        return parentOffset + Integer.BYTES + strings.readInt() == end;
+    }
+
+    private void truncate(String name, long length) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(folder, name), "rw")) {
+            file.setLength(length);
+        }
+    }
+
+    private DataOutputStream open(String name) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(folder, name), true), 1 << 16));
+    }
+
+    public synchronized void append(String mutant, String parent, String seed, String seq, String analyzer, String rule, byte kind, int delta) {
+        try {
+            String[] values = {seed, seq, analyzer, rule};
+            for (int i = 0; i < values.length; i++) {
+                dictColumns.get(i).writeInt(encode(i, values[i] == null ? "" : values[i]));
+            }
+            mutantColumn.writeLong(stringOffset);
+            for (String path : new String[] {mutant, parent == null ? "" : parent}) {
+                byte[] bytes = path.getBytes(StandardCharsets.UTF_8);
+                mutantStrings.writeInt(bytes.length);
+                mutantStrings.write(bytes);
+                stringOffset += Integer.BYTES + bytes.length;
+            }
+            kindColumn.writeByte(kind);
+            deltaColumn.writeInt(delta);
+            rows++;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot append to the result store", e);
+        }
+    }
+
+    public synchronized int getRows() {
+        return rows;
+    }
+
+    private int encode(int column, String value) throws IOException {
+        Map<String, Integer> dict = dicts.get(column);
+        Integer id = dict.get(value);
+        if (id == null) {
+            id = dict.size();
+            dict.put(value, id);
+            // line breaks would split the value in the dictionary file. New values are flushed at once, so the
+            // dictionary always covers the ids of the flushed column files
+            dictWriters.get(column).write(value.replace('\n', ' ').replace('\r', ' '));
+            dictWriters.get(column).write('\n');
+            dictWriters.get(column).flush();
+        }
+        return id;
+    }
+
+    public synchronized void close() {
+        try {
+            for (Writer writer : dictWriters) {
+                writer.close();
+            }
+            for (DataOutputStream column : dictColumns) {
+                column.close();
+            }
+            mutantColumn.close();
+            mutantStrings.close();
+            kindColumn.close();
+            deltaColumn.close();
+            for (int i = 0; i < DICT_COLUMNS.length; i++) {
+                buildIndex(DICT_COLUMNS[i], dicts.get(i).size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close the result store " + folder, e);
+        }
+    }
+
+    // <column>.idx: value count, then (posting count, offset of the postings) per value id, then the row numbers.
+    // The postings are sorted by a counting sort over the column, which is read into memory once.
+    private void buildIndex(String column, int values) throws IOException {
+        File columnFile = new File(folder, column + ".col");
+        int rowCount = (int) (columnFile.length() / Integer.BYTES);
+        int[] valueIds = new int[rowCount];
+        try (DataInputStream input = openInput(columnFile)) {
+            for (int row = 0; row < rowCount; row++) {
+                valueIds[row] = input.readInt();
+            }
+        }
+        int[] starts = new int[values + 1];
+        for (int valueId : valueIds) {
+            starts[valueId + 1]++;
+        }
+        for (int value = 0; value < values; value++) {
+            starts[value + 1] += starts[value];
+        }
+        int[] postings = new int[rowCount];
+        int[] next = Arrays.copyOf(starts, values);
+        for (int row = 0; row < rowCount; row++) {
+            postings[next[valueIds[row]]++] = row;
+        }
+        long headerSize = Integer.BYTES + (long) values * (Integer.BYTES + Long.BYTES);
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(new File(folder, column + ".idx")), 1 << 16))) {
+            output.writeInt(values);
+            for (int value = 0; value < values; value++) {
+                output.writeInt(starts[value + 1] - starts[value]);
+                output.writeLong(headerSize + (long) starts[value] * Integer.BYTES);
+            }
+            for (int row : postings) {
+                output.writeInt(row);
+            }
+        }
+    }
+
+    private static DataInputStream openInput(File file) throws IOException {
+        return new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+    }
+
+    static List<String> readDict(File dictFile) throws IOException {
+        List<String> values = new ArrayList<>();
+        if (dictFile.exists()) {
+            try (BufferedReader reader = Files.newBufferedReader(dictFile.toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    values.add(line);
+                }
+            }
+        }
+        return values;
+    }
+
+    public static class Row {
+        public final int id;
+        public final String mutant;
+        public final String parent;
+        public final String seed;
+        public final String seq;
+        public final String analyzer;
+        public final String rule;
+        public final String kind;
+        public final int delta;
+
+        Row(int id, String mutant, String parent, String seed, String seq, String analyzer, String rule, String kind, int delta) {
+            this.id = id;
+            this.mutant = mutant;
+            this.parent = parent;
+            this.seed = seed;
+            this.seq = seq;
+            this.analyzer = analyzer;
+            this.rule = rule;
+            this.kind = kind;
+            this.delta = delta;
+        }
+
+        @Override
+        public String toString() {
+            return id + "\t" + mutant + "\t" + parent + "\t" + seed + "\t" + seq + "\t" + analyzer + "\t" + rule + "\t" + kind + "\t" + delta;
+        }
+    }
+
+    /**
+     * Random access to a closed store. Dictionaries are loaded, rows are read from the column files on demand.
+     */
+    public static class Reader implements AutoCloseable {
+
+        private final File folder;
+        private final List<List<String>> dicts = new ArrayList<>();
+        private final RandomAccessFile[] dictColumns = new RandomAccessFile[DICT_COLUMNS.length];
+        private final RandomAccessFile mutantColumn;
+        private final RandomAccessFile mutantStrings;
+        private final RandomAccessFile kindColumn;
+        private final RandomAccessFile deltaColumn;
+        private final int rows;
+
+        public Reader(File folder) throws IOException {
+            this.folder = folder;
+            if (!new File(folder, "mutant.col").exists()) {
+                throw new IOException("No result store in " + folder);
+            }
+            for (int i = 0; i < DICT_COLUMNS.length; i++) {
+                dicts.add(readDict(new File(folder, DICT_COLUMNS[i] + ".dict")));
+                dictColumns[i] = new RandomAccessFile(new File(folder, DICT_COLUMNS[i] + ".col"), "r");
+            }
+            this.mutantColumn = new RandomAccessFile(new File(folder, "mutant.col"), "r");
+            this.mutantStrings = new RandomAccessFile(new File(folder, "mutant.str"), "r");
+            this.kindColumn = new RandomAccessFile(new File(folder, "kind.col"), "r");
+            this.deltaColumn = new RandomAccessFile(new File(folder, "delta.col"), "r");
+            // a store that was not closed may end with a partial row
+            long count = Math.min(mutantColumn.length() / Long.BYTES, kindColumn.length());
+            count = Math.min(count, deltaColumn.length() / Integer.BYTES);
+            for (RandomAccessFile column : dictColumns) {
+                count = Math.min(count, column.length() / Integer.BYTES);
+            }
+            this.rows = (int) count;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        public static int columnOf(String column) {
+            int index = Arrays.asList(DICT_COLUMNS).indexOf(column);
+            if (index < 0) {
+                throw new IllegalArgumentException("Unknown column: " + column + ", expected one of " + Arrays.toString(DICT_COLUMNS));
+            }
+            return index;
+        }
+
+        public List<String> getValues(String column) {
+            return dicts.get(columnOf(column));
+        }
+
+        // Rows whose column has one of the values with the given ids, in row order
+        public int[] find(String column, List<Integer> valueIds) throws IOException {
+            int index = columnOf(column);
+            File indexFile = new File(folder, column + ".idx");
+            List<int[]> postings = new ArrayList<>();
+            int total = 0;
+            if (indexFile.exists()) {
+                try (RandomAccessFile input = new RandomAccessFile(indexFile, "r")) {
+                    int values = input.readInt();
+                    for (int valueId : valueIds) {
+                        if (valueId >= values) {
+                            continue;
+                        }
+                        input.seek(Integer.BYTES + (long) valueId * (Integer.BYTES + Long.BYTES));
+                        int count = input.readInt();
+                        long offset = input.readLong();
+                        byte[] bytes = new byte[count * Integer.BYTES];
+                        input.seek(offset);
+                        input.readFully(bytes);
+                        int[] rowIds = new int[count];
+                        ByteBuffer.wrap(bytes).asIntBuffer().get(rowIds);
+                        postings.add(rowIds);
+                        total += count;
+                    }
+                }
+            } else {
+                // without an index the column is scanned
+                List<Integer> matches = new ArrayList<>();
+                try (DataInputStream input = openInput(new File(folder, column + ".col"))) {
+                    for (int row = 0; row < rows; row++) {
+                        if (valueIds.contains(input.readInt())) {
+                            matches.add(row);
+                        }
+                    }
+                }
+                postings.add(matches.stream().mapToInt(Integer::intValue).toArray());
+                total = matches.size();
+            }
+            int[] result = new int[total];
+            int position = 0;
+            for (int[] rowIds : postings) {
+                System.arraycopy(rowIds, 0, result, position, rowIds.length);
+                position += rowIds.length;
+            }
+            Arrays.sort(result);
+            // rows appended after the index was built are not in the index
+            int end = result.length;
+            while (end > 0 && result[end - 1] >= rows) {
+                end--;
+            }
+            return end == result.length ? result : Arrays.copyOf(result, end);
+        }
+
+        public Row get(int row) throws IOException {
+            String[] values = new String[DICT_COLUMNS.length];
+            for (int i = 0; i < DICT_COLUMNS.length; i++) {
+                dictColumns[i].seek((long) row * Integer.BYTES);
+                int id = dictColumns[i].readInt();
+                values[i] = id < dicts.get(i).size() ? dicts.get(i).get(id) : "";
+            }
+            mutantColumn.seek((long) row * Long.BYTES);
+            mutantStrings.seek(mutantColumn.readLong());
+            String[] paths = new String[2];
+            for (int i = 0; i < paths.length; i++) {
+                byte[] bytes = new byte[mutantStrings.readInt()];
+                mutantStrings.readFully(bytes);
+                paths[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            kindColumn.seek(row);
+            byte kind = kindColumn.readByte();
+            deltaColumn.seek((long) row * Integer.BYTES);
+            int delta = deltaColumn.readInt();
+            return new Row(row, paths[0], paths[1], values[0], values[1], values[2], values[3], KINDS[kind], delta);
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RandomAccessFile column : dictColumns) {
+                column.close();
+            }
+            mutantColumn.close();
+            mutantStrings.close();
+            kindColumn.close();
+            deltaColumn.close();
+        }
+    }
+
+}
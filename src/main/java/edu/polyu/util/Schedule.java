@@ -1,80 +1,69 @@
 package edu.polyu.util;
 
-import static edu.polyu.util.Invoker.compileJavaSourceFile;
-import static edu.polyu.util.Invoker.createSonarQubeProject;
-import static edu.polyu.util.Invoker.deleteSonarQubeProject;
 import static edu.polyu.util.Invoker.failedCommands;
-import static edu.polyu.util.Invoker.invokeCheckStyle;
-import static edu.polyu.util.Invoker.invokeCommandsByZT;
-import static edu.polyu.util.Invoker.invokeCommandsByZTWithOutput;
-import static edu.polyu.util.Invoker.invokeInfer;
-import static edu.polyu.util.Invoker.invokePMD;
-import static edu.polyu.util.Invoker.invokeSonarQube;
-import static edu.polyu.util.Invoker.invokeSpotBugs;
-import static edu.polyu.util.Invoker.writeSettingFile;
-import static edu.polyu.util.Utility.CHECKSTYLE_PATH;
+import static edu.polyu.util.Utility.ANALYZER_THREADS;
+import static edu.polyu.util.Utility.BANDIT_PRIORS_PATH;
+import static edu.polyu.util.Utility.BANDIT_SCHEDULING;
 import static edu.polyu.util.Utility.EVALUATION_PATH;
-import static edu.polyu.util.Utility.FINDSECBUGS_PATH;
 import static edu.polyu.util.Utility.INFER_MUTATION;
-import static edu.polyu.util.Utility.INFER_PATH;
-import static edu.polyu.util.Utility.JAVAC_PATH;
-import static edu.polyu.util.Utility.Path2Last;
+import static edu.polyu.util.Utility.PARSE_THREADS;
 import static edu.polyu.util.Utility.RESULT_FOLDER;
 import static edu.polyu.util.Utility.SEARCH_DEPTH;
-import static edu.polyu.util.Utility.DEBUG;
-import static edu.polyu.util.Utility.SEED_PATH;
-import static edu.polyu.util.Utility.SONARQUBE_PROJECT_NAME;
-import static edu.polyu.util.Utility.SONARSCANNER_PATH;
+import static edu.polyu.util.Utility.SONARQUBE_MUTATION;
 import static edu.polyu.util.Utility.SPOTBUGS_MUTATION;
-import static edu.polyu.util.Utility.SPOTBUGS_PATH;
-import static edu.polyu.util.Utility.SonarQubeRuleNames;
 import static edu.polyu.util.Utility.CLASS_FOLDER;
+import static edu.polyu.util.Utility.COMPILE;
 import static edu.polyu.util.Utility.compactIssues;
 import static edu.polyu.util.Utility.failedReportPaths;
 import static edu.polyu.util.Utility.failedT;
 import static edu.polyu.util.Utility.failedToolExecution;
 import static edu.polyu.util.Utility.file2row;
-import static edu.polyu.util.Utility.getFilePathsFromFolder;
 import static edu.polyu.util.Utility.getFilenamesFromFolder;
-import static edu.polyu.util.Utility.inferJarStr;
 import static edu.polyu.util.Utility.MUTANT_FOLDER;
 import static edu.polyu.util.Utility.reg_sep;
-import static edu.polyu.util.Utility.REPORT_FOLDER;
+import static edu.polyu.util.Utility.WORK_PATH;
 import static edu.polyu.util.Utility.sep;
 import static edu.polyu.util.Utility.subSeedFolderNameList;
 import static edu.polyu.util.Utility.successfulT;
-import static edu.polyu.util.Utility.waitTaskEnd;
 import static edu.polyu.util.Utility.writeLinesToFile;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.nio.file.Paths;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.analyzer.AnalysisEngine;
+import edu.polyu.analyzer.Analyzer;
+import edu.polyu.analyzer.MutantRef;
+import edu.polyu.analyzer.SonarQubeAnalyzer;
+import edu.polyu.analyzer.Violations;
+import edu.polyu.analysis.MutantHandle;
 import edu.polyu.analysis.TypeWrapper;
-import edu.polyu.report.CheckStyleReport;
-import edu.polyu.report.CodeNaviReport;
-import edu.polyu.report.InferReport;
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
+import edu.polyu.reduction.FindingClusterer;
 import edu.polyu.report.PMDReport;
-import edu.polyu.report.SonarQubeReport;
-import edu.polyu.report.SpotBugsReport;
-import edu.polyu.thread.CodeNaviInvokeThread;
+import edu.polyu.transform.BeamSearch;
 import edu.polyu.transform.Transform;
-import net.sourceforge.pmd.PMD;
-import net.sourceforge.pmd.PMDConfiguration;
-import org.json.JSONObject;
+import edu.polyu.transform.TransformBandit;
 
 public class Schedule {
 
@@ -87,433 +76,492 @@ public class Schedule {
         return tester;
     }
 
-    private HashMap<String, List<TypeWrapper>> bug2wrappers = new HashMap<>();
+    // Frontier of the mutants of each bucket that are expanded at the next depth
+    private HashMap<String, Frontier> bug2wrappers = new HashMap<>();
 
-    public void executePMDTransform(String seedFolderPath) {
-        invokePMD(seedFolderPath);
+    // Namespaces of the analyzers of a multi-analyzer campaign, empty if only one analyzer is enabled
+    public static final List<AnalyzerSpace> analyzerSpaces = new ArrayList<>();
+
+    // CheckStyle config of every seed, its mutants are checked with the same config
+    public static Map<String, String> file2config = new HashMap<>();
+
+    private final AtomicInteger analysisCounter = new AtomicInteger(0);
+    // Parses the parents of a chunk right before they are expanded, created on first use
+    private ExecutorService parsePool;
+    // Handles that could not be parsed and were dropped from the frontier, see load()
+    private static final List<String> failedParses = new ArrayList<>();
+
+    // Run the campaign of the enabled static analyzer over seedFolderPath, return false if no analyzer is enabled
+    public boolean executeTransform(String seedFolderPath) {
+        List<String> analyzers = Utility.getEnabledAnalyzers();
+        if (analyzers.isEmpty()) {
+            return false;
+        }
+        if (analyzers.size() > 1) {
+            System.out.println("Starting multi-analyzer analysis: " + analyzers);
+            executeMultiTransform(seedFolderPath, analyzers);
+        } else if (SONARQUBE_MUTATION) {
+            System.out.println("Starting SonarQube analysis...");
+            executeSonarQubeTransform(seedFolderPath);
+        } else {
+            System.out.println("Starting " + analyzers.get(0) + " analysis...");
+            executeCampaign(seedFolderPath, AnalysisEngine.getAnalyzer(analyzers.get(0)));
+        }
+        return true;
+    }
+
+    // The seeds with violations are expanded depth by depth and bucket by bucket, the mutants of every chunk are handed
+    // to the analyzer by the AnalysisEngine and the mutants that pass the triage are expanded at the next depth
+    public void executeCampaign(String seedFolderPath, Analyzer analyzer) {
+        checkCompilation(analyzer);
+        analyzer.analyzeSeeds(seedFolderPath);
         List<String> seedPaths = getFilenamesFromFolder(seedFolderPath, true);
         System.out.println("All Initial Seed Count: " + seedPaths.size());
-        HashMap<String, HashSet<String>> category2bugTypes = new HashMap<>();
         int initSeedWrapperSize = 0;
-        for (int index = 0; index < seedPaths.size(); index++) {
-            String seedPath = seedPaths.get(index);
-            if (!file2row.containsKey(seedPath)) {
+        for (String seedPath : seedPaths) {
+            if (!file2row.containsKey(seedPath) || Incremental.isReused(seedPath)) {
                 continue;
             }
             String[] tokens = seedPath.split(reg_sep);
             String seedFolderName = tokens[tokens.length - 2];
-            String category = seedFolderName.split("_")[0];
-            String bugType = seedFolderName.split("_")[1];
-            if (category2bugTypes.containsKey(category)) {
-                category2bugTypes.get(category).add(bugType);
-            } else {
-                HashSet<String> types = new HashSet<>();
-                types.add(bugType);
-                category2bugTypes.put(category, types);
-            }
             initSeedWrapperSize++;
-            TypeWrapper seedWrapper = new TypeWrapper(seedPath, seedFolderName);
-            if (bug2wrappers.containsKey(seedFolderName)) {
-                bug2wrappers.get(seedFolderName).add(seedWrapper);
-            } else {
-                List<TypeWrapper> wrappers = new ArrayList<>();
-                wrappers.add(seedWrapper);
-                bug2wrappers.put(seedFolderName, wrappers);
-            }
+            addSeed(seedPath, seedFolderName);
         }
         System.out.println("Initial Wrappers Size: " + initSeedWrapperSize);
+        TimeBudget.getInstance().register(bug2wrappers.keySet());
         for (int depth = 1; depth <= SEARCH_DEPTH; depth++) {
-            for (Map.Entry<String, HashSet<String>> entry : category2bugTypes.entrySet()) {
-                String ruleCategory = entry.getKey();
-                HashSet<String> bugTypes = entry.getValue();
-                for (String bugType : bugTypes) {
-                    String seedFolderName = ruleCategory + "_" + bugType;
-                    List<TypeWrapper> wrappers = new ArrayList<>() {
-                        {
-                            addAll(bug2wrappers.get(seedFolderName));
-                        }
-                    };
-                    bug2wrappers.get(seedFolderName).clear();
-                    if (DEBUG) {
-                        System.out.println("Detection: " + seedFolderName);
-                        System.out.println("Seed FolderName: " + seedFolderName + " Depth: " + depth + " Wrapper Size: " + wrappers.size());
-                    }
-                    List<TypeWrapper> newWrappers = Transform.singleLevelExplorer(wrappers);
-                    String resultFilePath = REPORT_FOLDER.getAbsolutePath() + sep + "iter" + depth + "_" + seedFolderName + "_Result.json";
-                    String mutantFolderPath = MUTANT_FOLDER + sep + "iter" + depth + sep + seedFolderName;
-                    PMDConfiguration pmdConfig = new PMDConfiguration();
-                    pmdConfig.setInputPathList(getFilePathsFromFolder(mutantFolderPath));
-                    pmdConfig.setRuleSets(new ArrayList<>() {
-                        {
-                            add("category/java/" + ruleCategory + ".xml/" + bugType);
-                        }
-                    });
-                    pmdConfig.setReportFormat("json");
-                    pmdConfig.setReportFile(Paths.get(resultFilePath));
-                    pmdConfig.setIgnoreIncrementalAnalysis(true);
-                    PMD.runPmd(pmdConfig); // detect mutants of level i
-                    PMDReport.readPMDResultFile(resultFilePath);
+            int currentDepth = depth;
+            for (String bucket : new ArrayList<>(bug2wrappers.keySet())) {
+                exploreBucket(bucket, mutantWrappers -> {
                     List<TypeWrapper> validWrappers = new ArrayList<>();
-                    for (int i = 0; i < newWrappers.size(); i++) {
-                        TypeWrapper newWrapper = newWrappers.get(i);
-                        if (!newWrapper.isBuggy()) {
-                            validWrappers.add(newWrapper);
+                    for (TypeWrapper mutantWrapper : analyzeMutants(analyzer, mutantWrappers, bucket, currentDepth)) {
+                        if (!mutantWrapper.isBuggy()) {
+                            validWrappers.add(mutantWrapper);
                         }
                     }
-                    if (bug2wrappers.get(seedFolderName).size() > 0) {
-                        System.err.println("Exception in Seed Size.");
-                        System.exit(-1);
-                    }
-                    bug2wrappers.get(seedFolderName).addAll(validWrappers);
-                }
+                    return validWrappers;
+                });
             }
         }
     }
 
-    public void executeSpotBugsTransform(String initSeedFolderPath) {
-        invokeSpotBugs(initSeedFolderPath);
-        List<String> seedFilePaths = getFilenamesFromFolder(initSeedFolderPath, true);
-        System.out.println("All Initial Seed Summary Number: " + seedFilePaths.size());
-        int initValidSeedWrapperSize = 0;
-        for (int index = 0; index < seedFilePaths.size(); index++) {
-            String seedFilePath = seedFilePaths.get(index);
-            String[] tokens = seedFilePath.split(reg_sep);
-            String seedFolderName = tokens[tokens.length - 2];
-            if (!file2row.containsKey(seedFilePath)) {
-                continue;
+    // Mutants keep their package and class names unless COMPILE is set, so an analyzer that compiles them would fail on every mutant
+    private void checkCompilation(Analyzer analyzer) {
+        if (analyzer.needsCompilation()) {
+            if (!COMPILE) {
+                System.err.println(analyzer.getName() + " compiles the mutants, but they are not generated for compilation.");
             }
-            initValidSeedWrapperSize++;
-            TypeWrapper seedWrapper = new TypeWrapper(seedFilePath, seedFolderName);
-            if (!bug2wrappers.containsKey(seedWrapper.getFolderName())) {
-                bug2wrappers.put(seedWrapper.getFolderName(), new ArrayList<>());
+            Utility.ensureFolder(CLASS_FOLDER);
+        }
+    }
+
+    // Drop the wrappers of the previous campaign, used when one JVM runs several shards
+    public void reset() {
+        for (Frontier frontier : bug2wrappers.values()) {
+            frontier.close();
+        }
+        bug2wrappers.clear();
+        analyzerSpaces.clear();
+        failedParses.clear();
+    }
+
+    // Every mutant is generated, formatted and written once, then handed to each analyzer that has not flagged its parent.
+    // Analyzers take their turn on the shared mutants because report parsers fill the fields of the active AnalyzerSpace.
+    public void executeMultiTransform(String seedFolderPath, List<String> analyzers) {
+        if (analyzers.contains("SonarQube")) {
+            System.err.println("SonarQube analyzes one server project at a time and cannot share a campaign with other analyzers.");
+            System.exit(-1);
+        }
+        File reportRoot = new File(WORK_PATH + sep + "reports");
+        List<String> seedPaths = getFilenamesFromFolder(seedFolderPath, true);
+        System.out.println("All Initial Seed Count: " + seedPaths.size());
+        analyzerSpaces.clear();
+        for (String analyzer : analyzers) {
+            AnalyzerSpace space = new AnalyzerSpace(analyzer, new File(reportRoot, analyzer));
+            space.reportFolder.mkdirs();
+            space.activate();
+            Analyzer tool = AnalysisEngine.getAnalyzer(analyzer);
+            checkCompilation(tool);
+            tool.analyzeSeeds(seedFolderPath);
+            for (String seedPath : seedPaths) {
+                if (file2row.containsKey(seedPath)) {
+                    space.survivors.add(seedPath);
+                }
             }
-            bug2wrappers.get(seedWrapper.getFolderName()).add(seedWrapper);
+            System.out.println(analyzer + " Initial Valid Seed Size: " + space.survivors.size());
+            analyzerSpaces.add(space);
+        }
+        AnalyzerSpace union = AnalyzerSpace.union(analyzerSpaces, reportRoot);
+        union.activate();
+        int initSeedWrapperSize = 0;
+        for (String seedPath : seedPaths) {
+            if (!file2row.containsKey(seedPath) || Incremental.isReused(seedPath)) {
+                continue;
+            }
+            initSeedWrapperSize++;
+            String[] tokens = seedPath.split(reg_sep);
+            String seedFolderName = tokens[tokens.length - 2];
+            addSeed(seedPath, seedFolderName);
         }
-        System.out.println("Initial Valid Wrappers Size: " + initValidSeedWrapperSize);
+        System.out.println("Initial Wrappers Size: " + initSeedWrapperSize);
+        TimeBudget.getInstance().register(bug2wrappers.keySet());
         for (int depth = 1; depth <= SEARCH_DEPTH; depth++) {
-            for (Map.Entry<String, List<TypeWrapper>> entry : bug2wrappers.entrySet()) {
-                List<TypeWrapper> seedWrappers = new ArrayList<>();
-                seedWrappers.addAll(entry.getValue());
-                entry.getValue().clear();
-                List<TypeWrapper> mutantWrappers = Transform.singleLevelExplorer(seedWrappers);
-                for (int wrapperIndex = 0; wrapperIndex < mutantWrappers.size(); wrapperIndex++) {
-                    TypeWrapper mutantWrapper = mutantWrappers.get(wrapperIndex);
-                    String[] tokens = mutantWrapper.getFilePath().split(reg_sep);
-                    String seedFileNameWithSuffix = tokens[tokens.length - 1];
-                    String subSeedFolderName = tokens[tokens.length - 2];
-                    String seedFileName = seedFileNameWithSuffix.substring(0, seedFileNameWithSuffix.length() - 5);
-                    File mutantClassFolder = new File(CLASS_FOLDER.getAbsolutePath() + sep + seedFileName);
-                    if (!mutantClassFolder.exists()) {
-                        mutantClassFolder.mkdirs();
-                    }
-                    boolean isCompiled = compileJavaSourceFile(mutantWrapper.getFolderPath(), seedFileNameWithSuffix, mutantClassFolder.getAbsolutePath());
-                    if (!isCompiled) {
-                        continue;
-                    }
-                    String reportPath = REPORT_FOLDER.getAbsolutePath() + sep + subSeedFolderName + sep + seedFileName + "_Result.xml";
-                    String[] invokeCommands = new String[3];
-                    invokeCommands[0] = "/bin/bash";
-                    invokeCommands[1] = "-c";
-                    invokeCommands[2] = SPOTBUGS_PATH + " -textui"
-//                            + " -include " + configPath
-                            + " -xml:withMessages" + " -output " + reportPath + " "
-                            + mutantClassFolder.getAbsolutePath();
-                    boolean hasExec = Invoker.invokeCommandsByZT(invokeCommands);
-                    if (hasExec) {
-                        String report_path = REPORT_FOLDER.getAbsolutePath() + sep + subSeedFolderName + sep + seedFileName + "_Result.xml";
-                        SpotBugsReport.readSpotBugsResultFile(mutantWrapper.getFolderPath(), report_path);
-                        if (!mutantWrapper.isBuggy()) {
-                            entry.getValue().add(mutantWrapper);
+            AnalyzerSpace depthUnion = AnalyzerSpace.union(analyzerSpaces, reportRoot);
+            int currentDepth = depth;
+            for (String bucket : new ArrayList<>(bug2wrappers.keySet())) {
+                depthUnion.activate(); // guided locations are the violation lines of all analyzers
+                exploreBucket(bucket, mutantWrappers -> {
+                    Set<TypeWrapper> validWrappers = new LinkedHashSet<>();
+                    for (AnalyzerSpace space : analyzerSpaces) {
+                        space.activate();
+                        List<TypeWrapper> queue = new ArrayList<>();
+                        for (TypeWrapper mutantWrapper : mutantWrappers) {
+                            if (space.survivors.contains(mutantWrapper.getParentPath())) {
+                                queue.add(mutantWrapper);
+                            }
+                        }
+                        for (TypeWrapper mutantWrapper : analyzeMutants(AnalysisEngine.getAnalyzer(space.analyzer), queue, bucket, currentDepth)) {
+                            if (!mutantWrapper.isBuggy()) {
+                                space.survivors.add(mutantWrapper.getFilePath());
+                                validWrappers.add(mutantWrapper);
+                            }
                         }
-                    } else {
-                        failedToolExecution.add(invokeCommands[2]);
                     }
-                }
+                    depthUnion.activate(); // the next chunk is transformed at the violation lines of all analyzers again
+                    return new ArrayList<>(validWrappers);
+                });
             }
         }
     }
 
-    public static Map<String, String> file2config = new HashMap<>();
+    private void addSeed(String seedPath, String seedFolderName) {
+        bug2wrappers.computeIfAbsent(seedFolderName, k -> new Frontier(k, new File(EVALUATION_PATH + sep + "frontier")))
+                .add(MutantHandle.ofSeed(seedPath, seedFolderName));
+    }
 
-    public void executeCheckStyleTransform(String initSeedFolderPath) {
-        invokeCheckStyle(initSeedFolderPath);
-        List<String> seedFilePaths = getFilenamesFromFolder(initSeedFolderPath, true);
-        System.out.println("All Initial Seed Count: " + seedFilePaths.size());
-        int initValidSeedWrapperSize = 0;
-        for (int i = 0; i < seedFilePaths.size(); i++) {
-            String seedFilePath = seedFilePaths.get(i);
-            String[] tokens = seedFilePath.split(reg_sep);
-            String seedFolderName = tokens[tokens.length - 2];
-            if (!file2row.containsKey(seedFilePath)) {
-                continue;
+    // Expand the frontier of a bucket chunk by chunk, so only the mutants of Frontier.chunkSize parents are held at once.
+    // The survivors returned by analyzeChunk are admitted to the frontier of the next depth.
+    private void exploreBucket(String bucket, Function<List<TypeWrapper>, List<TypeWrapper>> analyzeChunk) {
+        Frontier frontier = bug2wrappers.get(bucket);
+        if (!beginBucket(bucket, frontier)) {
+            return;
+        }
+        // The beam bounds every seed lineage over the whole frontier, so it is applied before the frontier is chunked
+        BeamSearch.prune(frontier);
+        Frontier next = new Frontier(bucket, new File(EVALUATION_PATH + sep + "frontier"));
+        while (!frontier.isEmpty()) {
+            if (TimeBudget.getInstance().isExhausted(bucket)) {
+                TimeBudget.getInstance().stop(bucket);
+                break;
+            }
+            // While the heap is nearly full, one parent is expanded at a time and its mutants are analyzed before the next one
+            int size = Frontier.chunkSize;
+            if (Frontier.isHeapCritical()) {
+                size = 1;
+                Metrics.increment("statfier_frontier_throttled_total");
+            }
+            // Parents are not referenced after expansion, so their ASTs can be collected while the mutants are analyzed
+            List<TypeWrapper> mutantWrappers = Transform.singleLevelExplorer(load(frontier.poll(size)));
+            for (TypeWrapper survivor : analyzeChunk.apply(mutantWrappers)) {
+                next.add(survivor.toHandle());
             }
-            initValidSeedWrapperSize++;
-            TypeWrapper seedWrapper = new TypeWrapper(seedFilePath, seedFolderName);
-            if (!bug2wrappers.containsKey(seedWrapper.getFolderName())) {
-                bug2wrappers.put(seedWrapper.getFolderName(), new ArrayList<>());
+            storeResults(mutantWrappers);
+            for (TypeWrapper mutantWrapper : mutantWrappers) {
+                Tracer.release(mutantWrapper.getFilePath()); // triaged or discarded, survivors are only parents from now on
             }
-            bug2wrappers.get(seedWrapper.getFolderName()).add(seedWrapper);
         }
-        System.out.println("Initial Valid Wrappers Size: " + initValidSeedWrapperSize);
-        Set<String> visitedPaths = new HashSet<>();
-        for (int depth = 1; depth <= SEARCH_DEPTH; depth++) {
-            for (Map.Entry<String, List<TypeWrapper>> entry : bug2wrappers.entrySet()) {
-                List<TypeWrapper> wrappers = new ArrayList<>();
-                wrappers.addAll(entry.getValue());
-                entry.getValue().clear();
-                List<TypeWrapper> newWrappers = Transform.singleLevelExplorer(wrappers);
-                for (int wrapperIndex = 0; wrapperIndex < newWrappers.size(); wrapperIndex++) {
-                    TypeWrapper wrapper = newWrappers.get(wrapperIndex);
-                    String mutantFilePath = wrapper.getFilePath();
-                    if (visitedPaths.contains(mutantFilePath)) {
-                        System.out.println("Error in visiting...");
-                        System.exit(-1);
-                    }
-                    visitedPaths.add(mutantFilePath);
-                    File reportFile = new File(REPORT_FOLDER + sep + "iter" + depth + "_" + wrapper.getFileName() + ".txt");
-                    String[] invokeCommands = new String[3];
-                    invokeCommands[0] = "/bin/bash";
-                    invokeCommands[1] = "-c";
-                    String configPath = file2config.get(wrapper.getInitSeedPath());
-                    invokeCommands[2] = "java -jar " + CHECKSTYLE_PATH + " -f" + " plain" + " -o " + reportFile.getAbsolutePath() + " -c " + configPath + " " + mutantFilePath;
-                    invokeCommandsByZT(invokeCommands);
-                    if (DEBUG) {
-                        System.out.println(invokeCommands[2]);
-                    }
-                    if (!reportFile.exists() || reportFile.length() == 0) {
-                        failedToolExecution.add(invokeCommands[2]);
-                    }
-                    CheckStyleReport.readCheckStyleResultFile(reportFile.getAbsolutePath());
-                    if (!wrapper.isBuggy()) {
-                        bug2wrappers.get(entry.getKey()).add(wrapper);
-                    }
-                }
+        frontier.close();
+        bug2wrappers.put(bucket, next);
+        endBucket(bucket, next);
+    }
+
+    // Move the parsed reports of a chunk from file2bugs to the mutant store and remove the files exported for external
+    // analyzers, the files of findings are kept, see TypeWrapper.isBuggy(). With several analyzers the reports of every
+    // AnalyzerSpace are moved, the space that generates the next chunk is activated again afterwards.
+    private void storeResults(List<TypeWrapper> mutantWrappers) {
+        if (!MutantStore.enabled) {
+            return;
+        }
+        if (analyzerSpaces.isEmpty()) {
+            storeBug2lines(mutantWrappers);
+        } else {
+            AnalyzerSpace active = AnalyzerSpace.getActive();
+            for (AnalyzerSpace space : analyzerSpaces) {
+                space.activate();
+                storeBug2lines(mutantWrappers);
             }
+            active.activate();
+        }
+        for (TypeWrapper mutantWrapper : mutantWrappers) {
+            MutantStore.release(mutantWrapper.getFilePath());
         }
     }
 
-    public void executeInferTransform(String initSeedFolderPath) {
-        invokeInfer(initSeedFolderPath);
-        List<String> seedPaths = getFilenamesFromFolder(initSeedFolderPath, true);
-        System.out.println("All Initial Seed Count: " + seedPaths.size());
-        int initSeedWrapperSize = 0;
-        for (int index = 0; index < seedPaths.size(); index++) {
-            String seedPath = seedPaths.get(index);
-            String[] tokens = seedPath.split(reg_sep);
-            String seedFolderName = tokens[tokens.length - 2];
-            if (!file2row.containsKey(seedPath)) {
-                continue;
+    private void storeBug2lines(List<TypeWrapper> mutantWrappers) {
+        for (TypeWrapper mutantWrapper : mutantWrappers) {
+            synchronized (AnalysisEngine.REPORT_LOCK) {
+                MutantStore.storeBug2lines(mutantWrapper.getFilePath());
             }
-            initSeedWrapperSize++;
-            TypeWrapper seedWrapper = new TypeWrapper(seedPath, seedFolderName);
-            if (!bug2wrappers.containsKey(seedFolderName)) {
-                bug2wrappers.put(seedFolderName, new ArrayList<>());
+        }
+    }
+
+    // Parse the wrappers of the handles on PARSE_THREADS threads, the order of the handles is kept.
+    // A handle that cannot be parsed is dropped and recorded on both paths, the campaign goes on with the others.
+    private List<TypeWrapper> load(List<MutantHandle> handles) {
+        List<TypeWrapper> wrappers = new ArrayList<>();
+        if (PARSE_THREADS <= 1 || handles.size() <= 1) {
+            for (MutantHandle handle : handles) {
+                try {
+                    wrappers.add(TypeWrapper.fromHandle(handle));
+                } catch (RuntimeException e) {
+                    dropHandle(handle, e);
+                }
             }
-            bug2wrappers.get(seedFolderName).add(seedWrapper);
+            return wrappers;
         }
-        System.out.println("Initial Wrappers Size: " + initSeedWrapperSize);
-        for (int depth = 1; depth <= SEARCH_DEPTH; depth++) {
-            for (Map.Entry<String, List<TypeWrapper>> entry : bug2wrappers.entrySet()) {
-                List<TypeWrapper> wrappers = new ArrayList<>();
-                wrappers.addAll(entry.getValue());
-                entry.getValue().clear();
-                List<TypeWrapper> mutantWrappers = Transform.singleLevelExplorer(wrappers);
-                for (int i = 0; i < mutantWrappers.size(); i++) {
-                    TypeWrapper mutantWrapper = mutantWrappers.get(i);
-                    String mutantPath = mutantWrapper.getFilePath();
-                    String mutantFileName = mutantWrapper.getFileName();
-                    String REPORT_FOLDERPath = REPORT_FOLDER + sep + "iter" + depth + "_" + mutantFileName;
-                    String cmd = INFER_PATH + " run -o " + "" + REPORT_FOLDERPath + " -- " + JAVAC_PATH +
-                            " -d " + CLASS_FOLDER.getAbsolutePath() + sep + mutantFileName +
-                            " -cp " + inferJarStr + " " + mutantPath;
-                    String[] invokeCommands = new String[3];
-                    invokeCommands[0] = "/bin/bash";
-                    invokeCommands[1] = "-c";
-                    invokeCommands[2] = "python3 cmd.py " + cmd;
-                    Invoker.invokeCommandsByZT(invokeCommands);
-                    String resultFilePath = REPORT_FOLDERPath + sep + "report.json";
-                    InferReport.readSingleInferResultFile(mutantPath, resultFilePath);
-                    if (!mutantWrapper.isBuggy()) {
-                        entry.getValue().add(mutantWrapper);
-                    }
+        if (parsePool == null) {
+            parsePool = Executors.newFixedThreadPool(PARSE_THREADS, r -> {
+                Thread thread = new Thread(r, "seed-parser");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        List<Future<TypeWrapper>> futures = new ArrayList<>();
+        for (MutantHandle handle : handles) {
+            futures.add(parsePool.submit(() -> TypeWrapper.fromHandle(handle)));
+        }
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                wrappers.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropHandle(handles.get(i), e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause(); // the serial path does not catch errors either
                 }
+                dropHandle(handles.get(i), e.getCause());
             }
         }
+        return wrappers;
+    }
+
+    private void dropHandle(MutantHandle handle, Throwable e) {
+        System.err.println("Cannot parse " + handle.getFilePath() + ", it is dropped: " + e);
+        failedParses.add(handle.getFilePath());
+        Metrics.increment("statfier_parse_failures_total");
+    }
+
+    // Return false if the bucket is skipped at this depth, because it has no candidates left or its time budget is exhausted
+    private boolean beginBucket(String bucket, Frontier frontier) {
+        TimeBudget budget = TimeBudget.getInstance();
+        if (frontier.isEmpty()) {
+            budget.finish(bucket);
+            return false;
+        }
+        if (budget.isExhausted(bucket)) {
+            budget.stop(bucket);
+            return false;
+        }
+        budget.begin(bucket);
+        return true;
+    }
+
+    private void endBucket(String bucket, Frontier survivors) {
+        TimeBudget.getInstance().end(bucket);
+        if (survivors.isEmpty()) {
+            TimeBudget.getInstance().finish(bucket);
+        }
+    }
+
+    // Mutants that are not analyzed because of the drain policy are recorded as skipped and never triaged
+    private boolean canAnalyze(String filePath, String bucket) {
+        if (TimeBudget.getInstance().canAnalyze(bucket)) {
+            return true;
+        }
+        TimeBudget.getInstance().skip(filePath);
+        return false;
+    }
+
+    // The report of a mutant whose external analyzer was killed by the cancellation may be incomplete
+    private boolean isComplete(Analyzer analyzer, TypeWrapper mutantWrapper) {
+        if (analyzer.isInProcess() || !TimeBudget.getInstance().isCancelled()) {
+            return true;
+        }
+        TimeBudget.getInstance().skip(mutantWrapper.getFilePath());
+        return false;
+    }
+
+    // Return the mutants whose reports of the analyzer have been parsed and can be triaged, in the order of mutantWrappers
+    private List<TypeWrapper> analyzeMutants(Analyzer analyzer, List<TypeWrapper> mutantWrappers, String seedFolderName, int depth) {
+        Map<MutantRef, TypeWrapper> mutant2wrapper = new LinkedHashMap<>();
+        for (TypeWrapper mutantWrapper : mutantWrappers) {
+            mutant2wrapper.put(MutantRef.of(mutantWrapper, seedFolderName, depth), mutantWrapper);
+        }
+        Map<MutantRef, Violations> results = AnalysisEngine.getInstance().analyze(analyzer, new ArrayList<>(mutant2wrapper.keySet()),
+                mutant -> canAnalyze(mutant.getFilePath(), seedFolderName), ANALYZER_THREADS);
+        List<TypeWrapper> analyzed = new ArrayList<>();
+        for (Map.Entry<MutantRef, TypeWrapper> entry : mutant2wrapper.entrySet()) {
+            if (results.containsKey(entry.getKey()) && isComplete(analyzer, entry.getValue())) {
+                analyzed.add(entry.getValue());
+            }
+        }
+        return analyzed;
+    }
+
+    // Analyze files outside the campaign loops, e.g. the candidates of the reducer, with the settings of the seed.
+    // A file maps to null if it could not be analyzed. Its violations are taken out of the report maps, so they never reach the result.
+    public Map<String, Map<String, List<Integer>>> analyzeFiles(String analyzer, List<String> filePaths, String seedPath, String seedFolderName, int threads) {
+        List<MutantRef> mutants = new ArrayList<>();
+        for (String filePath : filePaths) {
+            mutants.add(new MutantRef(filePath, seedPath, seedFolderName, analysisCounter.incrementAndGet()));
+        }
+        Map<MutantRef, Violations> results = AnalysisEngine.getInstance().analyze(AnalysisEngine.getAnalyzer(analyzer), mutants, mutant -> true, threads);
+        Map<String, Map<String, List<Integer>>> file2violations = new HashMap<>();
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            for (MutantRef mutant : mutants) {
+                String filePath = mutant.getFilePath();
+                Utility.file2bugs.remove(filePath);
+                file2row.remove(filePath);
+                Utility.file2report.remove(filePath);
+                Tracer.release(filePath);
+                Violations violations = results.get(mutant);
+                file2violations.put(filePath, violations == null ? null : new HashMap<>(violations.getBug2lines()));
+            }
+        }
+        return file2violations;
     }
 
     public void executeSonarQubeTransform(String initSeedFolderPath) {
-        invokeSonarQube(initSeedFolderPath);
-        ArrayDeque<TypeWrapper> wrappers = new ArrayDeque<>();
+        SonarQubeAnalyzer analyzer = (SonarQubeAnalyzer) AnalysisEngine.getAnalyzer("SonarQube");
+        analyzer.analyzeSeeds(initSeedFolderPath);
+        List<MutantHandle> seeds = new ArrayList<>();
         for (String filepath : file2row.keySet()) {
             String[] tokens = filepath.split(reg_sep);
             String folderName = tokens[tokens.length - 2];
-            TypeWrapper wrapper = new TypeWrapper(filepath, folderName);
-            wrappers.add(wrapper);
+            seeds.add(MutantHandle.ofSeed(filepath, folderName));
         }
+        // The SonarQube server analyzes a whole depth at once, so all seeds are expanded together
+        ArrayDeque<TypeWrapper> wrappers = new ArrayDeque<>(load(seeds));
         System.out.println("All Initial Wrappers Size: " + wrappers.size());
-        String[] invokeCommands = new String[3];
-        invokeCommands[0] = "/bin/bash";
-        invokeCommands[1] = "-c";
-        String[] curlCommands = new String[4];
-        curlCommands[0] = "curl";
-        curlCommands[1] = "-u";
-        curlCommands[2] = "admin:123456";
+        TimeBudget.getInstance().register(subSeedFolderNameList);
         for (int iter = 1; iter <= SEARCH_DEPTH; iter++) {
             Transform.singleLevelExplorer(wrappers, iter);
             for (String subSeedFolderName : subSeedFolderNameList) {
                 String subSeedFolderPath = MUTANT_FOLDER + sep + "iter" + iter + sep + subSeedFolderName;
-                File resultFolder = new File(REPORT_FOLDER.getAbsolutePath() + sep + subSeedFolderName);
-                if(!resultFolder.exists()) {
-                    resultFolder.mkdir();
+                // Mutant folders are created on first use, a bucket without mutants has none
+                List<String> mutantPaths = new File(subSeedFolderPath).exists() ? getFilenamesFromFolder(subSeedFolderPath, true) : new ArrayList<>();
+                List<MutantRef> mutants = new ArrayList<>();
+                for (String mutantPath : mutantPaths) {
+                    mutants.add(new MutantRef(mutantPath, TypeWrapper.mutant2seed.getOrDefault(mutantPath, mutantPath), subSeedFolderName, iter,
+                            TypeWrapper.mutant2seq.getOrDefault(mutantPath, "[]")));
                 }
-                List<String> mutantPaths = getFilenamesFromFolder(subSeedFolderPath, true);
-                for(String mutantPath : mutantPaths) {
-                    if (DEBUG) {
-                        System.out.println("Analyzed Mutant Path: " + mutantPath);
-                    }
-                    deleteSonarQubeProject(SONARQUBE_PROJECT_NAME);
-                    boolean isCreated = createSonarQubeProject(SONARQUBE_PROJECT_NAME);
-                    if (!isCreated) {
-                        System.out.println("ProjectName is not created!");
-                        System.out.println("Mutant is not Detected: " + mutantPath);
-                        System.exit(-1);
-                    }
-                    invokeCommands[2] = SONARSCANNER_PATH + " -Dsonar.projectKey=" + SONARQUBE_PROJECT_NAME
-                            + " -Dsonar.projectBaseDir=" + MUTANT_FOLDER.getAbsolutePath()
-                            + " -Dsonar.sources=" + mutantPath
-                            + " -Dsonar.host.url=http://localhost:9000"
-                            + " -Dsonar.login=admin -Dsonar.password=123456";
-                    boolean hasExec = invokeCommandsByZT(invokeCommands);
-                    if (hasExec) {
-                        waitTaskEnd(SONARQUBE_PROJECT_NAME);
-                    } else {
-                        return;
-                    }
-                    curlCommands[3] = "http://localhost:9000/api/issues/search?p=1&ps=500&componentKeys=" + SONARQUBE_PROJECT_NAME;
-                    String jsonContent = invokeCommandsByZTWithOutput(curlCommands);
-                    writeLinesToFile(resultFolder.getAbsolutePath() + sep + Path2Last(mutantPath) + ".json", jsonContent);
-                    SonarQubeReport.readSonarQubeResultFile(mutantPath, jsonContent);
-                    JSONObject root = new JSONObject(jsonContent);
-                    int total = root.getInt("total");
-                    int count = total % 500 == 0 ? total / 500 : total / 500 + 1;
-                    for (int p = 2; p <= count; p++) {
-                        curlCommands[0] = "curl";
-                        curlCommands[1] = "-u";
-                        curlCommands[2] = "admin:123456";
-                        curlCommands[3] = "http://localhost:9000/api/issues/search?p=" + p + "&ps=500&componentKeys=" + SONARQUBE_PROJECT_NAME;
-                        jsonContent = invokeCommandsByZTWithOutput(curlCommands);
-                        SonarQubeReport.readSonarQubeResultFile(mutantPath, jsonContent);
-                    }
+                TimeBudget.getInstance().begin(subSeedFolderName);
+                AnalysisEngine.getInstance().analyze(analyzer, mutants, mutant -> canAnalyze(mutant.getFilePath(), subSeedFolderName), 1);
+                if (analyzer.hasFailed()) {
+                    return;
                 }
+                TimeBudget.getInstance().end(subSeedFolderName);
             }
             List<TypeWrapper> validWrappers = new ArrayList<>();
             while (!wrappers.isEmpty()) {
                 TypeWrapper head = wrappers.pollFirst();
+                if (TimeBudget.getInstance().isSkipped(head.getFilePath())) {
+                    Tracer.release(head.getFilePath());
+                    continue; // never analyzed, so it cannot be triaged
+                }
                 if (!head.isBuggy()) {
                     validWrappers.add(head);
+                } else {
+                    Tracer.release(head.getFilePath());
                 }
             }
             wrappers.addAll(validWrappers);
         }
     }
 
-    public void executeCodeNaviTransform(String initSeedFolderPath) {
-        // Initial seed processing from CODENAVI_SEED_PATH (Requirement 4.1)
-        List<String> seedFilePaths = getFilenamesFromFolder(initSeedFolderPath, true);
-        System.out.println("All Initial Seed Count: " + seedFilePaths.size());
-        
-        int initValidSeedWrapperSize = 0;
-        // Create TypeWrapper instances for each valid seed (Requirement 4.2)
-        for (int index = 0; index < seedFilePaths.size(); index++) {
-            String seedFilePath = seedFilePaths.get(index);
-            String[] tokens = seedFilePath.split(reg_sep);
-            String seedFolderName = tokens[tokens.length - 2];
-            
-            // Run initial CodeNavi analysis to determine if seed has bugs
-            String reportOutputDir = REPORT_FOLDER.getAbsolutePath() + sep + "initial_" + seedFolderName;
-            File reportDir = new File(reportOutputDir);
-            if (!reportDir.exists()) {
-                reportDir.mkdirs();
-            }
-            
-            // Invoke CodeNavi on initial seed
-            CodeNaviInvokeThread codeNaviThread = new CodeNaviInvokeThread(
-                new File(seedFilePath).getParent(), 
-                new File(seedFilePath).getName(), 
-                reportOutputDir
-            );
-            codeNaviThread.run();
-            
-            // Parse the initial report
-            String reportPath = reportOutputDir + sep + "error_report_1.xml";
-            CodeNaviReport.readSingleCodeNaviResultFile(new File(seedFilePath), reportPath);
-            
-            if (!file2row.containsKey(seedFilePath)) {
-                continue;
-            }
-            
-            initValidSeedWrapperSize++;
-            TypeWrapper seedWrapper = new TypeWrapper(seedFilePath, seedFolderName);
-            if (!bug2wrappers.containsKey(seedWrapper.getFolderName())) {
-                bug2wrappers.put(seedWrapper.getFolderName(), new ArrayList<>());
+    public static void writeEvaluationResult() {
+        List<String> output = new ArrayList<>();
+        output.add("All Variants Size: " + Transform.cnt1);
+        output.add("Reduced variants Size: " + Transform.cnt2);
+        output.add("Reduction Ratio: " + Transform.cnt2.get() / (double) (Transform.cnt1.get()));
+        output.add("Transformed Seeds: " + TypeWrapper.transformedSeed++);
+        output.add("Successful Transform Size: " + successfulT);
+        output.add("Failed Transform Size: " + failedT);
+        output.add("Successful Transform Ratio: " + (successfulT) / (double) (successfulT + failedT));
+        // findings of the seeds that an incremental campaign did not expand come from the previous run
+        Incremental.merge(output);
+        if (analyzerSpaces.isEmpty()) {
+            writeFindings(RESULT_FOLDER, EVALUATION_PATH + sep + "violations.json", output);
+        } else {
+            // Results of every analyzer go to results/<analyzer> and violations_<analyzer>.json
+            for (AnalyzerSpace space : analyzerSpaces) {
+                space.activate();
+                output.add("Analyzer: " + space.analyzer);
+                writeFindings(new File(RESULT_FOLDER, space.analyzer), EVALUATION_PATH + sep + "violations_" + space.analyzer + ".json", output, "analyzer", space.analyzer);
             }
-            bug2wrappers.get(seedWrapper.getFolderName()).add(seedWrapper);
         }
-        System.out.println("Initial Valid Wrappers Size: " + initValidSeedWrapperSize);
-        
-        // Iterative transformation loop from 1 to SEARCH_DEPTH (Requirement 4.3)
-        for (int depth = 1; depth <= SEARCH_DEPTH; depth++) {
-            for (Map.Entry<String, List<TypeWrapper>> entry : bug2wrappers.entrySet()) {
-                List<TypeWrapper> seedWrappers = new ArrayList<>();
-                seedWrappers.addAll(entry.getValue());
-                entry.getValue().clear();
-                
-                // Apply program transformations (Requirement 4.4)
-                List<TypeWrapper> mutantWrappers = Transform.singleLevelExplorer(seedWrappers);
-                
-                // Analyze each mutant with CodeNavi (Requirement 4.4)
-                for (int wrapperIndex = 0; wrapperIndex < mutantWrappers.size(); wrapperIndex++) {
-                    TypeWrapper mutantWrapper = mutantWrappers.get(wrapperIndex);
-                    String[] tokens = mutantWrapper.getFilePath().split(reg_sep);
-                    String seedFileNameWithSuffix = tokens[tokens.length - 1];
-                    String subSeedFolderName = tokens[tokens.length - 2];
-                    String seedFileName = seedFileNameWithSuffix.substring(0, seedFileNameWithSuffix.length() - 5);
-                    
-                    // Create report output directory for this mutant
-                    String reportOutputDir = REPORT_FOLDER.getAbsolutePath() + sep + subSeedFolderName + sep + seedFileName;
-                    File reportDir = new File(reportOutputDir);
-                    if (!reportDir.exists()) {
-                        reportDir.mkdirs();
-                    }
-                    
-                    // Invoke CodeNavi analysis on mutant (Requirement 4.4)
-                    CodeNaviInvokeThread codeNaviThread = new CodeNaviInvokeThread(
-                        mutantWrapper.getFolderPath(), 
-                        seedFileNameWithSuffix, 
-                        reportOutputDir
-                    );
-                    codeNaviThread.run();
-                    
-                    // Parse XML report and integrate results (Requirement 4.5)
-                    String reportPath = reportOutputDir + sep + "error_report_1.xml";
-                    File reportFile = new File(reportPath);
-                    if (reportFile.exists() && reportFile.length() > 0) {
-                        CodeNaviReport.readSingleCodeNaviResultFile(new File(mutantWrapper.getFilePath()), reportPath);
-                        
-                        // Collect non-buggy mutants for next iteration (Requirement 4.6)
-                        if (!mutantWrapper.isBuggy()) {
-                            entry.getValue().add(mutantWrapper);
-                        }
-                    } else {
-                        // If report generation failed, log it
-                        failedToolExecution.add("CodeNavi analysis failed for: " + mutantWrapper.getFilePath());
-                    }
-                }
+        if (ResultStore.isEnabled()) {
+            // mutants, seeds and sequences of the analyzed mutants are in the result store, see ResultQuery
+            output.add("Result Store Rows: " + ResultStore.getInstance().getRows());
+            ResultStore.shutdown();
+        } else {
+            List<String> mutant2seed = new ArrayList<>();
+            mutant2seed.add("Mutant2Seed:");
+            for (Map.Entry<String, String> entry : TypeWrapper.mutant2seed.entrySet()) {
+                mutant2seed.add(Staging.toPersistent(entry.getKey()) + "->" + entry.getValue() + "#" + TypeWrapper.mutant2seq.get(entry.getKey()));
             }
+            writeLinesToFile(EVALUATION_PATH + sep + "mutant2seed.log", mutant2seed);
+        }
+        List<String> quarantine = new ArrayList<>();
+        for (Map.Entry<String, String> entry : ProcessSupervisor.quarantine.entrySet()) {
+            quarantine.add(entry.getValue() + " -> " + entry.getKey());
+        }
+        writeLinesToFile(EVALUATION_PATH + sep + "Quarantine.log", quarantine);
+        output.add("Quarantined Commands: " + quarantine.size());
+        // Findings above only come from analyzed mutants, mutants that were generated but skipped by the drain are listed apart
+        TimeBudget budget = TimeBudget.getInstance();
+        List<String> skippedMutants = budget.getSkippedMutants();
+        writeLinesToFile(EVALUATION_PATH + sep + "Skipped.log", skippedMutants);
+        output.add("Campaign Status: " + budget.getStatus());
+        output.add("Stopped Buckets: " + budget.getStoppedBuckets());
+        output.add("Skipped Mutants: " + skippedMutants.size());
+        writeLinesToFile(EVALUATION_PATH + sep + "FailedParses.log", failedParses);
+        output.add("Failed Parses: " + failedParses.size());
+        budget.shutdown();
+        if (INFER_MUTATION) {
+            writeLinesToFile(EVALUATION_PATH + sep + "FailedReports.log", failedReportPaths);
+        }
+        if (SPOTBUGS_MUTATION) {
+            writeLinesToFile(EVALUATION_PATH + sep + "FailedCommands.log", failedCommands);
+            writeLinesToFile(EVALUATION_PATH + sep + "FailedToolExecution.log", failedToolExecution);
+        }
+        long executionTime = System.currentTimeMillis() - Utility.startTimeStamp;
+        output.add(String.format(
+                "Overall Execution Time is: " + String.format("%d min, %d sec",
+                        TimeUnit.MILLISECONDS.toMinutes(executionTime),
+                        TimeUnit.MILLISECONDS.toSeconds(executionTime) - TimeUnit.MINUTES.toSeconds(TimeUnit.MILLISECONDS.toMinutes(executionTime))) + "\n")
+        );
+        writeLinesToFile(EVALUATION_PATH + sep + "Output.log", output);
+        Metrics.gauge("statfier_variants", Transform.cnt1.get(), "kind", "all");
+        Metrics.gauge("statfier_variants", Transform.cnt2.get(), "kind", "reduced");
+        Metrics.gauge("statfier_execution_seconds", executionTime / 1000.0);
+        Metrics.export();
+        Tracer.flush();
+        if (BANDIT_SCHEDULING) {
+            TransformBandit.getInstance().save(new File(BANDIT_PRIORS_PATH));
+        }
+        if (TypeWrapper.failedParse.size() > 0) {
+            writeLinesToFile(EVALUATION_PATH + sep + "FailedParse.log", TypeWrapper.failedParse);
+        }
+        if (PMDReport.errorReportPaths.size() > 0) {
+            writeLinesToFile(EVALUATION_PATH + sep + "ErrorReportPaths.log", PMDReport.errorReportPaths);
         }
     }
 
-    public static void writeEvaluationResult() {
+    // Write compactIssues and file2bugs of the active analyzer, summary lines are appended to output
+    private static void writeFindings(File resultFolder, String violationsPath, List<String> output, String... tags) {
+        resultFolder.mkdirs();
         int rules = compactIssues.keySet().size();
         int seqCount = 0;
         int allValidVariantNumber = 0;
@@ -521,6 +569,13 @@ public class Schedule {
             String rule = entry.getKey();
             HashMap<String, List<TriTuple>> seq2mutants = entry.getValue();
             seqCount += seq2mutants.size();
+            if (ResultStore.isEnabled()) {
+                // the findings of the rule are rows of the result store, see ResultQuery
+                for (List<TriTuple> tuples : seq2mutants.values()) {
+                    allValidVariantNumber += tuples.size();
+                }
+                continue;
+            }
             ObjectMapper mapper = new ObjectMapper();
             ObjectNode root = mapper.createObjectNode();
             root.put("Rule", rule);
@@ -533,7 +588,7 @@ public class Schedule {
                 for (TriTuple triTuple : subEntry.getValue()) {
                     ObjectNode tuple = mapper.createObjectNode();
                     tuple.put("Seed", triTuple.first);
-                    tuple.put("Mutant", triTuple.second);
+                    tuple.put("Mutant", Staging.toPersistent(triTuple.second));
                     tuple.put("BugType", triTuple.third);
                     tuples.add(tuple);
                 }
@@ -542,7 +597,7 @@ public class Schedule {
                 allValidVariantNumber += subEntry.getValue().size();
             }
             root.put("Results", bugs);
-            File jsonFile = new File(Utility.EVALUATION_PATH + sep + "results" + sep + rule + ".json");
+            File jsonFile = new File(resultFolder, rule + ".json");
             try {
                 if (!jsonFile.exists()) {
                     jsonFile.createNewFile();
@@ -556,44 +611,43 @@ public class Schedule {
                 e.printStackTrace();
             }
         }
-        List<String> output = new ArrayList<>();
-        output.add("All Variants Size: " + Transform.cnt1);
-        output.add("Reduced variants Size: " + Transform.cnt2);
-        output.add("Reduction Ratio: " + Transform.cnt2.get() / (double) (Transform.cnt1.get()));
-        output.add("Transformed Seeds: " + TypeWrapper.transformedSeed++);
-        output.add("Successful Transform Size: " + successfulT);
-        output.add("Failed Transform Size: " + failedT);
-        output.add("Successful Transform Ratio: " + (successfulT) / (double) (successfulT + failedT));
         output.add("Rule Size: " + rules + "\n");
         output.add("Detected Rules: " + compactIssues.keySet());
         output.add("Unique Sequence: " + seqCount);
         output.add("Valid Mutant Size (Potential Bug): " + allValidVariantNumber);
-        List<String> mutant2seed = new ArrayList<>();
-        mutant2seed.add("Mutant2Seed:");
-        for (Map.Entry<String, String> entry : TypeWrapper.mutant2seed.entrySet()) {
-            mutant2seed.add(entry.getKey() + "->" + entry.getValue() + "#" + TypeWrapper.mutant2seq.get(entry.getKey()));
-        }
-        writeLinesToFile(EVALUATION_PATH + sep + "mutant2seed.log", mutant2seed);
-        if (INFER_MUTATION) {
-            writeLinesToFile(EVALUATION_PATH + sep + "FailedReports.log", failedReportPaths);
+        output.add("Finding Clusters: " + writeClusters(new File(resultFolder, "clusters.json")));
+        ObjectMapper violationMapper = new ObjectMapper();
+        ObjectNode violations = violationMapper.createObjectNode();
+        for (Map.Entry<String, HashMap<String, List<Integer>>> entry : Utility.file2bugs.entrySet()) {
+            violations.set(Staging.toPersistent(entry.getKey()), violationMapper.valueToTree(entry.getValue()));
         }
-        if (SPOTBUGS_MUTATION) {
-            writeLinesToFile(EVALUATION_PATH + sep + "FailedCommands.log", failedCommands);
-            writeLinesToFile(EVALUATION_PATH + sep + "FailedToolExecution.log", failedToolExecution);
-        }
-        long executionTime = System.currentTimeMillis() - Utility.startTimeStamp;
-        output.add(String.format(
-                "Overall Execution Time is: " + String.format("%d min, %d sec",
-                        TimeUnit.MILLISECONDS.toMinutes(executionTime),
-                        TimeUnit.MILLISECONDS.toSeconds(executionTime) - TimeUnit.MINUTES.toSeconds(TimeUnit.MILLISECONDS.toMinutes(executionTime))) + "\n")
-        );
-        writeLinesToFile(EVALUATION_PATH + sep + "Output.log", output);
-        if (TypeWrapper.failedParse.size() > 0) {
-            writeLinesToFile(EVALUATION_PATH + sep + "FailedParse.log", TypeWrapper.failedParse);
+        for (String path : MutantStore.getStoredPaths()) {
+            violations.set(Staging.toPersistent(path), violationMapper.valueToTree(MutantStore.getBug2lines(path)));
         }
-        if (PMDReport.errorReportPaths.size() > 0) {
-            writeLinesToFile(EVALUATION_PATH + sep + "ErrorReportPaths.log", PMDReport.errorReportPaths);
+        writeLinesToFile(violationsPath, violations.toString());
+        Metrics.gauge("statfier_detected_rules", rules, tags);
+        Metrics.gauge("statfier_unique_sequences", seqCount, tags);
+    }
+
+    // Write one representative per cluster of findings of the active analyzer, return the number of clusters
+    private static int writeClusters(File clusterFile) {
+        List<FindingClusterer.Cluster> clusters = FindingClusterer.cluster(compactIssues, TypeWrapper.mutant2parent);
+        ObjectMapper mapper = new ObjectMapper();
+        ArrayNode root = mapper.createArrayNode();
+        for (FindingClusterer.Cluster cluster : clusters) {
+            ObjectNode node = root.addObject();
+            node.put("Fingerprint", cluster.fingerprint);
+            node.put("Rule", cluster.rule);
+            node.put("BugType", cluster.kind);
+            node.put("Transform_Sequence", cluster.seq);
+            node.put("Diff", cluster.diff);
+            node.put("Count", cluster.members.size());
+            node.put("Seeds", cluster.getSeedCount());
+            node.put("Seed", cluster.getRepresentative().first);
+            node.put("Mutant", Staging.toPersistent(cluster.getRepresentative().second));
         }
+        writeLinesToFile(clusterFile.getAbsolutePath(), root.toString());
+        return clusters.size();
     }
 
 }
@@ -0,0 +1,195 @@
+package edu.polyu.util;
+
+import edu.polyu.monitor.Metrics;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Description: RAM-backed staging area of a campaign. Mutant sources, class folders and analyzer reports are written
+ * below the work folder on a tmpfs like /dev/shm instead of EVALUATION_PATH. Files that outlive the campaign, i.e. the
+ * mutants of findings and their parents, are copied to the same relative path below EVALUATION_PATH by a background
+ * writer. Requests that arrive while the writer is busy are coalesced, so a parent shared by many findings is copied once.
+ */
+public class Staging {
+
+    // Settings are overwritten in Utility.initEnv from config.properties
+    public static long flushInterval = 500; // milliseconds the writer waits to batch requests
+
+    private static File workFolder;
+    private static File persistFolder;
+    private static Thread writer;
+    private static final Set<String> pending = new LinkedHashSet<>();
+    private static final Set<String> persisted = new LinkedHashSet<>(); // staged paths that are already copied
+    private static boolean writing = false;
+    private static boolean closed = false;
+
+    private Staging() {
+    }
+
+    // Work folder of the transient files: the configured staging folder, or evaluationPath if staging is disabled or
+    // unusable. "auto" picks /dev/shm. The folder must have minFreeMB of usable space, a folder that is no tmpfs is used
+    // with a warning. The name of the work folder is derived from evaluationPath, so campaigns do not share a work folder.
+    public static String resolve(String configured, String evaluationPath, long minFreeMB) {
+        if (configured == null || configured.isEmpty() || configured.equals("false")) {
+            return evaluationPath;
+        }
+        File stagingRoot = new File(configured.equals("auto") ? "/dev/shm" : configured);
+        if (!stagingRoot.isDirectory() || !stagingRoot.canWrite()) {
+            System.err.println("Staging folder is not writable, transient files stay in EVALUATION_PATH: " + stagingRoot);
+            return evaluationPath;
+        }
+        try {
+            FileStore store = Files.getFileStore(stagingRoot.toPath());
+            long freeMB = store.getUsableSpace() / (1024 * 1024);
+            if (freeMB < minFreeMB) {
+                System.err.println("Staging folder " + stagingRoot + " has " + freeMB + " MB free, " + minFreeMB
+                        + " MB are required, transient files stay in EVALUATION_PATH");
+                return evaluationPath;
+            }
+            if (!store.type().equals("tmpfs") && !store.type().equals("ramfs")) {
+                System.err.println("Staging folder " + stagingRoot + " is on " + store.type() + ", not on a tmpfs");
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot inspect the staging folder " + stagingRoot + ": " + e.getMessage());
+            return evaluationPath;
+        }
+        String evaluationName = new File(evaluationPath).getAbsoluteFile().getName();
+        String suffix = Integer.toHexString(new File(evaluationPath).getAbsolutePath().hashCode());
+        return new File(stagingRoot, "statfier_" + evaluationName + "_" + suffix).getAbsolutePath();
+    }
+
+    public static synchronized void init(File work, File persist) {
+        workFolder = work.getAbsoluteFile();
+        persistFolder = persist.getAbsoluteFile();
+        pending.clear();
+        persisted.clear();
+        closed = false;
+        writer = new Thread(Staging::write, "staging-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public static synchronized boolean isEnabled() {
+        return workFolder != null;
+    }
+
+    // Path below EVALUATION_PATH of a staged file, other paths are returned as they are
+    public static String toPersistent(String path) {
+        File work = workFolder;
+        if (work == null || path == null) {
+            return path;
+        }
+        String prefix = work.getPath() + File.separator;
+        if (!path.startsWith(prefix)) {
+            return path;
+        }
+        return persistFolder.getPath() + File.separator + path.substring(prefix.length());
+    }
+
+    // Copy a staged file to EVALUATION_PATH in the background, the file must not be deleted from the staging folder
+    public static synchronized void persist(String path) {
+        if (workFolder == null || closed || toPersistent(path).equals(path)) {
+            return;
+        }
+        if (persisted.contains(path) || !pending.add(path)) {
+            Metrics.increment("statfier_staging_coalesced_total");
+            return;
+        }
+        if (pending.size() == 1) {
+            Staging.class.notifyAll();
+        }
+    }
+
+    // Block until every requested file is copied
+    public static synchronized void flush() throws InterruptedException {
+        while (!pending.isEmpty() || writing) {
+            Staging.class.wait(flushInterval);
+        }
+    }
+
+    // Copy the outstanding files, stop the writer and delete the work folder
+    public static void close() {
+        Thread thread;
+        synchronized (Staging.class) {
+            if (workFolder == null) {
+                return;
+            }
+            closed = true;
+            thread = writer;
+            Staging.class.notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (Staging.class) {
+            try {
+                FileUtils.deleteDirectory(workFolder);
+            } catch (IOException e) {
+                System.err.println("Cannot delete the staging folder: " + workFolder);
+            }
+            workFolder = null;
+            writer = null;
+        }
+    }
+
+    private static void write() {
+        while (true) {
+            List<String> batch;
+            synchronized (Staging.class) {
+                try {
+                    // wait for the first request, then give later requests flushInterval to join the batch
+                    while (pending.isEmpty() && !closed) {
+                        Staging.class.wait();
+                    }
+                    long deadline = System.currentTimeMillis() + flushInterval;
+                    long remaining = flushInterval;
+                    while (!closed && remaining > 0) {
+                        Staging.class.wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (pending.isEmpty() && closed) {
+                    Staging.class.notifyAll();
+                    return;
+                }
+                batch = new ArrayList<>(pending);
+                pending.clear();
+                persisted.addAll(batch);
+                writing = true;
+            }
+            long startTime = System.nanoTime();
+            Set<File> folders = new LinkedHashSet<>();
+            for (String path : batch) {
+                File target = new File(toPersistent(path));
+                if (folders.add(target.getParentFile())) {
+                    target.getParentFile().mkdirs();
+                }
+                try {
+                    Files.copy(new File(path).toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } catch (IOException e) {
+                    System.err.println("Fail to persist the staged file: " + path);
+                }
+            }
+            Metrics.add("statfier_staging_persisted_total", batch.size());
+            Metrics.recordNanos("statfier_staging_flush_seconds", System.nanoTime() - startTime);
+            synchronized (Staging.class) {
+                writing = false;
+                Staging.class.notifyAll();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,205 @@
+package edu.polyu.util;
+
+import edu.polyu.monitor.Metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Description: Wall-clock deadline of a campaign and time budgets of its rule buckets.
+ * Without a fixed BUCKET_TIME_BUDGET, every bucket gets an equal share of the time left before the deadline.
+ * A bucket that runs out of candidates hands its unspent budget to the buckets that are still active.
+ * Once a budget is exhausted no more mutants are generated for it. Mutants that were already generated are analyzed
+ * with drain policy "finish" until DRAIN_TIMEOUT after the deadline, policy "cancel" skips them and kills running analyzers.
+ */
+public class TimeBudget {
+
+    public static final String FINISH = "finish";
+    public static final String CANCEL = "cancel";
+
+    // Settings are overwritten in Utility.initEnv from config.properties
+    public static String drainPolicy = FINISH;
+    public static long drainTimeout = 10 * 60 * 1000; // milliseconds
+
+    private static TimeBudget campaign = new TimeBudget(0, 0, 0, System::currentTimeMillis);
+
+    private final LongSupplier clock;
+    private final long deadline; // Long.MAX_VALUE if the campaign has no deadline
+    private final long bucketBudget; // milliseconds, 0 means a share of the campaign time
+    private final Map<String, Long> bucket2budget = new HashMap<>();
+    private final Map<String, Long> bucket2spent = new HashMap<>();
+    private final Map<String, Long> bucket2start = new HashMap<>();
+    private final List<String> finished = new ArrayList<>();
+    private final List<String> stoppedBuckets = new ArrayList<>();
+    private final Set<String> skippedMutants = new LinkedHashSet<>();
+    private volatile boolean cancelled = false;
+    private ScheduledExecutorService watchdog;
+
+    public TimeBudget(long startTime, long maxTime, long bucketBudget, LongSupplier clock) {
+        this.clock = clock;
+        this.deadline = maxTime > 0 ? startTime + maxTime : Long.MAX_VALUE;
+        this.bucketBudget = bucketBudget;
+    }
+
+    public static TimeBudget getInstance() {
+        return campaign;
+    }
+
+    // The watchdog cancels the campaign if the drain after the deadline takes too long
+    public static void init(long startTime, long maxTime, long bucketBudget) {
+        campaign = new TimeBudget(startTime, maxTime, bucketBudget, System::currentTimeMillis);
+        if (maxTime > 0) {
+            long cancelTime = startTime + maxTime + (drainPolicy.equals(CANCEL) ? 0 : drainTimeout);
+            campaign.watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "budget-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            campaign.watchdog.schedule(campaign::cancel, Math.max(0, cancelTime - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public synchronized void register(Collection<String> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        long share = Long.MAX_VALUE;
+        if (bucketBudget > 0) {
+            share = bucketBudget;
+        } else if (deadline != Long.MAX_VALUE) {
+            share = Math.max(0, deadline - clock.getAsLong()) / buckets.size();
+        }
+        for (String bucket : buckets) {
+            bucket2budget.put(bucket, share);
+            bucket2spent.putIfAbsent(bucket, 0L);
+        }
+    }
+
+    public synchronized void begin(String bucket) {
+        bucket2start.put(bucket, clock.getAsLong());
+    }
+
+    public synchronized void end(String bucket) {
+        Long startTime = bucket2start.remove(bucket);
+        if (startTime != null) {
+            bucket2spent.merge(bucket, clock.getAsLong() - startTime, Long::sum);
+        }
+    }
+
+    // The bucket has no candidates left, its remaining time goes to the active buckets
+    public synchronized void finish(String bucket) {
+        end(bucket);
+        if (finished.contains(bucket)) {
+            return;
+        }
+        finished.add(bucket);
+        long remaining = getRemaining(bucket);
+        List<String> receivers = new ArrayList<>();
+        for (String other : bucket2budget.keySet()) {
+            if (!finished.contains(other) && bucket2budget.get(other) != Long.MAX_VALUE) {
+                receivers.add(other);
+            }
+        }
+        if (remaining <= 0 || remaining == Long.MAX_VALUE || receivers.isEmpty()) {
+            return;
+        }
+        for (String receiver : receivers) {
+            bucket2budget.merge(receiver, remaining / receivers.size(), Long::sum);
+        }
+        Metrics.add("statfier_budget_donated_seconds_total", remaining / 1000, "bucket", bucket);
+        System.out.println("Bucket " + bucket + " hands " + remaining / 1000 + " sec(s) to " + receivers.size() + " bucket(s).");
+    }
+
+    public synchronized long getRemaining(String bucket) {
+        long budget = bucket2budget.getOrDefault(bucket, Long.MAX_VALUE);
+        if (budget == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        long spent = bucket2spent.getOrDefault(bucket, 0L);
+        Long startTime = bucket2start.get(bucket);
+        if (startTime != null) {
+            spent += clock.getAsLong() - startTime;
+        }
+        return budget - spent;
+    }
+
+    public boolean isExpired() {
+        return cancelled || clock.getAsLong() >= deadline;
+    }
+
+    // Return true if no more mutants should be generated for the bucket
+    public synchronized boolean isExhausted(String bucket) {
+        return isExpired() || getRemaining(bucket) <= 0;
+    }
+
+    // Return true if the generated mutants of the bucket should still be analyzed
+    public boolean canAnalyze(String bucket) {
+        if (cancelled) {
+            return false;
+        }
+        return !drainPolicy.equals(CANCEL) || !isExhausted(bucket);
+    }
+
+    public void cancel() {
+        if (cancelled) {
+            return;
+        }
+        cancelled = true;
+        System.err.println("Time budget is exhausted, cancel running analyzers.");
+        ProcessSupervisor.cancelAll();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // Generation of the bucket has been stopped with candidates left
+    public synchronized void stop(String bucket) {
+        if (!stoppedBuckets.contains(bucket)) {
+            stoppedBuckets.add(bucket);
+            System.out.println("Time budget of " + bucket + " is exhausted, stop generating mutants.");
+            Metrics.increment("statfier_budget_stopped_buckets_total");
+        }
+    }
+
+    public synchronized List<String> getStoppedBuckets() {
+        return new ArrayList<>(stoppedBuckets);
+    }
+
+    public synchronized void skip(String mutantPath) {
+        skippedMutants.add(mutantPath);
+        Metrics.increment("statfier_budget_skipped_mutants_total");
+    }
+
+    public synchronized boolean isSkipped(String mutantPath) {
+        return skippedMutants.contains(mutantPath);
+    }
+
+    public synchronized List<String> getSkippedMutants() {
+        return new ArrayList<>(skippedMutants);
+    }
+
+    // "completed", "partial" if generation of a bucket was stopped or mutants were skipped, or "cancelled"
+    public synchronized String getStatus() {
+        if (cancelled) {
+            return "cancelled";
+        }
+        return stoppedBuckets.isEmpty() && skippedMutants.isEmpty() ? "completed" : "partial";
+    }
+
+    public void shutdown() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+        }
+    }
+
+}
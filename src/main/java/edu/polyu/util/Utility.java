@@ -3,8 +3,14 @@ package edu.polyu.util;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.polyu.analysis.MinHashSelector;
 import edu.polyu.analysis.TypeWrapper;
+import edu.polyu.monitor.FlightRecorder;
+import edu.polyu.monitor.Metrics;
+import edu.polyu.monitor.Tracer;
 import edu.polyu.report.Report;
+import edu.polyu.transform.BeamSearch;
+import edu.polyu.transform.TransformBandit;
 import org.eclipse.jdt.core.dom.ASTMatcher;
 import org.eclipse.jdt.core.dom.ASTNode;
 import org.eclipse.jdt.core.dom.Block;
@@ -37,15 +43,21 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.security.SecureRandom;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Properties;
@@ -53,6 +65,8 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -65,29 +79,47 @@ import static edu.polyu.util.Invoker.invokeCommandsByZTWithOutput;
  */
 public class Utility {
 
+    public static final String CONFIG_OVERRIDE_PREFIX = "statfier.config.";
     public static Properties properties;
+    // Required entries that are missing from config.properties, reported by checkConfig(). Loading this class never exits,
+    // so callers that only generate mutants, e.g. MutantGenerator, work without config.properties and tools.
+    private static final Set<String> missingProperties = new LinkedHashSet<>();
+    private static boolean settingsRead = false;
 
     static {
         properties = new Properties();
         File file = new File("./config.properties");
-        try {
-            InputStream in = new FileInputStream(file);
-            properties.load(in);
-        } catch (IOException e) {
-            e.printStackTrace();
+        if (file.isFile()) {
+            try (InputStream in = new FileInputStream(file)) {
+                properties.load(in);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        // -Dstatfier.config.KEY=value overrides KEY, e.g. to give every worker JVM its own EVALUATION_PATH
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith(CONFIG_OVERRIDE_PREFIX)) {
+                properties.setProperty(name.substring(CONFIG_OVERRIDE_PREFIX.length()), System.getProperty(name));
+            }
         }
     }
 
     public static final boolean NO_SELECTION = Boolean.parseBoolean(getProperty("NO_SELECTION"));
     public static final boolean RANDOM_SELECTION = Boolean.parseBoolean(getProperty("RANDOM_SELECTION"));
     public static final boolean DIV_SELECTION = Boolean.parseBoolean(getProperty("DIV_SELECTION"));
-    public static final int THREAD_COUNT = Integer.parseInt(getProperty("THREAD_COUNT"));
-    public static final int SEARCH_DEPTH = Integer.parseInt(getProperty("SEARCH_DEPTH"));
-    public final static long MAX_EXECUTION_TIME = 60 * 60 * 1000;
+    public static final boolean LSH_SELECTION = Boolean.parseBoolean(getProperty("LSH_SELECTION", "false"));
+    public static final int LSH_BUDGET = Integer.parseInt(getProperty("LSH_BUDGET", "20")); // mutants per parent, 0 means no limit
+    public static final double LSH_THRESHOLD = Double.parseDouble(getProperty("LSH_THRESHOLD", "0.8"));
+    public static final int THREAD_COUNT = getIntProperty("THREAD_COUNT", 1);
+    public static final int SEARCH_DEPTH = getIntProperty("SEARCH_DEPTH", 1);
+    public final static long MAX_EXECUTION_TIME = Long.parseLong(getProperty("MAX_EXECUTION_TIME", "0")) * 60 * 1000; // minutes in config.properties, 0 means no deadline
+    public final static long BUCKET_TIME_BUDGET = Long.parseLong(getProperty("BUCKET_TIME_BUDGET", "0")) * 60 * 1000; // minutes, 0 means a share of MAX_EXECUTION_TIME
+    public final static String DRAIN_POLICY = getProperty("DRAIN_POLICY", "finish"); // finish or cancel
+    public final static long DRAIN_TIMEOUT = Long.parseLong(getProperty("DRAIN_TIMEOUT", "10")) * 60 * 1000; // minutes
     public static String PROJECT_PATH = getProperty("PROJECT_PATH");
     public static String EVALUATION_PATH = getProperty("EVALUATION_PATH");
     public static String JAVAC_PATH = getProperty("JAVAC_PATH");
-    public static int SEED_INDEX = Integer.parseInt(getProperty("SEED_INDEX"));
+    public static int SEED_INDEX = getIntProperty("SEED_INDEX", 1);
 
     public final static boolean DEBUG = Boolean.parseBoolean(getProperty("DEBUG"));
     public final static boolean RANDOM_LOCATION = Boolean.parseBoolean(getProperty("RANDOM_LOCATION"));
@@ -107,6 +139,56 @@ public class Utility {
 
     public final static String toolPath = getProperty("TOOL_PATH");
 
+    // Telemetry
+    public final static boolean METRICS = Boolean.parseBoolean(getProperty("METRICS", "true"));
+    public final static long METRICS_INTERVAL = Long.parseLong(getProperty("METRICS_INTERVAL", "60")); // seconds
+    public final static boolean TRACE = Boolean.parseBoolean(getProperty("TRACE", "false"));
+    public final static long PROCESS_TIMEOUT = Long.parseLong(getProperty("PROCESS_TIMEOUT", "1800")); // seconds
+    public final static long PROCESS_MIN_TIMEOUT = Long.parseLong(getProperty("PROCESS_MIN_TIMEOUT", "60")); // seconds
+    public final static double PROCESS_TIMEOUT_MULTIPLIER = Double.parseDouble(getProperty("PROCESS_TIMEOUT_MULTIPLIER", "4"));
+    public final static int PROCESS_RETRIES = Integer.parseInt(getProperty("PROCESS_RETRIES", "1"));
+    public final static long PROCESS_RETRY_BACKOFF = Long.parseLong(getProperty("PROCESS_RETRY_BACKOFF", "2000")); // milliseconds
+    public final static long THREAD_POOL_TIMEOUT = Long.parseLong(getProperty("THREAD_POOL_TIMEOUT", "1440")); // minutes
+    public final static boolean ADAPTIVE_CONCURRENCY = Boolean.parseBoolean(getProperty("ADAPTIVE_CONCURRENCY", "false"));
+    public final static int CONCURRENCY_MIN = Integer.parseInt(getProperty("CONCURRENCY_MIN", "1"));
+    public final static int CONCURRENCY_MAX = Integer.parseInt(getProperty("CONCURRENCY_MAX", String.valueOf(Runtime.getRuntime().availableProcessors())));
+    public final static double CONCURRENCY_MAX_LOAD = Double.parseDouble(getProperty("CONCURRENCY_MAX_LOAD", "1.0")); // load average per core
+    public final static long CONCURRENCY_MIN_FREE_MEMORY = Long.parseLong(getProperty("CONCURRENCY_MIN_FREE_MEMORY", "1024")); // MB
+
+    // Sharded campaigns, see edu.polyu.cluster
+    public final static int CLUSTER_PORT = Integer.parseInt(getProperty("CLUSTER_PORT", "7077"));
+    public final static int CLUSTER_LOCAL_WORKERS = Integer.parseInt(getProperty("CLUSTER_LOCAL_WORKERS", "0"));
+    public final static String CLUSTER_SHARD_BY = getProperty("CLUSTER_SHARD_BY", "bucket"); // bucket or seed
+    public final static long CLUSTER_HEARTBEAT_TIMEOUT = Long.parseLong(getProperty("CLUSTER_HEARTBEAT_TIMEOUT", "60")); // seconds
+    public final static long CLUSTER_STEAL_AFTER = Long.parseLong(getProperty("CLUSTER_STEAL_AFTER", "600")); // seconds
+
+    // Adaptive order of transforms per candidate node, see edu.polyu.transform.TransformBandit
+    public final static boolean BANDIT_SCHEDULING = Boolean.parseBoolean(getProperty("BANDIT_SCHEDULING", "false"));
+    public final static int BANDIT_ARMS_PER_NODE = Integer.parseInt(getProperty("BANDIT_ARMS_PER_NODE", "3"));
+    public final static double BANDIT_EXPLORATION = Double.parseDouble(getProperty("BANDIT_EXPLORATION", "0.1"));
+    public final static double BANDIT_PRIOR_DECAY = Double.parseDouble(getProperty("BANDIT_PRIOR_DECAY", "0.5"));
+    public final static String BANDIT_PRIORS_PATH = getProperty("BANDIT_PRIORS_PATH", PROJECT_PATH + File.separator + "bandit_priors.json");
+    public final static int BEAM_WIDTH = Integer.parseInt(getProperty("BEAM_WIDTH", "0")); // mutants per seed lineage and depth, 0 disables the beam
+    public final static String BEAM_SCORE = getProperty("BEAM_SCORE", "novelty"); // novelty, distance or violation_delta
+    public final static int FRONTIER_CHUNK = Integer.parseInt(getProperty("FRONTIER_CHUNK", "64")); // parents expanded before their mutants are analyzed
+    public final static int FRONTIER_MEMORY = Integer.parseInt(getProperty("FRONTIER_MEMORY", "10000")); // handles kept in memory per bucket
+    public final static double FRONTIER_HEAP_THRESHOLD = Double.parseDouble(getProperty("FRONTIER_HEAP_THRESHOLD", "0.8"));
+    public final static int PARSE_THREADS = Integer.parseInt(getProperty("PARSE_THREADS", String.valueOf(THREAD_COUNT))); // threads that parse the parents of a chunk
+    public final static boolean MUTANT_STORE = Boolean.parseBoolean(getProperty("MUTANT_STORE", "false")); // keep mutants in packs under EVALUATION_PATH/packs
+    public final static boolean RESULT_STORE = Boolean.parseBoolean(getProperty("RESULT_STORE", "true")); // stream results to EVALUATION_PATH/results_store
+    public final static boolean REDUCE_FINDINGS = Boolean.parseBoolean(getProperty("REDUCE_FINDINGS", "false"));
+    public final static int REDUCTION_LIMIT = Integer.parseInt(getProperty("REDUCTION_LIMIT", "1")); // findings per cluster
+    public final static int REDUCTION_THREADS = Integer.parseInt(getProperty("REDUCTION_THREADS", String.valueOf(THREAD_COUNT)));
+    public final static int REPLAY_BATCH = Integer.parseInt(getProperty("REPLAY_BATCH", "64")); // replayed findings of a seed analyzed together
+    public final static boolean INCREMENTAL = Boolean.parseBoolean(getProperty("INCREMENTAL", "false")); // expand only new or changed seeds
+    public final static int TRANSFORM_SERVICE_THREADS = Integer.parseInt(getProperty("TRANSFORM_SERVICE_THREADS", String.valueOf(THREAD_COUNT)));
+    // Scheduling of the analyzers, see edu.polyu.analyzer.AnalysisEngine
+    public final static int ANALYZER_THREADS = Integer.parseInt(getProperty("ANALYZER_THREADS", "1")); // batches of a chunk analyzed at the same time
+    public final static int ANALYZER_BATCH = Integer.parseInt(getProperty("ANALYZER_BATCH", "0")); // mutants per invocation of batching analyzers, 0 for a whole chunk
+    public final static long ANALYZER_TIMEOUT = Long.parseLong(getProperty("ANALYZER_TIMEOUT", "0")); // seconds per batch, 0 means no timeout
+    public final static int ANALYZER_CACHE_SIZE = Integer.parseInt(getProperty("ANALYZER_CACHE_SIZE", "0")); // sources whose violations are kept, 0 disables the cache
+    public final static String INCREMENTAL_BASE = getProperty("INCREMENTAL_BASE", ""); // previous run, empty for EVALUATION_PATH.previous
+
     public static final long startTimeStamp = System.currentTimeMillis();
 
     public static final String reg_sep = "/|\\\\";
@@ -134,10 +216,14 @@ public class Utility {
     public final static String CODENAVI_SEED_PATH = getProperty("CODENAVI_SEED_PATH");
     public static String SEED_PATH = null;
 
-    // mutants and results
-    public final static File MUTANT_FOLDER = new File(EVALUATION_PATH + sep + "mutants");
-    public final static File REPORT_FOLDER = new File(EVALUATION_PATH + sep + "reports");
-    public final static File CLASS_FOLDER = new File(EVALUATION_PATH + sep + "classes");
+    // mutants and results, transient files are written below WORK_PATH, which is a tmpfs folder if STAGING_PATH is set.
+    // SonarQube reads the mutants through its server, so they stay in EVALUATION_PATH.
+    public final static long STAGING_MIN_FREE = Long.parseLong(getProperty("STAGING_MIN_FREE", "1024")); // MB
+    public final static long STAGING_FLUSH_INTERVAL = Long.parseLong(getProperty("STAGING_FLUSH_INTERVAL", "500")); // milliseconds
+    public final static String WORK_PATH = SONARQUBE_MUTATION ? EVALUATION_PATH : Staging.resolve(getProperty("STAGING_PATH", ""), EVALUATION_PATH, STAGING_MIN_FREE);
+    public final static File MUTANT_FOLDER = new File(WORK_PATH + sep + "mutants");
+    public static File REPORT_FOLDER = new File(WORK_PATH + sep + "reports"); // switched per analyzer by AnalyzerSpace
+    public final static File CLASS_FOLDER = new File(WORK_PATH + sep + "classes");
     public final static File RESULT_FOLDER = new File(EVALUATION_PATH + sep + "results");
 
     // tools
@@ -151,9 +237,14 @@ public class Utility {
     public final static String FINDSECBUGS_PATH = getProperty("FINDSECBUGS_PATH");
     public final static String CODENAVI_PATH = getProperty("CODENAVI_PATH");
     public final static String CODENAVI_CHECKER_DIR = getProperty("CODENAVI_CHECKER_DIR");
-    public static List<String> spotBugsJarList = getFilenamesFromFolder(toolPath + sep + "SpotBugs_Dependency", true);
-    public static List<String> inferJarList = getFilenamesFromFolder(toolPath + sep + "Infer_Dependency", true);
-    public static List<String> findSecBugsJarList = getFilenamesFromFolder(toolPath + sep + "FindSecBugs_Dependency", true);
+    // Listed by initCompileDependency()
+    public static List<String> spotBugsJarList;
+    public static List<String> inferJarList;
+    public static List<String> findSecBugsJarList;
+
+    static {
+        settingsRead = true; // from now on a missing required entry exits, see getProperty(String)
+    }
 
     public static List<String> subSeedFolderNameList;
     public static StringBuilder spotBugsJarStr = new StringBuilder(); // This is used to save dependency jar files for SpotBugs
@@ -167,10 +258,14 @@ public class Utility {
     // (rule -> (transSeq -> Mutant_List))
     public static ConcurrentHashMap<String, HashMap<String, List<TriTuple>>> compactIssues = new ConcurrentHashMap<>();
     public static List<String> failedReportPaths = new ArrayList<>();
-    public static List<String> failedToolExecution = new ArrayList<>();
+    public static List<String> failedToolExecution = Collections.synchronizedList(new ArrayList<>());
     public static Set<String> SonarQubeRuleNames;
+    private static final ConcurrentHashMap<String, Boolean> createdFolders = new ConcurrentHashMap<>();
 
     public static void initCompileDependency() {
+        spotBugsJarList = getFilenamesFromFolder(toolPath + sep + "SpotBugs_Dependency", true);
+        inferJarList = getFilenamesFromFolder(toolPath + sep + "Infer_Dependency", true);
+        findSecBugsJarList = getFilenamesFromFolder(toolPath + sep + "FindSecBugs_Dependency", true);
         String sp;
         if (OSUtil.isWindows()) {
             sp = ";";
@@ -198,6 +293,7 @@ public class Utility {
     }
 
     public static void initEnv() {
+        checkConfig();
         initCompileDependency();
         if(SEED_INDEX < 1 || SEED_INDEX > 5) {
             System.out.println("Error Seed Index is Provided!");
@@ -239,6 +335,10 @@ public class Utility {
         if (CODENAVI_MUTATION) {
             SEED_PATH = CODENAVI_SEED_PATH;
         }
+        if (getEnabledAnalyzers().size() > 1) {
+            // All analyzers of a multi-analyzer campaign share one seed folder
+            SEED_PATH = getProperty("MULTI_SEED_PATH", SEED_PATH);
+        }
         if (SEED_PATH == null) {
             System.err.println("SEED_PATH is not initialized correctly!");
             System.exit(-1);
@@ -283,15 +383,28 @@ public class Utility {
                 }
             }
             File ud = new File(EVALUATION_PATH);
-            if (ud.exists()) {
-                FileUtils.deleteDirectory(new File(EVALUATION_PATH));
+            if (INCREMENTAL && INCREMENTAL_BASE.isEmpty()) {
+                keepPrevious(ud);
             }
+            moveAside(ud);
+            createdFolders.clear();
             System.out.println("Making Dir: " + ud.getAbsolutePath());
             ud.mkdir();
             if (!ud.exists()) {
                 System.err.println("Fail to create EVALUATION_PATH!\n");
                 System.exit(-1);
             }
+            if (!WORK_PATH.equals(EVALUATION_PATH)) {
+                File work = new File(WORK_PATH);
+                moveAside(work);
+                System.out.println("Staging Dir: " + work.getAbsolutePath());
+                if (!work.mkdirs()) {
+                    System.err.println("Fail to create the staging folder!\n");
+                    System.exit(-1);
+                }
+                Staging.flushInterval = STAGING_FLUSH_INTERVAL;
+                Staging.init(work, ud);
+            }
             if (!REPORT_FOLDER.mkdir()) {
                 System.err.println("Fail to create result folder!\n");
                 System.exit(-1);
@@ -313,23 +426,8 @@ public class Utility {
         } catch (Exception e) {
             e.printStackTrace();
         }
-        // subSeedFolder, like security_hardcodedCryptoKey
+        // subSeedFolder, like security_hardcodedCryptoKey. Their report, class and mutant folders are created on first use
         subSeedFolderNameList = getDirectFilenamesFromFolder(SEED_PATH, false);
-        // Generate mutant folder from iter1 -> iter8
-        for (String subSeedFolderName : subSeedFolderNameList) {
-            File subSeedFolder = new File(REPORT_FOLDER.getAbsolutePath() + sep + subSeedFolderName);
-            subSeedFolder.mkdir();
-            subSeedFolder = new File(CLASS_FOLDER.getAbsolutePath() + sep + subSeedFolderName);
-            subSeedFolder.mkdir();
-        }
-        for (int i = 1; i <= 8; i++) {
-            File iter = new File(MUTANT_FOLDER.getAbsolutePath() + sep + "iter" + i);
-            iter.mkdir();
-            for (String subSeedFolderName : subSeedFolderNameList) {
-                File subSeedFolder = new File(iter.getAbsolutePath() + sep + subSeedFolderName);
-                subSeedFolder.mkdir();
-            }
-        }
         String ruleNamePath = PROJECT_PATH + sep + "tools" + sep + "SonarQube_Rules.txt";
         List<String> lines = readFileByLine(ruleNamePath);
         if (lines.size() > 1) {
@@ -338,13 +436,182 @@ public class Utility {
         }
         String[] ruleNames = lines.get(0).split(",");
         SonarQubeRuleNames = new HashSet<>(Arrays.asList(ruleNames));
+        if (RESULT_STORE) {
+            ResultStore.init(new File(EVALUATION_PATH + sep + "results_store"));
+        }
+        if (METRICS) {
+            Metrics.enable(new File(EVALUATION_PATH), METRICS_INTERVAL);
+        }
+        ProcessSupervisor.defaultTimeout = PROCESS_TIMEOUT;
+        ProcessSupervisor.minTimeout = PROCESS_MIN_TIMEOUT;
+        ProcessSupervisor.timeoutMultiplier = PROCESS_TIMEOUT_MULTIPLIER;
+        ProcessSupervisor.maxRetries = PROCESS_RETRIES;
+        ProcessSupervisor.retryBackoff = PROCESS_RETRY_BACKOFF;
+        if (ADAPTIVE_CONCURRENCY) {
+            initConcurrencyLimiter();
+        }
+        TimeBudget.drainPolicy = DRAIN_POLICY;
+        TimeBudget.drainTimeout = DRAIN_TIMEOUT;
+        TimeBudget.init(startTimeStamp, MAX_EXECUTION_TIME, BUCKET_TIME_BUDGET);
+        MinHashSelector.budget = LSH_BUDGET;
+        BeamSearch.width = BEAM_WIDTH;
+        BeamSearch.scoreName = BEAM_SCORE;
+        Frontier.chunkSize = FRONTIER_CHUNK;
+        Frontier.memoryLimit = FRONTIER_MEMORY;
+        Frontier.heapThreshold = FRONTIER_HEAP_THRESHOLD;
+        // SonarQube scans the mutant folders, so its mutants stay files
+        MutantStore.enabled = MUTANT_STORE && !SONARQUBE_MUTATION;
+        if (MutantStore.enabled) {
+            MutantStore.init(new File(EVALUATION_PATH + sep + "packs"));
+        }
+        MinHashSelector.threshold = LSH_THRESHOLD;
+        if (BANDIT_SCHEDULING) {
+            TransformBandit.enabled = true;
+            TransformBandit.armsPerNode = BANDIT_ARMS_PER_NODE;
+            TransformBandit.exploration = BANDIT_EXPLORATION;
+            TransformBandit.priorDecay = BANDIT_PRIOR_DECAY;
+            TransformBandit.init(new File(BANDIT_PRIORS_PATH), random);
+        }
+        FlightRecorder.startFromSystemProperty();
+        if (TRACE) {
+            Tracer.enable(new File(EVALUATION_PATH + sep + "trace.json"));
+        }
+    }
+
+
+    // Rename the folder of the previous run, which is atomic within one file system, and delete it in the background.
+    // Renamed folders of runs that exited before their deletion finished are deleted as well.
+    private static void moveAside(File folder) throws IOException {
+        File parent = folder.getAbsoluteFile().getParentFile();
+        String prefix = folder.getName() + ".trash-";
+        if (folder.exists()) {
+            File trash = new File(parent, prefix + System.currentTimeMillis());
+            try {
+                Files.move(folder.toPath(), trash.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                System.err.println("Cannot rename " + folder.getAbsolutePath() + ", delete it in place.");
+                FileUtils.deleteDirectory(folder);
+            }
+        }
+        File[] trashes = parent.listFiles((dir, name) -> name.startsWith(prefix));
+        if (trashes == null || trashes.length == 0) {
+            return;
+        }
+        Thread cleaner = new Thread(() -> {
+            for (File trash : trashes) {
+                try {
+                    FileUtils.deleteDirectory(trash);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }, "evaluation-cleaner");
+        cleaner.setDaemon(true);
+        cleaner.start();
+    }
+
+    // Keep a finished run as EVALUATION_PATH.previous for the next incremental campaign, runs without fingerprints are moved aside
+    private static void keepPrevious(File folder) throws IOException {
+        if (!new File(folder, Incremental.MANIFEST).exists()) {
+            return;
+        }
+        File previous = getPreviousFolder();
+        moveAside(previous);
+        try {
+            Files.move(folder.toPath(), previous.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Cannot keep " + folder.getAbsolutePath() + " for the incremental campaign: " + e.getMessage());
+        }
     }
 
+    public static File getPreviousFolder() {
+        if (!INCREMENTAL_BASE.isEmpty()) {
+            return new File(INCREMENTAL_BASE);
+        }
+        File evaluation = new File(EVALUATION_PATH).getAbsoluteFile();
+        return new File(evaluation.getParentFile(), evaluation.getName() + ".previous");
+    }
+
+    // Create a folder below EVALUATION_PATH on first use, created folders are remembered to save lookups on slow disks
+    public static File ensureFolder(File folder) {
+        createdFolders.computeIfAbsent(folder.getAbsolutePath(), k -> folder.mkdirs() || folder.isDirectory());
+        return folder;
+    }
+
+    public static String getAnalyzerName() {
+        if (AnalyzerSpace.getCurrent() != null) {
+            return AnalyzerSpace.getCurrent().analyzer;
+        }
+        if (PMD_MUTATION) {
+            return "PMD";
+        }
+        if (SPOTBUGS_MUTATION) {
+            return "SpotBugs";
+        }
+        if (INFER_MUTATION) {
+            return "Infer";
+        }
+        if (CHECKSTYLE_MUTATION) {
+            return "CheckStyle";
+        }
+        if (SONARQUBE_MUTATION) {
+            return "SonarQube";
+        }
+        if (FINDSECBUGS_MUTATION) {
+            return "FindSecBugs";
+        }
+        if (CODENAVI_MUTATION) {
+            return "CodeNavi";
+        }
+        return "unknown";
+    }
+
+    // Analyzers with a campaign loop in Schedule, in the order of Schedule.executeTransform
+    public static List<String> getEnabledAnalyzers() {
+        List<String> analyzers = new ArrayList<>();
+        if (PMD_MUTATION) {
+            analyzers.add("PMD");
+        }
+        if (SPOTBUGS_MUTATION) {
+            analyzers.add("SpotBugs");
+        }
+        if (CHECKSTYLE_MUTATION) {
+            analyzers.add("CheckStyle");
+        }
+        if (INFER_MUTATION) {
+            analyzers.add("Infer");
+        }
+        if (SONARQUBE_MUTATION) {
+            analyzers.add("SonarQube");
+        }
+        if (CODENAVI_MUTATION) {
+            analyzers.add("CodeNavi");
+        }
+        return analyzers;
+    }
+
+    // Per-tool bounds are read from keys such as CONCURRENCY_MAX_Infer, the tool name is given by Invoker.getToolName
+    public static void initConcurrencyLimiter() {
+        ConcurrencyLimiter.enabled = true;
+        ConcurrencyLimiter.defaultMin = CONCURRENCY_MIN;
+        ConcurrencyLimiter.defaultMax = CONCURRENCY_MAX;
+        ConcurrencyLimiter.initialLimit = THREAD_COUNT;
+        ConcurrencyLimiter.maxLoadPerCore = CONCURRENCY_MAX_LOAD;
+        ConcurrencyLimiter.minFreeMemory = CONCURRENCY_MIN_FREE_MEMORY * 1024 * 1024;
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith("CONCURRENCY_MIN_") && !key.equals("CONCURRENCY_MIN_FREE_MEMORY")) {
+                ConcurrencyLimiter.tool2min.put(key.substring("CONCURRENCY_MIN_".length()), Integer.parseInt(properties.getProperty(key).trim()));
+            } else if (key.startsWith("CONCURRENCY_MAX_") && !key.equals("CONCURRENCY_MAX_LOAD")) {
+                ConcurrencyLimiter.tool2max.put(key.substring("CONCURRENCY_MAX_".length()), Integer.parseInt(properties.getProperty(key).trim()));
+            }
+        }
+    }
 
     public static ExecutorService initThreadPool() {
         ExecutorService threadPool;
         if (Boolean.parseBoolean(getProperty("FIXED_THREAD_POOL"))) {
-            threadPool = Executors.newFixedThreadPool(THREAD_COUNT);
+            // With the adaptive limiter the pool only bounds the ceiling, subprocesses are admitted by ConcurrencyLimiter
+            threadPool = Executors.newFixedThreadPool(ADAPTIVE_CONCURRENCY ? Math.max(THREAD_COUNT, CONCURRENCY_MAX) : THREAD_COUNT);
         } else {
             if (Boolean.parseBoolean(getProperty("CACHED_THREAD_POOL"))) {
                 threadPool = Executors.newCachedThreadPool();
@@ -358,8 +625,15 @@ public class Utility {
     public static void waitThreadPoolEnding(ExecutorService threadPool) {
         threadPool.shutdown();
         try {
-            threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.MINUTES);
+            if (!threadPool.awaitTermination(THREAD_POOL_TIMEOUT, TimeUnit.MINUTES)) {
+                // Interrupted workers kill the process trees they supervise
+                System.err.println("Thread pool does not terminate in " + THREAD_POOL_TIMEOUT + " min, cancel remaining tasks.");
+                List<Runnable> cancelled = threadPool.shutdownNow();
+                System.err.println("Cancelled Task Size: " + cancelled.size());
+                threadPool.awaitTermination(1, TimeUnit.MINUTES);
+            }
         } catch (InterruptedException e) {
+            threadPool.shutdownNow();
             e.printStackTrace();
         }
     }
@@ -473,60 +747,71 @@ public class Utility {
     }
 
     public static List<Path> getFilePathsFromFolder(String path) {
-        LinkedList<Path> fileList = new LinkedList<>();
-        File dir = new File(path);
-        File[] files = dir.listFiles();
-        if (files == null) {
-            System.err.println("GetFileName cannot find: " + path);
-            System.exit(-1);
-        }
-        for (File file : files) {
-            if (file.getName().charAt(0) == '.') {
-                continue;
-            }
-            if (file.isDirectory()) {
-                fileList.addAll(getFilePathsFromFolder(file.getAbsolutePath()));
-            } else {
-                fileList.add(Paths.get(file.getAbsolutePath()));
-            }
-        }
-        return fileList;
+        return walkFolder(path);
     }
 
     // The list contains absolute paths.
     public static List<String> getFilenamesFromFolder(String path, boolean getAbsolutePath) {
-        LinkedList<String> fileList = new LinkedList<>();
-        File dir = new File(path);
-        File[] files = dir.listFiles();
-        if (files == null) {
+        List<String> fileList = new ArrayList<>();
+        for (Path file : walkFolder(path)) {
+            fileList.add(getAbsolutePath ? file.toString() : file.getFileName().toString());
+        }
+        return fileList;
+    }
+
+    // Non-hidden files below the folder in path order. Sub folders are listed in parallel, which hides the latency of network file systems.
+    private static List<Path> walkFolder(String path) {
+        Path root = Paths.get(path).toAbsolutePath();
+        if (!Files.isDirectory(root)) {
             System.err.println("GetFileName cannot find: " + path);
             System.exit(-1);
         }
-        for (File file : files) {
-            if (file.getName().charAt(0) == '.') {
-                continue;
-            }
-            if (file.isDirectory()) {
-                fileList.addAll(getFilenamesFromFolder(file.getAbsolutePath(), getAbsolutePath));
-            } else {
-                fileList.add(file.getAbsolutePath());
-            }
+        List<Path> files = ForkJoinPool.commonPool().invoke(new FolderWalk(root));
+        Collections.sort(files);
+        return files;
+    }
+
+    private static class FolderWalk extends RecursiveTask<List<Path>> {
+
+        private final Path folder;
+
+        FolderWalk(Path folder) {
+            this.folder = folder;
         }
-        if (getAbsolutePath) {
-            return fileList;
-        } else {
-            LinkedList<String> pureNames = new LinkedList<>();
-            for (String srcName : fileList) {
-                String[] tokens = srcName.split(reg_sep);
-                pureNames.add(tokens[tokens.length - 1]);
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> files = new ArrayList<>();
+            List<FolderWalk> walks = new ArrayList<>();
+            try (DirectoryStream<Path> children = Files.newDirectoryStream(folder)) {
+                for (Path child : children) {
+                    if (child.getFileName().toString().startsWith(".")) {
+                        continue;
+                    }
+                    if (Files.isDirectory(child)) {
+                        FolderWalk walk = new FolderWalk(child);
+                        walk.fork();
+                        walks.add(walk);
+                    } else {
+                        files.add(child);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot list " + folder, e);
             }
-            return pureNames;
+            for (FolderWalk walk : walks) {
+                files.addAll(walk.join());
+            }
+            return files;
         }
     }
 
     public static String getProperty(String name) {
         if (properties.containsKey(name)) {
             return properties.getProperty(name);
+        } else if (!settingsRead) {
+            missingProperties.add(name);
+            return null;
         } else {
             System.err.println(name + " is not existed!");
             System.exit(-1);
@@ -534,6 +819,27 @@ public class Utility {
         }
     }
 
+    // Required entry, the fallback only stands in until checkConfig() rejects the missing entry
+    private static int getIntProperty(String name, int fallback) {
+        String value = getProperty(name);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+
+    // Exit if config.properties lacks required entries, called by the entry points of campaigns
+    public static void checkConfig() {
+        for (String name : missingProperties) {
+            System.err.println(name + " is not existed!");
+        }
+        if (!missingProperties.isEmpty()) {
+            System.exit(-1);
+        }
+    }
+
+    // Optional configuration entries fall back to the default value instead of exiting
+    public static String getProperty(String name, String defaultValue) {
+        return properties.getProperty(name, defaultValue).trim();
+    }
+
     public static List<TypeWrapper> randomMutantSampling(List<TypeWrapper> wrappers) {
         HashSet<Integer> selectedIndex = new HashSet<>();
         List<TypeWrapper> filteredWrappers = new ArrayList<>();
@@ -0,0 +1,50 @@
+package edu.polyu.analysis;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for MinHashSelector signatures and diverse selection
+ */
+public class MinHashSelectorTest {
+
+    private static Set<String> features(String... features) {
+        return new HashSet<>(Arrays.asList(features));
+    }
+
+    @Test
+    public void testSimilarityEstimatesJaccard() {
+        Set<String> a = new HashSet<>();
+        Set<String> b = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            a.add("f" + i);
+            b.add("f" + (i + 50));
+        }
+        // Jaccard similarity is 50 / 150
+        double similarity = MinHashSelector.similarity(MinHashSelector.signature(a), MinHashSelector.signature(b));
+        assertEquals(1.0 / 3, similarity, 0.15);
+        assertEquals(1.0, MinHashSelector.similarity(MinHashSelector.signature(a), MinHashSelector.signature(new HashSet<>(a))), 0);
+    }
+
+    @Test
+    public void testNearDuplicatesAreDropped() {
+        List<Set<String>> mutants = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            mutants.add(features("t:AddBrackets", "n:IfStatement", "k:Block", "cf:loop", "m:MethodDeclaration"));
+        }
+        mutants.add(features("t:LoopConversion1", "n:ForStatement", "k:InfixExpression", "cf:branch"));
+        mutants.add(features("t:CFWrapperWithIfTrue", "n:ExpressionStatement", "k:MethodInvocation", "cf:TryStatement"));
+        List<Set<String>> selected = MinHashSelector.select(mutants, set -> set, 0, 0.8, new Random(1));
+        assertEquals(3, selected.size());
+        assertEquals(2, MinHashSelector.select(mutants, set -> set, 2, 0.8, new Random(1)).size());
+    }
+
+}
@@ -0,0 +1,194 @@
+package edu.polyu.analyzer;
+
+import edu.polyu.util.ConcurrencyLimiter;
+import edu.polyu.util.Utility;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the batching, admission and timeouts of AnalysisEngine
+ */
+public class AnalysisEngineTest {
+
+    // Reports one violation per file, batches are recorded, files named slow*.java never finish,
+    // late*.java finish after 300 ms and blocked*.java block their thread until it is interrupted
+    private static class FakeAnalyzer implements Analyzer {
+        final List<List<MutantRef>> batches = Collections.synchronizedList(new ArrayList<>());
+        final boolean batching;
+        final AtomicInteger dispatchedBeforeLate = new AtomicInteger(-1);
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+
+        FakeAnalyzer(boolean batching) {
+            this.batching = batching;
+        }
+
+        @Override
+        public String getName() {
+            return "Fake";
+        }
+
+        @Override
+        public void analyzeSeeds(String seedFolderPath) {
+        }
+
+        @Override
+        public CompletableFuture<Map<MutantRef, Violations>> analyzeBatch(List<MutantRef> mutants) {
+            batches.add(mutants);
+            Map<MutantRef, Violations> results = new HashMap<>();
+            for (MutantRef mutant : mutants) {
+                if (mutant.getFileName().startsWith("slow")) {
+                    return new CompletableFuture<>();
+                }
+                if (mutant.getFileName().startsWith("late")) {
+                    return CompletableFuture.supplyAsync(() -> {
+                        sleep(300);
+                        dispatchedBeforeLate.set(batches.size());
+                        return new HashMap<>();
+                    });
+                }
+                if (mutant.getFileName().startsWith("blocked")) {
+                    try {
+                        Thread.sleep(60000);
+                    } catch (InterruptedException e) {
+                        interrupted.set(true);
+                    }
+                    synchronized (AnalysisEngine.REPORT_LOCK) {
+                        Utility.file2bugs.put(mutant.getFilePath(), new HashMap<>()); // the report is parsed after all
+                    }
+                    return CompletableFuture.completedFuture(new HashMap<>());
+                }
+                Map<String, List<Integer>> bug2lines = new HashMap<>();
+                bug2lines.put(mutant.getBucket(), Collections.singletonList(1));
+                results.put(mutant, new Violations(Collections.singletonList(1), bug2lines));
+            }
+            return CompletableFuture.completedFuture(results);
+        }
+
+        @Override
+        public boolean supportsBatching() {
+            return batching;
+        }
+
+        @Override
+        public boolean isInProcess() {
+            return true;
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MutantRef mutant(String name, String bucket) {
+        return new MutantRef("/mutants/iter1/" + bucket + "/" + name + ".java", "/seeds/" + bucket + "/A.java", bucket, 1);
+    }
+
+    @Test
+    public void testBatchesKeepBucketsApart() {
+        List<MutantRef> mutants = Arrays.asList(mutant("a1", "a"), mutant("b1", "b"), mutant("a2", "a"), mutant("a3", "a"));
+        List<List<MutantRef>> batches = AnalysisEngine.toBatches(mutants, 2);
+        assertEquals(3, batches.size());
+        assertEquals(Arrays.asList(mutant("a1", "a"), mutant("a2", "a")), batches.get(0));
+        assertEquals(Collections.singletonList(mutant("a3", "a")), batches.get(1));
+        assertEquals(Collections.singletonList(mutant("b1", "b")), batches.get(2));
+        assertEquals(2, AnalysisEngine.toBatches(mutants, 0).size());
+    }
+
+    @Test
+    public void testWindowFollowsLimiterCeiling() {
+        Analyzer external = new FakeAnalyzer(true) {
+            @Override
+            public String getName() {
+                return "FakeExternal";
+            }
+
+            @Override
+            public boolean isInProcess() {
+                return false;
+            }
+        };
+        assertEquals(2, AnalysisEngine.getWindow(external, 2));
+        ConcurrencyLimiter.tool2max.put("FakeExternal", 6);
+        ConcurrencyLimiter.enabled = true;
+        try {
+            assertEquals(6, AnalysisEngine.getWindow(external, 2));
+            assertEquals(2, AnalysisEngine.getWindow(new FakeAnalyzer(true), 2)); // in process, not admitted by the limiter
+        } finally {
+            ConcurrencyLimiter.enabled = false;
+            ConcurrencyLimiter.tool2max.remove("FakeExternal");
+        }
+    }
+
+    @Test
+    public void testAnalyzerWithoutBatchingGetsOneMutantAtATime() {
+        FakeAnalyzer analyzer = new FakeAnalyzer(false);
+        List<MutantRef> mutants = Arrays.asList(mutant("a1", "a"), mutant("a2", "a"), mutant("a3", "a"));
+        Map<MutantRef, Violations> results = new AnalysisEngine(0, 0, 0).analyze(analyzer, mutants, m -> true, 2);
+        assertEquals(3, analyzer.batches.size());
+        assertEquals(3, results.size());
+        assertEquals(Collections.singletonList(1), results.get(mutant("a2", "a")).getBug2lines().get("a"));
+    }
+
+    @Test
+    public void testMutantsThatAreNotAdmittedAreNotAnalyzed() {
+        FakeAnalyzer analyzer = new FakeAnalyzer(true);
+        List<MutantRef> mutants = Arrays.asList(mutant("a1", "a"), mutant("a2", "a"), mutant("b1", "b"));
+        Map<MutantRef, Violations> results = new AnalysisEngine(0, 0, 0).analyze(analyzer, mutants, m -> !m.getBucket().equals("b"), 1);
+        assertEquals(1, analyzer.batches.size());
+        assertEquals(2, analyzer.batches.get(0).size());
+        assertEquals(2, results.size());
+        assertFalse(results.containsKey(mutant("b1", "b")));
+    }
+
+    @Test
+    public void testBatchThatTimesOutIsGivenUp() {
+        FakeAnalyzer analyzer = new FakeAnalyzer(false);
+        List<MutantRef> mutants = Arrays.asList(mutant("slow1", "a"), mutant("a2", "a"));
+        Map<MutantRef, Violations> results = new AnalysisEngine(0, 100, 0).analyze(analyzer, mutants, m -> true, 2);
+        assertEquals(1, results.size());
+        assertTrue(results.get(mutant("a2", "a")).isReported());
+    }
+
+    @Test
+    public void testBatchThatTimesOutIsCancelled() {
+        FakeAnalyzer analyzer = new FakeAnalyzer(false);
+        List<MutantRef> mutants = Arrays.asList(mutant("blocked1", "a"), mutant("a2", "a"));
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            Utility.file2bugs.remove(mutants.get(0).getFilePath());
+        }
+        long startTime = System.currentTimeMillis();
+        Map<MutantRef, Violations> results = new AnalysisEngine(0, 100, 0).analyze(analyzer, mutants, m -> true, 2);
+        assertTrue(System.currentTimeMillis() - startTime < 10000);
+        assertTrue(analyzer.interrupted.get());
+        assertEquals(1, results.size());
+        synchronized (AnalysisEngine.REPORT_LOCK) {
+            assertFalse(Utility.file2bugs.containsKey(mutant("blocked1", "a").getFilePath()));
+        }
+    }
+
+    @Test
+    public void testBatchesAreCollectedAsTheyComplete() {
+        FakeAnalyzer analyzer = new FakeAnalyzer(false);
+        List<MutantRef> mutants = Arrays.asList(mutant("late1", "a"), mutant("a2", "a"), mutant("a3", "a"), mutant("a4", "a"));
+        Map<MutantRef, Violations> results = new AnalysisEngine(0, 0, 0).analyze(analyzer, mutants, m -> true, 2);
+        assertEquals(3, results.size());
+        // the slot of the slow batch is not waited for by the batches behind it
+        assertEquals(4, analyzer.dispatchedBeforeLate.get());
+    }
+
+}
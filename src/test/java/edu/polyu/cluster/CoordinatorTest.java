@@ -0,0 +1,211 @@
+package edu.polyu.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the coordinator/worker protocol with in-process workers
+ */
+public class CoordinatorTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private List<ShardTask> createTasks(int size) {
+        List<ShardTask> tasks = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            tasks.add(new ShardTask(i, "bucket" + i, new ArrayList<>()));
+        }
+        return tasks;
+    }
+
+    private Function<ShardTask, ObjectNode> echo(String name) {
+        return task -> {
+            ObjectNode payload = mapper.createObjectNode();
+            payload.put("bucket", task.getBucket());
+            payload.put("worker", name);
+            return payload;
+        };
+    }
+
+    private Thread startWorker(int port, String name, Function<ShardTask, ObjectNode> executor) {
+        Thread thread = new Thread(() -> {
+            try {
+                new Worker("127.0.0.1", port, name, executor, 100).run();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    @Test
+    public void testAllTasksAreMergedOnce() throws Exception {
+        List<String> buckets = Collections.synchronizedList(new ArrayList<>());
+        Coordinator coordinator = new Coordinator(0, createTasks(10), 5000, 60000, payload -> buckets.add(payload.get("bucket").asText()));
+        coordinator.start();
+        Thread worker1 = startWorker(coordinator.getPort(), "worker1", echo("worker1"));
+        Thread worker2 = startWorker(coordinator.getPort(), "worker2", echo("worker2"));
+        assertTrue(coordinator.awaitCompletion(10, TimeUnit.SECONDS));
+        worker1.join(5000);
+        worker2.join(5000);
+        coordinator.stop();
+        assertEquals(10, buckets.size());
+        assertEquals(10, buckets.stream().distinct().count());
+    }
+
+    @Test
+    public void testTaskOfDeadWorkerIsQueuedAgain() throws Exception {
+        List<String> workers = Collections.synchronizedList(new ArrayList<>());
+        Coordinator coordinator = new Coordinator(0, createTasks(1), 5000, 60000, payload -> workers.add(payload.get("worker").asText()));
+        coordinator.start();
+        // Take the only task and disconnect without a result
+        try (Socket socket = new Socket("127.0.0.1", coordinator.getPort())) {
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            writer.write("{\"type\":\"request\",\"worker\":\"dead\"}\n");
+            writer.flush();
+            assertEquals("task", mapper.readTree(reader.readLine()).get("type").asText());
+        }
+        Thread worker = startWorker(coordinator.getPort(), "alive", echo("alive"));
+        assertTrue(coordinator.awaitCompletion(10, TimeUnit.SECONDS));
+        worker.join(5000);
+        coordinator.stop();
+        assertEquals(Collections.singletonList("alive"), workers);
+    }
+
+    @Test
+    public void testIdleWorkerStealsSlowTask() throws Exception {
+        List<String> workers = Collections.synchronizedList(new ArrayList<>());
+        Coordinator coordinator = new Coordinator(0, createTasks(1), 5000, 0, payload -> workers.add(payload.get("worker").asText()));
+        coordinator.start();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread slow = startWorker(coordinator.getPort(), "slow", task -> {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return echo("slow").apply(task);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread fast = startWorker(coordinator.getPort(), "fast", echo("fast"));
+        assertTrue(coordinator.awaitCompletion(10, TimeUnit.SECONDS));
+        release.countDown();
+        fast.join(5000);
+        slow.join(5000);
+        coordinator.stop();
+        assertEquals(Collections.singletonList("fast"), workers);
+    }
+
+    @Test
+    public void testCompletionWaitsForTheMerge() throws Exception {
+        List<String> buckets = Collections.synchronizedList(new ArrayList<>());
+        Coordinator coordinator = new Coordinator(0, createTasks(1), 5000, 60000, payload -> {
+            try {
+                Thread.sleep(500);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            buckets.add(payload.get("bucket").asText());
+        });
+        coordinator.start();
+        Thread worker = startWorker(coordinator.getPort(), "worker", echo("worker"));
+        assertTrue(coordinator.awaitCompletion(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList("bucket0"), buckets);
+        worker.join(5000);
+        coordinator.stop();
+    }
+
+    @Test
+    public void testFailedTaskIsQueuedAgain() throws Exception {
+        List<String> workers = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger attempts = new AtomicInteger(0);
+        Coordinator coordinator = new Coordinator(0, createTasks(1), 5000, 60000, payload -> workers.add(payload.get("worker").asText()));
+        coordinator.start();
+        Thread worker = startWorker(coordinator.getPort(), "flaky", task -> {
+            ObjectNode payload = echo("flaky").apply(task);
+            if (attempts.incrementAndGet() == 1) {
+                payload.put("error", "staging failed");
+            }
+            return payload;
+        });
+        assertTrue(coordinator.awaitCompletion(10, TimeUnit.SECONDS));
+        worker.join(5000);
+        coordinator.stop();
+        assertEquals(2, attempts.get());
+        assertEquals(Collections.singletonList("flaky"), workers);
+        assertTrue(coordinator.getFailed().isEmpty());
+    }
+
+    @Test
+    public void testTaskFailingEveryAttemptIsRecorded() throws Exception {
+        Coordinator coordinator = new Coordinator(0, createTasks(2), 5000, 60000, payload -> { });
+        coordinator.start();
+        Thread worker = startWorker(coordinator.getPort(), "worker", task -> {
+            ObjectNode payload = echo("worker").apply(task);
+            if (task.getId() == 1) {
+                payload.put("error", "staging failed");
+            }
+            return payload;
+        });
+        assertTrue(coordinator.awaitCompletion(10, TimeUnit.SECONDS));
+        worker.join(5000);
+        coordinator.stop();
+        assertEquals(2, coordinator.getCompleted());
+        assertEquals(1, coordinator.getFailed().size());
+        assertEquals(1, coordinator.getFailed().get(0).getId());
+    }
+
+    @Test
+    public void testTaskThatKillsItsWorkersIsGivenUp() throws Exception {
+        AtomicInteger attempts = new AtomicInteger(0);
+        Coordinator coordinator = new Coordinator(0, createTasks(1), 5000, 60000, payload -> { });
+        coordinator.start();
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < Coordinator.MAX_ATTEMPTS + 1; i++) {
+            workers.add(startWorker(coordinator.getPort(), "worker" + i, task -> {
+                attempts.incrementAndGet();
+                throw new IllegalStateException("transform crashed"); // the worker dies like a JVM would
+            }));
+        }
+        assertTrue(coordinator.awaitCompletion(20, TimeUnit.SECONDS));
+        coordinator.stop();
+        for (Thread worker : workers) {
+            worker.join(5000);
+        }
+        assertEquals(Coordinator.MAX_ATTEMPTS, attempts.get());
+        assertEquals(1, coordinator.getFailed().size());
+    }
+
+    @Test
+    public void testRemainingTasksFailWithoutWorkers() throws Exception {
+        Coordinator coordinator = new Coordinator(0, createTasks(2), 5000, 60000, payload -> { });
+        coordinator.start();
+        assertEquals(0, coordinator.getWorkerCount());
+        coordinator.failRemaining("no worker");
+        assertTrue(coordinator.awaitCompletion(1, TimeUnit.SECONDS));
+        coordinator.stop();
+        assertEquals(2, coordinator.getFailed().size());
+    }
+
+}
@@ -0,0 +1,73 @@
+package edu.polyu.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.polyu.analysis.TypeWrapper;
+import edu.polyu.util.TriTuple;
+import edu.polyu.util.Utility;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for merging the result of a remote worker into the state of the coordinator
+ */
+public class ShardRunnerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private String evaluationPath;
+    private File folder;
+
+    @Before
+    public void setUp() throws IOException {
+        evaluationPath = Utility.EVALUATION_PATH;
+        folder = Files.createTempDirectory("shard").toFile();
+        Utility.EVALUATION_PATH = folder.getAbsolutePath();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Utility.EVALUATION_PATH = evaluationPath;
+        Utility.compactIssues.clear();
+        Utility.file2bugs.clear();
+        TypeWrapper.mutant2seed.clear();
+        TypeWrapper.mutant2seq.clear();
+        TypeWrapper.mutant2parent.clear();
+        FileUtils.deleteDirectory(folder);
+    }
+
+    @Test
+    public void testSourcesOfRemoteFindingsAreWritten() throws IOException {
+        String workerRoot = "/remote/worker";
+        String mutant = workerRoot + "/iter2/mutant_2.java";
+        String parent = workerRoot + "/iter1/mutant_1.java";
+        ObjectNode payload = mapper.createObjectNode();
+        payload.put("bucket", "A");
+        payload.put("task", 7);
+        payload.put("evaluationPath", workerRoot);
+        payload.putObject("compactIssues").putObject("Rule").putArray("[T1, T2]").addArray().add("A/Seed.java").add(mutant).add("FP");
+        payload.putObject("mutant2parent").put(mutant, parent).put(parent, "A/Seed.java");
+        payload.putObject("sources").put(mutant, "class Mutant2 {}").put(parent, "class Mutant1 {}");
+        ShardRunner.mergeResult(payload);
+
+        File taskFolder = new File(folder, "shards" + File.separator + "task_7");
+        String importedMutant = new File(taskFolder, "iter2" + File.separator + "mutant_2.java").getAbsolutePath();
+        String importedParent = new File(taskFolder, "iter1" + File.separator + "mutant_1.java").getAbsolutePath();
+        List<TriTuple> tuples = Utility.compactIssues.get("Rule").get("[T1, T2]");
+        assertEquals(importedMutant, tuples.get(0).second);
+        assertEquals(new File(Utility.SEED_PATH, "A/Seed.java").getAbsolutePath(), tuples.get(0).first);
+        assertEquals(importedParent, TypeWrapper.mutant2parent.get(importedMutant));
+        assertEquals("class Mutant2 {}", FileUtils.readFileToString(new File(importedMutant), StandardCharsets.UTF_8));
+        assertEquals("class Mutant1 {}", FileUtils.readFileToString(new File(importedParent), StandardCharsets.UTF_8));
+    }
+
+}
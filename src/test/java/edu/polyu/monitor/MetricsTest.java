@@ -0,0 +1,73 @@
+package edu.polyu.monitor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LatencyHistogram and Metrics registry
+ */
+public class MetricsTest {
+
+    @Before
+    public void setUp() {
+        Metrics.enableInMemory();
+        Metrics.reset();
+    }
+
+    @After
+    public void tearDown() {
+        Metrics.reset();
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10, histogram.getCount());
+        assertEquals(55, histogram.getSum());
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(10, histogram.getPercentile(100));
+        assertEquals(10, histogram.getMax());
+    }
+
+    @Test
+    public void testLargeValuesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long value = 123_456_789L;
+        histogram.record(value);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= value);
+        assertTrue(p99 <= value * 1.07);
+    }
+
+    @Test
+    public void testBucketIndexIsMonotonic() {
+        int last = -1;
+        for (long v = 0; v < 1_000_000; v += 997) {
+            int index = LatencyHistogram.indexOf(v);
+            assertTrue(index >= last);
+            assertTrue(LatencyHistogram.highestValueOf(index) >= v);
+            last = index;
+        }
+        assertTrue(LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(Long.MAX_VALUE)) >= Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testCountersAndExport() {
+        Metrics.increment("statfier_mutants_total", "transform", "AddBrackets", "result", "success");
+        Metrics.increment("statfier_mutants_total", "transform", "AddBrackets", "result", "success");
+        Metrics.record(Metrics.PARSE, System.nanoTime() - 1_000_000);
+        assertEquals(2, Metrics.getCount("statfier_mutants_total", "transform", "AddBrackets", "result", "success"));
+        String prom = Metrics.toPrometheus();
+        assertTrue(prom.contains("statfier_mutants_total{transform=\"AddBrackets\",result=\"success\"} 2"));
+        assertTrue(prom.contains("statfier_stage_seconds_count{stage=\"parse\"} 1"));
+        String json = Metrics.toJson();
+        assertTrue(json.contains("\"statfier_stage_seconds\""));
+    }
+
+}
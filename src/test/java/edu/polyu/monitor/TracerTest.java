@@ -0,0 +1,78 @@
+package edu.polyu.monitor;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Tracer, spans of one mutant should share the lane of its seed
+ */
+public class TracerTest {
+
+    @Test
+    public void testSpansFollowLineage() throws Exception {
+        File traceFile = File.createTempFile("trace", ".json");
+        traceFile.deleteOnExit();
+        Tracer.enable(traceFile);
+        Tracer.lineage("/tmp/mutants/mutant_1.java", "/tmp/seeds/Seed.java", "/tmp/seeds/Seed.java", "[AddBrackets]");
+        long startTime = Tracer.start();
+        Tracer.span(Tracer.GENERATE, "/tmp/mutants/mutant_1.java", startTime, "transform", "AddBrackets");
+        Tracer.batchSpan(Metrics.ANALYZE, Arrays.asList("/tmp/mutants/mutant_1.java", "/tmp/mutants/mutant_2.java"), startTime, "analyzer", "PMD");
+        Tracer.close();
+        assertFalse(Tracer.isEnabled());
+
+        JsonNode events = new ObjectMapper().readTree(traceFile);
+        assertTrue(events.isArray());
+        JsonNode generate = null;
+        JsonNode analyze1 = null;
+        JsonNode analyze2 = null;
+        for (JsonNode event : events) {
+            if (!event.get("ph").asText().equals("X")) {
+                continue;
+            }
+            String name = event.get("name").asText();
+            if (name.equals(Tracer.GENERATE)) {
+                generate = event;
+            } else if (event.get("args").get("seed").asText().endsWith("Seed.java")) {
+                analyze1 = event;
+            } else {
+                analyze2 = event;
+            }
+        }
+        assertNotNull(generate);
+        assertNotNull(analyze1);
+        assertNotNull(analyze2);
+        assertEquals(generate.get("pid"), analyze1.get("pid"));
+        assertEquals(generate.get("tid"), analyze1.get("tid"));
+        assertEquals("[AddBrackets]", analyze1.get("args").get("transSeq").asText());
+        assertEquals("2", analyze1.get("args").get("batchSize").asText());
+        assertNotEquals(generate.get("pid"), analyze2.get("pid"));
+    }
+
+    @Test
+    public void testReleasedLanesAreForgotten() throws Exception {
+        File traceFile = File.createTempFile("trace", ".json");
+        traceFile.deleteOnExit();
+        Tracer.enable(traceFile);
+        try {
+            for (int i = 0; i < 100; i++) {
+                String mutant = "/tmp/mutants/mutant_" + i + ".java";
+                Tracer.lineage(mutant, "/tmp/seeds/Seed.java", "/tmp/seeds/Seed.java", "[AddBrackets]");
+                Tracer.span(Tracer.GENERATE, mutant, Tracer.start());
+                Tracer.release(mutant);
+            }
+            Tracer.span(Metrics.ANALYZE, "/tmp/reduction/Candidate.java", Tracer.start());
+            assertEquals(1, Tracer.getLaneCount());
+            Tracer.release("/tmp/reduction/Candidate.java");
+            assertEquals(0, Tracer.getLaneCount());
+        } finally {
+            Tracer.close();
+        }
+    }
+
+}
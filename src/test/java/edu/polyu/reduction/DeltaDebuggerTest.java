@@ -0,0 +1,77 @@
+package edu.polyu.reduction;
+
+import edu.polyu.util.Pair;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for DeltaDebugger with an oracle that needs the transformed statement and its variable
+ */
+public class DeltaDebuggerTest {
+
+    private static final String PARENT = "public class A {\n" +
+            "    int x = 1;\n" +
+            "    void foo() {\n" +
+            "        int a = 1;\n" +
+            "        int b = 2;\n" +
+            "        System.out.println(a + b);\n" +
+            "    }\n" +
+            "    void bar() {\n" +
+            "        int c = 3;\n" +
+            "        if (c > 2) {\n" +
+            "            c++;\n" +
+            "        }\n" +
+            "    }\n" +
+            "    void baz() {\n" +
+            "        return;\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String MUTANT = PARENT.replace("if (c > 2) {", "if (true && c > 2) {");
+
+    private static boolean interesting(Pair candidate) {
+        return candidate.second.contains("true && c > 2") && candidate.second.contains("int c = 3") && !candidate.first.contains("true &&");
+    }
+
+    @Test
+    public void testUnrelatedUnitsAreRemovedFromBoth() {
+        List<Integer> batchSizes = new ArrayList<>();
+        DeltaDebugger debugger = new DeltaDebugger(candidates -> {
+            batchSizes.add(candidates.size());
+            List<Boolean> results = new ArrayList<>();
+            for (Pair candidate : candidates) {
+                results.add(interesting(candidate));
+            }
+            return results;
+        }, () -> false);
+        Pair reduced = debugger.reduce(new Pair(PARENT, MUTANT));
+        assertTrue(interesting(reduced));
+        assertFalse(reduced.second.contains("foo"));
+        assertFalse(reduced.second.contains("baz"));
+        assertFalse(reduced.second.contains("int x"));
+        assertFalse(reduced.first.contains("foo"));
+        assertTrue(reduced.first.contains("if (c > 2)"));
+        assertTrue(reduced.second.contains("void bar()"));
+        assertFalse(reduced.second.contains("c++"));
+        assertEquals(debugger.getTests(), batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().anyMatch(size -> size > 1));
+    }
+
+    @Test
+    public void testUninterestingCandidatesKeepOrigin() {
+        DeltaDebugger debugger = new DeltaDebugger(candidates -> {
+            List<Boolean> results = new ArrayList<>();
+            for (Pair candidate : candidates) {
+                results.add(false);
+            }
+            return results;
+        }, () -> false);
+        Pair origin = new Pair(PARENT, MUTANT);
+        assertSame(origin, debugger.reduce(origin));
+    }
+
+}
@@ -0,0 +1,44 @@
+package edu.polyu.reduction;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the normalized AST diff of FindingClusterer
+ */
+public class FindingClustererTest {
+
+    private static final String SEED1 = "public class A {\n" +
+            "    void foo(int c) {\n" +
+            "        int d = c + 1;\n" +
+            "        System.out.println(d);\n" +
+            "    }\n" +
+            "}\n";
+
+    private static final String SEED2 = "public class B {\n" +
+            "    int x;\n" +
+            "    void bar(String s) {\n" +
+            "        s = s.trim();\n" +
+            "        x = s.length();\n" +
+            "    }\n" +
+            "}\n";
+
+    @Test
+    public void testSameTransformOnDifferentSeedsHasSameDiff() {
+        String mutant1 = SEED1.replace("System.out.println(d);", "if (true) {\n            System.out.println(d);\n        }");
+        String mutant2 = SEED2.replace("x = s.length();", "if (true) {\n            x = s.length();\n        }");
+        String diff1 = FindingClusterer.diff(SEED1, mutant1);
+        assertEquals("+IfStatement(BooleanLiteral()Block(*))", diff1);
+        assertEquals(diff1, FindingClusterer.diff(SEED2, mutant2));
+    }
+
+    @Test
+    public void testDifferentTransformsHaveDifferentDiffs() {
+        String wrapped = SEED1.replace("System.out.println(d);", "if (true) {\n            System.out.println(d);\n        }");
+        String negated = SEED1.replace("c + 1", "c - -1");
+        assertNotEquals(FindingClusterer.diff(SEED1, wrapped), FindingClusterer.diff(SEED1, negated));
+        assertEquals("", FindingClusterer.diff(SEED1, SEED1));
+    }
+
+}
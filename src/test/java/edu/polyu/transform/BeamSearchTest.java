@@ -0,0 +1,86 @@
+package edu.polyu.transform;
+
+import edu.polyu.analysis.MutantHandle;
+import edu.polyu.util.Frontier;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the stratified selection of BeamSearch
+ */
+public class BeamSearchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        BeamSearch.width = 0;
+        BeamSearch.scoreName = "novelty";
+    }
+
+    private static MutantHandle handle(String seed, int index, String transform) {
+        List<String> transSeq = new ArrayList<>();
+        transSeq.add(transform);
+        List<String> features = new ArrayList<>();
+        features.add("t:" + transform);
+        features.add("n:" + (index % 7 == 0 ? "ForStatement" : "Block"));
+        return new MutantHandle("/mutants/iter1/bucket/" + seed + index + ".java", "bucket", "/seeds/bucket/" + seed + ".java",
+                "/seeds/bucket/" + seed + ".java", 1, 0, 0, transSeq, new ArrayList<>(), -1, 0, features);
+    }
+
+    @Test
+    public void testEveryTransformGetsItsQuota() {
+        // Mutants are named by their last transform
+        List<String> group = Arrays.asList("AddBrackets", "AddBrackets", "AddBrackets", "LoopConversion1", "CFWrapperWithIfTrue");
+        double[] scores = {0.9, 0.8, 0.7, 0.1, 0.2};
+        List<String> selected = BeamSearch.select(group, scores, name -> name, 3);
+        assertEquals(Arrays.asList("AddBrackets", "LoopConversion1", "CFWrapperWithIfTrue"), selected);
+    }
+
+    @Test
+    public void testRemainingSlotsGoToBestScores() {
+        List<String> group = Arrays.asList("a1", "a2", "a3", "a4", "b1");
+        double[] scores = {0.7, 0.9, 0.8, 0.3, 0.1};
+        List<String> selected = BeamSearch.select(group, scores, name -> name.substring(0, 1), 4);
+        assertEquals(Arrays.asList("a1", "a2", "a3", "b1"), selected);
+    }
+
+
+    @Test
+    public void testBeamBoundsLineagesOfTheWholeFrontier() {
+        BeamSearch.width = 3;
+        Frontier frontier = new Frontier("bucket", folder.getRoot());
+        // Parents of one lineage span several chunks of Frontier.chunkSize
+        for (int i = 0; i < 3 * Frontier.chunkSize; i++) {
+            frontier.add(handle("A", i, i % 2 == 0 ? "AddBrackets" : "LoopConversion1"));
+            if (i % 40 == 0) {
+                frontier.add(handle("B", i, "AddBrackets"));
+            }
+        }
+        BeamSearch.prune(frontier);
+        Map<String, Integer> seed2count = new HashMap<>();
+        Map<String, Integer> transform2count = new HashMap<>();
+        for (MutantHandle handle : frontier.poll(frontier.size())) {
+            seed2count.merge(handle.getInitSeedPath(), 1, Integer::sum);
+            if (handle.getInitSeedPath().endsWith("A.java")) {
+                transform2count.merge(handle.getTransSeq().get(0), 1, Integer::sum);
+            }
+        }
+        assertEquals(Integer.valueOf(3), seed2count.get("/seeds/bucket/A.java"));
+        assertEquals(Integer.valueOf(3), seed2count.get("/seeds/bucket/B.java"));
+        assertEquals(2, transform2count.size());
+        frontier.close();
+    }
+
+}
@@ -0,0 +1,70 @@
+package edu.polyu.transform;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the in-memory generation of MutantGenerator
+ */
+public class MutantGeneratorTest {
+
+    private static final String SOURCE = "public class A {\n"
+            + "    int f(int x) {\n"
+            + "        if (x > 0) return 1;\n"
+            + "        return 0;\n"
+            + "    }\n"
+            + "}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Runs in a JVM whose working folder has neither config.properties nor tools
+    public static class Embedder {
+        public static void main(String[] args) {
+            List<MutantGenerator.Mutant> mutants = MutantGenerator.of("CFWrapperWithIfTrue", "AddBrackets").generate(SOURCE)
+                    .collect(Collectors.toList());
+            long children = new MutantGenerator().generate(mutants.get(0)).limit(3).count();
+            System.out.println("mutants: " + mutants.size() + " " + mutants.get(0).getName() + " children: " + children);
+        }
+    }
+
+    @Test
+    public void testGenerateWithoutConfig() throws Exception {
+        File workFolder = folder.newFolder("embedder");
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"), Embedder.class.getName())
+                .directory(workFolder).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(2, TimeUnit.MINUTES));
+        assertEquals(output, 0, process.exitValue());
+        assertTrue(output, output.matches("(?s).*mutants: [1-9][0-9]* A_1 children: 3\\s*"));
+        assertEquals(0, workFolder.list().length); // nothing is written
+    }
+
+    @Test
+    public void testMutantsContinueTheLineageOfTheirParent() {
+        MutantGenerator generator = MutantGenerator.of("CFWrapperWithIfTrue");
+        MutantGenerator.Mutant mutant = generator.generate("Sample", SOURCE).findFirst().get();
+        assertEquals("Sample_1", mutant.getName());
+        assertEquals(1, mutant.getDepth());
+        assertNotEquals(SOURCE, mutant.getSource());
+        MutantGenerator.Mutant child = generator.generate(mutant).findFirst().get();
+        assertSame(mutant, child.getParent());
+        assertEquals(List.of("CFWrapperWithIfTrue", "CFWrapperWithIfTrue"), child.getTransSeq());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownTransformIsRejected() {
+        MutantGenerator.of("NoSuchTransform");
+    }
+
+}
@@ -0,0 +1,71 @@
+package edu.polyu.transform;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TransformBandit posteriors and persistence
+ */
+public class TransformBanditTest {
+
+    private static final List<String> TRANSFORMS = Arrays.asList("AddBrackets", "LoopConversion1", "CFWrapperWithIfTrue");
+
+    @Test
+    public void testProductiveArmIsRankedFirst() {
+        TransformBandit bandit = new TransformBandit(new Random(1));
+        for (int i = 0; i < 50; i++) {
+            bandit.update(TransformBandit.getArm("LoopConversion1", "ForStatement", "bucket"), true);
+            bandit.update(TransformBandit.getArm("AddBrackets", "ForStatement", "bucket"), false);
+            bandit.update(TransformBandit.getArm("CFWrapperWithIfTrue", "ForStatement", "bucket"), false);
+        }
+        int first = 0;
+        for (int i = 0; i < 100; i++) {
+            if (bandit.rank(TRANSFORMS, Function.identity(), "ForStatement", "bucket").get(0).equals("LoopConversion1")) {
+                first++;
+            }
+        }
+        // Exploration ranks an arm at random in about 10% of the samples
+        assertTrue(first > 80);
+    }
+
+    @Test
+    public void testPriorsAreDecayedAfterReload() throws Exception {
+        TransformBandit bandit = new TransformBandit(new Random(1));
+        String arm = TransformBandit.getArm("AddBrackets", "IfStatement", "bucket");
+        for (int i = 0; i < 8; i++) {
+            bandit.update(arm, i < 6);
+        }
+        File priors = Files.createTempFile("bandit", ".json").toFile();
+        priors.deleteOnExit();
+        bandit.save(priors);
+        TransformBandit reloaded = new TransformBandit(new Random(1));
+        reloaded.load(priors, 0.5);
+        assertEquals(7.0 / 10, bandit.getMean(arm), 1e-9);
+        assertEquals(4.0 / 6, reloaded.getMean(arm), 1e-9);
+    }
+
+    @Test
+    public void testObservationsAreMergedOnce() {
+        ObjectMapper mapper = new ObjectMapper();
+        TransformBandit worker = new TransformBandit(new Random(1));
+        TransformBandit coordinator = new TransformBandit(new Random(1));
+        String arm = TransformBandit.getArm("AddBrackets", "IfStatement", "bucket");
+        worker.update(arm, true);
+        coordinator.merge(worker.drainObservations(mapper));
+        ObjectNode empty = worker.drainObservations(mapper);
+        coordinator.merge(empty);
+        assertEquals(0, empty.size());
+        assertEquals(2.0 / 3, coordinator.getMean(arm), 1e-9);
+    }
+
+}
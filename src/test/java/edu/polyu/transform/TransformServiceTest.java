@@ -0,0 +1,115 @@
+package edu.polyu.transform;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the protocol of TransformService
+ */
+public class TransformServiceTest {
+
+    private static final String SOURCE = "public class A {\n"
+            + "    public int sum(int[] values) {\n"
+            + "        int sum = 0;\n"
+            + "        for (int i = 0; i < values.length; i++) {\n"
+            + "            sum += values[i];\n"
+            + "        }\n"
+            + "        return sum;\n"
+            + "    }\n"
+            + "}\n";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final TransformService service = new TransformService(2);
+
+    @After
+    public void tearDown() {
+        service.close();
+    }
+
+    private List<JsonNode> serve(String... lines) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        service.serve(new ByteArrayInputStream((String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8)), output);
+        List<JsonNode> messages = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isEmpty()) {
+                messages.add(mapper.readTree(line));
+            }
+        }
+        return messages;
+    }
+
+    private static List<JsonNode> ofType(List<JsonNode> messages, String type) {
+        List<JsonNode> result = new ArrayList<>();
+        for (JsonNode message : messages) {
+            if (message.path("type").asText().equals(type)) {
+                result.add(message);
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void testRequestsOfOneSession() throws Exception {
+        ObjectNode transform = mapper.createObjectNode();
+        transform.put("type", "transform");
+        transform.put("id", 7);
+        transform.put("source", SOURCE);
+        transform.put("name", "A.java");
+        transform.putArray("transforms").add("CFWrapperWithIfTrue").add("AddBrackets");
+        List<JsonNode> messages = serve("{\"type\":\"list\"}", transform.toString(), "{not json", "{\"type\":\"shutdown\"}", "{\"type\":\"list\"}");
+
+        List<JsonNode> lists = ofType(messages, "transforms");
+        assertEquals(1, lists.size()); // requests after the shutdown are not served
+        List<String> names = new ArrayList<>();
+        lists.get(0).get("names").forEach(name -> names.add(name.asText()));
+        assertTrue(names.contains("CFWrapperWithIfTrue"));
+
+        List<JsonNode> errors = ofType(messages, "error");
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0).get("message").asText().startsWith("Malformed request"));
+
+        List<JsonNode> mutants = ofType(messages, "mutant");
+        assertFalse(mutants.isEmpty());
+        for (int i = 0; i < mutants.size(); i++) {
+            JsonNode mutant = mutants.get(i);
+            assertEquals(7, mutant.get("id").asInt());
+            assertEquals(i + 1, mutant.get("index").asInt());
+            assertTrue(mutant.get("transform").asText().matches("CFWrapperWithIfTrue|AddBrackets"));
+            assertTrue(mutant.has("source")); // without output the mutants are returned inline
+            assertNotEquals(SOURCE, mutant.get("source").asText());
+        }
+        assertEquals("CFWrapperWithIfTrue", mutants.get(0).get("transform").asText()); // transforms run in the requested order
+        List<JsonNode> done = ofType(messages, "done");
+        assertEquals(1, done.size());
+        assertEquals(7, done.get(0).get("id").asInt());
+        assertEquals(mutants.size(), done.get(0).get("mutants").asInt());
+        // the results of a request are streamed before its done message
+        assertTrue(messages.indexOf(mutants.get(mutants.size() - 1)) < messages.indexOf(done.get(0)));
+    }
+
+    @Test
+    public void testTransformErrorsAreReportedWithTheRequestId() throws Exception {
+        List<JsonNode> messages = serve("{\"type\":\"transform\",\"id\":\"a\",\"source\":\"class A {}\",\"transforms\":[\"NoSuchTransform\"]}",
+                "{\"type\":\"transform\",\"id\":\"b\"}", "{\"type\":\"ping\",\"id\":\"c\"}");
+        List<JsonNode> errors = ofType(messages, "error");
+        assertEquals(3, errors.size());
+        List<String> ids = new ArrayList<>();
+        for (JsonNode error : errors) {
+            ids.add(error.get("id").asText());
+        }
+        assertTrue(ids.containsAll(List.of("a", "b", "c")));
+        assertTrue(ofType(messages, "done").isEmpty());
+    }
+
+}
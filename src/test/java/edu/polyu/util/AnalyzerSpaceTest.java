@@ -0,0 +1,33 @@
+package edu.polyu.util;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the shared view of several analyzer namespaces
+ */
+public class AnalyzerSpaceTest {
+
+    @Test
+    public void testUnionMergesViolationLines() {
+        AnalyzerSpace pmd = new AnalyzerSpace("PMD", new File("reports/PMD"));
+        AnalyzerSpace checkStyle = new AnalyzerSpace("CheckStyle", new File("reports/CheckStyle"));
+        pmd.file2row.put("A.java", new ArrayList<>(Arrays.asList(3, 5)));
+        checkStyle.file2row.put("A.java", new ArrayList<>(Arrays.asList(5, 8)));
+        checkStyle.file2row.put("B.java", new ArrayList<>(Arrays.asList(1)));
+        List<AnalyzerSpace> spaces = Arrays.asList(pmd, checkStyle);
+        AnalyzerSpace union = AnalyzerSpace.union(spaces, new File("reports"));
+        assertEquals(Arrays.asList(3, 5, 8), union.file2row.get("A.java"));
+        assertEquals(Arrays.asList(1), union.file2row.get("B.java"));
+        // The namespaces of the analyzers are left untouched
+        assertEquals(Arrays.asList(3, 5), pmd.file2row.get("A.java"));
+        assertFalse(pmd.file2row.containsKey("B.java"));
+    }
+
+}
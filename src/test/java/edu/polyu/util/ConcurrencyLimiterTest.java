@@ -0,0 +1,79 @@
+package edu.polyu.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ConcurrencyLimiter decisions
+ */
+public class ConcurrencyLimiterTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long ENOUGH_MEMORY = Long.MAX_VALUE;
+
+    @Test
+    public void testIncreaseWhenSaturated() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 3, 1);
+        for (int round = 0; round < 10; round++) {
+            int permits = limiter.getLimit();
+            for (int i = 0; i < permits; i++) {
+                limiter.acquire();
+            }
+            assertEquals("increase", limiter.update(100 * MS, false, 0.1, ENOUGH_MEMORY));
+            for (int i = 1; i < permits; i++) {
+                limiter.update(100 * MS, false, 0.1, ENOUGH_MEMORY);
+            }
+        }
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    public void testDecreaseRespectsFloor() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 2, 8, 8);
+        limiter.acquire();
+        assertEquals("decrease", limiter.update(10 * MS, false, 0.1, 0));
+        assertEquals(6, limiter.getLimit());
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire();
+            Thread.sleep(15);
+            limiter.update(0, true, 0.1, ENOUGH_MEMORY);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testDecreaseOnLoadAndLatency() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 8, 4);
+        limiter.acquire();
+        assertEquals("hold", limiter.update(10 * MS, false, 0.1, ENOUGH_MEMORY));
+        limiter.acquire();
+        assertEquals("decrease", limiter.update(10 * MS, false, 4.0, ENOUGH_MEMORY));
+        assertEquals(3, limiter.getLimit());
+        Thread.sleep(50);
+        limiter.acquire();
+        assertEquals("decrease", limiter.update(1000 * MS, false, 0.1, ENOUGH_MEMORY));
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    public void testAcquireBlocksAtLimit() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter("test", 1, 1, 1);
+        limiter.acquire();
+        Thread waiter = new Thread(() -> {
+            try {
+                limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(200);
+        assertTrue(waiter.isAlive());
+        limiter.update(10 * MS, false, 0.1, ENOUGH_MEMORY);
+        waiter.join(1000);
+        assertFalse(waiter.isAlive());
+        assertEquals(1, limiter.getInflight());
+    }
+
+}
@@ -0,0 +1,77 @@
+package edu.polyu.util;
+
+import edu.polyu.analysis.MutantHandle;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the spilling of Frontier
+ */
+public class FrontierTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setUp() {
+        Frontier.memoryLimit = 3;
+        Frontier.heapThreshold = 1.0;
+    }
+
+    @After
+    public void tearDown() {
+        Frontier.memoryLimit = 10000;
+        Frontier.heapThreshold = 0.8;
+    }
+
+    private static MutantHandle handle(int index) {
+        List<String> transSeq = new ArrayList<>();
+        transSeq.add("AddBrackets");
+        transSeq.add("LoopConversion" + index);
+        List<Integer> transNodeTypes = new ArrayList<>();
+        transNodeTypes.add(8); // Block
+        transNodeTypes.add(24); // ForStatement
+        return new MutantHandle("/mutants/iter2/bucket/A" + index + ".java", "bucket", "/seeds/bucket/A.java",
+                "/mutants/iter1/bucket/A.java", 2, index, index + 1, transSeq, transNodeTypes, 100 + index, 42, new ArrayList<>());
+    }
+
+    @Test
+    public void testSpilledHandlesKeepOrderAndFields() {
+        File spillFolder = new File(folder.getRoot(), "frontier");
+        Frontier frontier = new Frontier("bucket", spillFolder);
+        for (int i = 0; i < 5; i++) {
+            frontier.add(handle(i));
+        }
+        assertEquals(5, frontier.size());
+        assertEquals(1, spillFolder.listFiles().length);
+        List<MutantHandle> polled = frontier.poll(4);
+        // handles added after the first spill go to the file as well, so the order is kept
+        frontier.add(handle(5));
+        polled.addAll(frontier.poll(10));
+        assertTrue(frontier.isEmpty());
+        assertEquals(6, polled.size());
+        for (int i = 0; i < polled.size(); i++) {
+            MutantHandle handle = polled.get(i);
+            assertEquals("/mutants/iter2/bucket/A" + i + ".java", handle.getFilePath());
+            assertEquals("/seeds/bucket/A.java", handle.getInitSeedPath());
+            assertEquals(2, handle.getDepth());
+            assertEquals(i + 1, handle.getParViolations());
+            assertEquals("LoopConversion" + i, handle.getTransSeq().get(1));
+            assertEquals(Integer.valueOf(24), handle.getTransNodeTypes().get(1));
+            assertEquals(100 + i, handle.getTransStart());
+            assertEquals(42, handle.getTransLength());
+        }
+        frontier.close();
+        assertEquals(0, spillFolder.listFiles().length);
+    }
+
+}
@@ -0,0 +1,62 @@
+package edu.polyu.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the fingerprints and carried paths of incremental campaigns
+ */
+public class IncrementalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSeedFingerprints() throws Exception {
+        File seed = folder.newFile("Seed1.java");
+        File config = folder.newFile("bucket1.xml");
+        Files.writeString(seed.toPath(), "class Seed1 {}");
+        Files.writeString(config.toPath(), "<module/>");
+        String fingerprint = Incremental.getSeedFingerprint("campaign", seed.getPath(), config.getPath());
+        assertEquals(fingerprint, Incremental.getSeedFingerprint("campaign", seed.getPath(), config.getPath()));
+        assertNotEquals(fingerprint, Incremental.getSeedFingerprint("other", seed.getPath(), config.getPath()));
+        assertNotEquals(fingerprint, Incremental.getSeedFingerprint("campaign", seed.getPath(), null));
+        Files.writeString(config.toPath(), "<module name=\"Checker\"/>");
+        assertNotEquals(fingerprint, Incremental.getSeedFingerprint("campaign", seed.getPath(), config.getPath()));
+    }
+
+    @Test
+    public void testManifestOfAnotherCampaignIsIgnored() {
+        Map<String, String> seed2fingerprint = new LinkedHashMap<>();
+        seed2fingerprint.put("/seeds/bucket/Seed1.java", "abc");
+        Incremental.writeManifest(folder.getRoot(), "campaign", seed2fingerprint);
+        assertEquals(seed2fingerprint, Incremental.readManifest(folder.getRoot(), "campaign"));
+        assertNull(Incremental.readManifest(folder.getRoot(), "other"));
+        assertNull(Incremental.readManifest(new File(folder.getRoot(), "missing"), "campaign"));
+    }
+
+    @Test
+    public void testCarriedPathsKeepOneFolderPerSeed() {
+        String sep = File.separator;
+        String mutant = sep + "eval" + sep + "mutants" + sep + "iter1" + sep + "bucket" + sep + "mutant_5.java";
+        String tail = Incremental.getCarriedTail(mutant);
+        assertEquals("mutants" + sep + "iter1" + sep + "bucket" + sep + "mutant_5.java", tail);
+        String carried = Incremental.getCarriedPath(tail, "/seeds/bucket/Seed1.java");
+        assertTrue(carried.startsWith(Incremental.CARRIED + sep));
+        assertTrue(carried.endsWith(tail));
+        // a finding carried twice stays at the same place
+        String again = sep + "eval" + sep + carried;
+        assertEquals(carried, Incremental.getCarriedTail(again));
+        assertEquals(carried, Incremental.getCarriedPath(Incremental.getCarriedTail(again), "/seeds/bucket/Seed1.java"));
+        assertNull(Incremental.getCarriedTail("/seeds/bucket/Seed1.java"));
+    }
+
+}
@@ -0,0 +1,215 @@
+package edu.polyu.util;
+
+import edu.polyu.report.Report;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the packs of MutantStore
+ */
+public class MutantStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MutantStore store;
+
+    @After
+    public void tearDown() {
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    private String mutantPath(int depth, int index) {
+        return new File(folder.getRoot(), "mutants/iter" + depth + "/bucket/A" + index + ".java").getAbsolutePath();
+    }
+
+    private static String source(int index) {
+        return "public class A" + index + " {\n    int field = " + index + ";\n}\n";
+    }
+
+    @Test
+    public void testRecordsAreReadBackAfterReopen() {
+        File packFolder = new File(folder.getRoot(), "packs");
+        store = new MutantStore(packFolder);
+        for (int i = 0; i < 20; i++) {
+            store.putSource(mutantPath(1 + i % 2, i), source(i));
+        }
+        store.putResult(mutantPath(1, 0), "{\"Rule\":[2]}");
+        // reads in between appends renew the mapping of the pack
+        assertEquals(source(0), store.getSource(mutantPath(1, 0)));
+        store.putSource(mutantPath(1, 0), source(100));
+        assertEquals(source(100), store.getSource(mutantPath(1, 0)));
+        assertEquals(2, packFolder.listFiles().length);
+        store.close();
+
+        store = new MutantStore(packFolder);
+        assertEquals(source(100), store.getSource(mutantPath(1, 0)));
+        for (int i = 1; i < 20; i++) {
+            assertEquals(source(i), store.getSource(mutantPath(1 + i % 2, i)));
+        }
+        assertEquals("{\"Rule\":[2]}", store.getResult(mutantPath(1, 0)));
+        assertNull(store.getSource(mutantPath(3, 0)));
+    }
+
+    @Test
+    public void testTruncatedRecordIsIgnored() throws Exception {
+        File packFolder = new File(folder.getRoot(), "packs");
+        store = new MutantStore(packFolder);
+        store.putSource(mutantPath(1, 0), source(0));
+        store.putSource(mutantPath(1, 1), source(1));
+        store.close();
+        File pack = packFolder.listFiles()[0];
+        try (RandomAccessFile file = new RandomAccessFile(pack, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        store = new MutantStore(packFolder);
+        assertEquals(source(0), store.getSource(mutantPath(1, 0)));
+        assertFalse(store.contains(mutantPath(1, 1)));
+        // the damaged tail is overwritten by the next record
+        store.putSource(mutantPath(1, 1), source(1));
+        assertEquals(source(1), store.getSource(mutantPath(1, 1)));
+    }
+
+    @Test
+    public void testExportAndRelease() throws Exception {
+        MutantStore.init(new File(folder.getRoot(), "packs"));
+        MutantStore.enabled = true;
+        try {
+            String path = mutantPath(1, 0);
+            MutantStore.getInstance().putSource(path, source(0));
+            assertFalse(new File(path).exists());
+            assertEquals(source(0), MutantStore.read(path));
+            assertTrue(MutantStore.export(path));
+            assertEquals(source(0), new String(Files.readAllBytes(new File(path).toPath())));
+            MutantStore.release(path);
+            assertFalse(new File(path).exists());
+            MutantStore.keep(path);
+            MutantStore.release(path);
+            assertTrue(new File(path).exists());
+            assertFalse(MutantStore.export(mutantPath(1, 1)));
+        } finally {
+            MutantStore.enabled = false;
+            MutantStore.getInstance().close();
+        }
+    }
+
+    @Test
+    public void testFullSegmentRollsOver() {
+        File packFolder = new File(folder.getRoot(), "packs");
+        long limit = MutantStore.segmentLimit;
+        MutantStore.segmentLimit = 512;
+        try {
+            store = new MutantStore(packFolder);
+            for (int i = 0; i < 40; i++) {
+                store.putSource(mutantPath(1, i), source(i));
+            }
+            File[] packFiles = packFolder.listFiles();
+            assertTrue(packFiles.length > 2);
+            for (File packFile : packFiles) {
+                assertTrue(packFile.length() <= 512);
+            }
+            assertTrue(new File(packFolder, "iter1_bucket.1.pack").exists());
+            store.putSource(mutantPath(1, 0), source(100));
+            store.close();
+
+            store = new MutantStore(packFolder);
+            assertEquals(source(100), store.getSource(mutantPath(1, 0)));
+            for (int i = 1; i < 40; i++) {
+                assertEquals(source(i), store.getSource(mutantPath(1, i)));
+            }
+        } finally {
+            MutantStore.segmentLimit = limit;
+        }
+        assertEquals(0, MutantStore.getSegment("iter1_bucket.pack"));
+        assertEquals(12, MutantStore.getSegment("iter1_bucket.12.pack"));
+    }
+
+    @Test
+    public void testViolationsMoveFromTheHeapToTheStore() {
+        MutantStore.init(new File(folder.getRoot(), "packs"));
+        MutantStore.enabled = true;
+        HashMap<String, HashMap<String, List<Integer>>> file2bugs = Utility.file2bugs;
+        Utility.file2bugs = new HashMap<>();
+        try {
+            String path = mutantPath(1, 0);
+            HashMap<String, List<Integer>> bug2lines = new HashMap<>();
+            bug2lines.put("Rule", Arrays.asList(2, 5));
+            Utility.file2bugs.put(path, bug2lines);
+            MutantStore.storeBug2lines(path); // not a stored mutant, e.g. a seed
+            assertTrue(Utility.file2bugs.containsKey(path));
+
+            MutantStore.getInstance().putSource(path, source(0));
+            MutantStore.storeBug2lines(path);
+            assertFalse(Utility.file2bugs.containsKey(path));
+            Map<String, List<Integer>> stored = MutantStore.getBug2lines(path);
+            assertEquals(Arrays.asList(2, 5), stored.get("Rule"));
+            assertEquals(1, MutantStore.getStoredPaths().size());
+            // a mutant without report stays without violations
+            MutantStore.getInstance().putSource(mutantPath(1, 1), source(1));
+            MutantStore.storeBug2lines(mutantPath(1, 1));
+            assertNull(MutantStore.getBug2lines(mutantPath(1, 1)));
+            MutantStore.clearResults();
+            assertTrue(MutantStore.getStoredPaths().isEmpty());
+        } finally {
+            Utility.file2bugs = file2bugs;
+            MutantStore.enabled = false;
+            MutantStore.getInstance().close();
+        }
+    }
+
+    @Test
+    public void testViolationsAreStoredPerAnalyzer() {
+        MutantStore.init(new File(folder.getRoot(), "packs"));
+        MutantStore.enabled = true;
+        AnalyzerSpace pmd = new AnalyzerSpace("PMD", new File(folder.getRoot(), "PMD"));
+        AnalyzerSpace checkStyle = new AnalyzerSpace("CheckStyle", new File(folder.getRoot(), "CheckStyle"));
+        HashMap<String, List<Integer>> file2row = Utility.file2row;
+        HashMap<String, Report> file2report = Utility.file2report;
+        HashMap<String, HashMap<String, List<Integer>>> file2bugs = Utility.file2bugs;
+        ConcurrentHashMap<String, HashMap<String, List<TriTuple>>> compactIssues = Utility.compactIssues;
+        File reportFolder = Utility.REPORT_FOLDER;
+        try {
+            String path = mutantPath(1, 0);
+            MutantStore.getInstance().putSource(path, source(0));
+            pmd.file2bugs.computeIfAbsent(path, k -> new HashMap<>()).put("PMDRule", Arrays.asList(2));
+            checkStyle.file2bugs.computeIfAbsent(path, k -> new HashMap<>()).put("CheckStyleRule", Arrays.asList(4));
+            for (AnalyzerSpace space : Arrays.asList(pmd, checkStyle)) {
+                space.activate();
+                MutantStore.storeBug2lines(path);
+                assertTrue(space.file2bugs.isEmpty());
+            }
+            pmd.activate();
+            assertEquals(Collections.singleton("PMDRule"), MutantStore.getBug2lines(path).keySet());
+            assertEquals(Collections.singleton(path), MutantStore.getStoredPaths());
+            checkStyle.activate();
+            assertEquals(Collections.singleton("CheckStyleRule"), MutantStore.getBug2lines(path).keySet());
+            AnalyzerSpace.union(Arrays.asList(pmd, checkStyle), folder.getRoot()).activate();
+            assertTrue(MutantStore.getStoredPaths().isEmpty());
+        } finally {
+            Utility.file2row = file2row;
+            Utility.file2report = file2report;
+            Utility.file2bugs = file2bugs;
+            Utility.compactIssues = compactIssues;
+            Utility.REPORT_FOLDER = reportFolder;
+            MutantStore.enabled = false;
+            MutantStore.getInstance().close();
+        }
+    }
+
+}
@@ -0,0 +1,81 @@
+package edu.polyu.util;
+
+import edu.polyu.analyzer.MutantRef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ProcessSupervisor, only runs on systems with /bin/bash
+ */
+public class ProcessSupervisorTest {
+
+    @Before
+    public void setUp() {
+        ProcessSupervisor.reset();
+        ProcessSupervisor.defaultTimeout = 1;
+        ProcessSupervisor.minTimeout = 1;
+        ProcessSupervisor.minSamples = 3;
+        ProcessSupervisor.maxRetries = 1;
+        ProcessSupervisor.retryBackoff = 10;
+    }
+
+    @After
+    public void tearDown() {
+        ProcessSupervisor.reset();
+    }
+
+    @Test
+    public void testOutputAndExitValue() {
+        ProcessSupervisor.Result result = ProcessSupervisor.execute("bash", new String[]{"/bin/bash", "-c", "echo statfier; exit 4"}, true, null);
+        assertFalse(result.timedOut);
+        assertEquals(4, result.exitValue);
+        assertEquals("statfier", result.output.trim());
+        assertEquals(1, result.attempts);
+    }
+
+    @Test
+    public void testTimeoutKillsProcessTreeAndRetries() {
+        long startTime = System.currentTimeMillis();
+        ProcessSupervisor.Result result = ProcessSupervisor.execute("sleep", new String[]{"/bin/bash", "-c", "sleep 30 & sleep 30; wait"});
+        assertTrue(result.timedOut);
+        assertEquals(2, result.attempts);
+        assertTrue(System.currentTimeMillis() - startTime < 20_000);
+        assertFalse(ProcessHandle.current().descendants().anyMatch(p -> p.info().command().orElse("").endsWith("sleep")));
+    }
+
+    @Test
+    public void testTimeoutFollowsLatency() {
+        ProcessSupervisor.defaultTimeout = 600;
+        ProcessSupervisor.minTimeout = 5;
+        ProcessSupervisor.timeoutMultiplier = 4;
+        assertEquals(600, ProcessSupervisor.getTimeout("true"));
+        for (int i = 0; i < 3; i++) {
+            ProcessSupervisor.execute("true", new String[]{"/bin/bash", "-c", "true"});
+        }
+        assertEquals(5, ProcessSupervisor.getTimeout("true"));
+    }
+
+    @Test
+    public void testTimeoutQuarantinesAnalyzedMutants() {
+        MutantRef first = new MutantRef("/tmp/iter1/mutant_1.java", "/tmp/seed/A.java", "A", 1);
+        MutantRef second = new MutantRef("/tmp/iter1/mutant_2.java", "/tmp/seed/B.java", "B", 1);
+        String[] cmdArgs = {"/bin/bash", "-c", "analyze mutant_1 mutant_2"};
+        Invoker.setAnalyzedMutants(Arrays.asList(first, second));
+        try {
+            Invoker.recordTimeout("tool", cmdArgs);
+        } finally {
+            Invoker.setAnalyzedMutants(null);
+        }
+        assertTrue(ProcessSupervisor.isQuarantined(first.getFilePath()));
+        assertTrue(ProcessSupervisor.isQuarantined(second.getFilePath()));
+        assertFalse(ProcessSupervisor.isQuarantined(String.join(" ", cmdArgs)));
+        Invoker.recordTimeout("tool", cmdArgs);
+        assertTrue(ProcessSupervisor.isQuarantined(String.join(" ", cmdArgs)));
+    }
+
+}
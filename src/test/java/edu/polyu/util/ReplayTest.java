@@ -0,0 +1,58 @@
+package edu.polyu.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the findings and verdicts of the regression replay
+ */
+public class ReplayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Map<String, List<Integer>> violations(String rule, Integer... lines) {
+        Map<String, List<Integer>> bug2lines = new HashMap<>();
+        bug2lines.put(rule, List.of(lines));
+        return bug2lines;
+    }
+
+    @Test
+    public void testVerdicts() {
+        Map<String, List<Integer>> clean = new HashMap<>();
+        assertEquals(Replay.STILL_FAILING, Replay.getVerdict(clean, violations("R", 3), "R", "FP"));
+        assertEquals(Replay.CHANGED, Replay.getVerdict(clean, violations("R", 3), "R", "FN"));
+        assertEquals(Replay.STILL_FAILING, Replay.getVerdict(violations("R", 3, 5), violations("R", 4), "R", "FN"));
+        assertEquals(Replay.FIXED, Replay.getVerdict(violations("R", 3), violations("R", 4), "R", "FN"));
+        assertEquals(Replay.FIXED, Replay.getVerdict(clean, violations("Other", 4), "R", "FP"));
+        assertEquals(Replay.ERROR, Replay.getVerdict(null, clean, "R", "FP"));
+    }
+
+    @Test
+    public void testLoadFindingsFromMovedStore() throws Exception {
+        File previous = folder.newFolder("previous");
+        File mutant = new File(previous, "mutants/iter1/bucket/M1.java");
+        mutant.getParentFile().mkdirs();
+        mutant.createNewFile();
+        ResultStore store = new ResultStore(new File(previous, "results_store"));
+        store.append("/old/eval/mutants/iter1/bucket/M1.java", "", "/seeds/bucket/S.java", "[AddBrackets]", "PMD", "R", ResultStore.FP, 1);
+        store.append("/old/eval/mutants/iter1/bucket/M1.java", "", "/seeds/bucket/S.java", "[AddBrackets]", "PMD", "R", ResultStore.FP, 1);
+        store.append("/old/eval/mutants/iter1/bucket/M2.java", "", "/seeds/bucket/S.java", "[AddBrackets]", "PMD", "", ResultStore.CLEAN, 0);
+        store.close();
+
+        List<Replay.Finding> findings = Replay.loadFindings(previous, "PMD");
+        assertEquals(1, findings.size());
+        assertEquals(mutant.getPath(), findings.get(0).mutant);
+        assertEquals("/seeds/bucket/S.java", findings.get(0).parent);
+        assertEquals("FP", findings.get(0).kind);
+    }
+
+}
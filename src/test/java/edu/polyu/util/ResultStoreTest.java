@@ -0,0 +1,92 @@
+package edu.polyu.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the columns and indexes of ResultStore and the filters of ResultQuery
+ */
+public class ResultStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void fill(ResultStore store, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String seq = i % 2 == 0 ? "[AddBrackets, LoopConversion1]" : "[AddBrackets]";
+            byte kind = i % 3 == 0 ? ResultStore.CLEAN : ResultStore.FP;
+            store.append("/eval/mutants/iter1/bucket/M" + i + ".java", "/eval/mutants/iter0/bucket/P" + i + ".java", "/seeds/bucket/S" + (i % 4) + ".java", seq,
+                    "PMD", kind == ResultStore.CLEAN ? "" : "Rule" + (i % 5), kind, i - 10);
+        }
+    }
+
+    @Test
+    public void testIndexedQueries() throws Exception {
+        File storeFolder = new File(folder.getRoot(), "results_store");
+        ResultStore store = new ResultStore(storeFolder);
+        fill(store, 0, 100);
+        store.close();
+        assertTrue(new File(storeFolder, "rule.idx").exists());
+        try (ResultStore.Reader reader = new ResultStore.Reader(storeFolder)) {
+            assertEquals(100, reader.getRows());
+            ResultStore.Row row = reader.get(7);
+            assertEquals("/eval/mutants/iter1/bucket/M7.java", row.mutant);
+            assertEquals("/eval/mutants/iter0/bucket/P7.java", row.parent);
+            assertEquals("/seeds/bucket/S3.java", row.seed);
+            assertEquals("[AddBrackets]", row.seq);
+            assertEquals("Rule2", row.rule);
+            assertEquals("FP", row.kind);
+            assertEquals(-3, row.delta);
+
+            int[] rows = new ResultQuery(reader).filter("rule", "Rule2").rows();
+            for (int id : rows) {
+                assertEquals("Rule2", reader.get(id).rule);
+            }
+            // i % 5 == 2 and i % 3 != 0
+            assertEquals(14, rows.length);
+            rows = new ResultQuery(reader).filter("transform", "LoopConversion1").filter("seed", "S0.java").rows();
+            assertEquals(25, rows.length);
+            rows = new ResultQuery(reader).filter("transform", "AddBrackets").filter("kind", "clean").rows();
+            assertEquals(34, rows.length);
+        }
+    }
+
+    @Test
+    public void testReopenDropsPartialRowAndAppends() throws Exception {
+        File storeFolder = new File(folder.getRoot(), "results_store");
+        ResultStore store = new ResultStore(storeFolder);
+        fill(store, 0, 10);
+        store.close();
+        // a crash after a part of a row was written
+        try (RandomAccessFile file = new RandomAccessFile(new File(storeFolder, "delta.col"), "rw")) {
+            file.setLength(file.length() - 2);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(new File(storeFolder, "mutant.str"), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        store = new ResultStore(storeFolder);
+        assertEquals(9, store.getRows());
+        fill(store, 9, 12);
+        // queries without indexes scan the columns
+        try (ResultStore.Reader reader = new ResultStore.Reader(storeFolder)) {
+            assertEquals(9, reader.getRows());
+        }
+        store.close();
+        try (ResultStore.Reader reader = new ResultStore.Reader(storeFolder)) {
+            assertEquals(12, reader.getRows());
+            assertEquals("/eval/mutants/iter1/bucket/M11.java", reader.get(11).mutant);
+            assertEquals(1, reader.get(11).delta);
+            List<String> rules = reader.getValues("rule");
+            assertEquals(rules.size(), rules.stream().distinct().count());
+            assertEquals(2, new ResultQuery(reader).filter("rule", "Rule1").rows().length);
+        }
+    }
+
+}
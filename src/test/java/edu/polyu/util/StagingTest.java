@@ -0,0 +1,63 @@
+package edu.polyu.util;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for the staging folder and its background writer
+ */
+public class StagingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() {
+        Staging.close();
+        Staging.flushInterval = 500;
+    }
+
+    @Test
+    public void testResolveFallsBackToEvaluationPath() {
+        String evaluationPath = new File(folder.getRoot(), "evaluation").getAbsolutePath();
+        assertEquals(evaluationPath, Staging.resolve("", evaluationPath, 0));
+        assertEquals(evaluationPath, Staging.resolve(new File(folder.getRoot(), "missing").getPath(), evaluationPath, 0));
+        assertEquals(evaluationPath, Staging.resolve(folder.getRoot().getPath(), evaluationPath, Long.MAX_VALUE));
+        String work = Staging.resolve(folder.getRoot().getPath(), evaluationPath, 0);
+        assertTrue(work.startsWith(folder.getRoot().getAbsolutePath() + File.separator + "statfier_evaluation_"));
+    }
+
+    @Test
+    public void testPersistCopiesStagedFilesOnce() throws Exception {
+        File work = folder.newFolder("work");
+        File evaluation = folder.newFolder("evaluation");
+        Staging.flushInterval = 50;
+        Staging.init(work, evaluation);
+        File mutant = new File(work, "mutants/iter1/bucket/A.java");
+        mutant.getParentFile().mkdirs();
+        Files.writeString(mutant.toPath(), "class A {}");
+        File seed = folder.newFile("Seed.java");
+
+        assertEquals(new File(evaluation, "mutants/iter1/bucket/A.java").getPath(), Staging.toPersistent(mutant.getPath()));
+        assertEquals(seed.getPath(), Staging.toPersistent(seed.getPath()));
+        Staging.persist(mutant.getPath());
+        Staging.persist(mutant.getPath());
+        Staging.persist(seed.getPath()); // files outside the staging folder are already persistent
+        Staging.flush();
+        File persisted = new File(evaluation, "mutants/iter1/bucket/A.java");
+        assertEquals("class A {}", Files.readString(persisted.toPath()));
+        assertEquals(1, persisted.getParentFile().listFiles().length);
+
+        Staging.close();
+        assertFalse(work.exists());
+        assertTrue(persisted.exists());
+    }
+
+}
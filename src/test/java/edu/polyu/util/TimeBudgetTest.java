@@ -0,0 +1,67 @@
+package edu.polyu.util;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TimeBudget shares, donations and drain policies
+ */
+public class TimeBudgetTest {
+
+    @Test
+    public void testBucketsShareTheDeadline() {
+        AtomicLong clock = new AtomicLong(0);
+        TimeBudget budget = new TimeBudget(0, 1000, 0, clock::get);
+        budget.register(Arrays.asList("a", "b"));
+        assertEquals(500, budget.getRemaining("a"));
+        budget.begin("a");
+        clock.set(400);
+        assertFalse(budget.isExhausted("a"));
+        clock.set(500);
+        assertTrue(budget.isExhausted("a"));
+        budget.end("a");
+        assertFalse(budget.isExhausted("b"));
+        clock.set(1000);
+        assertTrue(budget.isExhausted("b"));
+    }
+
+    @Test
+    public void testFinishedBucketDonatesRemainingTime() {
+        AtomicLong clock = new AtomicLong(0);
+        TimeBudget budget = new TimeBudget(0, 0, 600, clock::get);
+        budget.register(Arrays.asList("a", "b", "c"));
+        budget.begin("a");
+        clock.set(200);
+        budget.finish("a");
+        assertEquals(800, budget.getRemaining("b"));
+        assertEquals(800, budget.getRemaining("c"));
+        budget.finish("a");
+        assertEquals(800, budget.getRemaining("b"));
+    }
+
+    @Test
+    public void testCancelPolicySkipsExhaustedBuckets() {
+        AtomicLong clock = new AtomicLong(0);
+        TimeBudget budget = new TimeBudget(0, 100, 0, clock::get);
+        budget.register(Arrays.asList("a"));
+        clock.set(100);
+        String policy = TimeBudget.drainPolicy;
+        try {
+            TimeBudget.drainPolicy = TimeBudget.FINISH;
+            assertTrue(budget.canAnalyze("a"));
+            TimeBudget.drainPolicy = TimeBudget.CANCEL;
+            assertFalse(budget.canAnalyze("a"));
+        } finally {
+            TimeBudget.drainPolicy = policy;
+        }
+        budget.stop("a");
+        budget.skip("mutant_1.java");
+        assertTrue(budget.isSkipped("mutant_1.java"));
+        assertEquals("partial", budget.getStatus());
+    }
+
+}